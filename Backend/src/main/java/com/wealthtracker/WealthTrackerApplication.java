@@ -1,9 +1,14 @@
 package com.wealthtracker;
 
+import com.wealthtracker.repository.UserScopedRepositoryImpl;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@EnableMongoRepositories(repositoryBaseClass = UserScopedRepositoryImpl.class)
 public class WealthTrackerApplication {
     public static void main(String[] args) {
         SpringApplication.run(WealthTrackerApplication.class, args);
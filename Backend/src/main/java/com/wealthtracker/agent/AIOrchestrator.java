@@ -1,92 +1,280 @@
 package com.wealthtracker.agent;
 
+import com.wealthtracker.dto.ChatResponse;
 import com.wealthtracker.model.*;
 import com.wealthtracker.repository.*;
-import lombok.RequiredArgsConstructor;
+import com.wealthtracker.search.SemanticSearchService;
+import com.wealthtracker.service.MonthlyRollupService;
+import com.wealthtracker.search.SemanticSearchService.SearchResult;
+import com.wealthtracker.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.function.FunctionCallingOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * AI Orchestrator — central router that delegates to the three specialized
  * agents.
- * Also handles the conversational chat mode (with lightweight context
- * injection).
+ * Also handles the conversational chat mode (server-side sessions with a
+ * rolling message window, see ConversationMemory).
  */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class AIOrchestrator {
 
     private final ChatModel chatModel;
     private final InvestmentAnalysisAgent investmentAnalysisAgent;
     private final ExpenseAnalysisAgent expenseAnalysisAgent;
     private final InvestmentRecommendationAgent investmentRecommendationAgent;
+    private final ConversationMemory conversationMemory;
+    private final PromptBudget promptBudget;
+    private final FinanceTools financeTools;
+    private final SemanticSearchService searchService;
+    private final boolean toolCallingByDefault;
+    private final int retrievalLimit;
+    private final double retrievalMinScore;
 
     // Repositories for lightweight chat context
     private final StockRepository stockRepository;
     private final MutualFundRepository mutualFundRepository;
     private final FixedDepositRepository fixedDepositRepository;
     private final SavingsAccountRepository savingsAccountRepository;
-    private final ExpenseRepository expenseRepository;
-    private final IncomeRepository incomeRepository;
+    private final MonthlyRollupService rollupService;
+
+    // Concurrent identical agent runs (double clicks, several tabs) share one generation
+    private final SingleFlight<String> singleFlight;
+
+    public AIOrchestrator(ChatModel chatModel,
+                          InvestmentAnalysisAgent investmentAnalysisAgent,
+                          ExpenseAnalysisAgent expenseAnalysisAgent,
+                          InvestmentRecommendationAgent investmentRecommendationAgent,
+                          ConversationMemory conversationMemory,
+                          PromptBudget promptBudget,
+                          FinanceTools financeTools,
+                          SemanticSearchService searchService,
+                          StockRepository stockRepository,
+                          MutualFundRepository mutualFundRepository,
+                          FixedDepositRepository fixedDepositRepository,
+                          SavingsAccountRepository savingsAccountRepository,
+                          MonthlyRollupService rollupService,
+                          MeterRegistry meterRegistry,
+                          @Value("${ai.chat.tool-calling.enabled:false}") boolean toolCallingByDefault,
+                          @Value("${ai.chat.retrieval.limit:5}") int retrievalLimit,
+                          @Value("${ai.chat.retrieval.min-score:0.35}") double retrievalMinScore) {
+        this.chatModel = chatModel;
+        this.investmentAnalysisAgent = investmentAnalysisAgent;
+        this.expenseAnalysisAgent = expenseAnalysisAgent;
+        this.investmentRecommendationAgent = investmentRecommendationAgent;
+        this.conversationMemory = conversationMemory;
+        this.promptBudget = promptBudget;
+        this.financeTools = financeTools;
+        this.searchService = searchService;
+        this.toolCallingByDefault = toolCallingByDefault;
+        this.retrievalLimit = retrievalLimit;
+        this.retrievalMinScore = retrievalMinScore;
+        this.stockRepository = stockRepository;
+        this.mutualFundRepository = mutualFundRepository;
+        this.fixedDepositRepository = fixedDepositRepository;
+        this.savingsAccountRepository = savingsAccountRepository;
+        this.rollupService = rollupService;
+        this.singleFlight = new SingleFlight<>(meterRegistry, "ai.singleflight");
+    }
 
     /**
      * Run the Investment Analysis Agent for a user.
      */
     public String analyzePortfolio(String userId) {
-        log.info("Running InvestmentAnalysisAgent for user: {}", userId);
-        return investmentAnalysisAgent.analyze(userId);
+        return singleFlight.execute(SingleFlight.Key.of(userId, "InvestmentAnalysisAgent"), () -> {
+            log.info("Running InvestmentAnalysisAgent for user: {}", userId);
+            return investmentAnalysisAgent.analyze(userId);
+        });
     }
 
     /**
      * Run the Expense Analysis Agent for a user.
      */
     public String analyzeExpenses(String userId) {
-        log.info("Running ExpenseAnalysisAgent for user: {}", userId);
-        return expenseAnalysisAgent.analyze(userId);
+        return singleFlight.execute(SingleFlight.Key.of(userId, "ExpenseAnalysisAgent"), () -> {
+            log.info("Running ExpenseAnalysisAgent for user: {}", userId);
+            return expenseAnalysisAgent.analyze(userId);
+        });
     }
 
     /**
      * Run both analysis agents, then pass their reports to the Recommendation
-     * Agent.
+     * Agent. The two analysis steps go through the same coalescing as the
+     * standalone endpoints, so a concurrent portfolio or expense request shares
+     * its generation with this pipeline.
      */
     public String generateRecommendations(String userId) {
-        log.info("Running full agent pipeline for recommendations, user: {}", userId);
-        String portfolioReport = investmentAnalysisAgent.analyze(userId);
-        String expenseReport = expenseAnalysisAgent.analyze(userId);
-        return investmentRecommendationAgent.recommend(portfolioReport, expenseReport);
+        return singleFlight.execute(SingleFlight.Key.of(userId, "InvestmentRecommendationAgent"), () -> {
+            log.info("Running full agent pipeline for recommendations, user: {}", userId);
+            String portfolioReport = analyzePortfolio(userId);
+            String expenseReport = analyzeExpenses(userId);
+            return investmentRecommendationAgent.recommend(portfolioReport, expenseReport);
+        });
     }
 
     /**
-     * Conversational chat — enriches the prompt with a concise financial summary
-     * so the user can ask ad-hoc questions about their finances.
+     * Run the agent pipeline behind a given report type.
      */
-    public String chat(String userMessage, String userId) {
-        try {
-            String context = buildChatContext(userId);
-            String systemPrompt = """
-                    You are a helpful financial assistant for a personal wealth tracking app.
-                    The user's financial summary is provided below. Answer their questions concisely
-                    and accurately, using the data provided. Format monetary values with ₹.
-                    If you cannot answer something from the data, say so clearly.
+    public String run(AgentType agentType, String userId) {
+        return switch (agentType) {
+            case PORTFOLIO_ANALYSIS -> analyzePortfolio(userId);
+            case EXPENSE_ANALYSIS -> analyzeExpenses(userId);
+            case RECOMMENDATIONS -> generateRecommendations(userId);
+        };
+    }
 
-                    """ + context;
+    /**
+     * Conversational chat with server-side memory.
+     *
+     * The financial snapshot is built once when a session starts and enters the
+     * message window as a context entry; later turns reuse the window (plus the
+     * rolling summary) instead of rescanning the repositories. Pass a null or
+     * unknown sessionId to start a new session.
+     *
+     * Expense records whose descriptions match the question semantically are
+     * attached to the turn as extra context; they are not kept in the window.
+     */
+    public ChatResponse chat(String userMessage, String userId, String sessionId, String mode) {
+        ChatSession session = conversationMemory.find(userId, sessionId)
+                .orElseGet(() -> startSession(userId, mode));
 
-            Prompt prompt = new Prompt(List.of(
-                    new SystemMessage(systemPrompt),
-                    new UserMessage(userMessage)));
+        // One turn at a time per session so the window stays in conversation order
+        synchronized (session) {
+            try {
+                List<Message> messages = new ArrayList<>();
+                messages.add(new SystemMessage(CHAT_SYSTEM_PROMPT + (session.getSummary() != null
+                        ? "\nSUMMARY OF THE CONVERSATION SO FAR:\n" + session.getSummary() + "\n"
+                        : "")));
+                for (ChatTurn turn : session.getMessages()) {
+                    messages.add(toMessage(turn));
+                }
+                String related = relatedRecords(userId, userMessage);
+                if (related != null) {
+                    messages.add(new SystemMessage(related));
+                }
+                messages.add(new UserMessage(userMessage));
 
-            return chatModel.call(prompt).getResult().getOutput().getContent();
+                Prompt prompt = session.isToolCalling()
+                        ? new Prompt(messages, FunctionCallingOptions.builder()
+                                .withFunctionCallbacks(financeTools.callbacksFor(userId))
+                                .build())
+                        : new Prompt(messages);
+                String reply = promptBudget.call("ChatAgent", chatModel, prompt);
+                conversationMemory.append(session, userMessage, reply);
+                summarizeOverflow(session);
+                return new ChatResponse(reply, session.getId());
+            } catch (Exception e) {
+                log.error("Error in AIOrchestrator.chat: ", e);
+                return new ChatResponse("I'm sorry, I encountered an error. Please try again.", session.getId());
+            }
+        }
+    }
+
+    /**
+     * In tool-calling mode the session starts without a snapshot; the model pulls
+     * data through FinanceTools as the questions require it.
+     */
+    private ChatSession startSession(String userId, String mode) {
+        boolean toolCalling = mode != null ? "tools".equalsIgnoreCase(mode) : toolCallingByDefault;
+        String context = toolCalling
+                ? "Today is " + LocalDate.now() + ". No data has been loaded yet: use the available tools "
+                        + "to look up the user's expenses, stock holdings, RD schedule and savings balances."
+                : buildChatContext(userId);
+        ChatSession session = conversationMemory.create(userId, context);
+        session.setToolCalling(toolCalling);
+        return session;
+    }
+
+    public void endChat(String userId, String sessionId) {
+        conversationMemory.end(userId, sessionId);
+    }
+
+    private static final String CHAT_SYSTEM_PROMPT = """
+            You are a helpful financial assistant for a personal wealth tracking app.
+            The user's financial snapshot is provided in the conversation. Answer their questions concisely
+            and accurately, using the data provided. Format monetary values with ₹.
+            If you cannot answer something from the data, say so clearly.
+            """;
+
+    private static final String SUMMARY_SYSTEM_PROMPT = """
+            You maintain a running summary of a conversation between a user and their financial assistant.
+            Merge the existing summary with the new messages into one updated summary of at most 200 words.
+            The financial snapshot stays in the conversation, so keep only the figures discussed that may
+            still matter, the user's questions and the conclusions reached. Reply with the summary only.
+            """;
+
+    private void summarizeOverflow(ChatSession session) {
+        List<ChatTurn> overflow = conversationMemory.overflow(session);
+        if (overflow.isEmpty()) {
+            return;
+        }
+        StringBuilder transcript = new StringBuilder(1024);
+        transcript.append("EXISTING SUMMARY:\n")
+                .append(session.getSummary() != null ? session.getSummary() : "(none)")
+                .append("\n\nNEW MESSAGES:\n");
+        for (ChatTurn turn : overflow) {
+            transcript.append(turn.getRole()).append(": ").append(turn.getContent()).append('\n');
+        }
+        String summary = promptBudget.call("ConversationSummarizer", chatModel, new Prompt(List.of(
+                new SystemMessage(SUMMARY_SYSTEM_PROMPT),
+                new UserMessage(transcript.toString()))));
+        conversationMemory.compact(session, overflow, summary);
+    }
+
+    /**
+     * Top matches from the semantic index for the user's question, or null when
+     * nothing scores above the threshold. Retrieval failures never fail the turn.
+     */
+    private String relatedRecords(String userId, String userMessage) {
+        if (retrievalLimit <= 0) {
+            return null;
+        }
+        List<SearchResult> hits;
+        try {
+            hits = searchService.search(userId, userMessage, retrievalLimit);
         } catch (Exception e) {
-            log.error("Error in AIOrchestrator.chat: ", e);
-            return "I'm sorry, I encountered an error. Please try again.";
+            log.warn("Chat retrieval failed for user {}: {}", userId, e.getMessage());
+            return null;
         }
+        StringBuilder sb = new StringBuilder(512);
+        for (SearchResult hit : hits) {
+            if (hit.score() < retrievalMinScore) {
+                continue;
+            }
+            sb.append("- ").append(hit.date()).append(' ')
+                    .append(hit.description());
+            if (hit.category() != null) {
+                sb.append(" [").append(hit.category()).append(']');
+            }
+            if (hit.amount() != null) {
+                sb.append(": ");
+                PromptBudget.appendRupees(sb, hit.amount());
+            }
+            sb.append(" (").append(hit.source()).append(")\n");
+        }
+        return sb.length() == 0 ? null : "RECORDS RELATED TO THE QUESTION:\n" + sb;
+    }
+
+    private static Message toMessage(ChatTurn turn) {
+        return switch (turn.getRole()) {
+            case ChatTurn.USER -> new UserMessage(turn.getContent());
+            case ChatTurn.ASSISTANT -> new AssistantMessage(turn.getContent());
+            default -> new SystemMessage(turn.getContent());
+        };
     }
 
     private String buildChatContext(String userId) {
@@ -110,10 +298,9 @@ public class AIOrchestrator {
 
         ctx.append(String.format("- Total Portfolio: ₹%.0f\n", stockVal + mfVal + fdVal + savVal));
 
-        double totalExpenses = expenseRepository.findByUserId(userId)
-                .stream().mapToDouble(Expense::getAmount).sum();
-        double totalIncome = incomeRepository.findByUserId(userId)
-                .stream().mapToDouble(Income::getAmount).sum();
+        List<MonthlyRollup> rollups = rollupService.all(userId);
+        double totalExpenses = rollups.stream().mapToDouble(MonthlyRollup::getExpenseTotal).sum();
+        double totalIncome = rollups.stream().mapToDouble(MonthlyRollup::getIncomeTotal).sum();
 
         ctx.append(String.format("- Total Income: ₹%.0f | Total Expenses: ₹%.0f | Net Savings: ₹%.0f\n",
                 totalIncome, totalExpenses, totalIncome - totalExpenses));
@@ -0,0 +1,34 @@
+package com.wealthtracker.agent;
+
+import java.util.Arrays;
+
+/**
+ * The report-producing agents exposed through the AI endpoints.
+ * The slug matches the synchronous endpoint path, the agent name is what
+ * ends up in AgentReportResponse.agentType.
+ */
+public enum AgentType {
+
+    PORTFOLIO_ANALYSIS("portfolio-analysis", "InvestmentAnalysisAgent"),
+    EXPENSE_ANALYSIS("expense-analysis", "ExpenseAnalysisAgent"),
+    RECOMMENDATIONS("recommendations", "InvestmentRecommendationAgent");
+
+    private final String slug;
+    private final String agentName;
+
+    AgentType(String slug, String agentName) {
+        this.slug = slug;
+        this.agentName = agentName;
+    }
+
+    public String getSlug() { return slug; }
+
+    public String getAgentName() { return agentName; }
+
+    public static AgentType fromSlug(String slug) {
+        return Arrays.stream(values())
+                .filter(t -> t.slug.equalsIgnoreCase(slug) || t.name().equalsIgnoreCase(slug))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown agent type: " + slug));
+    }
+}
@@ -0,0 +1,214 @@
+package com.wealthtracker.agent;
+
+import com.wealthtracker.model.ChatSession;
+import com.wealthtracker.model.ChatTurn;
+import com.wealthtracker.repository.ChatSessionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-side chat sessions.
+ *
+ * Active sessions live in a bounded in-memory LRU; the least recently used one
+ * is spilled to the chat_sessions collection when the LRU is full (and all of
+ * them on shutdown), and loaded back on the next message. Spills and loads run
+ * after the LRU lock is released. Each session keeps a rolling window of
+ * messages; once the window overflows by a full batch, the oldest batch is
+ * folded into the session summary by the caller. The batch is a whole number
+ * of user/assistant pairs, and the context entries at the start of the
+ * session (the financial snapshot) are pinned: they never leave the window.
+ *
+ * A spilled session carries expireAt = last activity +
+ * ai.chat.session-retention-days; a TTL index removes the ones never resumed.
+ */
+@Component
+@Slf4j
+public class ConversationMemory {
+
+    private final ChatSessionRepository chatSessionRepository;
+    private final int windowSize;
+    private final int summarizeBatch;
+    private final Duration retention;
+
+    private final Map<String, ChatSession> sessions; // guarded by this
+    // Evicted from the LRU, not yet spilled; drained once the lock is released
+    private final List<ChatSession> evicted = new ArrayList<>(); // guarded by this
+    // Evicted sessions until their spill is written, so find() does not load a stale copy
+    private final Map<String, ChatSession> spilling = new ConcurrentHashMap<>();
+
+    public ConversationMemory(ChatSessionRepository chatSessionRepository,
+                              @Value("${ai.chat.max-active-sessions:1000}") int maxActiveSessions,
+                              @Value("${ai.chat.window-size:10}") int windowSize,
+                              @Value("${ai.chat.summarize-batch:6}") int summarizeBatch,
+                              @Value("${ai.chat.session-retention-days:30}") long retentionDays) {
+        this.chatSessionRepository = chatSessionRepository;
+        this.windowSize = windowSize;
+        this.summarizeBatch = Math.max(2, summarizeBatch - summarizeBatch % 2);
+        this.retention = Duration.ofDays(retentionDays);
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ChatSession> eldest) {
+                if (size() > maxActiveSessions) {
+                    spilling.put(eldest.getKey(), eldest.getValue());
+                    evicted.add(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Find a session owned by the user, from memory or from the spill collection.
+     */
+    public Optional<ChatSession> find(String userId, String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) {
+            return Optional.empty();
+        }
+        ChatSession session;
+        synchronized (this) {
+            session = sessions.get(sessionId);
+            if (session == null && (session = spilling.get(sessionId)) != null) {
+                sessions.put(sessionId, session);
+            }
+        }
+        if (session == null) {
+            ChatSession loaded = chatSessionRepository.findById(sessionId).orElse(null);
+            if (loaded != null) {
+                synchronized (this) {
+                    ChatSession raced = sessions.putIfAbsent(sessionId, loaded);
+                    session = raced != null ? raced : loaded;
+                }
+            }
+        }
+        spillEvicted();
+        return Optional.ofNullable(session).filter(s -> s.getUserId().equals(userId));
+    }
+
+    /**
+     * Start a session whose first window entry is the financial snapshot.
+     */
+    public ChatSession create(String userId, String snapshot) {
+        ChatSession session = new ChatSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUserId(userId);
+        session.getMessages().add(new ChatTurn(ChatTurn.CONTEXT, snapshot));
+        synchronized (this) {
+            sessions.put(session.getId(), session);
+        }
+        spillEvicted();
+        return session;
+    }
+
+    public void end(String userId, String sessionId) {
+        find(userId, sessionId).ifPresent(session -> {
+            synchronized (this) {
+                sessions.remove(sessionId);
+            }
+            spilling.remove(sessionId);
+            chatSessionRepository.deleteById(sessionId);
+        });
+    }
+
+    /**
+     * Append a completed exchange to the window.
+     */
+    public void append(ChatSession session, String userMessage, String reply) {
+        synchronized (session) {
+            session.getMessages().add(new ChatTurn(ChatTurn.USER, userMessage));
+            session.getMessages().add(new ChatTurn(ChatTurn.ASSISTANT, reply));
+            session.setUpdatedAt(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * The oldest batch of messages after the pinned context once the window
+     * has overflowed by a full batch, or an empty list. Summarizing in batches
+     * keeps the summarizer call off most turns.
+     */
+    public List<ChatTurn> overflow(ChatSession session) {
+        synchronized (session) {
+            List<ChatTurn> messages = session.getMessages();
+            int pinned = pinned(messages);
+            if (messages.size() - pinned < windowSize + summarizeBatch) {
+                return List.of();
+            }
+            return new ArrayList<>(messages.subList(pinned, pinned + summarizeBatch));
+        }
+    }
+
+    /**
+     * Replace the folded messages with the new summary.
+     */
+    public void compact(ChatSession session, List<ChatTurn> folded, String newSummary) {
+        synchronized (session) {
+            int pinned = pinned(session.getMessages());
+            session.getMessages().subList(pinned, pinned + folded.size()).clear();
+            session.setSummary(newSummary);
+        }
+    }
+
+    @PreDestroy
+    public void spillAll() {
+        List<ChatSession> active;
+        synchronized (this) {
+            active = new ArrayList<>(sessions.values());
+        }
+        spillEvicted();
+        if (!active.isEmpty()) {
+            log.info("Spilling {} active chat sessions", active.size());
+            active.forEach(this::stampExpiry);
+            chatSessionRepository.saveAll(active);
+        }
+    }
+
+    private void stampExpiry(ChatSession session) {
+        synchronized (session) {
+            session.setExpireAt(session.getUpdatedAt().plus(retention));
+        }
+    }
+
+    private static int pinned(List<ChatTurn> messages) {
+        int pinned = 0;
+        while (pinned < messages.size() && ChatTurn.CONTEXT.equals(messages.get(pinned).getRole())) {
+            pinned++;
+        }
+        return pinned;
+    }
+
+    private void spillEvicted() {
+        List<ChatSession> toSpill;
+        synchronized (this) {
+            if (evicted.isEmpty()) {
+                return;
+            }
+            toSpill = new ArrayList<>(evicted);
+            evicted.clear();
+        }
+        for (ChatSession session : toSpill) {
+            spill(session);
+            spilling.remove(session.getId(), session);
+        }
+    }
+
+    private void spill(ChatSession session) {
+        try {
+            stampExpiry(session);
+            chatSessionRepository.save(session);
+        } catch (Exception e) {
+            log.warn("Could not spill chat session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
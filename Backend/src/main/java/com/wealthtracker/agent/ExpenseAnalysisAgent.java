@@ -1,9 +1,7 @@
 package com.wealthtracker.agent;
 
-import com.wealthtracker.model.Expense;
-import com.wealthtracker.model.Income;
-import com.wealthtracker.repository.ExpenseRepository;
-import com.wealthtracker.repository.IncomeRepository;
+import com.wealthtracker.model.MonthlyRollup;
+import com.wealthtracker.service.MonthlyRollupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
@@ -12,9 +10,8 @@ import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Expense Analysis Agent
@@ -27,8 +24,8 @@ import java.util.stream.Collectors;
 public class ExpenseAnalysisAgent {
 
     private final ChatModel chatModel;
-    private final ExpenseRepository expenseRepository;
-    private final IncomeRepository incomeRepository;
+    private final MonthlyRollupService rollupService;
+    private final PromptBudget promptBudget;
 
     public String analyze(String userId) {
         try {
@@ -65,22 +62,25 @@ public class ExpenseAnalysisAgent {
                     new UserMessage("Analyze this expense and income data:\n\n" + expenseData)
             ));
 
-            return chatModel.call(prompt).getResult().getOutput().getContent();
+            return promptBudget.call("ExpenseAnalysisAgent", chatModel, prompt);
         } catch (Exception e) {
             log.error("Error in ExpenseAnalysisAgent: ", e);
             return "Unable to generate expense analysis at this time. Please try again.";
         }
     }
 
+    /**
+     * Built from the pre-aggregated monthly rollups rather than the raw
+     * expense and income rows.
+     */
     private String buildExpenseData(String userId) {
         StringBuilder data = new StringBuilder();
 
-        List<Expense> expenses = expenseRepository.findByUserId(userId);
-        List<Income> incomes = incomeRepository.findByUserId(userId);
+        List<MonthlyRollup> rollups = rollupService.all(userId);
 
         // Totals
-        double totalExpenses = expenses.stream().mapToDouble(Expense::getAmount).sum();
-        double totalIncome = incomes.stream().mapToDouble(Income::getAmount).sum();
+        double totalExpenses = rollups.stream().mapToDouble(MonthlyRollup::getExpenseTotal).sum();
+        double totalIncome = rollups.stream().mapToDouble(MonthlyRollup::getIncomeTotal).sum();
         double netSavings = totalIncome - totalExpenses;
         double savingsRate = totalIncome > 0 ? (netSavings / totalIncome) * 100 : 0;
 
@@ -89,45 +89,46 @@ public class ExpenseAnalysisAgent {
         data.append(String.format("Net Savings: ₹%.2f\n", netSavings));
         data.append(String.format("Overall Savings Rate: %.1f%%\n\n", savingsRate));
 
-        // Monthly expense breakdown (last 6 months)
-        LocalDate sixMonthsAgo = LocalDate.now().minusMonths(6);
-        Map<String, Double> monthlyExpenses = expenses.stream()
-                .filter(e -> e.getDate() != null && e.getDate().isAfter(sixMonthsAgo))
-                .collect(Collectors.groupingBy(
-                        e -> e.getDate().toString().substring(0, 7),
-                        Collectors.summingDouble(Expense::getAmount)));
+        // Monthly breakdown (last 6 months, rollups are sorted by month)
+        String firstMonth = YearMonth.now().minusMonths(5).toString();
+        List<MonthlyRollup> recent = rollups.stream()
+                .filter(r -> r.getMonth().compareTo(firstMonth) >= 0)
+                .toList();
 
         data.append("=== MONTHLY EXPENSES (last 6 months) ===\n");
-        monthlyExpenses.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(e -> data.append(String.format("- %s: ₹%.2f\n", e.getKey(), e.getValue())));
+        recent.stream()
+                .filter(r -> r.getExpenseCount() > 0)
+                .forEach(r -> data.append(String.format("- %s: ₹%.2f\n", r.getMonth(), r.getExpenseTotal())));
         data.append("\n");
 
-        // Monthly income breakdown (last 6 months)
-        Map<String, Double> monthlyIncome = incomes.stream()
-                .filter(i -> i.getDate() != null && i.getDate().isAfter(sixMonthsAgo))
-                .collect(Collectors.groupingBy(
-                        i -> i.getDate().toString().substring(0, 7),
-                        Collectors.summingDouble(Income::getAmount)));
-
         data.append("=== MONTHLY INCOME (last 6 months) ===\n");
-        monthlyIncome.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(e -> data.append(String.format("- %s: ₹%.2f\n", e.getKey(), e.getValue())));
+        recent.stream()
+                .filter(r -> r.getIncomeCount() > 0)
+                .forEach(r -> data.append(String.format("- %s: ₹%.2f\n", r.getMonth(), r.getIncomeTotal())));
         data.append("\n");
 
         // Category breakdown
-        Map<String, Double> categoryExpenses = expenses.stream()
-                .collect(Collectors.groupingBy(
-                        Expense::getCategory,
-                        Collectors.summingDouble(Expense::getAmount)));
+        Map<String, Double> categoryExpenses = new HashMap<>();
+        for (MonthlyRollup rollup : rollups) {
+            rollup.getExpensesByCategory().forEach((category, amount) ->
+                    categoryExpenses.merge(category, amount, Double::sum));
+        }
+        categoryExpenses.values().removeIf(amount -> Math.abs(amount) < 0.005);
 
         data.append("=== EXPENSE CATEGORIES (all time) ===\n");
-        categoryExpenses.entrySet().stream()
+        PromptBudget.Compacted<Map.Entry<String, Double>> categories = promptBudget.compact(
+                new ArrayList<>(categoryExpenses.entrySet()), Map.Entry::getValue,
+                promptBudget.getMaxRowsPerSection());
+        categories.shown().stream()
                 .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
                 .forEach(e -> data.append(String.format("- %s: ₹%.2f (%.1f%% of total)\n",
                         e.getKey(), e.getValue(),
                         totalExpenses > 0 ? (e.getValue() / totalExpenses) * 100 : 0)));
+        if (categories.hasOthers()) {
+            data.append(String.format("- Others (%d categories): ₹%.2f (%.1f%% of total)\n",
+                    categories.othersCount(), categories.othersValue(),
+                    totalExpenses > 0 ? (categories.othersValue() / totalExpenses) * 100 : 0));
+        }
 
         return data.toString();
     }
@@ -0,0 +1,174 @@
+package com.wealthtracker.agent;
+
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.Stock;
+import com.wealthtracker.repository.ExpenseRepository;
+import com.wealthtracker.repository.FixedDepositRepository;
+import com.wealthtracker.repository.SavingsAccountRepository;
+import com.wealthtracker.repository.StockRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.ai.model.function.FunctionCallbackWrapper;
+import org.springframework.data.domain.Range;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Narrow data-lookup tools for the chat agent's tool-calling mode.
+ *
+ * Instead of loading every collection up front, the model asks for the slice it
+ * needs. Every tool is a single indexed query scoped to the user, and results
+ * go through ToolResultCache.
+ */
+@Component
+@RequiredArgsConstructor
+public class FinanceTools {
+
+    private static final int MAX_ITEMS = 15;
+
+    private final ExpenseRepository expenseRepository;
+    private final StockRepository stockRepository;
+    private final FixedDepositRepository fixedDepositRepository;
+    private final SavingsAccountRepository savingsAccountRepository;
+    private final ToolResultCache cache;
+
+    // -------------------- Tool inputs / outputs --------------------
+
+    public record ExpenseQuery(String category, String month) {}
+    public record ExpenseItem(LocalDate date, String category, Double amount, String description) {}
+    public record ExpenseSummary(String month, String category, double total, int count,
+                                 Map<String, Double> totalsByCategory, List<ExpenseItem> largest) {}
+
+    public record SymbolQuery(String symbol) {}
+    public record Holding(String stockName, String symbol, Double quantity, Double averagePrice,
+                          double investedValue, LocalDate purchaseDate) {}
+
+    public record NoInput() {}
+    public record RdInstallmentPlan(String bankName, Double monthlyInstallment, LocalDate startDate,
+                                    LocalDate maturityDate, LocalDate lastDeduction,
+                                    LocalDate nextInstallment, long remainingInstallments) {}
+
+    public record AccountQuery(String bankName) {}
+    public record AccountBalance(String bankName, Double balance, Double interestRate) {}
+
+    /**
+     * Tool callbacks bound to one user. The userId is captured here, never taken
+     * from model output.
+     */
+    public List<FunctionCallback> callbacksFor(String userId) {
+        Function<ExpenseQuery, ExpenseSummary> expenses =
+                q -> cache.get(userId, "expensesByCategoryMonth", q, () -> expensesByCategoryMonth(userId, q));
+        Function<SymbolQuery, List<Holding>> holdings =
+                q -> cache.get(userId, "holdingsBySymbol", q, () -> holdingsBySymbol(userId, q));
+        Function<NoInput, List<RdInstallmentPlan>> rdSchedule =
+                q -> cache.get(userId, "rdSchedule", q, () -> rdSchedule(userId));
+        Function<AccountQuery, List<AccountBalance>> savings =
+                q -> cache.get(userId, "savingsBalance", q, () -> savingsBalance(userId, q));
+
+        return List.of(
+                FunctionCallbackWrapper.builder(expenses)
+                        .withName("expensesByCategoryMonth")
+                        .withDescription("Expenses for one month (yyyy-MM, defaults to the current month), "
+                                + "optionally filtered to one category. Returns totals per category and the largest entries.")
+                        .withInputType(ExpenseQuery.class)
+                        .build(),
+                FunctionCallbackWrapper.builder(holdings)
+                        .withName("holdingsBySymbol")
+                        .withDescription("The user's stock holding(s) for a ticker symbol, e.g. INFY.")
+                        .withInputType(SymbolQuery.class)
+                        .build(),
+                FunctionCallbackWrapper.builder(rdSchedule)
+                        .withName("rdSchedule")
+                        .withDescription("Installment schedule of the user's recurring deposits (RDs).")
+                        .withInputType(NoInput.class)
+                        .build(),
+                FunctionCallbackWrapper.builder(savings)
+                        .withName("savingsBalance")
+                        .withDescription("Savings account balances, optionally for one bank.")
+                        .withInputType(AccountQuery.class)
+                        .build());
+    }
+
+    // -------------------- Tool implementations --------------------
+
+    ExpenseSummary expensesByCategoryMonth(String userId, ExpenseQuery query) {
+        YearMonth month = parseMonth(query.month());
+        List<Expense> expenses = expenseRepository.findByUserIdAndDateBetween(
+                userId, Range.closed(month.atDay(1), month.atEndOfMonth()));
+
+        String category = query.category() != null && !query.category().isBlank() ? query.category().trim() : null;
+        List<Expense> matching = category == null ? expenses : expenses.stream()
+                .filter(e -> e.getCategory() != null && e.getCategory().equalsIgnoreCase(category))
+                .toList();
+
+        Map<String, Double> byCategory = matching.stream()
+                .collect(Collectors.groupingBy(e -> e.getCategory() != null ? e.getCategory() : "Uncategorized",
+                        LinkedHashMap::new, Collectors.summingDouble(Expense::getAmount)));
+        List<ExpenseItem> largest = matching.stream()
+                .sorted(Comparator.comparing(Expense::getAmount).reversed())
+                .limit(MAX_ITEMS)
+                .map(e -> new ExpenseItem(e.getDate(), e.getCategory(), e.getAmount(), e.getDescription()))
+                .toList();
+        double total = matching.stream().mapToDouble(Expense::getAmount).sum();
+
+        return new ExpenseSummary(month.toString(), category, total, matching.size(), byCategory, largest);
+    }
+
+    List<Holding> holdingsBySymbol(String userId, SymbolQuery query) {
+        if (query.symbol() == null || query.symbol().isBlank()) {
+            return List.of();
+        }
+        String symbol = query.symbol().trim();
+        List<Stock> stocks = stockRepository.findByUserIdAndSymbolIn(
+                userId, List.of(symbol, symbol.toUpperCase(), symbol.toLowerCase()));
+        return stocks.stream()
+                .map(s -> new Holding(s.getStockName(), s.getSymbol(), s.getQuantity(), s.getPurchasePrice(),
+                        s.getQuantity() * s.getPurchasePrice(), s.getPurchaseDate()))
+                .toList();
+    }
+
+    List<RdInstallmentPlan> rdSchedule(String userId) {
+        return fixedDepositRepository.findByUserIdAndDepositType(userId, "RD").stream()
+                .map(rd -> {
+                    LocalDate start = rd.getStartDate() != null ? rd.getStartDate() : rd.getCreatedAt();
+                    LocalDate next = rd.getLastDeductionDate() != null
+                            ? rd.getLastDeductionDate().plusMonths(1).withDayOfMonth(1)
+                            : start;
+                    boolean matured = rd.getMaturityDate() != null && next.isAfter(rd.getMaturityDate());
+                    long remaining = matured || rd.getMaturityDate() == null ? 0
+                            : ChronoUnit.MONTHS.between(YearMonth.from(next), YearMonth.from(rd.getMaturityDate())) + 1;
+                    return new RdInstallmentPlan(rd.getBankName(), rd.getAmount(), start, rd.getMaturityDate(),
+                            rd.getLastDeductionDate(), matured ? null : next, remaining);
+                })
+                .toList();
+    }
+
+    List<AccountBalance> savingsBalance(String userId, AccountQuery query) {
+        String bank = query.bankName() != null && !query.bankName().isBlank() ? query.bankName().trim() : null;
+        return savingsAccountRepository.findByUserId(userId).stream()
+                .filter(a -> bank == null || (a.getBankName() != null && a.getBankName().equalsIgnoreCase(bank)))
+                .map(a -> new AccountBalance(a.getBankName(), a.getBalance(), a.getInterestRate()))
+                .toList();
+    }
+
+    private static YearMonth parseMonth(String month) {
+        if (month == null || month.isBlank()) {
+            return YearMonth.now();
+        }
+        try {
+            return YearMonth.parse(month.trim().substring(0, Math.min(7, month.trim().length())));
+        } catch (DateTimeParseException e) {
+            return YearMonth.now();
+        }
+    }
+}
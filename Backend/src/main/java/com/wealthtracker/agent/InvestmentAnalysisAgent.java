@@ -27,6 +27,7 @@ public class InvestmentAnalysisAgent {
     private final MutualFundRepository mutualFundRepository;
     private final FixedDepositRepository fixedDepositRepository;
     private final SavingsAccountRepository savingsAccountRepository;
+    private final PromptBudget promptBudget;
 
     public String analyze(String userId) {
         try {
@@ -57,7 +58,7 @@ public class InvestmentAnalysisAgent {
                     new UserMessage("Analyze this portfolio data and generate the report:\n\n" + portfolioData)
             ));
 
-            return chatModel.call(prompt).getResult().getOutput().getContent();
+            return promptBudget.call("InvestmentAnalysisAgent", chatModel, prompt);
         } catch (Exception e) {
             log.error("Error in InvestmentAnalysisAgent: ", e);
             return "Unable to generate portfolio analysis at this time. Please try again.";
@@ -65,76 +66,129 @@ public class InvestmentAnalysisAgent {
     }
 
     private String buildPortfolioData(String userId) {
-        StringBuilder data = new StringBuilder();
+        List<Stock> stocks = stockRepository.findByUserId(userId);
+        List<MutualFund> mutualFunds = mutualFundRepository.findByUserId(userId);
+        List<FixedDeposit> fds = fixedDepositRepository.findByUserId(userId);
+        List<SavingsAccount> savings = savingsAccountRepository.findByUserId(userId);
+
+        // Render with the configured row limit, halving it while the prompt is over budget
+        int rowLimit = promptBudget.getMaxRowsPerSection();
+        String data = renderPortfolioData(stocks, mutualFunds, fds, savings, rowLimit);
+        while (!promptBudget.fits(data) && (rowLimit = promptBudget.shrink(rowLimit)) > 0) {
+            data = renderPortfolioData(stocks, mutualFunds, fds, savings, rowLimit);
+        }
+        return data;
+    }
+
+    private String renderPortfolioData(List<Stock> stocks, List<MutualFund> mutualFunds,
+                                       List<FixedDeposit> fds, List<SavingsAccount> savings, int rowLimit) {
+        int rows = Math.min(stocks.size(), rowLimit) + Math.min(mutualFunds.size(), rowLimit)
+                + Math.min(fds.size(), rowLimit) + Math.min(savings.size(), rowLimit);
+        StringBuilder data = new StringBuilder(512 + rows * 96);
 
         // Stocks
-        List<Stock> stocks = stockRepository.findByUserId(userId);
         double stockValue = stocks.stream()
-                .mapToDouble(s -> s.getQuantity() * s.getPurchasePrice())
+                .mapToDouble(InvestmentAnalysisAgent::stockValue)
                 .sum();
         data.append("=== STOCKS ===\n");
         if (stocks.isEmpty()) {
             data.append("No stock holdings.\n");
         } else {
-            stocks.forEach(s -> data.append(String.format(
-                    "- %s (%s): %.2f shares @ ₹%.2f each = ₹%.2f (purchased: %s)\n",
-                    s.getStockName(), s.getSymbol() != null ? s.getSymbol() : "N/A",
-                    s.getQuantity(), s.getPurchasePrice(),
-                    s.getQuantity() * s.getPurchasePrice(),
-                    s.getPurchaseDate() != null ? s.getPurchaseDate() : "unknown")));
+            PromptBudget.Compacted<Stock> shown = promptBudget.compact(
+                    stocks, InvestmentAnalysisAgent::stockValue, rowLimit);
+            for (Stock s : shown.shown()) {
+                data.append("- ").append(s.getStockName())
+                        .append(" (").append(s.getSymbol() != null ? s.getSymbol() : "N/A").append("): ");
+                PromptBudget.appendFixed(data, s.getQuantity(), 2).append(" shares @ ");
+                PromptBudget.appendRupees(data, s.getPurchasePrice()).append(" each = ");
+                PromptBudget.appendRupees(data, stockValue(s))
+                        .append(" (purchased: ")
+                        .append(s.getPurchaseDate() != null ? s.getPurchaseDate() : "unknown").append(")\n");
+            }
+            appendOthers(data, shown, "holdings");
         }
-        data.append(String.format("Stock Total: ₹%.2f\n\n", stockValue));
+        PromptBudget.appendRupees(data.append("Stock Total: "), stockValue).append("\n\n");
 
         // Mutual Funds
-        List<MutualFund> mutualFunds = mutualFundRepository.findByUserId(userId);
         double mfValue = mutualFunds.stream()
-                .mapToDouble(mf -> mf.getUnits() * mf.getNav())
+                .mapToDouble(InvestmentAnalysisAgent::fundValue)
                 .sum();
         data.append("=== MUTUAL FUNDS ===\n");
         if (mutualFunds.isEmpty()) {
             data.append("No mutual fund holdings.\n");
         } else {
-            mutualFunds.forEach(mf -> data.append(String.format(
-                    "- %s: %.4f units @ NAV ₹%.2f = ₹%.2f\n",
-                    mf.getFundName(), mf.getUnits(), mf.getNav(), mf.getUnits() * mf.getNav())));
+            PromptBudget.Compacted<MutualFund> shown = promptBudget.compact(
+                    mutualFunds, InvestmentAnalysisAgent::fundValue, rowLimit);
+            for (MutualFund mf : shown.shown()) {
+                data.append("- ").append(mf.getFundName()).append(": ");
+                PromptBudget.appendFixed(data, mf.getUnits(), 4).append(" units @ NAV ");
+                PromptBudget.appendRupees(data, mf.getNav()).append(" = ");
+                PromptBudget.appendRupees(data, fundValue(mf)).append('\n');
+            }
+            appendOthers(data, shown, "funds");
         }
-        data.append(String.format("Mutual Fund Total: ₹%.2f\n\n", mfValue));
+        PromptBudget.appendRupees(data.append("Mutual Fund Total: "), mfValue).append("\n\n");
 
         // Fixed Deposits
-        List<FixedDeposit> fds = fixedDepositRepository.findByUserId(userId);
         double fdValue = fds.stream().mapToDouble(FixedDeposit::getAmount).sum();
         data.append("=== FIXED DEPOSITS / RDs ===\n");
         if (fds.isEmpty()) {
             data.append("No fixed deposits.\n");
         } else {
-            fds.forEach(fd -> data.append(String.format(
-                    "- %s [%s]: ₹%.2f @ %.2f%% interest, matures: %s\n",
-                    fd.getBankName(), fd.getDepositType(),
-                    fd.getAmount(), fd.getInterestRate() != null ? fd.getInterestRate() : 0.0,
-                    fd.getMaturityDate() != null ? fd.getMaturityDate() : "N/A")));
+            PromptBudget.Compacted<FixedDeposit> shown = promptBudget.compact(
+                    fds, FixedDeposit::getAmount, rowLimit);
+            for (FixedDeposit fd : shown.shown()) {
+                data.append("- ").append(fd.getBankName()).append(" [").append(fd.getDepositType()).append("]: ");
+                PromptBudget.appendRupees(data, fd.getAmount()).append(" @ ");
+                PromptBudget.appendFixed(data, fd.getInterestRate() != null ? fd.getInterestRate() : 0.0, 2)
+                        .append("% interest, matures: ")
+                        .append(fd.getMaturityDate() != null ? fd.getMaturityDate() : "N/A").append('\n');
+            }
+            appendOthers(data, shown, "deposits");
         }
-        data.append(String.format("FD Total: ₹%.2f\n\n", fdValue));
+        PromptBudget.appendRupees(data.append("FD Total: "), fdValue).append("\n\n");
 
         // Savings
-        List<SavingsAccount> savings = savingsAccountRepository.findByUserId(userId);
         double savingsValue = savings.stream().mapToDouble(SavingsAccount::getBalance).sum();
         data.append("=== SAVINGS ACCOUNTS ===\n");
         if (savings.isEmpty()) {
             data.append("No savings accounts.\n");
         } else {
-            savings.forEach(sa -> data.append(String.format(
-                    "- %s: ₹%.2f\n", sa.getBankName() != null ? sa.getBankName() : "Account", sa.getBalance())));
+            PromptBudget.Compacted<SavingsAccount> shown = promptBudget.compact(
+                    savings, SavingsAccount::getBalance, rowLimit);
+            for (SavingsAccount sa : shown.shown()) {
+                data.append("- ").append(sa.getBankName() != null ? sa.getBankName() : "Account").append(": ");
+                PromptBudget.appendRupees(data, sa.getBalance()).append('\n');
+            }
+            appendOthers(data, shown, "accounts");
         }
-        data.append(String.format("Savings Total: ₹%.2f\n\n", savingsValue));
+        PromptBudget.appendRupees(data.append("Savings Total: "), savingsValue).append("\n\n");
 
         double total = stockValue + mfValue + fdValue + savingsValue;
-        data.append(String.format("=== TOTAL PORTFOLIO VALUE: ₹%.2f ===\n", total));
+        PromptBudget.appendRupees(data.append("=== TOTAL PORTFOLIO VALUE: "), total).append(" ===\n");
         if (total > 0) {
-            data.append(String.format("Allocation: Stocks %.1f%% | MF %.1f%% | FD %.1f%% | Savings %.1f%%\n",
-                    (stockValue / total) * 100, (mfValue / total) * 100,
-                    (fdValue / total) * 100, (savingsValue / total) * 100));
+            PromptBudget.appendFixed(data.append("Allocation: Stocks "), (stockValue / total) * 100, 1);
+            PromptBudget.appendFixed(data.append("% | MF "), (mfValue / total) * 100, 1);
+            PromptBudget.appendFixed(data.append("% | FD "), (fdValue / total) * 100, 1);
+            PromptBudget.appendFixed(data.append("% | Savings "), (savingsValue / total) * 100, 1);
+            data.append("%\n");
         }
 
         return data.toString();
     }
+
+    private static void appendOthers(StringBuilder data, PromptBudget.Compacted<?> compacted, String noun) {
+        if (compacted.hasOthers()) {
+            data.append("- Others (").append(compacted.othersCount()).append(' ').append(noun).append("): ");
+            PromptBudget.appendRupees(data, compacted.othersValue()).append('\n');
+        }
+    }
+
+    private static double stockValue(Stock s) {
+        return s.getQuantity() * s.getPurchasePrice();
+    }
+
+    private static double fundValue(MutualFund mf) {
+        return mf.getUnits() * mf.getNav();
+    }
 }
@@ -21,6 +21,7 @@ import java.util.List;
 public class InvestmentRecommendationAgent {
 
     private final ChatModel chatModel;
+    private final PromptBudget promptBudget;
 
     public String recommend(String portfolioReport, String expenseReport) {
         try {
@@ -64,7 +65,7 @@ public class InvestmentRecommendationAgent {
                     new UserMessage(userContent)
             ));
 
-            return chatModel.call(prompt).getResult().getOutput().getContent();
+            return promptBudget.call("InvestmentRecommendationAgent", chatModel, prompt);
         } catch (Exception e) {
             log.error("Error in InvestmentRecommendationAgent: ", e);
             return "Unable to generate investment recommendations at this time. Please try again.";
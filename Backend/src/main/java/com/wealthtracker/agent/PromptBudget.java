@@ -0,0 +1,187 @@
+package com.wealthtracker.agent;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Prompt-size budgeting shared by the agents.
+ *
+ * Ollama prefill time grows with prompt length, so the input builders keep the
+ * largest holdings/categories verbatim and fold the tail into one aggregated
+ * "others" row once a section exceeds the configured row limit. If the rendered
+ * prompt is still over the token budget the builders retry with a smaller limit.
+ *
+ * Metrics (tagged by agent):
+ * - ai.prompt.tokens.estimated: our chars/4 estimate of the prompt
+ * - ai.prompt.tokens: prompt tokens reported by Ollama
+ * - ai.prompt.prefill: Ollama prompt evaluation time
+ * - ai.llm.call: wall-clock time of the whole model call
+ */
+@Component
+@Slf4j
+public class PromptBudget {
+
+    // Rough average for llama-family tokenizers on mixed English/number text
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int MIN_ROWS_PER_SECTION = 5;
+
+    private final MeterRegistry meterRegistry;
+    private final int tokenBudget;
+    private final int maxRowsPerSection;
+
+    public PromptBudget(MeterRegistry meterRegistry,
+                        @Value("${ai.prompt.token-budget:3000}") int tokenBudget,
+                        @Value("${ai.prompt.max-rows-per-section:25}") int maxRowsPerSection) {
+        this.meterRegistry = meterRegistry;
+        this.tokenBudget = tokenBudget;
+        this.maxRowsPerSection = maxRowsPerSection;
+    }
+
+    /**
+     * Top-N rows of a section plus the aggregate of everything that was folded away.
+     */
+    public record Compacted<T>(List<T> shown, int othersCount, double othersValue) {
+        public boolean hasOthers() {
+            return othersCount > 0;
+        }
+    }
+
+    public int estimateTokens(CharSequence text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    public int estimateTokens(Prompt prompt) {
+        int tokens = 0;
+        for (Message message : prompt.getInstructions()) {
+            tokens += estimateTokens(message.getContent());
+        }
+        return tokens;
+    }
+
+    public int getTokenBudget() {
+        return tokenBudget;
+    }
+
+    public int getMaxRowsPerSection() {
+        return maxRowsPerSection;
+    }
+
+    /**
+     * Next, smaller row limit to try when a rendered prompt is over budget,
+     * or -1 if the limit cannot shrink any further.
+     */
+    public int shrink(int rowLimit) {
+        return rowLimit > MIN_ROWS_PER_SECTION ? Math.max(MIN_ROWS_PER_SECTION, rowLimit / 2) : -1;
+    }
+
+    public boolean fits(CharSequence text) {
+        return estimateTokens(text) <= tokenBudget;
+    }
+
+    /**
+     * Keep the rowLimit largest items by value; aggregate the rest.
+     */
+    public <T> Compacted<T> compact(List<T> items, ToDoubleFunction<T> value, int rowLimit) {
+        if (items.size() <= rowLimit) {
+            return new Compacted<>(items, 0, 0);
+        }
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparingDouble(value).reversed());
+
+        double othersValue = 0;
+        for (int i = rowLimit; i < sorted.size(); i++) {
+            othersValue += value.applyAsDouble(sorted.get(i));
+        }
+        return new Compacted<>(sorted.subList(0, rowLimit), sorted.size() - rowLimit, othersValue);
+    }
+
+    /**
+     * Call the model, recording prompt-size and latency metrics for the agent.
+     */
+    public String call(String agent, ChatModel chatModel, Prompt prompt) {
+        int estimated = estimateTokens(prompt);
+        DistributionSummary.builder("ai.prompt.tokens.estimated")
+                .tag("agent", agent)
+                .register(meterRegistry)
+                .record(estimated);
+        if (estimated > tokenBudget) {
+            log.warn("{} prompt is ~{} tokens, over the {} token budget", agent, estimated, tokenBudget);
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ChatResponse response = chatModel.call(prompt);
+        sample.stop(meterRegistry.timer("ai.llm.call", "agent", agent));
+
+        recordResponseMetadata(agent, response.getMetadata());
+        return response.getResult().getOutput().getContent();
+    }
+
+    private void recordResponseMetadata(String agent, ChatResponseMetadata metadata) {
+        if (metadata == null) {
+            return;
+        }
+        if (metadata.getUsage() != null) {
+            Number promptTokens = metadata.getUsage().getPromptTokens();
+            if (promptTokens != null && promptTokens.longValue() > 0) {
+                DistributionSummary.builder("ai.prompt.tokens")
+                        .tag("agent", agent)
+                        .register(meterRegistry)
+                        .record(promptTokens.doubleValue());
+            }
+        }
+        // Ollama reports prompt evaluation (prefill) time in the response metadata
+        Object prefill = metadata.get("prompt-eval-duration");
+        if (prefill instanceof Duration duration) {
+            meterRegistry.timer("ai.prompt.prefill", "agent", agent).record(duration);
+        }
+    }
+
+    // -------------------- Allocation-free number formatting --------------------
+
+    /**
+     * Append value rounded to the given number of decimals (0-4), without going
+     * through String.format.
+     */
+    public static StringBuilder appendFixed(StringBuilder sb, double value, int decimals) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return sb.append(value);
+        }
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            sb.append('-');
+        }
+        sb.append(scaled / scale);
+        if (decimals > 0) {
+            sb.append('.');
+            long fraction = scaled % scale;
+            for (long pad = scale / 10; pad > 1 && fraction < pad; pad /= 10) {
+                sb.append('0');
+            }
+            sb.append(fraction);
+        }
+        return sb;
+    }
+
+    public static StringBuilder appendRupees(StringBuilder sb, double value) {
+        return appendFixed(sb.append('₹'), value, 2);
+    }
+}
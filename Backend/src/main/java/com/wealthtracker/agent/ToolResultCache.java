@@ -0,0 +1,61 @@
+package com.wealthtracker.agent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache for chat tool results, keyed by (userId, tool, arguments).
+ * The model tends to call the same tool with the same arguments several times
+ * in one conversation; entries expire after ai.tools.cache-ttl-seconds and can
+ * be dropped per user when their data changes.
+ */
+@Component
+public class ToolResultCache {
+
+    private record Entry(Object value, long expiresAt) {}
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    public ToolResultCache(MeterRegistry meterRegistry,
+                           @Value("${ai.tools.cache-ttl-seconds:60}") long ttlSeconds,
+                           @Value("${ai.tools.cache-max-entries:10000}") int maxEntries) {
+        this.meterRegistry = meterRegistry;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String userId, String tool, Object arguments, Supplier<T> loader) {
+        String key = userId + '|' + tool + '|' + arguments;
+        long now = System.currentTimeMillis();
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() > now) {
+            meterRegistry.counter("ai.tools.cache", "tool", tool, "result", "hit").increment();
+            return (T) entry.value();
+        }
+
+        meterRegistry.counter("ai.tools.cache", "tool", tool, "result", "miss").increment();
+        T value = loader.get();
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(e -> e.expiresAt() <= now);
+        }
+        if (entries.size() < maxEntries) {
+            entries.put(key, new Entry(value, now + ttlMillis));
+        }
+        return value;
+    }
+
+    public void invalidateUser(String userId) {
+        String prefix = userId + '|';
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+}
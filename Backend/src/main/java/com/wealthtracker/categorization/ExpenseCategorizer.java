@@ -0,0 +1,522 @@
+package com.wealthtracker.categorization;
+
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.repository.ExpenseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Normalises and suggests expense categories.
+ *
+ * A hand-entered category is mapped onto the app's category list ("food",
+ * "FOOD " and "Food" are the same bucket; "grocery" becomes "Groceries") or
+ * onto the spelling the user already uses for a custom category. A missing
+ * category is suggested from the description: first a merchant keyword trie
+ * ("swiggy" -> Dining Out), then a naive Bayes model trained on the user's own
+ * labelled history.
+ *
+ * Models are loaded from Mongo in the background on first use (until then
+ * only the keyword rules suggest), kept in a bounded LRU and updated
+ * incrementally as expenses are written. A model remembers what it counted
+ * for each expense, so an update replaces that expense's contribution and
+ * applying the same write twice changes nothing; writes that arrive while
+ * it loads are replayed onto it before it is installed. Classification works
+ * on primitive arrays and per-thread scratch buffers so it can run inline on
+ * every insert and on bulk imports.
+ */
+@Service
+@Slf4j
+public class ExpenseCategorizer {
+
+    public static final String FALLBACK_CATEGORY = "Other";
+
+    public record Suggestion(String category, double confidence, String source) {}
+
+    public record BackfillResult(int scanned, int normalized, int suggested) {}
+
+    /** Category list shown by the frontend (src/types/models.ts) plus RD installments. */
+    static final List<String> CATEGORIES = List.of(
+            "Investments", "Subscriptions", "Credit Card", "Groceries", "Bike", "Car", "Choco", "Coco",
+            "Credit Card Bills", "Utilities", "Food", "Public Transport", "Healthcare", "Education",
+            "Shopping", "Dining Out", "EMI/Loans", "Personal Care", "Gifts & Donations", "Housing",
+            "Travel", "Other", "RD Installment");
+
+    private static final Set<String> CANONICAL = Set.copyOf(CATEGORIES);
+
+    /** Keyed by the lower-case letters and digits of a category. */
+    private static final Map<String, String> ALIASES = new HashMap<>();
+
+    static {
+        CATEGORIES.forEach(c -> ALIASES.put(aliasKey(c), c));
+        alias("Groceries", "grocery", "supermarket", "vegetables", "veggies", "kirana");
+        alias("Food", "foods", "meal", "meals", "snacks");
+        alias("Dining Out", "restaurant", "restaurants", "eatingout", "diningout", "dinner", "lunch");
+        alias("Subscriptions", "subscription", "ott", "streaming");
+        alias("Utilities", "utility", "bills", "bill", "electricity", "water", "gas", "internet", "mobile",
+                "phone", "recharge");
+        alias("Public Transport", "transport", "transportation", "commute", "bus", "metro", "train",
+                "cab", "taxi", "auto");
+        alias("Healthcare", "health", "medical", "medicine", "medicines", "doctor", "hospital", "pharmacy");
+        alias("Education", "fees", "tuition", "course", "courses", "books");
+        alias("Shopping", "clothes", "clothing", "apparel", "electronics");
+        alias("EMI/Loans", "emi", "loan", "loans", "emis");
+        alias("Personal Care", "selfcare", "salon", "grooming", "beauty");
+        alias("Gifts & Donations", "gift", "gifts", "donation", "donations", "charity", "giftsdonations");
+        alias("Housing", "rent", "home", "house", "maintenance");
+        alias("Travel", "trip", "trips", "travelling", "traveling", "vacation", "holiday", "flights");
+        alias("Investments", "investment", "sip", "stocks", "mutualfunds");
+        alias("Credit Card Bills", "creditcardbill", "ccbill", "ccbills");
+        alias("RD Installment", "rd", "recurringdeposit");
+        alias("Other", "others", "misc", "miscellaneous", "general");
+    }
+
+    private static final KeywordTrie MERCHANTS = new KeywordTrie(merchantKeywords());
+
+    private static final class Scratch {
+        final int[] tokens = new int[64];
+        double[] scores = new double[32];
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * A user's model and what it has counted for each expense id.
+     */
+    private static final class UserModel {
+        final NaiveBayesModel bayes = new NaiveBayesModel();
+        final Map<String, Counted> counted = new HashMap<>();
+    }
+
+    private record Counted(String label, String description) {}
+
+    /**
+     * A load in progress; current is null for a deleted expense.
+     */
+    private static final class Loading {
+        record Write(String expenseId, Expense current) {}
+
+        final List<Write> writes = new ArrayList<>(); // guarded by models
+        final CompletableFuture<UserModel> future = new CompletableFuture<>();
+    }
+
+    private final ExpenseRepository expenseRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ThreadPoolTaskExecutor loadExecutor;
+    private final double minConfidence;
+    private final int minTrainingRows;
+    private final Map<String, UserModel> models; // guarded by itself
+    private final Map<String, Loading> loads = new HashMap<>(); // guarded by models
+
+    public ExpenseCategorizer(ExpenseRepository expenseRepository,
+                              MongoTemplate mongoTemplate,
+                              @Qualifier("categorizerExecutor") ThreadPoolTaskExecutor loadExecutor,
+                              @Value("${categorization.min-confidence:0.6}") double minConfidence,
+                              @Value("${categorization.min-training-rows:20}") int minTrainingRows,
+                              @Value("${categorization.max-users:1000}") int maxUsers) {
+        this.expenseRepository = expenseRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.loadExecutor = loadExecutor;
+        this.minConfidence = minConfidence;
+        this.minTrainingRows = minTrainingRows;
+        this.models = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserModel> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    // -------------------- Normalisation & suggestion --------------------
+
+    /**
+     * Canonical spelling of a hand-entered category, or null when it is blank.
+     * Unknown categories are kept (trimmed), in the spelling the user used first.
+     */
+    public String normalize(String userId, String category) {
+        if (category == null || category.isBlank()) {
+            return null;
+        }
+        if (CANONICAL.contains(category)) {
+            return category;
+        }
+        String alias = ALIASES.get(aliasKey(category));
+        if (alias != null) {
+            return alias;
+        }
+        String trimmed = category.trim().replaceAll("\\s+", " ");
+        UserModel model = model(userId);
+        if (model == null) {
+            return trimmed;
+        }
+        synchronized (model) {
+            String known = model.bayes.knownLabel(trimmed);
+            return known != null ? known : trimmed;
+        }
+    }
+
+    /**
+     * Best category for a description, or a suggestion with a null category
+     * when neither the keyword rules nor the user's model are confident.
+     */
+    public Suggestion suggest(String userId, String description) {
+        String merchant = MERCHANTS.match(description);
+        if (merchant != null) {
+            return new Suggestion(merchant, 1.0, "keyword");
+        }
+        UserModel model = model(userId);
+        if (model == null) {
+            return new Suggestion(null, 0, "none");
+        }
+        Scratch scratch = SCRATCH.get();
+        int n = NaiveBayesModel.tokenize(description, scratch.tokens);
+        synchronized (model) {
+            NaiveBayesModel bayes = model.bayes;
+            if (bayes.size() >= minTrainingRows) {
+                if (scratch.scores.length < bayes.labelCount()) {
+                    scratch.scores = new double[bayes.labelCount() * 2];
+                }
+                int best = bayes.classify(scratch.tokens, n, scratch.scores);
+                if (best >= 0 && scratch.scores[best] >= minConfidence) {
+                    return new Suggestion(bayes.label(best), scratch.scores[best], "model");
+                }
+            }
+        }
+        return new Suggestion(null, 0, "none");
+    }
+
+    /**
+     * Normalise the expense's category in place, or fill it in from the
+     * description when it is missing. Returns true when the category changed.
+     */
+    public boolean categorize(Expense expense) {
+        String original = expense.getCategory();
+        String category = normalize(expense.getUserId(), original);
+        if (category == null) {
+            Suggestion suggestion = suggest(expense.getUserId(), expense.getDescription());
+            category = suggestion.category() != null ? suggestion.category() : FALLBACK_CATEGORY;
+        }
+        expense.setCategory(category);
+        return !category.equals(original);
+    }
+
+    // -------------------- Incremental training --------------------
+
+    /**
+     * Count the expense as it is now, replacing what was counted for it before.
+     */
+    public void learn(Expense expense) {
+        train(expense.getUserId(), expense.getId(), expense);
+    }
+
+    /**
+     * Stop counting the expense.
+     */
+    public void forget(Expense expense) {
+        train(expense.getUserId(), expense.getId(), null);
+    }
+
+    private void train(String userId, String expenseId, Expense current) {
+        UserModel model;
+        synchronized (models) {
+            model = models.get(userId);
+            if (model == null) {
+                Loading loading = loads.get(userId);
+                if (loading != null) {
+                    loading.writes.add(new Loading.Write(expenseId, current));
+                }
+                return; // otherwise loaded from Mongo, including this write, on first use
+            }
+        }
+        synchronized (model) {
+            apply(model, expenseId, current, SCRATCH.get().tokens);
+        }
+    }
+
+    private static void apply(UserModel model, String expenseId, Expense current, int[] tokens) {
+        Counted was = model.counted.remove(expenseId);
+        if (was != null) {
+            int n = NaiveBayesModel.tokenize(was.description(), tokens);
+            model.bayes.learn(tokens, n, was.label(), -1);
+        }
+        if (current != null && current.getCategory() != null && !current.getCategory().isBlank()) {
+            String label = trainingLabel(current.getCategory());
+            int n = NaiveBayesModel.tokenize(current.getDescription(), tokens);
+            model.bayes.learn(tokens, n, label, 1);
+            model.counted.put(expenseId, new Counted(label, current.getDescription()));
+        }
+    }
+
+    // -------------------- Bulk --------------------
+
+    /**
+     * Normalise or fill in the categories of every expense of a user and set
+     * the ones that changed. Suggestions come from a model trained on the
+     * already-labelled rows, or only from the keyword rules when it cannot
+     * be loaded. Only the category is written, and only while the expense is
+     * as it was read, so an edit made meanwhile is kept; onChanged gets the
+     * expense before and after for each one that was written.
+     */
+    public BackfillResult backfill(String userId, BiConsumer<Expense, Expense> onChanged) {
+        long start = System.currentTimeMillis();
+        try {
+            load(userId).join();
+        } catch (CompletionException e) {
+            log.warn("Categorization backfill for user {} without a model: {}", userId, e.getMessage());
+        }
+        List<Expense> expenses = expenseRepository.findByUserId(userId);
+        int normalized = 0;
+        int suggested = 0;
+        Map<String, Expense> previous = new HashMap<>();
+        List<Expense> changed = new ArrayList<>();
+        for (Expense expense : expenses) {
+            Expense before = copy(expense);
+            boolean missing = expense.getCategory() == null || expense.getCategory().isBlank();
+            if (categorize(expense)) {
+                previous.put(expense.getId(), before);
+                changed.add(expense);
+                if (missing) {
+                    suggested++;
+                } else {
+                    normalized++;
+                }
+            }
+        }
+        if (!changed.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Expense.class);
+            for (Expense expense : changed) {
+                bulk.updateOne(asRead(previous.get(expense.getId())),
+                        new Update().set("category", expense.getCategory()));
+            }
+            List<Expense> written = bulk.execute().getMatchedCount() == changed.size() ? changed : written(changed);
+            written.forEach(expense -> onChanged.accept(previous.get(expense.getId()), expense));
+            invalidate(userId);
+        }
+        log.info("Categorization backfill for user {}: {} scanned, {} normalized, {} suggested in {}ms",
+                userId, expenses.size(), normalized, suggested, System.currentTimeMillis() - start);
+        return new BackfillResult(expenses.size(), normalized, suggested);
+    }
+
+    /**
+     * The changed expenses that now hold what the backfill wrote, when some
+     * of its updates found the expense edited and did not match.
+     */
+    private List<Expense> written(List<Expense> changed) {
+        Set<Expense> stored = new HashSet<>(mongoTemplate.find(Query.query(Criteria.where("_id")
+                .in(changed.stream().map(Expense::getId).toList())), Expense.class));
+        return changed.stream().filter(stored::contains).toList();
+    }
+
+    private static Query asRead(Expense expense) {
+        return Query.query(Criteria.where("_id").is(expense.getId())
+                .and("userId").is(expense.getUserId())
+                .and("amount").is(expense.getAmount())
+                .and("date").is(expense.getDate())
+                .and("category").is(expense.getCategory())
+                .and("description").is(expense.getDescription())
+                .and("savingsAccountId").is(expense.getSavingsAccountId()));
+    }
+
+    private static Expense copy(Expense expense) {
+        Expense copy = new Expense();
+        BeanUtils.copyProperties(expense, copy);
+        return copy;
+    }
+
+    /**
+     * Drop a user's model; a load in progress is not installed.
+     */
+    public void invalidate(String userId) {
+        synchronized (models) {
+            models.remove(userId);
+            loads.remove(userId);
+        }
+    }
+
+    // -------------------- Models --------------------
+
+    /**
+     * The user's model, or null while it is loaded in the background.
+     */
+    private UserModel model(String userId) {
+        synchronized (models) {
+            UserModel model = models.get(userId);
+            if (model != null) {
+                return model;
+            }
+        }
+        load(userId);
+        return null;
+    }
+
+    /**
+     * Start loading the user's model unless it is loaded or loading already.
+     */
+    private CompletableFuture<UserModel> load(String userId) {
+        Loading loading;
+        synchronized (models) {
+            UserModel model = models.get(userId);
+            if (model != null) {
+                return CompletableFuture.completedFuture(model);
+            }
+            loading = loads.get(userId);
+            if (loading != null) {
+                return loading.future;
+            }
+            loading = new Loading();
+            loads.put(userId, loading);
+        }
+        Loading started = loading;
+        try {
+            loadExecutor.execute(() -> build(userId, started));
+        } catch (TaskRejectedException e) {
+            synchronized (models) {
+                loads.remove(userId, started);
+            }
+            started.future.completeExceptionally(e);
+        }
+        return started.future;
+    }
+
+    private void build(String userId, Loading loading) {
+        try {
+            UserModel built = new UserModel();
+            int[] tokens = new int[64];
+            for (Expense expense : expenseRepository.findByUserId(userId)) {
+                apply(built, expense.getId(), expense, tokens);
+            }
+            // Replay what was written during the scan, until nothing new came in
+            while (true) {
+                List<Loading.Write> replay;
+                synchronized (models) {
+                    if (loads.get(userId) != loading) {
+                        break; // invalidated meanwhile
+                    }
+                    if (loading.writes.isEmpty()) {
+                        loads.remove(userId);
+                        models.put(userId, built);
+                        break;
+                    }
+                    replay = new ArrayList<>(loading.writes);
+                    loading.writes.clear();
+                }
+                for (Loading.Write write : replay) {
+                    apply(built, write.expenseId(), write.current(), tokens);
+                }
+            }
+            loading.future.complete(built);
+        } catch (RuntimeException e) {
+            log.warn("Could not load the categorization model of user {}: {}", userId, e.getMessage());
+            synchronized (models) {
+                loads.remove(userId, loading);
+            }
+            loading.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Label a stored category trains under; legacy rows may still hold
+     * un-normalised spellings.
+     */
+    private static String trainingLabel(String category) {
+        if (CANONICAL.contains(category)) {
+            return category;
+        }
+        String alias = ALIASES.get(aliasKey(category));
+        return alias != null ? alias : category.trim().replaceAll("\\s+", " ");
+    }
+
+    private static String aliasKey(String category) {
+        StringBuilder sb = new StringBuilder(category.length());
+        for (int i = 0; i < category.length(); i++) {
+            char c = category.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void alias(String category, String... aliases) {
+        for (String alias : aliases) {
+            ALIASES.put(alias, category);
+        }
+    }
+
+    private static Map<String, String> merchantKeywords() {
+        Map<String, String> k = new HashMap<>();
+        for (String m : List.of("swiggy", "zomato", "dominos", "pizza hut", "mcdonalds", "kfc", "starbucks",
+                "cafe coffee day", "burger king", "restaurant")) {
+            k.put(m, "Dining Out");
+        }
+        for (String m : List.of("bigbasket", "blinkit", "zepto", "instamart", "dmart", "grofers", "jiomart",
+                "grocery", "groceries", "vegetables", "milk", "kirana")) {
+            k.put(m, "Groceries");
+        }
+        for (String m : List.of("netflix", "spotify", "prime video", "hotstar", "youtube premium",
+                "apple music", "icloud", "google one", "subscription")) {
+            k.put(m, "Subscriptions");
+        }
+        for (String m : List.of("uber", "ola", "rapido", "metro", "bus ticket", "auto rickshaw")) {
+            k.put(m, "Public Transport");
+        }
+        for (String m : List.of("electricity", "water bill", "gas bill", "broadband", "wifi", "airtel",
+                "jio", "vodafone", "recharge", "bescom", "dth")) {
+            k.put(m, "Utilities");
+        }
+        for (String m : List.of("amazon", "flipkart", "myntra", "ajio", "nykaa fashion", "croma",
+                "reliance digital", "decathlon")) {
+            k.put(m, "Shopping");
+        }
+        for (String m : List.of("apollo", "pharmeasy", "1mg", "netmeds", "pharmacy", "hospital", "doctor",
+                "clinic", "medicine", "medicines")) {
+            k.put(m, "Healthcare");
+        }
+        for (String m : List.of("makemytrip", "goibibo", "cleartrip", "indigo", "air india", "vistara",
+                "oyo", "airbnb", "flight", "hotel", "irctc")) {
+            k.put(m, "Travel");
+        }
+        for (String m : List.of("rent", "maintenance", "society")) {
+            k.put(m, "Housing");
+        }
+        for (String m : List.of("emi", "loan")) {
+            k.put(m, "EMI/Loans");
+        }
+        for (String m : List.of("petrol", "diesel", "fuel", "car wash", "car service", "fastag", "parking")) {
+            k.put(m, "Car");
+        }
+        for (String m : List.of("salon", "haircut", "spa", "nykaa")) {
+            k.put(m, "Personal Care");
+        }
+        for (String m : List.of("tuition", "school fees", "college fees", "udemy", "coursera", "course")) {
+            k.put(m, "Education");
+        }
+        for (String m : List.of("zerodha", "groww", "sip", "mutual fund")) {
+            k.put(m, "Investments");
+        }
+        for (String m : List.of("donation", "charity", "gift")) {
+            k.put(m, "Gifts & Donations");
+        }
+        return k;
+    }
+}
@@ -0,0 +1,84 @@
+package com.wealthtracker.categorization;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Case-insensitive keyword trie used to spot merchant names in expense
+ * descriptions ("Swiggy order", "UBER *TRIP"). Built once, read-only
+ * afterwards; lookups walk the description in place and never allocate.
+ *
+ * A keyword only matches on word boundaries, and the longest keyword found
+ * anywhere in the text wins.
+ */
+public final class KeywordTrie {
+
+    private static final class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        String value;
+
+        Node child(char c) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(char c) {
+            Node existing = child(c);
+            if (existing != null) {
+                return existing;
+            }
+            Node node = new Node();
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            labels[labels.length - 1] = c;
+            children[children.length - 1] = node;
+            return node;
+        }
+    }
+
+    private final Node root = new Node();
+
+    public KeywordTrie(Map<String, String> keywords) {
+        keywords.forEach(this::add);
+    }
+
+    private void add(String keyword, String value) {
+        Node node = root;
+        for (int i = 0; i < keyword.length(); i++) {
+            node = node.addChild(Character.toLowerCase(keyword.charAt(i)));
+        }
+        node.value = value;
+    }
+
+    /**
+     * Value of the longest keyword contained in the text, or null.
+     */
+    public String match(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+        String best = null;
+        int bestLength = 0;
+        int length = text.length();
+        for (int start = 0; start < length; start++) {
+            if (start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) {
+                continue; // only start matching at the beginning of a word
+            }
+            Node node = root;
+            for (int i = start; i < length && node != null; i++) {
+                node = node.child(Character.toLowerCase(text.charAt(i)));
+                if (node != null && node.value != null && i + 1 - start > bestLength
+                        && (i + 1 == length || !Character.isLetterOrDigit(text.charAt(i + 1)))) {
+                    best = node.value;
+                    bestLength = i + 1 - start;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,226 @@
+package com.wealthtracker.categorization;
+
+import java.util.Arrays;
+
+/**
+ * Multinomial naive Bayes over description tokens, trained on one user's own
+ * labelled expenses.
+ *
+ * Tokens are reduced to 32-bit hashes and counted in an open-addressing table
+ * with one int row per token, so classifying a description only touches
+ * primitive arrays. Not thread-safe; ExpenseCategorizer guards each model.
+ */
+final class NaiveBayesModel {
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    private String[] labels = new String[8];
+    private int labelCount;
+    private int[] docsPerLabel = new int[8];
+    private long[] tokensPerLabel = new long[8];
+    private int totalDocs;
+
+    private int[] keys = new int[256];
+    private int[][] rows = new int[256][];
+    private int occupied; // slots in use in the token table
+    private int vocabulary; // tokens with a count under some label
+
+    int size() {
+        return totalDocs;
+    }
+
+    /**
+     * Hash the words of a description into out; returns the number of tokens.
+     * Pure numbers (amounts, dates) are skipped.
+     */
+    static int tokenize(CharSequence text, int[] out) {
+        if (text == null) {
+            return 0;
+        }
+        int count = 0;
+        int hash = 0x811c9dc5;
+        int length = 0;
+        boolean hasLetter = false;
+        for (int i = 0, n = text.length(); i <= n && count < out.length; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                hash = (hash ^ Character.toLowerCase(c)) * 0x01000193;
+                hasLetter |= Character.isLetter(c);
+                length++;
+            } else {
+                if (length >= MIN_TOKEN_LENGTH && hasLetter) {
+                    out[count++] = hash == 0 ? 1 : hash;
+                }
+                hash = 0x811c9dc5;
+                length = 0;
+                hasLetter = false;
+            }
+        }
+        return count;
+    }
+
+    void learn(int[] tokens, int n, String label, int delta) {
+        int l = labelIndex(label, delta > 0);
+        if (l < 0 || n == 0) {
+            return;
+        }
+        docsPerLabel[l] = Math.max(0, docsPerLabel[l] + delta);
+        totalDocs = Math.max(0, totalDocs + delta);
+        for (int i = 0; i < n; i++) {
+            int[] row = row(tokens[i], delta > 0);
+            if (row != null) {
+                boolean wasCounted = counted(row);
+                row[l] = Math.max(0, row[l] + delta);
+                tokensPerLabel[l] = Math.max(0, tokensPerLabel[l] + delta);
+                if (wasCounted != counted(row)) {
+                    vocabulary += wasCounted ? -1 : 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Most likely label for the tokens, or -1 when the model is empty. The
+     * posterior of every label is written into scores (length >= labelCount).
+     */
+    int classify(int[] tokens, int n, double[] scores) {
+        if (totalDocs == 0 || n == 0) {
+            return -1;
+        }
+        double logTotal = Math.log(totalDocs);
+        int best = -1;
+        for (int l = 0; l < labelCount; l++) {
+            if (docsPerLabel[l] == 0) {
+                scores[l] = Double.NEGATIVE_INFINITY;
+                continue;
+            }
+            double score = Math.log(docsPerLabel[l]) - logTotal;
+            double denominator = Math.log(tokensPerLabel[l] + vocabulary + 1.0);
+            for (int i = 0; i < n; i++) {
+                int[] row = row(tokens[i], false);
+                int count = row != null ? row[l] : 0;
+                score += Math.log(count + 1.0) - denominator;
+            }
+            scores[l] = score;
+            if (best < 0 || score > scores[best]) {
+                best = l;
+            }
+        }
+        if (best < 0) {
+            return -1;
+        }
+        // Normalise log-likelihoods into posteriors
+        double max = scores[best];
+        double sum = 0;
+        for (int l = 0; l < labelCount; l++) {
+            scores[l] = Math.exp(scores[l] - max);
+            sum += scores[l];
+        }
+        for (int l = 0; l < labelCount; l++) {
+            scores[l] /= sum;
+        }
+        return best;
+    }
+
+    int labelCount() {
+        return labelCount;
+    }
+
+    String label(int index) {
+        return labels[index];
+    }
+
+    /**
+     * Case-insensitive lookup of a label the user has already used.
+     */
+    String knownLabel(String label) {
+        for (int l = 0; l < labelCount; l++) {
+            if (docsPerLabel[l] > 0 && labels[l].equalsIgnoreCase(label)) {
+                return labels[l];
+            }
+        }
+        return null;
+    }
+
+    // -------------------- internals --------------------
+
+    private int labelIndex(String label, boolean create) {
+        for (int l = 0; l < labelCount; l++) {
+            if (labels[l].equals(label)) {
+                return l;
+            }
+        }
+        if (!create) {
+            return -1;
+        }
+        if (labelCount == labels.length) {
+            int capacity = labels.length * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            docsPerLabel = Arrays.copyOf(docsPerLabel, capacity);
+            tokensPerLabel = Arrays.copyOf(tokensPerLabel, capacity);
+            for (int s = 0; s < rows.length; s++) {
+                if (rows[s] != null) {
+                    rows[s] = Arrays.copyOf(rows[s], capacity);
+                }
+            }
+        }
+        labels[labelCount] = label;
+        return labelCount++;
+    }
+
+    private int[] row(int token, boolean create) {
+        int mask = keys.length - 1;
+        int slot = mix(token) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == token) {
+                return rows[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!create) {
+            return null;
+        }
+        if ((occupied + 1) * 4 > keys.length * 3) {
+            grow();
+            return row(token, true);
+        }
+        keys[slot] = token;
+        rows[slot] = new int[labels.length];
+        occupied++;
+        return rows[slot];
+    }
+
+    private boolean counted(int[] row) {
+        for (int l = 0; l < labelCount; l++) {
+            if (row[l] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[][] oldRows = rows;
+        keys = new int[oldKeys.length * 2];
+        rows = new int[oldKeys.length * 2][];
+        int mask = keys.length - 1;
+        for (int s = 0; s < oldKeys.length; s++) {
+            if (oldKeys[s] != 0) {
+                int slot = mix(oldKeys[s]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[s];
+                rows[slot] = oldRows[s];
+            }
+        }
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
@@ -0,0 +1,98 @@
+package com.wealthtracker.config;
+
+import com.wealthtracker.service.DataVersionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.YearMonth;
+import java.util.Map;
+
+/**
+ * ETags for the list endpoints, from DataVersionService.
+ *
+ * A GET whose If-None-Match still matches the user's version of the
+ * collection is answered with 304 before the controller (and its Mongo query)
+ * runs. The ETag carries the user id because the browser cache is keyed by
+ * URL only, not by who is logged in.
+ */
+@Component
+public class DataVersionInterceptor implements HandlerInterceptor {
+
+    private static final Map<String, String> LIST_PATHS = Map.of(
+            "/api/stocks", DataVersionService.STOCKS,
+            "/api/mutual-funds", DataVersionService.MUTUAL_FUNDS,
+            "/api/fixed-deposits", DataVersionService.FIXED_DEPOSITS,
+            "/api/savings-accounts", DataVersionService.SAVINGS_ACCOUNTS,
+            "/api/expenses", DataVersionService.EXPENSES,
+            "/api/incomes", DataVersionService.INCOMES,
+            "/api/trips", DataVersionService.TRIPS,
+            "/api/expense-books", DataVersionService.EXPENSE_BOOKS,
+            "/api/physical-assets", DataVersionService.PHYSICAL_ASSETS
+    );
+
+    private final DataVersionService dataVersionService;
+
+    public DataVersionInterceptor(DataVersionService dataVersionService) {
+        this.dataVersionService = dataVersionService;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String collection = LIST_PATHS.get(path);
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (collection == null || auth == null || !(auth.getPrincipal() instanceof String userId)) {
+            return true;
+        }
+
+        String etag = etag(userId, collection);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        // Revalidate every time; also keeps Spring Security from adding no-store
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        return true;
+    }
+
+    private String etag(String userId, String collection) {
+        String tag = collection + "-" + userId + "-" + dataVersionService.version(userId, collection);
+        if (DataVersionService.FIXED_DEPOSITS.equals(collection)) {
+            // Listing deposits processes the month's RD installments, so it has to run at least once a month
+            tag += "-" + YearMonth.now();
+        }
+        return "\"" + tag + "\"";
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,155 @@
+package com.wealthtracker.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded worker pools for work that must not run on the request thread.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Runs AI report jobs. LLM generations are slow and memory-hungry on the
+     * Ollama side, so the pool is small and the queue is bounded: once it is
+     * full new submissions are rejected instead of piling up.
+     */
+    @Bean(name = "reportJobExecutor")
+    public ThreadPoolTaskExecutor reportJobExecutor(
+            @Value("${ai.jobs.pool-size:2}") int poolSize,
+            @Value("${ai.jobs.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Embeds descriptions for incremental search-index updates. One thread keeps
+     * embedding calls from competing with chat generations on Ollama.
+     */
+    @Bean(name = "searchIndexExecutor")
+    public ThreadPoolTaskExecutor searchIndexExecutor(
+            @Value("${search.index.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("search-index-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Builds per-user search indexes on first use. Each build embeds every
+     * description the user has, so only a couple run at once.
+     */
+    @Bean(name = "searchBuildExecutor")
+    public ThreadPoolTaskExecutor searchBuildExecutor(
+            @Value("${search.index.build-pool-size:2}") int poolSize,
+            @Value("${search.index.build-queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("search-build-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Loads per-user categorization models from Mongo on first use, off the
+     * request that needed them.
+     */
+    @Bean(name = "categorizerExecutor")
+    public ThreadPoolTaskExecutor categorizerExecutor(
+            @Value("${categorization.load-pool-size:2}") int poolSize,
+            @Value("${categorization.load-queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("categorizer-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Recomputes monthly rollups (the startup backfill). One thread: a
+     * backfill walks every user's expenses and incomes.
+     */
+    @Bean(name = "rollupExecutor")
+    public ThreadPoolTaskExecutor rollupExecutor(
+            @Value("${rollups.queue-capacity:10}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("rollup-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Deletes the children of large parents (trip expenses, book entries,
+     * asset files) after the request that deleted the parent has returned.
+     */
+    @Bean(name = "cascadeDeleteExecutor")
+    public ThreadPoolTaskExecutor cascadeDeleteExecutor(
+            @Value("${cascade.pool-size:2}") int poolSize,
+            @Value("${cascade.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("cascade-delete-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs the per-collection queries of a dashboard load in parallel. When
+     * the queue is full the request thread runs the query itself, so a burst
+     * of loads slows down instead of failing.
+     */
+    @Bean(name = "dashboardExecutor")
+    public ThreadPoolTaskExecutor dashboardExecutor(
+            @Value("${dashboard.pool-size:8}") int poolSize,
+            @Value("${dashboard.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("dashboard-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Checks the partitions of a reconciliation run in parallel, and opens
+     * the ledger of accounts from before it after startup.
+     */
+    @Bean(name = "reconciliationExecutor")
+    public ThreadPoolTaskExecutor reconciliationExecutor(
+            @Value("${reconciliation.partitions:4}") int poolSize,
+            @Value("${reconciliation.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, poolSize));
+        executor.setMaxPoolSize(Math.max(1, poolSize));
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("reconciliation-");
+        executor.initialize();
+        return executor;
+    }
+}
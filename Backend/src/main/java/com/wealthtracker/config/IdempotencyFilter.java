@@ -0,0 +1,193 @@
+package com.wealthtracker.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wealthtracker.model.IdempotencyRecord;
+import com.wealthtracker.service.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Makes POST requests that carry an Idempotency-Key header safe to retry.
+ *
+ * The first request with a key runs normally and its response is stored
+ * (IdempotencyStore). A retry with the same key and the same request gets
+ * that response back, marked with Idempotent-Replayed, without reaching the
+ * controller. Reusing a key for a different request is rejected with 422, and
+ * a retry that arrives while the first attempt is still running gets 409.
+ * Server errors are not stored, so the client can retry them with the same
+ * key. Keys are per user; requests without an authenticated user are passed
+ * through untouched.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof String userId)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            error(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid " + HEADER);
+            return;
+        }
+
+        // Uploads are not buffered; their size stands in for the body
+        boolean multipart = request.getContentType() != null
+                && request.getContentType().startsWith(MediaType.MULTIPART_FORM_DATA_VALUE);
+        HttpServletRequest body = multipart ? request : new BufferedBodyRequest(request);
+        String fingerprint = fingerprint(request, multipart
+                ? String.valueOf(request.getContentLengthLong()).getBytes(StandardCharsets.UTF_8)
+                : ((BufferedBodyRequest) body).body);
+        String id = userId + ":" + key;
+
+        IdempotencyRecord existing = store.find(id);
+        if (existing != null || !store.claim(id, fingerprint)) {
+            respondToRepeat(response, existing != null ? existing : store.find(id), fingerprint);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(body, wrapper);
+        } catch (IOException | ServletException | RuntimeException e) {
+            store.release(id);
+            throw e;
+        }
+        if (wrapper.getStatus() < 500) {
+            store.complete(id, fingerprint, wrapper.getStatus(), wrapper.getContentType(),
+                    wrapper.getContentAsByteArray());
+        } else {
+            store.release(id);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private void respondToRepeat(HttpServletResponse response, IdempotencyRecord record, String fingerprint)
+            throws IOException {
+        if (record == null || IdempotencyRecord.IN_PROGRESS.equals(record.getStatus())) {
+            // null: the first attempt released its claim between our two reads
+            error(response, HttpServletResponse.SC_CONFLICT, "A request with this " + HEADER + " is in progress");
+        } else if (!record.getFingerprint().equals(fingerprint)) {
+            error(response, 422, HEADER + " was already used for a different request");
+        } else {
+            response.setStatus(record.getResponseStatus());
+            response.setHeader("Idempotent-Replayed", "true");
+            if (record.getContentType() != null) {
+                response.setContentType(record.getContentType());
+            }
+            if (record.getBody() != null) {
+                response.getOutputStream().write(record.getBody());
+            }
+        }
+    }
+
+    private void error(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("message", message));
+    }
+
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + ' ' + request.getRequestURI() + '?' + request.getQueryString() + '\n')
+                    .getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the whole body up front so it can be hashed and still be read by
+     * the controller.
+     */
+    private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        BufferedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
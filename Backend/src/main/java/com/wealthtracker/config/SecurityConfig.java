@@ -1,6 +1,7 @@
 package com.wealthtracker.config;
 
 import com.wealthtracker.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -15,12 +16,14 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtFilter;
+    private final IdempotencyFilter idempotencyFilter;
 
     @Value("${jwt.enabled:false}")
     private boolean jwtEnabled;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtFilter, IdempotencyFilter idempotencyFilter) {
         this.jwtFilter = jwtFilter;
+        this.idempotencyFilter = idempotencyFilter;
     }
 
     @Bean
@@ -33,10 +36,17 @@ public class SecurityConfig {
                     .cors(cors -> {})
                     .authorizeHttpRequests(auth -> auth
                             .requestMatchers("/api/auth/**").permitAll()
+                            // SSE streams complete on an async dispatch after the
+                            // original (already authenticated) request
+                            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                             .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                            // Index usage is operational data, not per-user; see security.admin-user-ids
+                            .requestMatchers("/actuator/indexstats/**").hasRole("ADMIN")
                             .anyRequest().authenticated()
                     )
-                    .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+                    .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+                    // Needs the user from the token; replays skip the controller entirely
+                    .addFilterAfter(idempotencyFilter, JwtAuthenticationFilter.class);
         } else {
             // JWT authentication disabled, allow all
             http
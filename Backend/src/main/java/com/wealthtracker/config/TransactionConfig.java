@@ -0,0 +1,25 @@
+package com.wealthtracker.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+/**
+ * Multi-document transactions, for deployments on a replica set or sharded
+ * cluster (a standalone mongod rejects them). Without this profile there is
+ * no transaction manager and TransactionRunner reports itself unavailable;
+ * transfers then use their compensating log instead (TransferService).
+ *
+ *   mvn spring-boot:run -Dspring-boot.run.profiles=replica-set
+ */
+@Configuration
+@Profile("replica-set")
+public class TransactionConfig {
+
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+}
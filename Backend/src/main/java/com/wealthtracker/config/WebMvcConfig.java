@@ -0,0 +1,20 @@
+package com.wealthtracker.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final DataVersionInterceptor dataVersionInterceptor;
+
+    public WebMvcConfig(DataVersionInterceptor dataVersionInterceptor) {
+        this.dataVersionInterceptor = dataVersionInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(dataVersionInterceptor).addPathPatterns("/api/**");
+    }
+}
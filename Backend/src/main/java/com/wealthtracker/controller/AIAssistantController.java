@@ -1,15 +1,25 @@
 package com.wealthtracker.controller;
 
 import com.wealthtracker.agent.AIOrchestrator;
+import com.wealthtracker.agent.AgentType;
 import com.wealthtracker.dto.AgentReportResponse;
 import com.wealthtracker.dto.ChatMessage;
 import com.wealthtracker.dto.ChatResponse;
+import com.wealthtracker.model.ReportJob;
 import com.wealthtracker.service.AIAssistantService;
+import com.wealthtracker.service.ReportJobService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/ai")
@@ -21,6 +31,7 @@ public class AIAssistantController {
 
     private final AIAssistantService aiAssistantService;
     private final AIOrchestrator aiOrchestrator;
+    private final ReportJobService reportJobService;
 
     @PostMapping("/chat")
     public ResponseEntity<ChatResponse> chat(
@@ -31,8 +42,8 @@ public class AIAssistantController {
             String userId = authentication.getName();
             log.info("AI chat request from user: {}, message: {}", userId, chatMessage.getMessage());
 
-            String response = aiAssistantService.chat(chatMessage.getMessage(), userId);
-            return ResponseEntity.ok(new ChatResponse(response));
+            return ResponseEntity.ok(aiAssistantService.chat(
+                    chatMessage.getMessage(), userId, chatMessage.getSessionId(), chatMessage.getMode()));
 
         } catch (Exception e) {
             log.error("Error processing AI chat: ", e);
@@ -41,6 +52,12 @@ public class AIAssistantController {
         }
     }
 
+    @DeleteMapping("/chat/sessions/{sessionId}")
+    public ResponseEntity<Void> endChat(@PathVariable String sessionId, Authentication authentication) {
+        aiAssistantService.endChat(authentication.getName(), sessionId);
+        return ResponseEntity.ok().build();
+    }
+
     @GetMapping("/portfolio-analysis")
     public ResponseEntity<AgentReportResponse> portfolioAnalysis(Authentication authentication) {
         try {
@@ -85,4 +102,68 @@ public class AIAssistantController {
                             "Unable to generate recommendations. Please try again."));
         }
     }
+
+    // -------------------- Report jobs --------------------
+
+    /**
+     * Start a report in the background. Body: {"agentType": "recommendations"}.
+     * Returns 202 with the job; a second submission while one is running for the
+     * same agent returns the running job.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestBody Map<String, String> body, Authentication authentication) {
+        String userId = authentication.getName();
+        AgentType agentType;
+        try {
+            agentType = AgentType.fromSlug(body.getOrDefault("agentType", ""));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+
+        try {
+            ReportJob job = reportJobService.submit(userId, agentType);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (TaskRejectedException e) {
+            log.warn("Report queue full, rejecting {} job for user {}", agentType, userId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("message", "Too many reports are being generated. Please try again shortly."));
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ReportJob> getJob(@PathVariable String jobId, Authentication authentication) {
+        return reportJobService.getJob(authentication.getName(), jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeToJob(@PathVariable String jobId, Authentication authentication) {
+        return reportJobService.getJob(authentication.getName(), jobId)
+                .map(job -> ResponseEntity.ok(reportJobService.subscribe(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Latest stored report for an agent, without regenerating it.
+     */
+    @GetMapping("/reports/{agentType}")
+    public ResponseEntity<AgentReportResponse> latestReport(@PathVariable String agentType,
+                                                            Authentication authentication) {
+        AgentType type;
+        try {
+            type = AgentType.fromSlug(agentType);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return reportJobService.getLatestReport(authentication.getName(), type)
+                .map(job -> {
+                    AgentReportResponse response = new AgentReportResponse(type.getAgentName(), job.getReport());
+                    response.setGeneratedAt(job.getCompletedAt().format(
+                            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+                    return ResponseEntity.ok(response);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
 }
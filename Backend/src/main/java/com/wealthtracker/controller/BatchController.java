@@ -0,0 +1,38 @@
+package com.wealthtracker.controller;
+
+import com.wealthtracker.dto.BatchRequest;
+import com.wealthtracker.service.BatchService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/batch")
+public class BatchController {
+
+    private final BatchService batchService;
+
+    public BatchController(BatchService batchService) {
+        this.batchService = batchService;
+    }
+
+    /**
+     * Several creates, updates and deletes in one request, e.g. an import or
+     * changes queued while offline. The response has one result per
+     * operation, in order; failed operations do not stop the others.
+     */
+    @PostMapping
+    public ResponseEntity<?> run(@RequestBody BatchRequest request, Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        if (request.getOperations() == null || request.getOperations().isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "No operations"));
+        }
+        if (request.getOperations().size() > batchService.getMaxOperations()) {
+            return ResponseEntity.badRequest().body(Map.of("message",
+                    "At most " + batchService.getMaxOperations() + " operations per batch"));
+        }
+        return ResponseEntity.ok(batchService.run(userId, request.getOperations()));
+    }
+}
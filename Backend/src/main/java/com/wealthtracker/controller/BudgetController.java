@@ -0,0 +1,120 @@
+package com.wealthtracker.controller;
+
+import com.wealthtracker.categorization.ExpenseCategorizer;
+import com.wealthtracker.model.Budget;
+import com.wealthtracker.repository.BudgetRepository;
+import com.wealthtracker.service.BudgetTracker;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/budgets")
+public class BudgetController {
+
+    private final BudgetRepository budgetRepository;
+    private final BudgetTracker budgetTracker;
+    private final ExpenseCategorizer categorizer;
+
+    public BudgetController(BudgetRepository budgetRepository, BudgetTracker budgetTracker,
+                            ExpenseCategorizer categorizer) {
+        this.budgetRepository = budgetRepository;
+        this.budgetTracker = budgetTracker;
+        this.categorizer = categorizer;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Budget>> getAll(Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        return ResponseEntity.ok(budgetRepository.findByUserId(userId));
+    }
+
+    /**
+     * Month-to-date spend against each budget, e.g. /api/budgets/status?month=2024-05
+     * (defaults to the current month).
+     */
+    @GetMapping("/status")
+    public ResponseEntity<?> getStatus(@RequestParam(required = false) String month, Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        YearMonth yearMonth;
+        try {
+            yearMonth = month != null ? YearMonth.parse(month) : YearMonth.now();
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Month must be in yyyy-MM format"));
+        }
+        return ResponseEntity.ok(budgetTracker.status(userId, yearMonth));
+    }
+
+    @PostMapping
+    public ResponseEntity<?> create(@RequestBody Budget budget, Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        String invalid = validate(budget);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(Map.of("message", invalid));
+        }
+        budget.setCategory(categorizer.normalize(userId, budget.getCategory()));
+        if (budgetRepository.findByUserIdAndCategory(userId, budget.getCategory()).isPresent()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "A budget already exists for " + budget.getCategory()));
+        }
+        budget.setId(null);
+        budget.setUserId(userId);
+        budget.setUpdatedAt(LocalDate.now());
+        Budget saved = budgetRepository.save(budget);
+        budgetTracker.onBudgetCreated(saved);
+        return ResponseEntity.ok(saved);
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<?> update(@PathVariable String id, @RequestBody Budget budgetDetails, Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        Budget budget = budgetRepository.findByIdAndUserId(id, userId).orElse(null);
+        if (budget == null) {
+            return ResponseEntity.notFound().build();
+        }
+        budgetDetails.setCategory(budget.getCategory()); // category is fixed once created
+        String invalid = validate(budgetDetails);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(Map.of("message", invalid));
+        }
+
+        budget.setMonthlyLimit(budgetDetails.getMonthlyLimit());
+        budget.setAlertThresholds(budgetDetails.getAlertThresholds());
+        budget.setUpdatedAt(LocalDate.now());
+        Budget saved = budgetRepository.save(budget);
+        budgetTracker.onBudgetUpdated(saved);
+        return ResponseEntity.ok(saved);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable String id, Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        if (budgetRepository.deleteByIdAndUserId(id, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    private static String validate(Budget budget) {
+        if (budget.getCategory() == null || budget.getCategory().isBlank()) {
+            return "Category is required";
+        }
+        if (budget.getMonthlyLimit() == null || budget.getMonthlyLimit() <= 0) {
+            return "Monthly limit must be greater than zero";
+        }
+        if (budget.getAlertThresholds() == null || budget.getAlertThresholds().isEmpty()) {
+            budget.setAlertThresholds(List.of(80, 100));
+        }
+        for (Integer threshold : budget.getAlertThresholds()) {
+            if (threshold == null || threshold <= 0 || threshold > 1000) {
+                return "Alert thresholds must be percentages between 1 and 1000";
+            }
+        }
+        return null;
+    }
+}
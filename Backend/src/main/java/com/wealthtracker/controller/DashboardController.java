@@ -0,0 +1,27 @@
+package com.wealthtracker.controller;
+
+import com.wealthtracker.service.DashboardService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    public DashboardController(DashboardService dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    /**
+     * Totals per asset class, allocation, this month's income and expenses
+     * and recent activity, in place of loading every list on the dashboard.
+     */
+    @GetMapping
+    public ResponseEntity<DashboardService.Dashboard> getDashboard(Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        return ResponseEntity.ok(dashboardService.get(userId));
+    }
+}
@@ -1,19 +1,24 @@
 package com.wealthtracker.controller;
 
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
 import com.wealthtracker.model.ExpenseBook;
 import com.wealthtracker.model.ExpenseBookExpense;
-import com.wealthtracker.model.Notification;
 import com.wealthtracker.model.User;
 import com.wealthtracker.repository.ExpenseBookRepository;
 import com.wealthtracker.repository.ExpenseBookExpenseRepository;
-import com.wealthtracker.repository.NotificationRepository;
 import com.wealthtracker.repository.UserRepository;
+import com.wealthtracker.service.CascadeDeleteService;
+import com.wealthtracker.service.DataVersionService;
+import com.wealthtracker.util.OptimisticRetry;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -23,18 +28,27 @@ public class ExpenseBookController {
 
     private final ExpenseBookRepository expenseBookRepository;
     private final ExpenseBookExpenseRepository expenseBookExpenseRepository;
-    private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
+    private final DomainEventBus eventBus;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final DataVersionService dataVersions;
+    private final OptimisticRetry optimisticRetry;
 
     public ExpenseBookController(
             ExpenseBookRepository expenseBookRepository,
             ExpenseBookExpenseRepository expenseBookExpenseRepository,
-            NotificationRepository notificationRepository,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            DomainEventBus eventBus,
+            CascadeDeleteService cascadeDeleteService,
+            DataVersionService dataVersions,
+            OptimisticRetry optimisticRetry) {
         this.expenseBookRepository = expenseBookRepository;
         this.expenseBookExpenseRepository = expenseBookExpenseRepository;
-        this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
+        this.eventBus = eventBus;
+        this.cascadeDeleteService = cascadeDeleteService;
+        this.dataVersions = dataVersions;
+        this.optimisticRetry = optimisticRetry;
     }
 
     // -------------------- Expense Book CRUD --------------------
@@ -62,12 +76,16 @@ public class ExpenseBookController {
         }
 
         ExpenseBook saved = expenseBookRepository.save(book);
-
-        // Send notifications to all members except the creator
-        for (String memberUserId : saved.getMemberUserIds()) {
-            if (!memberUserId.equals(userId)) {
-                createNotification(memberUserId, saved, creator.getName());
-            }
+        eventBus.publish(new DomainEvent.ExpenseBookSaved(saved.getId(), ChangeType.CREATED, saved.getMemberUserIds()));
+        dataVersions.bump(saved.getMemberUserIds(), DataVersionService.EXPENSE_BOOKS);
+
+        // Notify all members except the creator
+        List<String> addedMembers = saved.getMemberUserIds().stream()
+                .filter(memberUserId -> !memberUserId.equals(userId))
+                .toList();
+        if (!addedMembers.isEmpty()) {
+            eventBus.publish(new DomainEvent.ExpenseBookMembersAdded(
+                    saved.getId(), saved.getName(), creator.getName(), addedMembers));
         }
 
         return ResponseEntity.ok(saved);
@@ -77,17 +95,23 @@ public class ExpenseBookController {
     public ResponseEntity<ExpenseBook> updateExpenseBook(
             @PathVariable String id, @RequestBody ExpenseBook book, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        ExpenseBook existing = expenseBookRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Expense book not found"));
+        // A member edit saved in between would otherwise be overwritten with the lists read here
+        return optimisticRetry.run("expense-book.update", () -> {
+            ExpenseBook existing = expenseBookRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Expense book not found"));
 
-        if (!existing.getCreatedBy().equals(userId)) {
-            return ResponseEntity.status(403).build();
-        }
+            if (!existing.getCreatedBy().equals(userId)) {
+                return ResponseEntity.status(403).build();
+            }
 
-        existing.setName(book.getName());
-        existing.setDescription(book.getDescription());
-        existing.setUpdatedAt(LocalDate.now());
-        return ResponseEntity.ok(expenseBookRepository.save(existing));
+            existing.setName(book.getName());
+            existing.setDescription(book.getDescription());
+            existing.setUpdatedAt(LocalDate.now());
+            ExpenseBook saved = expenseBookRepository.save(existing);
+            eventBus.publish(new DomainEvent.ExpenseBookSaved(id, ChangeType.UPDATED, saved.getMemberUserIds()));
+            dataVersions.bump(saved.getMemberUserIds(), DataVersionService.EXPENSE_BOOKS);
+            return ResponseEntity.ok(saved);
+        });
     }
 
     @DeleteMapping("/{id}")
@@ -100,12 +124,12 @@ public class ExpenseBookController {
             return ResponseEntity.status(403).build();
         }
 
-        // Delete all expenses associated with this book
-        List<ExpenseBookExpense> expenses = expenseBookExpenseRepository
-                .findByExpenseBookIdOrderByExpenseDateDesc(id);
-        expenseBookExpenseRepository.deleteAll(expenses);
-
         expenseBookRepository.deleteById(id);
+
+        // Delete all expenses associated with this book
+        cascadeDeleteService.deleteExpenseBookExpenses(id);
+        eventBus.publish(new DomainEvent.ExpenseBookChanged(id, ChangeType.DELETED, book.getMemberUserIds()));
+        dataVersions.bump(book.getMemberUserIds(), DataVersionService.EXPENSE_BOOKS);
         return ResponseEntity.ok().build();
     }
 
@@ -115,64 +139,78 @@ public class ExpenseBookController {
     public ResponseEntity<?> addMember(
             @PathVariable String id, @RequestBody Map<String, String> body, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        ExpenseBook book = expenseBookRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Expense book not found"));
-
-        if (!book.getCreatedBy().equals(userId)) {
-            return ResponseEntity.status(403).body(Map.of("message", "Only the creator can add members"));
-        }
-
         String memberEmail = body.get("email");
         User memberUser = userRepository.findByEmail(memberEmail)
                 .orElse(null);
 
-        if (memberUser == null) {
-            return ResponseEntity.badRequest().body(Map.of("message", "User not found with email: " + memberEmail));
-        }
+        // Two members added at once: the second save fails on the version and re-reads the list with the first
+        return optimisticRetry.run("expense-book.members", () -> {
+            ExpenseBook book = expenseBookRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Expense book not found"));
 
-        if (book.getMemberUserIds().contains(memberUser.getId())) {
-            return ResponseEntity.badRequest().body(Map.of("message", "User is already a member"));
-        }
+            if (!book.getCreatedBy().equals(userId)) {
+                return ResponseEntity.status(403).body(Map.of("message", "Only the creator can add members"));
+            }
 
-        book.getMemberUserIds().add(memberUser.getId());
-        book.getMemberEmails().add(memberUser.getEmail());
-        book.getMemberNames().add(memberUser.getName());
-        book.setUpdatedAt(LocalDate.now());
-        expenseBookRepository.save(book);
+            if (memberUser == null) {
+                return ResponseEntity.badRequest().body(Map.of("message", "User not found with email: " + memberEmail));
+            }
 
-        // Send notification to the new member
-        User creator = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Creator not found"));
-        createNotification(memberUser.getId(), book, creator.getName());
+            if (book.getMemberUserIds().contains(memberUser.getId())) {
+                return ResponseEntity.badRequest().body(Map.of("message", "User is already a member"));
+            }
+
+            book.getMemberUserIds().add(memberUser.getId());
+            book.getMemberEmails().add(memberUser.getEmail());
+            book.getMemberNames().add(memberUser.getName());
+            book.setUpdatedAt(LocalDate.now());
+            ExpenseBook saved = expenseBookRepository.save(book);
+            dataVersions.bump(saved.getMemberUserIds(), DataVersionService.EXPENSE_BOOKS);
 
-        return ResponseEntity.ok(book);
+            // Notify the new member
+            User creator = userRepository.findById(userId)
+                    .orElseThrow(() -> new RuntimeException("Creator not found"));
+            eventBus.publish(new DomainEvent.ExpenseBookMembersAdded(
+                    saved.getId(), saved.getName(), creator.getName(), List.of(memberUser.getId())));
+
+            return ResponseEntity.ok(saved);
+        });
     }
 
     @DeleteMapping("/{id}/members/{memberUserId}")
     public ResponseEntity<?> removeMember(
             @PathVariable String id, @PathVariable String memberUserId, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        ExpenseBook book = expenseBookRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Expense book not found"));
+        return optimisticRetry.run("expense-book.members", () -> {
+            ExpenseBook book = expenseBookRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Expense book not found"));
 
-        if (!book.getCreatedBy().equals(userId)) {
-            return ResponseEntity.status(403).body(Map.of("message", "Only the creator can remove members"));
-        }
+            if (!book.getCreatedBy().equals(userId)) {
+                return ResponseEntity.status(403).body(Map.of("message", "Only the creator can remove members"));
+            }
 
-        if (memberUserId.equals(userId)) {
-            return ResponseEntity.badRequest().body(Map.of("message", "Creator cannot be removed"));
-        }
+            if (memberUserId.equals(userId)) {
+                return ResponseEntity.badRequest().body(Map.of("message", "Creator cannot be removed"));
+            }
 
-        int index = book.getMemberUserIds().indexOf(memberUserId);
-        if (index >= 0) {
+            int index = book.getMemberUserIds().indexOf(memberUserId);
+            if (index < 0) {
+                return ResponseEntity.ok(book);
+            }
+            // The three lists are parallel; removing by a stale index would drop the wrong email and name
             book.getMemberUserIds().remove(index);
             if (index < book.getMemberEmails().size()) book.getMemberEmails().remove(index);
             if (index < book.getMemberNames().size()) book.getMemberNames().remove(index);
             book.setUpdatedAt(LocalDate.now());
-            expenseBookRepository.save(book);
-        }
-
-        return ResponseEntity.ok(book);
+            ExpenseBook saved = expenseBookRepository.save(book);
+            eventBus.publish(new DomainEvent.ExpenseBookChanged(id, ChangeType.UPDATED, List.of(memberUserId)));
+
+            // The removed member's list loses the book too
+            List<String> affected = new ArrayList<>(saved.getMemberUserIds());
+            affected.add(memberUserId);
+            dataVersions.bump(affected, DataVersionService.EXPENSE_BOOKS);
+            return ResponseEntity.ok(saved);
+        });
     }
 
     // -------------------- Expense CRUD --------------------
@@ -180,11 +218,9 @@ public class ExpenseBookController {
     @GetMapping("/{bookId}/expenses")
     public ResponseEntity<?> getExpenses(@PathVariable String bookId, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        ExpenseBook book = expenseBookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Expense book not found"));
-
-        if (!book.getMemberUserIds().contains(userId)) {
-            return ResponseEntity.status(403).build();
+        ExpenseBook book = expenseBookRepository.findByIdAndMemberUserIdsContaining(bookId, userId).orElse(null);
+        if (book == null) {
+            return ResponseEntity.notFound().build();
         }
 
         return ResponseEntity.ok(
@@ -195,17 +231,19 @@ public class ExpenseBookController {
     public ResponseEntity<?> addExpense(
             @PathVariable String bookId, @RequestBody ExpenseBookExpense expense, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        ExpenseBook book = expenseBookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Expense book not found"));
-
-        if (!book.getMemberUserIds().contains(userId)) {
-            return ResponseEntity.status(403).build();
+        ExpenseBook book = expenseBookRepository.findByIdAndMemberUserIdsContaining(bookId, userId).orElse(null);
+        if (book == null) {
+            return ResponseEntity.notFound().build();
         }
 
         expense.setExpenseBookId(bookId);
         expense.setAddedByUserId(userId);
         expense.setUpdatedAt(LocalDate.now());
-        return ResponseEntity.ok(expenseBookExpenseRepository.save(expense));
+        ExpenseBookExpense saved = expenseBookExpenseRepository.save(expense);
+        eventBus.publish(new DomainEvent.ExpenseBookExpenseChanged(
+                book.getMemberUserIds(), ChangeType.CREATED, null, saved));
+        dataVersions.bump(book.getMemberUserIds(), DataVersionService.EXPENSE_BOOKS);
+        return ResponseEntity.ok(saved);
     }
 
     @PutMapping("/{bookId}/expenses/{expenseId}")
@@ -213,59 +251,51 @@ public class ExpenseBookController {
             @PathVariable String bookId, @PathVariable String expenseId,
             @RequestBody ExpenseBookExpense expense, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        ExpenseBook book = expenseBookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Expense book not found"));
-
-        if (!book.getMemberUserIds().contains(userId)) {
-            return ResponseEntity.status(403).build();
+        ExpenseBook book = expenseBookRepository.findByIdAndMemberUserIdsContaining(bookId, userId).orElse(null);
+        if (book == null) {
+            return ResponseEntity.notFound().build();
         }
 
-        ExpenseBookExpense existing = expenseBookExpenseRepository.findById(expenseId)
-                .orElseThrow(() -> new RuntimeException("Expense not found"));
-
-        if (!existing.getExpenseBookId().equals(bookId)) {
-            return ResponseEntity.status(403).build();
-        }
-
-        expense.setId(expenseId);
-        expense.setExpenseBookId(bookId);
-        expense.setAddedByUserId(existing.getAddedByUserId());
-        expense.setCreatedAt(existing.getCreatedAt());
-        expense.setUpdatedAt(LocalDate.now());
-        return ResponseEntity.ok(expenseBookExpenseRepository.save(expense));
+        LocalDate now = LocalDate.now();
+        return expenseBookExpenseRepository.updateByIdAndExpenseBookId(expenseId, bookId, new Update()
+                        .set("description", expense.getDescription())
+                        .set("amount", expense.getAmount())
+                        .set("paidBy", expense.getPaidBy())
+                        .set("paidByUserId", expense.getPaidByUserId())
+                        .set("expenseDate", expense.getExpenseDate())
+                        .set("updatedAt", now))
+                .<ResponseEntity<?>>map(previous -> {
+                    expense.setId(expenseId);
+                    expense.setExpenseBookId(bookId);
+                    expense.setAddedByUserId(previous.getAddedByUserId());
+                    expense.setCreatedAt(previous.getCreatedAt());
+                    expense.setUpdatedAt(now);
+                    eventBus.publish(new DomainEvent.ExpenseBookExpenseChanged(
+                            book.getMemberUserIds(), ChangeType.UPDATED, previous, expense));
+                    dataVersions.bump(book.getMemberUserIds(), DataVersionService.EXPENSE_BOOKS);
+                    return ResponseEntity.ok(expense);
+                })
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{bookId}/expenses/{expenseId}")
     public ResponseEntity<Void> deleteExpense(
             @PathVariable String bookId, @PathVariable String expenseId, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        ExpenseBook book = expenseBookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Expense book not found"));
-
-        if (!book.getMemberUserIds().contains(userId)) {
-            return ResponseEntity.status(403).build();
+        ExpenseBook book = expenseBookRepository.findByIdAndMemberUserIdsContaining(bookId, userId).orElse(null);
+        if (book == null) {
+            return ResponseEntity.notFound().build();
         }
 
-        ExpenseBookExpense expense = expenseBookExpenseRepository.findById(expenseId)
-                .orElseThrow(() -> new RuntimeException("Expense not found"));
-
-        if (!expense.getExpenseBookId().equals(bookId)) {
-            return ResponseEntity.status(403).build();
+        ExpenseBookExpense expense = expenseBookExpenseRepository.deleteByIdAndExpenseBookId(expenseId, bookId)
+                .orElse(null);
+        if (expense == null) {
+            return ResponseEntity.notFound().build();
         }
 
-        expenseBookExpenseRepository.deleteById(expenseId);
+        eventBus.publish(new DomainEvent.ExpenseBookExpenseChanged(
+                book.getMemberUserIds(), ChangeType.DELETED, expense, null));
+        dataVersions.bump(book.getMemberUserIds(), DataVersionService.EXPENSE_BOOKS);
         return ResponseEntity.ok().build();
     }
-
-    // -------------------- Helper --------------------
-
-    private void createNotification(String recipientUserId, ExpenseBook book, String creatorName) {
-        Notification notification = new Notification();
-        notification.setUserId(recipientUserId);
-        notification.setType("EXPENSE_BOOK_ADDED");
-        notification.setMessage(creatorName + " added you to expense book \"" + book.getName() + "\"");
-        notification.setReferenceId(book.getId());
-        notification.setCreatedAt(LocalDateTime.now());
-        notificationRepository.save(notification);
-    }
 }
@@ -1,11 +1,20 @@
 package com.wealthtracker.controller;
 
+import com.wealthtracker.categorization.ExpenseCategorizer;
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
+import com.wealthtracker.ledger.SavingsLedger;
 import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.LedgerEntry;
 import com.wealthtracker.model.SavingsAccount;
 import com.wealthtracker.repository.ExpenseRepository;
-import com.wealthtracker.repository.SavingsAccountRepository;
+import com.wealthtracker.service.DataVersionService;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -20,11 +29,19 @@ public class ExpenseController {
     private static final Logger logger = LoggerFactory.getLogger(ExpenseController.class);
 
     private final ExpenseRepository expenseRepository;
-    private final SavingsAccountRepository savingsAccountRepository;
+    private final SavingsLedger ledger;
+    private final ExpenseCategorizer categorizer;
+    private final DomainEventBus eventBus;
+    private final DataVersionService dataVersions;
     
-    public ExpenseController(ExpenseRepository expenseRepository, SavingsAccountRepository savingsAccountRepository) {
+    public ExpenseController(ExpenseRepository expenseRepository, SavingsLedger ledger,
+                             ExpenseCategorizer categorizer, DomainEventBus eventBus,
+                             DataVersionService dataVersions) {
         this.expenseRepository = expenseRepository;
-        this.savingsAccountRepository = savingsAccountRepository;
+        this.ledger = ledger;
+        this.categorizer = categorizer;
+        this.eventBus = eventBus;
+        this.dataVersions = dataVersions;
     }
 
     @GetMapping
@@ -39,70 +56,110 @@ public class ExpenseController {
         logger.info("Creating expense: {} (Amount: {})", expense.getCategory(), expense.getAmount());
         expense.setUserId(userId);
         expense.setUpdatedAt(LocalDate.now());
+        categorizer.categorize(expense);
         
-        // If a savings account is selected, deduct the expense amount from it
+        // If a savings account is selected, deduct the expense amount from it ($inc, so
+        // concurrent expenses on one account cannot overwrite each other's deduction).
+        // The id is assigned first so the ledger entry can point at the expense.
         if (expense.getSavingsAccountId() != null && !expense.getSavingsAccountId().isEmpty()) {
-            SavingsAccount account = savingsAccountRepository.findById(expense.getSavingsAccountId())
-                    .orElseThrow(() -> new RuntimeException("Savings account not found"));
-            
-            // Verify the account belongs to the user
-            if (!account.getUserId().equals(userId)) {
-                return ResponseEntity.status(403).build();
+            expense.setId(new ObjectId().toHexString());
+            SavingsAccount account = ledger.post(userId, expense.getSavingsAccountId(), new SavingsLedger.Posting(
+                    LedgerEntry.EXPENSE, -expense.getAmount(), expense.getId(), expense.getDate(),
+                    expense.getCategory())).orElse(null);
+            if (account == null) {
+                return ResponseEntity.notFound().build();
             }
-            
-            // Deduct the amount from the savings account
-            account.setBalance(account.getBalance() - expense.getAmount());
-            account.setUpdatedAt(LocalDate.now());
-            savingsAccountRepository.save(account);
         }
         
-        return ResponseEntity.ok(expenseRepository.save(expense));
+        Expense saved = expenseRepository.save(expense);
+        eventBus.publish(new DomainEvent.ExpenseChanged(userId, ChangeType.CREATED, null, saved));
+        dataVersions.bump(userId, DataVersionService.EXPENSES, DataVersionService.SAVINGS_ACCOUNTS);
+        return ResponseEntity.ok(saved);
     }
     
     @PutMapping("/{id}")
     public ResponseEntity<Expense> update(@PathVariable String id, @RequestBody Expense expenseDetails, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        Expense expense = expenseRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Expense not found"));
+        expenseDetails.setUserId(userId);
+        categorizer.categorize(expenseDetails);
         
-        if (!expense.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        // Previous values come back from the same round trip, for the change event
+        Expense previous = expenseRepository.updateByIdAndUserId(id, userId, new Update()
+                .set("category", expenseDetails.getCategory())
+                .set("amount", expenseDetails.getAmount())
+                .set("date", expenseDetails.getDate())
+                .set("description", expenseDetails.getDescription())
+                .set("savingsAccountId", expenseDetails.getSavingsAccountId())
+                .set("updatedAt", LocalDate.now()), false).orElse(null);
+        if (previous == null) {
+            return ResponseEntity.notFound().build();
         }
         
-        expense.setCategory(expenseDetails.getCategory());
-        expense.setAmount(expenseDetails.getAmount());
-        expense.setDate(expenseDetails.getDate());
-        expense.setDescription(expenseDetails.getDescription());
-        expense.setSavingsAccountId(expenseDetails.getSavingsAccountId());
-        expense.setUpdatedAt(LocalDate.now());
-        
-        return ResponseEntity.ok(expenseRepository.save(expense));
+        Expense saved = new Expense();
+        BeanUtils.copyProperties(previous, saved);
+        saved.setCategory(expenseDetails.getCategory());
+        saved.setAmount(expenseDetails.getAmount());
+        saved.setDate(expenseDetails.getDate());
+        saved.setDescription(expenseDetails.getDescription());
+        saved.setSavingsAccountId(expenseDetails.getSavingsAccountId());
+        saved.setUpdatedAt(LocalDate.now());
+        // Give back what the expense deducted before and deduct it as it is now
+        ledger.repost(userId, previous.getSavingsAccountId(), new SavingsLedger.Posting(LedgerEntry.EXPENSE_REVERSAL,
+                        amount(previous), id, LocalDate.now(), "Edited: " + previous.getCategory()),
+                saved.getSavingsAccountId(), new SavingsLedger.Posting(LedgerEntry.EXPENSE,
+                        -amount(saved), id, saved.getDate(), saved.getCategory()));
+        eventBus.publish(new DomainEvent.ExpenseChanged(userId, ChangeType.UPDATED, previous, saved));
+        dataVersions.bump(userId, DataVersionService.EXPENSES, DataVersionService.SAVINGS_ACCOUNTS);
+        return ResponseEntity.ok(saved);
     }
     
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        Expense expense = expenseRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Expense not found"));
-        
-        if (!expense.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        logger.info("Deleting expense with ID: {}", id);
+        Expense expense = expenseRepository.deleteByIdAndUserId(id, userId).orElse(null);
+        if (expense == null) {
+            return ResponseEntity.notFound().build();
         }
         
         // If the expense was linked to a savings account, restore the amount
         if (expense.getSavingsAccountId() != null && !expense.getSavingsAccountId().isEmpty()) {
-            SavingsAccount account = savingsAccountRepository.findById(expense.getSavingsAccountId())
-                    .orElse(null);
-            
-            if (account != null && account.getUserId().equals(userId)) {
-                account.setBalance(account.getBalance() + expense.getAmount());
-                account.setUpdatedAt(LocalDate.now());
-                savingsAccountRepository.save(account);
-            }
+            ledger.post(userId, expense.getSavingsAccountId(), new SavingsLedger.Posting(LedgerEntry.EXPENSE_REVERSAL,
+                    expense.getAmount(), expense.getId(), LocalDate.now(), "Deleted: " + expense.getCategory()));
         }
         
-        logger.info("Deleting expense with ID: {}", id);
-        expenseRepository.deleteById(id);
+        eventBus.publish(new DomainEvent.ExpenseChanged(userId, ChangeType.DELETED, expense, null));
+        dataVersions.bump(userId, DataVersionService.EXPENSES, DataVersionService.SAVINGS_ACCOUNTS);
         return ResponseEntity.ok().build();
     }
+
+    /**
+     * Category suggestion for a description, e.g. while the user types.
+     */
+    @GetMapping("/categories/suggest")
+    public ResponseEntity<ExpenseCategorizer.Suggestion> suggestCategory(@RequestParam String description,
+                                                                         Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        return ResponseEntity.ok(categorizer.suggest(userId, description));
+    }
+    
+    /**
+     * Normalise existing categories and fill in missing ones for all of the
+     * user's expenses. Each changed expense is published as updated, so
+     * rollups, budgets, search and sync follow the move.
+     */
+    @PostMapping("/categories/backfill")
+    public ResponseEntity<ExpenseCategorizer.BackfillResult> backfillCategories(Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        ExpenseCategorizer.BackfillResult result = categorizer.backfill(userId, (previous, current) ->
+                eventBus.publish(new DomainEvent.ExpenseChanged(userId, ChangeType.UPDATED, previous, current)));
+        if (result.normalized() + result.suggested() > 0) {
+            dataVersions.bump(userId, DataVersionService.EXPENSES);
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    private static double amount(Expense expense) {
+        return expense.getAmount() != null ? expense.getAmount() : 0;
+    }
 }
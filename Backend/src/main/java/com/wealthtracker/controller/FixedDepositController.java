@@ -1,13 +1,16 @@
 package com.wealthtracker.controller;
 
-import com.wealthtracker.model.Expense;
 import com.wealthtracker.model.FixedDeposit;
-import com.wealthtracker.model.SavingsAccount;
-import com.wealthtracker.repository.ExpenseRepository;
 import com.wealthtracker.repository.FixedDepositRepository;
 import com.wealthtracker.repository.SavingsAccountRepository;
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
+import com.wealthtracker.service.DataVersionService;
+import com.wealthtracker.service.RecurringDepositService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -23,13 +26,18 @@ public class FixedDepositController {
 
     private final FixedDepositRepository fixedDepositRepository;
     private final SavingsAccountRepository savingsAccountRepository;
-    private final ExpenseRepository expenseRepository;
+    private final RecurringDepositService recurringDeposits;
+    private final DomainEventBus eventBus;
+    private final DataVersionService dataVersions;
 
     public FixedDepositController(FixedDepositRepository fixedDepositRepository,
-            SavingsAccountRepository savingsAccountRepository, ExpenseRepository expenseRepository) {
+            SavingsAccountRepository savingsAccountRepository, RecurringDepositService recurringDeposits,
+            DomainEventBus eventBus, DataVersionService dataVersions) {
         this.fixedDepositRepository = fixedDepositRepository;
         this.savingsAccountRepository = savingsAccountRepository;
-        this.expenseRepository = expenseRepository;
+        this.recurringDeposits = recurringDeposits;
+        this.eventBus = eventBus;
+        this.dataVersions = dataVersions;
     }
 
     @GetMapping
@@ -40,76 +48,13 @@ public class FixedDepositController {
         // Process pending RD deductions for all RDs with linked accounts
         for (FixedDeposit deposit : deposits) {
             if ("RD".equals(deposit.getDepositType()) && deposit.getSavingsAccountId() != null) {
-                processRDDeductions(deposit, userId);
+                recurringDeposits.processDue(deposit, userId);
             }
         }
 
         return ResponseEntity.ok(fixedDepositRepository.findByUserId(userId));
     }
 
-    private void processRDDeductions(FixedDeposit deposit, String userId) {
-        LocalDate startDate = deposit.getStartDate() != null ? deposit.getStartDate() : deposit.getCreatedAt();
-        LocalDate lastDeduction = deposit.getLastDeductionDate();
-        LocalDate now = LocalDate.now();
-        LocalDate maturityDate = deposit.getMaturityDate();
-
-        // Start from the first month of RD or the month after last deduction
-        LocalDate processFrom = lastDeduction != null ? lastDeduction.plusMonths(1).withDayOfMonth(1)
-                : startDate.withDayOfMonth(1);
-
-        // Process all pending months up to current month or maturity (whichever is
-        // earlier)
-        LocalDate processUntil = now.isBefore(maturityDate) ? now : maturityDate;
-
-        if (processFrom.isAfter(processUntil)) {
-            return; // No deductions to process
-        }
-
-        SavingsAccount savingsAccount = savingsAccountRepository.findById(deposit.getSavingsAccountId()).orElse(null);
-        if (savingsAccount == null || !savingsAccount.getUserId().equals(userId)) {
-            return; // Account not found or doesn't belong to user
-        }
-
-        LocalDate currentMonth = processFrom;
-        LocalDate lastProcessedMonth = null;
-        while (!currentMonth.isAfter(processUntil.withDayOfMonth(1))) {
-            // Check if an expense for this deposit and month already exists (idempotent guard)
-            LocalDate monthStart = currentMonth.withDayOfMonth(1);
-            LocalDate monthEnd = currentMonth.withDayOfMonth(currentMonth.lengthOfMonth());
-            boolean alreadyExists = deposit.getId() != null &&
-                    expenseRepository.existsBySourceDepositIdAndDateBetween(deposit.getId(), monthStart, monthEnd);
-
-            if (!alreadyExists) {
-                // Deduct this month's installment from savings account
-                savingsAccount.setBalance(savingsAccount.getBalance() - deposit.getAmount());
-
-                // Create an expense record for this installment
-                Expense rdExpense = new Expense();
-                rdExpense.setUserId(userId);
-                rdExpense.setCategory("RD Installment");
-                rdExpense.setAmount(deposit.getAmount());
-                rdExpense.setDate(currentMonth);
-                rdExpense.setDescription("RD installment of " + deposit.getAmount() + " from " + deposit.getBankName());
-                rdExpense.setSavingsAccountId(deposit.getSavingsAccountId());
-                rdExpense.setSourceDepositId(deposit.getId());
-                expenseRepository.save(rdExpense);
-            }
-
-            lastProcessedMonth = currentMonth;
-            currentMonth = currentMonth.plusMonths(1);
-        }
-
-        if (lastProcessedMonth != null) {
-            savingsAccount.setUpdatedAt(LocalDate.now());
-            savingsAccountRepository.save(savingsAccount);
-
-            // Update last deduction date
-            deposit.setLastDeductionDate(lastProcessedMonth);
-            deposit.setUpdatedAt(LocalDate.now());
-            fixedDepositRepository.save(deposit);
-        }
-    }
-
     @PostMapping
     public ResponseEntity<FixedDeposit> create(@RequestBody FixedDeposit deposit, Authentication auth) {
         String userId = (String) auth.getPrincipal();
@@ -118,40 +63,21 @@ public class FixedDepositController {
         deposit.setUpdatedAt(LocalDate.now());
 
         // For RD with linked account, process first month deduction
-        if ("RD".equals(deposit.getDepositType()) && deposit.getSavingsAccountId() != null) {
-            SavingsAccount savingsAccount = savingsAccountRepository.findById(deposit.getSavingsAccountId())
-                    .orElse(null);
-            if (savingsAccount != null && savingsAccount.getUserId().equals(userId)) {
-                // Set last deduction date to start date's month before saving
-                LocalDate startDate = deposit.getStartDate() != null ? deposit.getStartDate() : LocalDate.now();
-                deposit.setLastDeductionDate(startDate.withDayOfMonth(1));
-
-                // Save the deposit first so it gets an ID
-                FixedDeposit savedDeposit = fixedDepositRepository.save(deposit);
-
-                // Deduct first installment
-                savingsAccount.setBalance(savingsAccount.getBalance() - savedDeposit.getAmount());
-                savingsAccount.setUpdatedAt(LocalDate.now());
-                savingsAccountRepository.save(savingsAccount);
-
-                // Create an expense record for the first installment, tagged with the deposit ID
-                Expense firstInstallment = new Expense();
-                firstInstallment.setUserId(userId);
-                firstInstallment.setCategory("RD Installment");
-                firstInstallment.setAmount(savedDeposit.getAmount());
-                firstInstallment.setDate(startDate);
-                firstInstallment.setDescription("RD installment of " + savedDeposit.getAmount() + " from " + savedDeposit.getBankName());
-                firstInstallment.setSavingsAccountId(savedDeposit.getSavingsAccountId());
-                firstInstallment.setSourceDepositId(savedDeposit.getId());
-                expenseRepository.save(firstInstallment);
-
-                logger.info("New deposit created: {} (Type: {})", savedDeposit.getBankName(), savedDeposit.getDepositType());
-                return ResponseEntity.ok(savedDeposit);
-            }
+        if ("RD".equals(deposit.getDepositType()) && deposit.getSavingsAccountId() != null
+                && savingsAccountRepository.findByIdAndUserId(deposit.getSavingsAccountId(), userId).isPresent()) {
+            // Save the deposit first so it gets an ID; the installment moves lastDeductionDate to its month
+            FixedDeposit savedDeposit = fixedDepositRepository.save(deposit);
+            recurringDeposits.payFirstInstallment(savedDeposit, userId);
+
+            logger.info("New deposit created: {} (Type: {})", savedDeposit.getBankName(), savedDeposit.getDepositType());
+            return ResponseEntity.ok(fixedDepositRepository.findById(savedDeposit.getId()).orElse(savedDeposit));
         }
 
+        FixedDeposit savedDeposit = fixedDepositRepository.save(deposit);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "fixed_deposits", savedDeposit.getId(), ChangeType.CREATED));
+        dataVersions.bump(userId, DataVersionService.FIXED_DEPOSITS);
         logger.info("New deposit created: {} (Type: {})", deposit.getBankName(), deposit.getDepositType());
-        return ResponseEntity.ok(fixedDepositRepository.save(deposit));
+        return ResponseEntity.ok(savedDeposit);
     }
 
 
@@ -160,37 +86,33 @@ public class FixedDepositController {
             Authentication auth) {
         String userId = (String) auth.getPrincipal();
 
-        FixedDeposit existingDeposit = fixedDepositRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Fixed deposit not found"));
-
-        if (!existingDeposit.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        FixedDeposit updatedDeposit = fixedDepositRepository.updateByIdAndUserId(id, userId, new Update()
+                .set("bankName", deposit.getBankName())
+                .set("amount", deposit.getAmount())
+                .set("interestRate", deposit.getInterestRate())
+                .set("maturityDate", deposit.getMaturityDate())
+                .set("depositType", deposit.getDepositType())
+                .set("startDate", deposit.getStartDate())
+                .set("savingsAccountId", deposit.getSavingsAccountId())
+                .set("updatedAt", LocalDate.now())).orElse(null);
+        if (updatedDeposit == null) {
+            return ResponseEntity.notFound().build();
         }
 
-        existingDeposit.setBankName(deposit.getBankName());
-        existingDeposit.setAmount(deposit.getAmount());
-        existingDeposit.setInterestRate(deposit.getInterestRate());
-        existingDeposit.setMaturityDate(deposit.getMaturityDate());
-        existingDeposit.setDepositType(deposit.getDepositType());
-        existingDeposit.setStartDate(deposit.getStartDate());
-        existingDeposit.setSavingsAccountId(deposit.getSavingsAccountId());
-        existingDeposit.setUpdatedAt(LocalDate.now());
-
-        return ResponseEntity.ok(fixedDepositRepository.save(existingDeposit));
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "fixed_deposits", id, ChangeType.UPDATED));
+        dataVersions.bump(userId, DataVersionService.FIXED_DEPOSITS);
+        return ResponseEntity.ok(updatedDeposit);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id, Authentication auth) {
         String userId = (String) auth.getPrincipal();
 
-        FixedDeposit deposit = fixedDepositRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Fixed deposit not found"));
-
-        if (!deposit.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        if (fixedDepositRepository.deleteByIdAndUserId(id, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
-
-        fixedDepositRepository.deleteById(id);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "fixed_deposits", id, ChangeType.DELETED));
+        dataVersions.bump(userId, DataVersionService.FIXED_DEPOSITS);
         return ResponseEntity.ok().build();
     }
 }
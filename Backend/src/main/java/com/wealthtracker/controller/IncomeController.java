@@ -1,13 +1,20 @@
 package com.wealthtracker.controller;
 
+import com.wealthtracker.ledger.SavingsLedger;
 import com.wealthtracker.model.Income;
+import com.wealthtracker.model.LedgerEntry;
 import com.wealthtracker.repository.IncomeRepository;
-import com.wealthtracker.repository.SavingsAccountRepository;
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
+import com.wealthtracker.service.DataVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -18,7 +25,13 @@ public class IncomeController {
     private IncomeRepository incomeRepository;
 
     @Autowired
-    private SavingsAccountRepository savingsAccountRepository;
+    private SavingsLedger ledger;
+
+    @Autowired
+    private DomainEventBus eventBus;
+
+    @Autowired
+    private DataVersionService dataVersions;
 
     @GetMapping
     public ResponseEntity<List<Income>> getAllIncomes(Authentication authentication) {
@@ -32,16 +45,14 @@ public class IncomeController {
         String userId = authentication.getName();
         income.setUserId(userId);
         Income savedIncome = incomeRepository.save(income);
+        eventBus.publish(new DomainEvent.IncomeChanged(userId, ChangeType.CREATED, null, savedIncome));
 
         // Update bank balance if savingsAccountId is provided
         if (income.getSavingsAccountId() != null && !income.getSavingsAccountId().isEmpty()) {
-            savingsAccountRepository.findById(income.getSavingsAccountId()).ifPresent(account -> {
-                if (account.getUserId().equals(userId)) {
-                    account.setBalance(account.getBalance() + income.getAmount());
-                    savingsAccountRepository.save(account);
-                }
-            });
+            ledger.post(userId, income.getSavingsAccountId(), new SavingsLedger.Posting(LedgerEntry.INCOME,
+                    income.getAmount(), savedIncome.getId(), income.getDate(), income.getSource()));
         }
+        dataVersions.bump(userId, DataVersionService.INCOMES, DataVersionService.SAVINGS_ACCOUNTS);
 
         return ResponseEntity.ok(savedIncome);
     }
@@ -49,13 +60,23 @@ public class IncomeController {
     @PutMapping("/{id}")
     public ResponseEntity<Income> updateIncome(@PathVariable String id, @RequestBody Income income, Authentication authentication) {
         String userId = authentication.getName();
-        Income existingIncome = incomeRepository.findById(id).orElse(null);
+        Income existingIncome = incomeRepository.updateByIdAndUserId(id, userId, new Update()
+                .set("amount", income.getAmount())
+                .set("date", income.getDate())
+                .set("source", income.getSource())
+                .set("description", income.getDescription())
+                .set("savingsAccountId", income.getSavingsAccountId()), false).orElse(null);
         
-        if (existingIncome != null && existingIncome.getUserId().equals(userId)) {
+        if (existingIncome != null) {
             income.setId(id);
             income.setUserId(userId);
-            Income updatedIncome = incomeRepository.save(income);
-            return ResponseEntity.ok(updatedIncome);
+            // Take back what the income credited before and credit it as it is now
+            ledger.repost(userId, existingIncome.getSavingsAccountId(), reversal(existingIncome),
+                    income.getSavingsAccountId(), new SavingsLedger.Posting(LedgerEntry.INCOME,
+                            amount(income), id, income.getDate(), income.getSource()));
+            eventBus.publish(new DomainEvent.IncomeChanged(userId, ChangeType.UPDATED, existingIncome, income));
+            dataVersions.bump(userId, DataVersionService.INCOMES, DataVersionService.SAVINGS_ACCOUNTS);
+            return ResponseEntity.ok(income);
         }
         
         return ResponseEntity.notFound().build();
@@ -64,13 +85,26 @@ public class IncomeController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteIncome(@PathVariable String id, Authentication authentication) {
         String userId = authentication.getName();
-        Income income = incomeRepository.findById(id).orElse(null);
+        Income income = incomeRepository.deleteByIdAndUserId(id, userId).orElse(null);
         
-        if (income != null && income.getUserId().equals(userId)) {
-            incomeRepository.deleteById(id);
+        if (income != null) {
+            if (income.getSavingsAccountId() != null && !income.getSavingsAccountId().isEmpty()) {
+                ledger.post(userId, income.getSavingsAccountId(), reversal(income));
+            }
+            eventBus.publish(new DomainEvent.IncomeChanged(userId, ChangeType.DELETED, income, null));
+            dataVersions.bump(userId, DataVersionService.INCOMES, DataVersionService.SAVINGS_ACCOUNTS);
             return ResponseEntity.ok().build();
         }
         
         return ResponseEntity.notFound().build();
     }
+
+    private static SavingsLedger.Posting reversal(Income income) {
+        return new SavingsLedger.Posting(LedgerEntry.INCOME_REVERSAL, -amount(income), income.getId(),
+                LocalDate.now(), "Reversed: " + income.getSource());
+    }
+
+    private static double amount(Income income) {
+        return income.getAmount() != null ? income.getAmount() : 0;
+    }
 }
@@ -1,9 +1,16 @@
 package com.wealthtracker.controller;
 
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
 import com.wealthtracker.model.MutualFund;
 import com.wealthtracker.model.MutualFundTransaction;
 import com.wealthtracker.repository.MutualFundRepository;
 import com.wealthtracker.repository.MutualFundTransactionRepository;
+import com.wealthtracker.service.CascadeDeleteService;
+import com.wealthtracker.service.DataVersionService;
+import com.wealthtracker.util.OptimisticRetry;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -20,11 +27,23 @@ public class MutualFundController {
     
     private final MutualFundRepository mutualFundRepository;
     private final MutualFundTransactionRepository transactionRepository;
+    private final DomainEventBus eventBus;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final DataVersionService dataVersions;
+    private final OptimisticRetry optimisticRetry;
     
     public MutualFundController(MutualFundRepository mutualFundRepository, 
-                                MutualFundTransactionRepository transactionRepository) {
+                                MutualFundTransactionRepository transactionRepository,
+                                DomainEventBus eventBus,
+                                CascadeDeleteService cascadeDeleteService,
+                                DataVersionService dataVersions,
+                                OptimisticRetry optimisticRetry) {
         this.mutualFundRepository = mutualFundRepository;
         this.transactionRepository = transactionRepository;
+        this.eventBus = eventBus;
+        this.cascadeDeleteService = cascadeDeleteService;
+        this.dataVersions = dataVersions;
+        this.optimisticRetry = optimisticRetry;
     }
     
     @GetMapping
@@ -49,6 +68,8 @@ public class MutualFundController {
         transaction.setNav(fund.getNav());
         transaction.setPurchaseDate(fund.getPurchaseDate());
         transactionRepository.save(transaction);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "mutual_funds", savedFund.getId(), ChangeType.CREATED));
+        dataVersions.bump(userId, DataVersionService.MUTUAL_FUNDS);
         
         return ResponseEntity.ok(savedFund);
     }
@@ -59,30 +80,33 @@ public class MutualFundController {
                                                 Authentication auth) {
         String userId = (String) auth.getPrincipal();
         
-        MutualFund fund = mutualFundRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Mutual fund not found"));
-            
-        if (!fund.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
-        }
-        
         Double newUnits = Double.parseDouble(request.get("units").toString());
         Double newNav = Double.parseDouble(request.get("nav").toString());
         String purchaseDateStr = request.get("purchaseDate").toString();
         LocalDate purchaseDate = LocalDate.parse(purchaseDateStr);
         
-        // Calculate weighted average NAV for SIP
-        Double oldUnits = fund.getUnits();
-        Double oldNav = fund.getNav();
-        Double totalUnits = oldUnits + newUnits;
-        Double weightedAvgNav = ((oldUnits * oldNav) + (newUnits * newNav)) / totalUnits;
-        
-        // Update total units and weighted average NAV
-        fund.setUnits(totalUnits);
-        fund.setNav(Math.round(weightedAvgNav * 100.0) / 100.0); // Round to 2 decimal places
-        fund.setUpdatedAt(LocalDate.now());
-        
-        MutualFund updatedFund = mutualFundRepository.save(fund);
+        // Versioned save: two SIP top-ups racing each other recompute the average instead of losing one
+        MutualFund updatedFund = optimisticRetry.run("mutual-fund.add-units", () -> {
+            MutualFund fund = mutualFundRepository.findByIdAndUserId(id, userId).orElse(null);
+            if (fund == null) {
+                return null;
+            }
+            
+            // Calculate weighted average NAV for SIP
+            Double oldUnits = fund.getUnits();
+            Double oldNav = fund.getNav();
+            Double totalUnits = oldUnits + newUnits;
+            Double weightedAvgNav = ((oldUnits * oldNav) + (newUnits * newNav)) / totalUnits;
+            
+            // Update total units and weighted average NAV
+            fund.setUnits(totalUnits);
+            fund.setNav(Math.round(weightedAvgNav * 100.0) / 100.0); // Round to 2 decimal places
+            fund.setUpdatedAt(LocalDate.now());
+            return mutualFundRepository.save(fund);
+        });
+        if (updatedFund == null) {
+            return ResponseEntity.notFound().build();
+        }
         
         // Create transaction record
         MutualFundTransaction transaction = new MutualFundTransaction();
@@ -92,6 +116,8 @@ public class MutualFundController {
         transaction.setNav(newNav);
         transaction.setPurchaseDate(purchaseDate);
         transactionRepository.save(transaction);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "mutual_funds", id, ChangeType.UPDATED));
+        dataVersions.bump(userId, DataVersionService.MUTUAL_FUNDS);
         
         return ResponseEntity.ok(updatedFund);
     }
@@ -120,39 +146,35 @@ public class MutualFundController {
     public ResponseEntity<MutualFund> update(@PathVariable String id, @RequestBody MutualFund fund, Authentication auth) {
         String userId = (String) auth.getPrincipal();
         
-        MutualFund existingFund = mutualFundRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Mutual fund not found"));
-        
-        if (!existingFund.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        MutualFund updatedFund = mutualFundRepository.updateByIdAndUserId(id, userId, new Update()
+                .set("fundName", fund.getFundName())
+                .set("schemeName", fund.getSchemeName())
+                .set("units", fund.getUnits())
+                .set("nav", fund.getNav())
+                .set("purchaseDate", fund.getPurchaseDate())
+                .set("updatedAt", LocalDate.now())).orElse(null);
+        if (updatedFund == null) {
+            return ResponseEntity.notFound().build();
         }
         
-        existingFund.setFundName(fund.getFundName());
-        existingFund.setSchemeName(fund.getSchemeName());
-        existingFund.setUnits(fund.getUnits());
-        existingFund.setNav(fund.getNav());
-        existingFund.setPurchaseDate(fund.getPurchaseDate());
-        existingFund.setUpdatedAt(LocalDate.now());
-        
-        return ResponseEntity.ok(mutualFundRepository.save(existingFund));
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "mutual_funds", id, ChangeType.UPDATED));
+        dataVersions.bump(userId, DataVersionService.MUTUAL_FUNDS);
+        return ResponseEntity.ok(updatedFund);
     }
     
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id, Authentication auth) {
         String userId = (String) auth.getPrincipal();
         
-        MutualFund fund = mutualFundRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Mutual fund not found"));
-        
-        if (!fund.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        // Delete the fund
+        if (mutualFundRepository.deleteByIdAndUserId(id, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
         
         // Delete associated transactions
-        transactionRepository.deleteByMutualFundId(id);
-        
-        // Delete the fund
-        mutualFundRepository.deleteById(id);
+        cascadeDeleteService.deleteMutualFundTransactions(id);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "mutual_funds", id, ChangeType.DELETED));
+        dataVersions.bump(userId, DataVersionService.MUTUAL_FUNDS);
         return ResponseEntity.ok().build();
     }
 }
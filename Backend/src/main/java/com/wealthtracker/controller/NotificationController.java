@@ -2,9 +2,13 @@ package com.wealthtracker.controller;
 
 import com.wealthtracker.model.Notification;
 import com.wealthtracker.repository.NotificationRepository;
+import com.wealthtracker.service.NotificationRetention;
+import com.wealthtracker.service.NotificationStreamRegistry;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -14,9 +18,15 @@ import java.util.Map;
 public class NotificationController {
 
     private final NotificationRepository notificationRepository;
+    private final NotificationStreamRegistry streamRegistry;
+    private final NotificationRetention notificationRetention;
 
-    public NotificationController(NotificationRepository notificationRepository) {
+    public NotificationController(NotificationRepository notificationRepository,
+                                  NotificationStreamRegistry streamRegistry,
+                                  NotificationRetention notificationRetention) {
         this.notificationRepository = notificationRepository;
+        this.streamRegistry = streamRegistry;
+        this.notificationRetention = notificationRetention;
     }
 
     @GetMapping
@@ -32,6 +42,16 @@ public class NotificationController {
         return ResponseEntity.ok(Map.of("count", count));
     }
 
+    /**
+     * Server-sent events: "unread-count" on connect and whenever it changes,
+     * "notification" for each new notification.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        return streamRegistry.connect(userId);
+    }
+
     @PutMapping("/{id}/read")
     public ResponseEntity<Notification> markAsRead(@PathVariable String id, Authentication auth) {
         String userId = (String) auth.getPrincipal();
@@ -42,16 +62,17 @@ public class NotificationController {
             return ResponseEntity.status(403).build();
         }
 
-        notification.setRead(true);
-        return ResponseEntity.ok(notificationRepository.save(notification));
+        notificationRetention.markRead(notification);
+        Notification saved = notificationRepository.save(notification);
+        streamRegistry.publishUnreadChanged(userId);
+        return ResponseEntity.ok(saved);
     }
 
     @PutMapping("/read-all")
     public ResponseEntity<Void> markAllAsRead(Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        List<Notification> unread = notificationRepository.findByUserIdAndReadFalseOrderByCreatedAtDesc(userId);
-        unread.forEach(n -> n.setRead(true));
-        notificationRepository.saveAll(unread);
+        notificationRetention.markAllRead(userId);
+        streamRegistry.publishUnreadCount(userId, 0);
         return ResponseEntity.ok().build();
     }
 }
@@ -1,7 +1,13 @@
 package com.wealthtracker.controller;
 
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
 import com.wealthtracker.model.PhysicalAsset;
 import com.wealthtracker.repository.PhysicalAssetRepository;
+import com.wealthtracker.service.CascadeDeleteService;
+import com.wealthtracker.service.DataVersionService;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -14,9 +20,18 @@ import java.util.List;
 public class PhysicalAssetController {
 
     private final PhysicalAssetRepository repository;
-
-    public PhysicalAssetController(PhysicalAssetRepository repository) {
+    private final CascadeDeleteService cascadeDeleteService;
+    private final DomainEventBus eventBus;
+    private final DataVersionService dataVersions;
+
+    public PhysicalAssetController(PhysicalAssetRepository repository,
+                                   CascadeDeleteService cascadeDeleteService,
+                                   DomainEventBus eventBus,
+                                   DataVersionService dataVersions) {
         this.repository = repository;
+        this.cascadeDeleteService = cascadeDeleteService;
+        this.eventBus = eventBus;
+        this.dataVersions = dataVersions;
     }
 
     @GetMapping
@@ -31,43 +46,44 @@ public class PhysicalAssetController {
         asset.setUserId(userId);
         asset.setCreatedAt(LocalDate.now());
         asset.setUpdatedAt(LocalDate.now());
-        return ResponseEntity.ok(repository.save(asset));
+        PhysicalAsset saved = repository.save(asset);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "physical_assets", saved.getId(), ChangeType.CREATED));
+        dataVersions.bump(userId, DataVersionService.PHYSICAL_ASSETS);
+        return ResponseEntity.ok(saved);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<PhysicalAsset> update(@PathVariable String id, @RequestBody PhysicalAsset asset, Authentication auth) {
         String userId = (String) auth.getPrincipal();
 
-        PhysicalAsset existing = repository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Physical asset not found"));
-
-        if (!existing.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
-        }
-
-        existing.setAssetName(asset.getAssetName());
-        existing.setAssetType(asset.getAssetType());
-        existing.setPurchasePrice(asset.getPurchasePrice());
-        existing.setCurrentValue(asset.getCurrentValue());
-        existing.setPurchaseDate(asset.getPurchaseDate());
-        existing.setDescription(asset.getDescription());
-        existing.setUpdatedAt(LocalDate.now());
-
-        return ResponseEntity.ok(repository.save(existing));
+        return repository.updateByIdAndUserId(id, userId, new Update()
+                        .set("assetName", asset.getAssetName())
+                        .set("assetType", asset.getAssetType())
+                        .set("purchasePrice", asset.getPurchasePrice())
+                        .set("currentValue", asset.getCurrentValue())
+                        .set("purchaseDate", asset.getPurchaseDate())
+                        .set("description", asset.getDescription())
+                        .set("updatedAt", LocalDate.now()))
+                .map(updated -> {
+                    eventBus.publish(new DomainEvent.AssetChanged(userId, "physical_assets", id, ChangeType.UPDATED));
+                    dataVersions.bump(userId, DataVersionService.PHYSICAL_ASSETS);
+                    return ResponseEntity.ok(updated);
+                })
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id, Authentication auth) {
         String userId = (String) auth.getPrincipal();
 
-        PhysicalAsset asset = repository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Physical asset not found"));
-
-        if (!asset.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        if (repository.deleteByIdAndUserId(id, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
 
-        repository.deleteById(id);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "physical_assets", id, ChangeType.DELETED));
+        dataVersions.bump(userId, DataVersionService.PHYSICAL_ASSETS);
+        // Uploaded documents and their GridFS files
+        cascadeDeleteService.deleteAssetDocuments(id, userId);
         return ResponseEntity.ok().build();
     }
 }
@@ -0,0 +1,50 @@
+package com.wealthtracker.controller;
+
+import com.wealthtracker.model.MonthlyRollup;
+import com.wealthtracker.service.MonthlyRollupService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/rollups")
+public class RollupController {
+
+    private final MonthlyRollupService rollupService;
+
+    public RollupController(MonthlyRollupService rollupService) {
+        this.rollupService = rollupService;
+    }
+
+    /**
+     * Monthly totals between two months (inclusive), e.g.
+     * /api/rollups?from=2024-01&to=2024-06. Defaults to the last 12 months.
+     */
+    @GetMapping
+    public ResponseEntity<?> getRollups(@RequestParam(required = false) String from,
+                                        @RequestParam(required = false) String to,
+                                        Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        YearMonth toMonth;
+        YearMonth fromMonth;
+        try {
+            toMonth = to != null ? YearMonth.parse(to) : YearMonth.now();
+            fromMonth = from != null ? YearMonth.parse(from) : toMonth.minusMonths(11);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Months must be in yyyy-MM format"));
+        }
+        List<MonthlyRollup> rollups = rollupService.range(userId, fromMonth, toMonth);
+        return ResponseEntity.ok(rollups);
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuild(Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        return ResponseEntity.ok(Map.of("months", rollupService.rebuild(userId)));
+    }
+}
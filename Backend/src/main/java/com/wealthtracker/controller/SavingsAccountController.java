@@ -1,9 +1,18 @@
 package com.wealthtracker.controller;
 
 import com.wealthtracker.dto.TransferRequest;
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
+import com.wealthtracker.ledger.SavingsLedger;
 import com.wealthtracker.model.SavingsAccount;
+import com.wealthtracker.model.Transfer;
 import com.wealthtracker.repository.SavingsAccountRepository;
+import com.wealthtracker.service.DataVersionService;
+import com.wealthtracker.service.TransferService;
 import com.wealthtracker.util.EncryptionUtil;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -16,9 +25,21 @@ import java.util.List;
 public class SavingsAccountController {
     
     private final SavingsAccountRepository savingsAccountRepository;
+    private final TransferService transferService;
+    private final SavingsLedger ledger;
+    private final DomainEventBus eventBus;
+    private final DataVersionService dataVersions;
     
-    public SavingsAccountController(SavingsAccountRepository savingsAccountRepository) {
+    public SavingsAccountController(SavingsAccountRepository savingsAccountRepository,
+                                    TransferService transferService,
+                                    SavingsLedger ledger,
+                                    DomainEventBus eventBus,
+                                    DataVersionService dataVersions) {
         this.savingsAccountRepository = savingsAccountRepository;
+        this.transferService = transferService;
+        this.ledger = ledger;
+        this.eventBus = eventBus;
+        this.dataVersions = dataVersions;
     }
     
     @GetMapping
@@ -44,7 +65,11 @@ public class SavingsAccountController {
             account.setAccountNumber(EncryptionUtil.encrypt(account.getAccountNumber()));
         }
         
+        account.setLedgerSeq(1L);
         SavingsAccount savedAccount = savingsAccountRepository.save(account);
+        ledger.open(savedAccount);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "savings_accounts", savedAccount.getId(), ChangeType.CREATED));
+        dataVersions.bump(userId, DataVersionService.SAVINGS_ACCOUNTS);
         
         // Decrypt for response
         savedAccount.setAccountNumber(EncryptionUtil.decrypt(savedAccount.getAccountNumber()));
@@ -55,24 +80,26 @@ public class SavingsAccountController {
     public ResponseEntity<SavingsAccount> update(@PathVariable String id, @RequestBody SavingsAccount account, Authentication auth) {
         String userId = (String) auth.getPrincipal();
         
-        SavingsAccount existingAccount = savingsAccountRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Savings account not found"));
-        
-        if (!existingAccount.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        // A balance typed in by the user goes through the ledger as an adjustment
+        if (account.getBalance() != null) {
+            ledger.setBalance(userId, id, account.getBalance());
         }
-        
-        existingAccount.setBankName(account.getBankName());
-        existingAccount.setBalance(account.getBalance());
-        existingAccount.setInterestRate(account.getInterestRate());
-        existingAccount.setUpdatedAt(LocalDate.now());
+        Update update = new Update()
+                .set("bankName", account.getBankName())
+                .set("interestRate", account.getInterestRate())
+                .set("updatedAt", LocalDate.now());
         
         // Encrypt account number if changed
         if (account.getAccountNumber() != null && !account.getAccountNumber().isEmpty()) {
-            existingAccount.setAccountNumber(EncryptionUtil.encrypt(account.getAccountNumber()));
+            update.set("accountNumber", EncryptionUtil.encrypt(account.getAccountNumber()));
         }
         
-        SavingsAccount updatedAccount = savingsAccountRepository.save(existingAccount);
+        SavingsAccount updatedAccount = savingsAccountRepository.updateByIdAndUserId(id, userId, update).orElse(null);
+        if (updatedAccount == null) {
+            return ResponseEntity.notFound().build();
+        }
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "savings_accounts", id, ChangeType.UPDATED));
+        dataVersions.bump(userId, DataVersionService.SAVINGS_ACCOUNTS);
         
         // Decrypt for response
         updatedAccount.setAccountNumber(EncryptionUtil.decrypt(updatedAccount.getAccountNumber()));
@@ -83,41 +110,53 @@ public class SavingsAccountController {
     public ResponseEntity<Void> delete(@PathVariable String id, Authentication auth) {
         String userId = (String) auth.getPrincipal();
         
-        SavingsAccount account = savingsAccountRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Savings account not found"));
-        
-        if (!account.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        if (savingsAccountRepository.deleteByIdAndUserId(id, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
-        
-        savingsAccountRepository.deleteById(id);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "savings_accounts", id, ChangeType.DELETED));
+        dataVersions.bump(userId, DataVersionService.SAVINGS_ACCOUNTS);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/transfer")
     public ResponseEntity<Void> transfer(@RequestBody TransferRequest request, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        
-        SavingsAccount fromAccount = savingsAccountRepository.findById(request.getFromAccountId())
-                .orElseThrow(() -> new RuntimeException("Source account not found"));
-        
-        SavingsAccount toAccount = savingsAccountRepository.findById(request.getToAccountId())
-                .orElseThrow(() -> new RuntimeException("Destination account not found"));
-        
-        if (!fromAccount.getUserId().equals(userId) || !toAccount.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
-        }
-        
-        if (fromAccount.getBalance() < request.getAmount()) {
-            throw new RuntimeException("Insufficient balance");
-        }
-        
-        fromAccount.setBalance(fromAccount.getBalance() - request.getAmount());
-        toAccount.setBalance(toAccount.getBalance() + request.getAmount());
-        
-        savingsAccountRepository.save(fromAccount);
-        savingsAccountRepository.save(toAccount);
-        
+
+        transferService.transfer(userId, request.getFromAccountId(), request.getToAccountId(), request.getAmount());
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "savings_accounts", request.getFromAccountId(), ChangeType.UPDATED));
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "savings_accounts", request.getToAccountId(), ChangeType.UPDATED));
+        dataVersions.bump(userId, DataVersionService.SAVINGS_ACCOUNTS);
+
         return ResponseEntity.ok().build();
     }
+
+    @GetMapping("/transfers")
+    public ResponseEntity<List<Transfer>> transfers(@RequestParam(defaultValue = "50") int limit, Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        return ResponseEntity.ok(transferService.recent(userId, Math.min(Math.max(limit, 1), 200)));
+    }
+
+    /**
+     * The account's ledger, newest entry first. Pass nextBefore of a page as
+     * before to get the next page.
+     */
+    @GetMapping("/{id}/statement")
+    public ResponseEntity<SavingsLedger.Statement> statement(@PathVariable String id,
+                                                             @RequestParam(required = false) Long before,
+                                                             @RequestParam(defaultValue = "50") int limit,
+                                                             Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        return ResponseEntity.ok(ledger.statement(userId, id, before, Math.min(Math.max(limit, 1), 200)));
+    }
+
+    @GetMapping("/{id}/balance")
+    public ResponseEntity<SavingsLedger.BalanceAt> balanceAt(@PathVariable String id,
+                                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                            Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        if (savingsAccountRepository.findByIdAndUserId(id, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(ledger.balanceAt(userId, id, date));
+    }
 }
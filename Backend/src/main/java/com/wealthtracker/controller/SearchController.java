@@ -0,0 +1,43 @@
+package com.wealthtracker.controller;
+
+import com.wealthtracker.search.SemanticSearchService;
+import com.wealthtracker.search.SemanticSearchService.SearchResult;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final SemanticSearchService searchService;
+
+    public SearchController(SemanticSearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    /**
+     * Semantic search over expense, trip-expense and expense-book descriptions,
+     * e.g. /api/search?q=dinner with friends&limit=10
+     */
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam("q") String query,
+                                    @RequestParam(defaultValue = "10") int limit,
+                                    Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        try {
+            List<SearchResult> results = searchService.search(userId, query, Math.max(1, Math.min(limit, MAX_LIMIT)));
+            return ResponseEntity.ok(results);
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("message", "Search is busy building indexes. Please try again shortly."));
+        }
+    }
+}
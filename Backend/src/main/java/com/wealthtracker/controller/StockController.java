@@ -1,9 +1,16 @@
 package com.wealthtracker.controller;
 
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
 import com.wealthtracker.model.Stock;
 import com.wealthtracker.model.StockTransaction;
 import com.wealthtracker.repository.StockRepository;
 import com.wealthtracker.repository.StockTransactionRepository;
+import com.wealthtracker.service.CascadeDeleteService;
+import com.wealthtracker.service.DataVersionService;
+import com.wealthtracker.util.OptimisticRetry;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -18,11 +25,23 @@ public class StockController {
     
     private final StockRepository stockRepository;
     private final StockTransactionRepository transactionRepository;
+    private final DomainEventBus eventBus;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final DataVersionService dataVersions;
+    private final OptimisticRetry optimisticRetry;
     
     public StockController(StockRepository stockRepository, 
-                          StockTransactionRepository transactionRepository) {
+                          StockTransactionRepository transactionRepository,
+                          DomainEventBus eventBus,
+                          CascadeDeleteService cascadeDeleteService,
+                          DataVersionService dataVersions,
+                          OptimisticRetry optimisticRetry) {
         this.stockRepository = stockRepository;
         this.transactionRepository = transactionRepository;
+        this.eventBus = eventBus;
+        this.cascadeDeleteService = cascadeDeleteService;
+        this.dataVersions = dataVersions;
+        this.optimisticRetry = optimisticRetry;
     }
     
     @GetMapping
@@ -47,6 +66,8 @@ public class StockController {
         transaction.setPurchasePrice(stock.getPurchasePrice());
         transaction.setPurchaseDate(stock.getPurchaseDate());
         transactionRepository.save(transaction);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "stocks", savedStock.getId(), ChangeType.CREATED));
+        dataVersions.bump(userId, DataVersionService.STOCKS);
         
         return ResponseEntity.ok(savedStock);
     }
@@ -57,30 +78,33 @@ public class StockController {
                                           Authentication auth) {
         String userId = (String) auth.getPrincipal();
         
-        Stock stock = stockRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Stock not found"));
-            
-        if (!stock.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
-        }
-        
         Double newQuantity = Double.parseDouble(request.get("quantity").toString());
         Double newPrice = Double.parseDouble(request.get("purchasePrice").toString());
         String purchaseDateStr = request.get("purchaseDate").toString();
         LocalDate purchaseDate = LocalDate.parse(purchaseDateStr);
         
-        // Calculate weighted average purchase price
-        Double oldQuantity = stock.getQuantity();
-        Double oldPrice = stock.getPurchasePrice();
-        Double totalQuantity = oldQuantity + newQuantity;
-        Double weightedAvgPrice = ((oldQuantity * oldPrice) + (newQuantity * newPrice)) / totalQuantity;
-        
-        // Update total quantity and weighted average price
-        stock.setQuantity(totalQuantity);
-        stock.setPurchasePrice(Math.round(weightedAvgPrice * 100.0) / 100.0); // Round to 2 decimal places
-        stock.setUpdatedAt(LocalDate.now());
-        
-        Stock updatedStock = stockRepository.save(stock);
+        // Versioned save: a concurrent add-units makes it fail, and the average is recomputed from a fresh read
+        Stock updatedStock = optimisticRetry.run("stock.add-units", () -> {
+            Stock stock = stockRepository.findByIdAndUserId(id, userId).orElse(null);
+            if (stock == null) {
+                return null;
+            }
+            
+            // Calculate weighted average purchase price
+            Double oldQuantity = stock.getQuantity();
+            Double oldPrice = stock.getPurchasePrice();
+            Double totalQuantity = oldQuantity + newQuantity;
+            Double weightedAvgPrice = ((oldQuantity * oldPrice) + (newQuantity * newPrice)) / totalQuantity;
+            
+            // Update total quantity and weighted average price
+            stock.setQuantity(totalQuantity);
+            stock.setPurchasePrice(Math.round(weightedAvgPrice * 100.0) / 100.0); // Round to 2 decimal places
+            stock.setUpdatedAt(LocalDate.now());
+            return stockRepository.save(stock);
+        });
+        if (updatedStock == null) {
+            return ResponseEntity.notFound().build();
+        }
         
         // Create transaction record
         StockTransaction transaction = new StockTransaction();
@@ -90,6 +114,8 @@ public class StockController {
         transaction.setPurchasePrice(newPrice);
         transaction.setPurchaseDate(purchaseDate);
         transactionRepository.save(transaction);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "stocks", id, ChangeType.UPDATED));
+        dataVersions.bump(userId, DataVersionService.STOCKS);
         
         return ResponseEntity.ok(updatedStock);
     }
@@ -118,39 +144,35 @@ public class StockController {
     public ResponseEntity<Stock> update(@PathVariable String id, @RequestBody Stock stock, Authentication auth) {
         String userId = (String) auth.getPrincipal();
         
-        Stock existingStock = stockRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Stock not found"));
-        
-        if (!existingStock.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        Stock updatedStock = stockRepository.updateByIdAndUserId(id, userId, new Update()
+                .set("stockName", stock.getStockName())
+                .set("symbol", stock.getSymbol())
+                .set("quantity", stock.getQuantity())
+                .set("purchasePrice", stock.getPurchasePrice())
+                .set("purchaseDate", stock.getPurchaseDate())
+                .set("updatedAt", LocalDate.now())).orElse(null);
+        if (updatedStock == null) {
+            return ResponseEntity.notFound().build();
         }
         
-        existingStock.setStockName(stock.getStockName());
-        existingStock.setSymbol(stock.getSymbol());
-        existingStock.setQuantity(stock.getQuantity());
-        existingStock.setPurchasePrice(stock.getPurchasePrice());
-        existingStock.setPurchaseDate(stock.getPurchaseDate());
-        existingStock.setUpdatedAt(LocalDate.now());
-        
-        return ResponseEntity.ok(stockRepository.save(existingStock));
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "stocks", id, ChangeType.UPDATED));
+        dataVersions.bump(userId, DataVersionService.STOCKS);
+        return ResponseEntity.ok(updatedStock);
     }
     
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id, Authentication auth) {
         String userId = (String) auth.getPrincipal();
         
-        Stock stock = stockRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Stock not found"));
-        
-        if (!stock.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        // Delete the stock
+        if (stockRepository.deleteByIdAndUserId(id, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
         
         // Delete associated transactions
-        transactionRepository.deleteByStockId(id);
-        
-        // Delete the stock
-        stockRepository.deleteById(id);
+        cascadeDeleteService.deleteStockTransactions(id);
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "stocks", id, ChangeType.DELETED));
+        dataVersions.bump(userId, DataVersionService.STOCKS);
         return ResponseEntity.ok().build();
     }
 }
@@ -0,0 +1,39 @@
+package com.wealthtracker.controller;
+
+import com.wealthtracker.sync.SyncService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    /**
+     * Documents created, updated or deleted since the token. Without a token
+     * only a starting token comes back: take it before the initial full load,
+     * then pass it as since. 410 means the token is too old and the client
+     * has to reload everything.
+     */
+    @GetMapping
+    public ResponseEntity<?> sync(@RequestParam(required = false) Long since, Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        if (since == null) {
+            return ResponseEntity.ok(Map.of("token", syncService.currentToken()));
+        }
+        if (!syncService.canServe(since)) {
+            return ResponseEntity.status(HttpStatus.GONE)
+                    .body(Map.of("message", "Sync token expired, reload all data"));
+        }
+        return ResponseEntity.ok(syncService.changesSince(userId, since));
+    }
+}
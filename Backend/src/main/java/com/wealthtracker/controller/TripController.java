@@ -4,6 +4,12 @@ import com.wealthtracker.model.Trip;
 import com.wealthtracker.model.TripExpense;
 import com.wealthtracker.repository.TripRepository;
 import com.wealthtracker.repository.TripExpenseRepository;
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
+import com.wealthtracker.service.CascadeDeleteService;
+import com.wealthtracker.service.DataVersionService;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -17,10 +23,18 @@ public class TripController {
     
     private final TripRepository tripRepository;
     private final TripExpenseRepository tripExpenseRepository;
+    private final DomainEventBus eventBus;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final DataVersionService dataVersions;
     
-    public TripController(TripRepository tripRepository, TripExpenseRepository tripExpenseRepository) {
+    public TripController(TripRepository tripRepository, TripExpenseRepository tripExpenseRepository,
+                          DomainEventBus eventBus, CascadeDeleteService cascadeDeleteService,
+                          DataVersionService dataVersions) {
         this.tripRepository = tripRepository;
         this.tripExpenseRepository = tripExpenseRepository;
+        this.eventBus = eventBus;
+        this.cascadeDeleteService = cascadeDeleteService;
+        this.dataVersions = dataVersions;
     }
 
     @GetMapping
@@ -34,52 +48,49 @@ public class TripController {
         String userId = (String) auth.getPrincipal();
         trip.setUserId(userId);
         trip.setUpdatedAt(LocalDate.now());
-        return ResponseEntity.ok(tripRepository.save(trip));
+        Trip saved = tripRepository.save(trip);
+        eventBus.publish(new DomainEvent.TripChanged(userId, ChangeType.CREATED, saved.getId()));
+        dataVersions.bump(userId, DataVersionService.TRIPS);
+        return ResponseEntity.ok(saved);
     }
     
     @PutMapping("/{id}")
     public ResponseEntity<Trip> updateTrip(@PathVariable String id, @RequestBody Trip trip, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        Trip existingTrip = tripRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Trip not found"));
-        
-        if (!existingTrip.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
-        }
-        
-        trip.setId(id);
-        trip.setUserId(userId);
-        trip.setCreatedAt(existingTrip.getCreatedAt());
-        trip.setUpdatedAt(LocalDate.now());
-        return ResponseEntity.ok(tripRepository.save(trip));
+        return tripRepository.updateByIdAndUserId(id, userId, new Update()
+                        .set("tripName", trip.getTripName())
+                        .set("destination", trip.getDestination())
+                        .set("startDate", trip.getStartDate())
+                        .set("endDate", trip.getEndDate())
+                        .set("participants", trip.getParticipants())
+                        .set("updatedAt", LocalDate.now()))
+                .map(updated -> {
+                    eventBus.publish(new DomainEvent.TripChanged(userId, ChangeType.UPDATED, id));
+                    dataVersions.bump(userId, DataVersionService.TRIPS);
+                    return ResponseEntity.ok(updated);
+                })
+                .orElse(ResponseEntity.notFound().build());
     }
     
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteTrip(@PathVariable String id, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        Trip trip = tripRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Trip not found"));
-        
-        if (!trip.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        if (tripRepository.deleteByIdAndUserId(id, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
         
         // Delete all expenses associated with this trip
-        List<TripExpense> expenses = tripExpenseRepository.findByTripIdOrderByExpenseDateDesc(id);
-        tripExpenseRepository.deleteAll(expenses);
-        
-        tripRepository.deleteById(id);
+        cascadeDeleteService.deleteTripExpenses(id);
+        eventBus.publish(new DomainEvent.TripChanged(userId, ChangeType.DELETED, id));
+        dataVersions.bump(userId, DataVersionService.TRIPS);
         return ResponseEntity.ok().build();
     }
 
     @GetMapping("/{tripId}/expenses")
     public ResponseEntity<List<TripExpense>> getTripExpenses(@PathVariable String tripId, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new RuntimeException("Trip not found"));
-        
-        if (!trip.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        if (tripRepository.findByIdAndUserId(tripId, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
         
         return ResponseEntity.ok(tripExpenseRepository.findByTripIdOrderByExpenseDateDesc(tripId));
@@ -88,60 +99,58 @@ public class TripController {
     @PostMapping("/{tripId}/expenses")
     public ResponseEntity<TripExpense> addExpense(@PathVariable String tripId, @RequestBody TripExpense expense, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new RuntimeException("Trip not found"));
-        
-        if (!trip.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        if (tripRepository.findByIdAndUserId(tripId, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
         
         expense.setTripId(tripId);
         expense.setUpdatedAt(LocalDate.now());
-        return ResponseEntity.ok(tripExpenseRepository.save(expense));
+        TripExpense saved = tripExpenseRepository.save(expense);
+        eventBus.publish(new DomainEvent.TripExpenseChanged(userId, ChangeType.CREATED, null, saved));
+        dataVersions.bump(userId, DataVersionService.TRIPS);
+        return ResponseEntity.ok(saved);
     }
     
     @PutMapping("/{tripId}/expenses/{expenseId}")
     public ResponseEntity<TripExpense> updateExpense(@PathVariable String tripId, @PathVariable String expenseId, @RequestBody TripExpense expense, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new RuntimeException("Trip not found"));
-        
-        if (!trip.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
-        }
-        
-        TripExpense existingExpense = tripExpenseRepository.findById(expenseId)
-                .orElseThrow(() -> new RuntimeException("Expense not found"));
-        
-        if (!existingExpense.getTripId().equals(tripId)) {
-            return ResponseEntity.status(403).build();
+        if (tripRepository.findByIdAndUserId(tripId, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
         
-        expense.setId(expenseId);
-        expense.setTripId(tripId);
-        expense.setCreatedAt(existingExpense.getCreatedAt());
-        expense.setUpdatedAt(LocalDate.now());
-        return ResponseEntity.ok(tripExpenseRepository.save(expense));
+        LocalDate now = LocalDate.now();
+        return tripExpenseRepository.updateByIdAndTripId(expenseId, tripId, new Update()
+                        .set("description", expense.getDescription())
+                        .set("amount", expense.getAmount())
+                        .set("paidBy", expense.getPaidBy())
+                        .set("expenseDate", expense.getExpenseDate())
+                        .set("updatedAt", now))
+                .map(previous -> {
+                    expense.setId(expenseId);
+                    expense.setTripId(tripId);
+                    expense.setCreatedAt(previous.getCreatedAt());
+                    expense.setUpdatedAt(now);
+                    eventBus.publish(new DomainEvent.TripExpenseChanged(userId, ChangeType.UPDATED, previous, expense));
+                    dataVersions.bump(userId, DataVersionService.TRIPS);
+                    return ResponseEntity.ok(expense);
+                })
+                .orElse(ResponseEntity.notFound().build());
     }
     
     @DeleteMapping("/{tripId}/expenses/{expenseId}")
     public ResponseEntity<Void> deleteExpense(@PathVariable String tripId, @PathVariable String expenseId, Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new RuntimeException("Trip not found"));
-        
-        if (!trip.getUserId().equals(userId)) {
-            return ResponseEntity.status(403).build();
+        if (tripRepository.findByIdAndUserId(tripId, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
         
-        TripExpense expense = tripExpenseRepository.findById(expenseId)
-                .orElseThrow(() -> new RuntimeException("Expense not found"));
-        
-        if (!expense.getTripId().equals(tripId)) {
-            return ResponseEntity.status(403).build();
+        TripExpense expense = tripExpenseRepository.deleteByIdAndTripId(expenseId, tripId).orElse(null);
+        if (expense == null) {
+            return ResponseEntity.notFound().build();
         }
         
-        tripExpenseRepository.deleteById(expenseId);
+        eventBus.publish(new DomainEvent.TripExpenseChanged(userId, ChangeType.DELETED, expense, null));
+        dataVersions.bump(userId, DataVersionService.TRIPS);
         return ResponseEntity.ok().build();
     }
 }
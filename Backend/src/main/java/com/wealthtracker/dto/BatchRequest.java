@@ -0,0 +1,23 @@
+package com.wealthtracker.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class BatchRequest {
+    private List<Operation> operations;
+
+    @Data
+    public static class Operation {
+        // expenses, incomes, stocks, mutual-funds or physical-assets
+        private String resource;
+        // create, update, delete; add-units for stocks and mutual-funds
+        private String action;
+        // Required for everything but create
+        private String id;
+        // The same body the single-resource endpoint takes
+        private Map<String, Object> data;
+    }
+}
@@ -9,4 +9,6 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class ChatMessage {
     private String message;
+    private String sessionId; // optional: continue an existing chat session
+    private String mode; // optional, new sessions only: "tools" (tool calling) or "context" (snapshot)
 }
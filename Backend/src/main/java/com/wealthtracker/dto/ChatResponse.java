@@ -9,4 +9,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class ChatResponse {
     private String response;
+    private String sessionId;
+
+    public ChatResponse(String response) {
+        this.response = response;
+    }
 }
@@ -0,0 +1,60 @@
+package com.wealthtracker.events;
+
+import com.wealthtracker.model.OutboxEvent;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+/**
+ * Applies an upserting update to a counter document at most once per event.
+ *
+ * The document keeps the ids of the last KEEP events applied to it in
+ * appliedEvents. The update is conditional on none of the given ids being
+ * there and pushes them in the same write, so a redelivered event finds its
+ * id and changes nothing. Redeliveries come within a few outbox leases, long
+ * before an id is pushed out of the list.
+ */
+public final class AppliedEvents {
+
+    public static final String FIELD = "appliedEvents";
+
+    public static final int KEEP = 500;
+
+    private AppliedEvents() {}
+
+    /**
+     * Apply update to the document with this id, creating it if needed,
+     * unless it already recorded one of eventIds. Returns the updated
+     * document (without appliedEvents), or null when nothing was applied.
+     */
+    public static <T> T upsertOnce(MongoTemplate mongoTemplate, String id, List<String> eventIds, Update update,
+                                   Class<T> type) {
+        Query query = Query.query(Criteria.where("_id").is(id).and(FIELD).nin(eventIds));
+        query.fields().exclude(FIELD);
+        update.push(FIELD).slice(-KEEP).each(eventIds.toArray());
+        try {
+            return mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), type);
+        } catch (DuplicateKeyException e) {
+            // The document has one of the events, or a concurrent upsert created it first
+            return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), type);
+        }
+    }
+
+    /**
+     * Ids of the user's events of these types still in the outbox. Events
+     * are published after their change is stored, so a read that starts
+     * after this already sees the changes of all of them; a counter seeded
+     * from that read records them as applied.
+     */
+    public static List<String> pending(MongoTemplate mongoTemplate, String userId, List<String> eventTypes) {
+        Query query = Query.query(Criteria.where("eventType").in(eventTypes).and("payload.userId").is(userId));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, OutboxEvent.class).stream().map(OutboxEvent::getId).toList();
+    }
+}
@@ -0,0 +1,37 @@
+package com.wealthtracker.events;
+
+import com.wealthtracker.events.DomainEvent.ExpenseChanged;
+import com.wealthtracker.service.BudgetTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class BudgetEventSubscriber implements DomainEventSubscriber {
+
+    private final BudgetTracker budgetTracker;
+
+    @Override
+    public String name() {
+        return "budgets";
+    }
+
+    @Override
+    public boolean accepts(DomainEvent event) {
+        return event instanceof ExpenseChanged;
+    }
+
+    @Override
+    public void handle(List<Delivery> deliveries) {
+        for (Delivery delivery : deliveries) {
+            ExpenseChanged e = (ExpenseChanged) delivery.event();
+            switch (e.change()) {
+                case CREATED -> budgetTracker.onExpenseCreated(delivery.eventId(), e.current());
+                case UPDATED -> budgetTracker.onExpenseUpdated(delivery.eventId(), e.previous(), e.current());
+                case DELETED -> budgetTracker.onExpenseDeleted(delivery.eventId(), e.previous());
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.wealthtracker.events;
+
+import com.wealthtracker.agent.ToolResultCache;
+import com.wealthtracker.service.DashboardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Drops cached derived data of every user a batch of events touched.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationEventSubscriber implements DomainEventSubscriber {
+
+    private final ToolResultCache toolResultCache;
+    private final DashboardService dashboardService;
+
+    @Override
+    public String name() {
+        return "cache-invalidation";
+    }
+
+    @Override
+    public boolean accepts(DomainEvent event) {
+        return true;
+    }
+
+    @Override
+    public void handle(List<Delivery> deliveries) {
+        Set<String> userIds = new HashSet<>();
+        deliveries.forEach(delivery -> userIds.addAll(delivery.event().affectedUserIds()));
+        userIds.forEach(userId -> {
+            toolResultCache.invalidateUser(userId);
+            dashboardService.invalidateUser(userId);
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.wealthtracker.events;
+
+import com.wealthtracker.categorization.ExpenseCategorizer;
+import com.wealthtracker.events.DomainEvent.ExpenseChanged;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Keeps the per-user categorization models in step with labelled expenses.
+ */
+@Component
+@RequiredArgsConstructor
+public class CategorizerEventSubscriber implements DomainEventSubscriber {
+
+    private final ExpenseCategorizer categorizer;
+
+    @Override
+    public String name() {
+        return "categorizer";
+    }
+
+    @Override
+    public boolean accepts(DomainEvent event) {
+        return event instanceof ExpenseChanged;
+    }
+
+    @Override
+    public void handle(List<Delivery> deliveries) {
+        for (Delivery delivery : deliveries) {
+            ExpenseChanged e = (ExpenseChanged) delivery.event();
+            if (e.previous() != null) {
+                categorizer.forget(e.previous());
+            }
+            if (e.current() != null) {
+                categorizer.learn(e.current());
+            }
+        }
+    }
+}
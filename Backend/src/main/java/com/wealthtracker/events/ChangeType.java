@@ -0,0 +1,7 @@
+package com.wealthtracker.events;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,98 @@
+package com.wealthtracker.events;
+
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.ExpenseBookExpense;
+import com.wealthtracker.model.Income;
+import com.wealthtracker.model.TripExpense;
+
+import java.util.List;
+
+/**
+ * Something that happened to an aggregate, published by the write path once
+ * the change is stored (see DomainEventBus).
+ *
+ * Events carry the previous and current state where subscribers need deltas
+ * (rollups, budgets); previous is null on CREATED and current is null on
+ * DELETED. They are persisted in the outbox, so they only hold plain data.
+ */
+public sealed interface DomainEvent {
+
+    /**
+     * Users whose derived data (caches, indexes, notifications) the event touches.
+     */
+    List<String> affectedUserIds();
+
+    record ExpenseChanged(String userId, ChangeType change, Expense previous, Expense current)
+            implements DomainEvent {
+        public List<String> affectedUserIds() {
+            return List.of(userId);
+        }
+    }
+
+    record IncomeChanged(String userId, ChangeType change, Income previous, Income current)
+            implements DomainEvent {
+        public List<String> affectedUserIds() {
+            return List.of(userId);
+        }
+    }
+
+    record TripExpenseChanged(String userId, ChangeType change, TripExpense previous, TripExpense current)
+            implements DomainEvent {
+        public List<String> affectedUserIds() {
+            return List.of(userId);
+        }
+    }
+
+    record TripChanged(String userId, ChangeType change, String tripId) implements DomainEvent {
+        public List<String> affectedUserIds() {
+            return List.of(userId);
+        }
+    }
+
+    record ExpenseBookExpenseChanged(List<String> memberUserIds, ChangeType change,
+                                     ExpenseBookExpense previous, ExpenseBookExpense current)
+            implements DomainEvent {
+        public List<String> affectedUserIds() {
+            return memberUserIds;
+        }
+    }
+
+    /**
+     * A book was deleted (memberUserIds: all members) or its membership changed
+     * (memberUserIds: the members that joined or left).
+     */
+    record ExpenseBookChanged(String bookId, ChangeType change, List<String> memberUserIds)
+            implements DomainEvent {
+        public List<String> affectedUserIds() {
+            return memberUserIds;
+        }
+    }
+
+    /**
+     * A book was created or renamed. memberUserIds: all members.
+     */
+    record ExpenseBookSaved(String bookId, ChangeType change, List<String> memberUserIds)
+            implements DomainEvent {
+        public List<String> affectedUserIds() {
+            return memberUserIds;
+        }
+    }
+
+    record ExpenseBookMembersAdded(String bookId, String bookName, String addedByName, List<String> memberUserIds)
+            implements DomainEvent {
+        public List<String> affectedUserIds() {
+            return memberUserIds;
+        }
+    }
+
+    /**
+     * Write to a holding or account: stocks, mutual funds, fixed deposits,
+     * savings accounts and physical assets. assetType is the collection name.
+     */
+    record AssetChanged(String userId, String assetType, String assetId, ChangeType change)
+            implements DomainEvent {
+        public List<String> affectedUserIds() {
+            return List.of(userId);
+        }
+    }
+}
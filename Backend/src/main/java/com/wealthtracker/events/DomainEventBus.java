@@ -0,0 +1,266 @@
+package com.wealthtracker.events;
+
+import com.wealthtracker.model.OutboxEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process domain event bus with a durable outbox.
+ *
+ * publish() stores the event in event_outbox and hands it to a single
+ * dispatcher thread, so the request only pays for one insert. The dispatcher
+ * drains the queue in batches (up to events.batch-size, waiting at most
+ * events.linger-ms for a batch to fill) and gives each subscriber the events
+ * it accepts as one list. Fully delivered events are removed from the outbox.
+ *
+ * An outbox entry carries a lease (availableAt). While the event is queued
+ * or being delivered on this node the poller keeps renewing its lease, so
+ * neither this node nor another one picks it up a second time. If it is
+ * still there when the lease runs out (subscriber failure, queue overflow,
+ * crash or restart) the poller claims it and delivers it again, skipping
+ * subscribers that already handled it. Delivery is therefore at least once
+ * and subscribers get the outbox id to recognise a redelivery; after
+ * events.max-attempts the entry is parked as FAILED.
+ */
+@Component
+@Slf4j
+public class DomainEventBus {
+
+    private record Envelope(String outboxId, DomainEvent event, Set<String> completed) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final List<DomainEventSubscriber> subscribers;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<Envelope> queue;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+    // Outbox ids queued or being delivered on this node
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public DomainEventBus(MongoTemplate mongoTemplate,
+                          List<DomainEventSubscriber> subscribers,
+                          MeterRegistry meterRegistry,
+                          @Value("${events.queue-capacity:10000}") int queueCapacity,
+                          @Value("${events.batch-size:100}") int batchSize,
+                          @Value("${events.linger-ms:20}") long lingerMillis,
+                          @Value("${events.outbox.lease-seconds:60}") long leaseSeconds,
+                          @Value("${events.outbox.max-attempts:10}") int maxAttempts) {
+        this.mongoTemplate = mongoTemplate;
+        this.subscribers = subscribers;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        meterRegistry.gaugeCollectionSize("events.queue.size", List.of(), queue);
+        this.dispatcher = new Thread(this::dispatchLoop, "domain-event-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Record the event durably and queue it for asynchronous delivery. Call
+     * after the change itself has been stored.
+     */
+    public void publish(DomainEvent event) {
+        Instant now = Instant.now();
+        OutboxEvent entry = new OutboxEvent();
+        entry.setEventType(event.getClass().getSimpleName());
+        entry.setPayload(event);
+        entry.setStatus(OutboxEvent.PENDING);
+        entry.setAttempts(1);
+        entry.setCreatedAt(now);
+        entry.setAvailableAt(now.plusSeconds(leaseSeconds));
+        OutboxEvent saved = mongoTemplate.insert(entry);
+        meterRegistry.counter("events.published", "type", entry.getEventType()).increment();
+
+        if (!hold(new Envelope(saved.getId(), event, new HashSet<>()))) {
+            log.warn("Event queue full, {} will be delivered by the outbox poller", entry.getEventType());
+        }
+    }
+
+    // -------------------- Dispatch --------------------
+
+    private void dispatchLoop() {
+        List<Envelope> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Envelope first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Envelope next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                deliver(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Outbox bookkeeping failed; the leases expire and the poller redelivers
+                log.error("Event dispatch failed for a batch of {}", batch.size(), e);
+            } finally {
+                batch.forEach(envelope -> held.remove(envelope.outboxId()));
+                batch.clear();
+            }
+        }
+    }
+
+    private boolean hold(Envelope envelope) {
+        held.add(envelope.outboxId());
+        if (queue.offer(envelope)) {
+            return true;
+        }
+        held.remove(envelope.outboxId());
+        return false;
+    }
+
+    private void deliver(List<Envelope> batch) {
+        Set<Envelope> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        String lastError = null;
+
+        for (DomainEventSubscriber subscriber : subscribers) {
+            List<Envelope> accepted = new ArrayList<>();
+            List<DomainEventSubscriber.Delivery> deliveries = new ArrayList<>();
+            for (Envelope envelope : batch) {
+                if (!envelope.completed().contains(subscriber.name()) && subscriber.accepts(envelope.event())) {
+                    accepted.add(envelope);
+                    deliveries.add(new DomainEventSubscriber.Delivery(envelope.outboxId(), envelope.event()));
+                }
+            }
+            if (deliveries.isEmpty()) {
+                continue;
+            }
+            try {
+                subscriber.handle(deliveries);
+                accepted.forEach(envelope -> envelope.completed().add(subscriber.name()));
+                meterRegistry.counter("events.delivered", "subscriber", subscriber.name()).increment(deliveries.size());
+            } catch (Exception e) {
+                log.warn("Subscriber {} failed on {} events: {}", subscriber.name(), deliveries.size(), e.getMessage());
+                meterRegistry.counter("events.failed", "subscriber", subscriber.name()).increment(deliveries.size());
+                failed.addAll(accepted);
+                lastError = subscriber.name() + ": " + e.getMessage();
+            }
+        }
+
+        List<String> delivered = batch.stream()
+                .filter(envelope -> !failed.contains(envelope))
+                .map(Envelope::outboxId)
+                .toList();
+        if (!delivered.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(delivered)), OutboxEvent.class);
+        }
+        for (Envelope envelope : failed) {
+            // Keep what did succeed so a redelivery skips those subscribers
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(envelope.outboxId())),
+                    new Update()
+                            .set("completedSubscribers", new ArrayList<>(envelope.completed()))
+                            .set("lastError", lastError),
+                    OutboxEvent.class);
+        }
+    }
+
+    // -------------------- Outbox recovery --------------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        pollOutbox();
+    }
+
+    /**
+     * Claim outbox entries whose lease has expired and queue them again.
+     * Claiming moves the lease forward, so several instances never deliver
+     * the same entry concurrently. Entries this node still holds get their
+     * lease renewed first, so a slow queue does not make them look lost.
+     */
+    @Scheduled(fixedDelayString = "${events.outbox.poll-interval-ms:10000}")
+    public void pollOutbox() {
+        renewHeld();
+        int claimed = 0;
+        while (running && queue.remainingCapacity() > 0 && claimed < batchSize * 10) {
+            Instant now = Instant.now();
+            OutboxEvent entry = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("status").is(OutboxEvent.PENDING).and("availableAt").lte(now)),
+                    new Update().set("availableAt", now.plusSeconds(leaseSeconds)).inc("attempts", 1),
+                    FindAndModifyOptions.options().returnNew(true),
+                    OutboxEvent.class);
+            if (entry == null) {
+                break;
+            }
+            if (entry.getAttempts() > maxAttempts || entry.getPayload() == null) {
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(entry.getId())),
+                        new Update().set("status", OutboxEvent.FAILED), OutboxEvent.class);
+                log.error("Giving up on {} event {} after {} attempts: {}", entry.getEventType(), entry.getId(),
+                        entry.getAttempts() - 1, entry.getLastError());
+                continue;
+            }
+            if (!hold(new Envelope(entry.getId(), entry.getPayload(),
+                    new HashSet<>(entry.getCompletedSubscribers())))) {
+                // Queue filled up meanwhile; the lease runs out and a later poll retries
+                break;
+            }
+            claimed++;
+        }
+        if (claimed > 0) {
+            log.info("Redelivering {} events from the outbox", claimed);
+        }
+    }
+
+    private void renewHeld() {
+        List<String> ids = new ArrayList<>(held);
+        if (ids.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(ids).and("status").is(OutboxEvent.PENDING)),
+                new Update().set("availableAt", Instant.now().plusSeconds(leaseSeconds)),
+                OutboxEvent.class);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(5000);
+        // Anything still queued stays in the outbox and is redelivered after restart
+    }
+}
@@ -0,0 +1,31 @@
+package com.wealthtracker.events;
+
+import java.util.List;
+
+/**
+ * Receives batches of domain events on the event bus thread. Delivery is at
+ * least once: after a failure, an expired lease or a restart a batch may be
+ * handed over again, so handlers must tolerate seeing an event twice.
+ * Handlers whose effects add up (counters, notifications) use the event id
+ * to apply each event once (see AppliedEvents).
+ */
+public interface DomainEventSubscriber {
+
+    /**
+     * An event and its outbox id, which stays the same across redeliveries.
+     */
+    record Delivery(String eventId, DomainEvent event) {}
+
+    /**
+     * Stable name, recorded in the outbox once the subscriber has handled an event.
+     */
+    String name();
+
+    boolean accepts(DomainEvent event);
+
+    /**
+     * Events in publication order. Throwing marks every event of the batch as
+     * failed for this subscriber; it is retried later.
+     */
+    void handle(List<Delivery> deliveries);
+}
@@ -0,0 +1,46 @@
+package com.wealthtracker.events;
+
+import com.wealthtracker.events.DomainEvent.ExpenseBookMembersAdded;
+import com.wealthtracker.model.Notification;
+import com.wealthtracker.service.NotificationDispatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns membership events into notifications, inserting a whole batch at once.
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationEventSubscriber implements DomainEventSubscriber {
+
+    private final NotificationDispatcher dispatcher;
+
+    @Override
+    public String name() {
+        return "notifications";
+    }
+
+    @Override
+    public boolean accepts(DomainEvent event) {
+        return event instanceof ExpenseBookMembersAdded;
+    }
+
+    @Override
+    public void handle(List<Delivery> deliveries) {
+        List<Notification> notifications = new ArrayList<>();
+        for (Delivery delivery : deliveries) {
+            ExpenseBookMembersAdded added = (ExpenseBookMembersAdded) delivery.event();
+            for (Notification notification : dispatcher.prepare(added.memberUserIds(), "EXPENSE_BOOK_ADDED",
+                    added.addedByName() + " added you to expense book \"" + added.bookName() + "\"",
+                    added.bookId())) {
+                // One id per (event, recipient), so a redelivery stores and pushes nothing new
+                notification.setId(delivery.eventId() + ":" + notification.getUserId());
+                notifications.add(notification);
+            }
+        }
+        dispatcher.sendOnce(notifications);
+    }
+}
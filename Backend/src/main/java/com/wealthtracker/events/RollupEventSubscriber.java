@@ -0,0 +1,44 @@
+package com.wealthtracker.events;
+
+import com.wealthtracker.events.DomainEvent.ExpenseChanged;
+import com.wealthtracker.events.DomainEvent.IncomeChanged;
+import com.wealthtracker.service.MonthlyRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Folds a batch of expense and income changes into monthly_rollups, one $inc
+ * per (user, month) touched by the batch; events a month has already seen
+ * are skipped.
+ */
+@Component
+@RequiredArgsConstructor
+public class RollupEventSubscriber implements DomainEventSubscriber {
+
+    private final MonthlyRollupService rollupService;
+
+    @Override
+    public String name() {
+        return "rollups";
+    }
+
+    @Override
+    public boolean accepts(DomainEvent event) {
+        return event instanceof ExpenseChanged || event instanceof IncomeChanged;
+    }
+
+    @Override
+    public void handle(List<Delivery> deliveries) {
+        MonthlyRollupService.Batch batch = rollupService.batch();
+        for (Delivery delivery : deliveries) {
+            if (delivery.event() instanceof ExpenseChanged e) {
+                batch.expense(delivery.eventId(), e.previous(), e.current());
+            } else if (delivery.event() instanceof IncomeChanged i) {
+                batch.income(delivery.eventId(), i.previous(), i.current());
+            }
+        }
+        batch.apply();
+    }
+}
@@ -0,0 +1,66 @@
+package com.wealthtracker.events;
+
+import com.wealthtracker.events.DomainEvent.ExpenseBookChanged;
+import com.wealthtracker.events.DomainEvent.ExpenseBookExpenseChanged;
+import com.wealthtracker.events.DomainEvent.ExpenseBookMembersAdded;
+import com.wealthtracker.events.DomainEvent.ExpenseChanged;
+import com.wealthtracker.events.DomainEvent.TripChanged;
+import com.wealthtracker.events.DomainEvent.TripExpenseChanged;
+import com.wealthtracker.search.SemanticSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class SearchIndexEventSubscriber implements DomainEventSubscriber {
+
+    private final SemanticSearchService searchService;
+
+    @Override
+    public String name() {
+        return "search-index";
+    }
+
+    @Override
+    public boolean accepts(DomainEvent event) {
+        return event instanceof ExpenseChanged
+                || event instanceof TripExpenseChanged
+                || event instanceof ExpenseBookExpenseChanged
+                || (event instanceof TripChanged t && t.change() == ChangeType.DELETED)
+                || event instanceof ExpenseBookChanged
+                || event instanceof ExpenseBookMembersAdded;
+    }
+
+    @Override
+    public void handle(List<Delivery> deliveries) {
+        for (Delivery delivery : deliveries) {
+            DomainEvent event = delivery.event();
+            if (event instanceof ExpenseChanged e) {
+                if (e.current() != null) {
+                    searchService.indexExpense(e.current());
+                } else {
+                    searchService.remove(List.of(e.userId()), SemanticSearchService.EXPENSE, e.previous().getId());
+                }
+            } else if (event instanceof TripExpenseChanged e) {
+                if (e.current() != null) {
+                    searchService.indexTripExpense(e.userId(), e.current());
+                } else {
+                    searchService.remove(List.of(e.userId()), SemanticSearchService.TRIP_EXPENSE,
+                            e.previous().getId());
+                }
+            } else if (event instanceof ExpenseBookExpenseChanged e) {
+                if (e.current() != null) {
+                    searchService.indexBookExpense(e.memberUserIds(), e.current());
+                } else {
+                    searchService.remove(e.memberUserIds(), SemanticSearchService.BOOK_EXPENSE,
+                            e.previous().getId());
+                }
+            } else {
+                // Trip deleted, book deleted or membership changed: rebuild on next search
+                event.affectedUserIds().forEach(searchService::invalidate);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.wealthtracker.events;
+
+import com.wealthtracker.events.DomainEvent.AssetChanged;
+import com.wealthtracker.events.DomainEvent.ExpenseBookChanged;
+import com.wealthtracker.events.DomainEvent.ExpenseBookExpenseChanged;
+import com.wealthtracker.events.DomainEvent.ExpenseBookMembersAdded;
+import com.wealthtracker.events.DomainEvent.ExpenseBookSaved;
+import com.wealthtracker.events.DomainEvent.ExpenseChanged;
+import com.wealthtracker.events.DomainEvent.IncomeChanged;
+import com.wealthtracker.events.DomainEvent.TripChanged;
+import com.wealthtracker.events.DomainEvent.TripExpenseChanged;
+import com.wealthtracker.service.DataVersionService;
+import com.wealthtracker.sync.SyncJournal;
+import com.wealthtracker.sync.SyncJournal.Touch;
+import com.wealthtracker.sync.SyncService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records which documents each event touched, per user who can see them, in
+ * the sync journal. A redelivered event adds its entries again, which only
+ * makes a client fetch the same document twice.
+ */
+@Component
+@RequiredArgsConstructor
+public class SyncJournalEventSubscriber implements DomainEventSubscriber {
+
+    private final SyncJournal journal;
+
+    @Override
+    public String name() {
+        return "sync-journal";
+    }
+
+    @Override
+    public boolean accepts(DomainEvent event) {
+        return true;
+    }
+
+    @Override
+    public void handle(List<Delivery> deliveries) {
+        List<Touch> touches = new ArrayList<>();
+        for (Delivery delivery : deliveries) {
+            DomainEvent event = delivery.event();
+            if (event instanceof ExpenseChanged e) {
+                String id = e.current() != null ? e.current().getId() : e.previous().getId();
+                touches.add(new Touch(e.userId(), DataVersionService.EXPENSES, id));
+                // A linked expense also moved the balance of its account(s)
+                accounts(touches, e.userId(), e.previous() != null ? e.previous().getSavingsAccountId() : null,
+                        e.current() != null ? e.current().getSavingsAccountId() : null);
+            } else if (event instanceof IncomeChanged i) {
+                String id = i.current() != null ? i.current().getId() : i.previous().getId();
+                touches.add(new Touch(i.userId(), DataVersionService.INCOMES, id));
+                accounts(touches, i.userId(), i.previous() != null ? i.previous().getSavingsAccountId() : null,
+                        i.current() != null ? i.current().getSavingsAccountId() : null);
+            } else if (event instanceof TripExpenseChanged e) {
+                String id = e.current() != null ? e.current().getId() : e.previous().getId();
+                touches.add(new Touch(e.userId(), SyncService.TRIP_EXPENSES, id));
+            } else if (event instanceof TripChanged t) {
+                touches.add(new Touch(t.userId(), DataVersionService.TRIPS, t.tripId()));
+            } else if (event instanceof ExpenseBookExpenseChanged e) {
+                String id = e.current() != null ? e.current().getId() : e.previous().getId();
+                e.memberUserIds().forEach(userId -> touches.add(new Touch(userId, SyncService.EXPENSE_BOOK_EXPENSES, id)));
+            } else if (event instanceof ExpenseBookChanged b) {
+                b.memberUserIds().forEach(userId -> touches.add(new Touch(userId, DataVersionService.EXPENSE_BOOKS, b.bookId())));
+            } else if (event instanceof ExpenseBookSaved b) {
+                b.memberUserIds().forEach(userId -> touches.add(new Touch(userId, DataVersionService.EXPENSE_BOOKS, b.bookId())));
+            } else if (event instanceof ExpenseBookMembersAdded b) {
+                b.memberUserIds().forEach(userId -> touches.add(new Touch(userId, DataVersionService.EXPENSE_BOOKS, b.bookId())));
+            } else if (event instanceof AssetChanged a) {
+                touches.add(new Touch(a.userId(), a.assetType(), a.assetId()));
+            }
+        }
+        journal.append(touches);
+    }
+
+    private static void accounts(List<Touch> touches, String userId, String... accountIds) {
+        for (String accountId : accountIds) {
+            if (accountId != null && !accountId.isEmpty()) {
+                touches.add(new Touch(userId, DataVersionService.SAVINGS_ACCOUNTS, accountId));
+            }
+        }
+    }
+}
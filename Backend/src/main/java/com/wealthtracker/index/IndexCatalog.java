@@ -0,0 +1,285 @@
+package com.wealthtracker.index;
+
+import com.wealthtracker.model.AssetDocument;
+import com.wealthtracker.model.BalanceDiscrepancy;
+import com.wealthtracker.model.BalanceSnapshot;
+import com.wealthtracker.model.Budget;
+import com.wealthtracker.model.BudgetSpend;
+import com.wealthtracker.model.ChatSession;
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.ExpenseBook;
+import com.wealthtracker.model.ExpenseBookExpense;
+import com.wealthtracker.model.FixedDeposit;
+import com.wealthtracker.model.IdempotencyRecord;
+import com.wealthtracker.model.Income;
+import com.wealthtracker.model.LedgerEntry;
+import com.wealthtracker.model.MonthlyRollup;
+import com.wealthtracker.model.MutualFund;
+import com.wealthtracker.model.MutualFundTransaction;
+import com.wealthtracker.model.Notification;
+import com.wealthtracker.model.OutboxEvent;
+import com.wealthtracker.model.PhysicalAsset;
+import com.wealthtracker.model.ReportJob;
+import com.wealthtracker.model.SavingsAccount;
+import com.wealthtracker.model.Stock;
+import com.wealthtracker.model.StockTransaction;
+import com.wealthtracker.model.SyncChange;
+import com.wealthtracker.model.Transfer;
+import com.wealthtracker.model.Trip;
+import com.wealthtracker.model.TripExpense;
+import com.wealthtracker.model.User;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Every index the application relies on, next to the repository queries it
+ * serves. Auto index creation is off in Spring Boot 3, so nothing in the
+ * mappings creates indexes; IndexManager ensures these at startup.
+ *
+ * When adding a repository method or a MongoTemplate query, add its index
+ * here and a matching entry to queries() so the index-check profile covers it.
+ */
+final class IndexCatalog {
+
+    record DeclaredIndex(Class<?> entity, Index index) {}
+
+    /**
+     * A representative filter (and sort) for one query, run through explain()
+     * by the index-check profile. Values are placeholders; only the shape matters.
+     */
+    record QueryShape(String source, Class<?> entity, Document filter, Document sort) {}
+
+    private static final String USER = "user";
+    private static final String ID = "000000000000000000000000";
+    private static final Date DAY = new Date();
+
+    private IndexCatalog() {
+    }
+
+    static List<DeclaredIndex> indexes() {
+        return List.of(
+                // findByUserId, findByUserIdAndDateBetween, rollup rebuild, dashboard recent activity
+                index(Expense.class, asc("userId"), asc("date")),
+                // budget seeding aggregation
+                index(Expense.class, asc("userId"), asc("category"), asc("date")),
+                // existsBySourceDepositIdAndDateBetween (RD installments only)
+                new DeclaredIndex(Expense.class, named(new Index().on("sourceDepositId", Sort.Direction.ASC)
+                        .on("date", Sort.Direction.ASC)
+                        .partial(PartialIndexFilter.of(Criteria.where("sourceDepositId").exists(true))),
+                        "sourceDepositId_date")),
+                index(Income.class, asc("userId"), asc("date")),
+                // BalanceReconciler: records linked to a chunk of accounts
+                new DeclaredIndex(Expense.class, named(new Index().on("savingsAccountId", Sort.Direction.ASC)
+                        .partial(PartialIndexFilter.of(Criteria.where("savingsAccountId").exists(true))),
+                        "savingsAccountId")),
+                new DeclaredIndex(Income.class, named(new Index().on("savingsAccountId", Sort.Direction.ASC)
+                        .partial(PartialIndexFilter.of(Criteria.where("savingsAccountId").exists(true))),
+                        "savingsAccountId")),
+
+                index(SavingsAccount.class, asc("userId")),
+                // findByUserId, findByUserIdAndSymbolIn
+                index(Stock.class, asc("userId"), asc("symbol")),
+                index(StockTransaction.class, asc("stockId")),
+                index(StockTransaction.class, asc("userId")),
+                index(MutualFund.class, asc("userId")),
+                index(MutualFundTransaction.class, asc("mutualFundId")),
+                index(MutualFundTransaction.class, asc("userId")),
+                // findByUserId, findByUserIdAndDepositType
+                index(FixedDeposit.class, asc("userId"), asc("depositType")),
+                index(PhysicalAsset.class, asc("userId")),
+                index(AssetDocument.class, asc("physicalAssetId"), asc("userId")),
+
+                index(Trip.class, asc("userId")),
+                // findByTripIdOrderByExpenseDateDesc, findByTripIdIn, cascade delete
+                index(TripExpense.class, asc("tripId"), desc("expenseDate")),
+                index(ExpenseBook.class, asc("memberUserIds")),
+                index(ExpenseBook.class, asc("createdBy")),
+                index(ExpenseBookExpense.class, asc("expenseBookId"), desc("expenseDate")),
+
+                new DeclaredIndex(User.class, named(new Index().on("email", Sort.Direction.ASC).unique(), "email")),
+                new DeclaredIndex(User.class, named(new Index().on("resetToken", Sort.Direction.ASC).sparse(), "resetToken")),
+
+                new DeclaredIndex(Budget.class, named(new Index().on("userId", Sort.Direction.ASC)
+                        .on("category", Sort.Direction.ASC).unique(), "userId_category")),
+                index(BudgetSpend.class, asc("userId"), asc("month")),
+                index(MonthlyRollup.class, asc("userId"), asc("month")),
+
+                // Unread count, unread list and mark-all-read. Notification indexes keep the
+                // names they were first created with, so existing deployments do not conflict.
+                new DeclaredIndex(Notification.class, named(new Index().on("userId", Sort.Direction.ASC)
+                        .on("read", Sort.Direction.ASC).on("createdAt", Sort.Direction.DESC), "user_read_created")),
+                // Full list, newest first
+                new DeclaredIndex(Notification.class, named(new Index().on("userId", Sort.Direction.ASC)
+                        .on("createdAt", Sort.Direction.DESC), "user_created")),
+                // Read notifications past retention (NotificationRetention)
+                new DeclaredIndex(Notification.class, named(new Index().on("expireAt", Sort.Direction.ASC)
+                        .expire(Duration.ZERO), "expire_at_ttl")),
+
+                // Outbox poller: expired leases of pending events
+                index(OutboxEvent.class, asc("status"), asc("availableAt")),
+                // findFirstByUserIdAndAgentTypeAndStatusOrderByCompletedAtDesc
+                index(ReportJob.class, asc("userId"), asc("agentType"), asc("status"), desc("completedAt")),
+                // ReportJobService.sweep: jobs left in flight by a stopped node
+                index(ReportJob.class, asc("status"), asc("createdAt")),
+                new DeclaredIndex(ReportJob.class, named(new Index().on("expireAt", Sort.Direction.ASC)
+                        .expire(Duration.ZERO), "expireAt_ttl")),
+                // Spilled chat sessions nobody came back to (ConversationMemory)
+                new DeclaredIndex(ChatSession.class, named(new Index().on("expireAt", Sort.Direction.ASC)
+                        .expire(Duration.ZERO), "expireAt_ttl")),
+
+                // /api/sync: a user's entries after a token, in order
+                new DeclaredIndex(SyncChange.class, named(new Index().on("userId", Sort.Direction.ASC)
+                        .on("_id", Sort.Direction.ASC), "userId_seq")),
+                new DeclaredIndex(SyncChange.class, named(new Index().on("expireAt", Sort.Direction.ASC)
+                        .expire(Duration.ZERO), "expireAt_ttl")),
+                // Idempotency keys are read by _id; this only expires them
+                new DeclaredIndex(IdempotencyRecord.class, named(new Index().on("expireAt", Sort.Direction.ASC)
+                        .expire(Duration.ZERO), "expireAt_ttl")),
+
+                // TransferService.recover: transfers left half-way, oldest first
+                index(Transfer.class, asc("status"), asc("updatedAt")),
+                // GET /api/savings-accounts/transfers
+                index(Transfer.class, asc("userId"), desc("createdAt")),
+
+                // Statement pages and the ledger tail after a snapshot
+                index(LedgerEntry.class, asc("accountId"), asc("seq")),
+                // Latest snapshot before a date
+                index(BalanceSnapshot.class, asc("accountId"), desc("takenAt")),
+                // BalanceReconciler: completed transfers of a chunk of accounts
+                index(Transfer.class, asc("fromAccountId"), asc("status")),
+                index(Transfer.class, asc("toAccountId"), asc("status")),
+                new DeclaredIndex(BalanceDiscrepancy.class, named(new Index().on("expireAt", Sort.Direction.ASC)
+                        .expire(Duration.ZERO), "expireAt_ttl"))
+        );
+    }
+
+    static List<QueryShape> queries() {
+        return List.of(
+                shape("ExpenseRepository.findByUserId", Expense.class, eq("userId", USER)),
+                shape("ExpenseRepository.findByUserIdAndDateBetween", Expense.class,
+                        eq("userId", USER).append("date", new Document("$gte", DAY).append("$lte", DAY))),
+                shape("ExpenseRepository.existsBySourceDepositIdAndDateBetween", Expense.class,
+                        eq("sourceDepositId", ID).append("date", new Document("$gt", DAY).append("$lt", DAY))),
+                shape("BudgetTracker.onBudgetCreated", Expense.class,
+                        eq("userId", USER).append("category", "Food").append("date", new Document("$gte", DAY).append("$lte", DAY))),
+                shape("IncomeRepository.findByUserId", Income.class, eq("userId", USER)),
+                new QueryShape("DashboardService.recentExpenses", Expense.class,
+                        eq("userId", USER), new Document("date", -1)),
+                new QueryShape("DashboardService.recentIncomes", Income.class,
+                        eq("userId", USER), new Document("date", -1)),
+                shape("SavingsAccountRepository.findByUserId", SavingsAccount.class, eq("userId", USER)),
+                shape("StockRepository.findByUserIdAndSymbolIn", Stock.class,
+                        eq("userId", USER).append("symbol", new Document("$in", List.of("INFY")))),
+                shape("StockTransactionRepository.findByStockId", StockTransaction.class, eq("stockId", ID)),
+                shape("StockTransactionRepository.findByUserId", StockTransaction.class, eq("userId", USER)),
+                shape("MutualFundRepository.findByUserId", MutualFund.class, eq("userId", USER)),
+                shape("MutualFundTransactionRepository.findByMutualFundId", MutualFundTransaction.class, eq("mutualFundId", ID)),
+                shape("MutualFundTransactionRepository.findByUserId", MutualFundTransaction.class, eq("userId", USER)),
+                shape("FixedDepositRepository.findByUserIdAndDepositType", FixedDeposit.class,
+                        eq("userId", USER).append("depositType", "RD")),
+                shape("PhysicalAssetRepository.findByUserId", PhysicalAsset.class, eq("userId", USER)),
+                shape("AssetDocumentRepository.findByPhysicalAssetIdAndUserId", AssetDocument.class,
+                        eq("physicalAssetId", ID).append("userId", USER)),
+                shape("TripRepository.findByUserId", Trip.class, eq("userId", USER)),
+                new QueryShape("TripExpenseRepository.findByTripIdOrderByExpenseDateDesc", TripExpense.class,
+                        eq("tripId", ID), new Document("expenseDate", -1)),
+                shape("TripExpenseRepository.findByTripIdIn", TripExpense.class,
+                        new Document("tripId", new Document("$in", List.of(ID)))),
+                shape("ExpenseBookRepository.findByMemberUserIdsContaining", ExpenseBook.class, eq("memberUserIds", USER)),
+                shape("ExpenseBookRepository.findByCreatedBy", ExpenseBook.class, eq("createdBy", USER)),
+                new QueryShape("ExpenseBookExpenseRepository.findByExpenseBookIdOrderByExpenseDateDesc",
+                        ExpenseBookExpense.class, eq("expenseBookId", ID), new Document("expenseDate", -1)),
+                shape("UserRepository.findByEmail", User.class, eq("email", "someone@example.com")),
+                shape("UserRepository.findByResetToken", User.class, eq("resetToken", "token")),
+                shape("BudgetRepository.findByUserIdAndCategory", Budget.class, eq("userId", USER).append("category", "Food")),
+                shape("BudgetSpendRepository.findByUserIdAndMonth", BudgetSpend.class, eq("userId", USER).append("month", "2024-01")),
+                new QueryShape("MonthlyRollupRepository.findByUserIdAndMonthBetweenOrderByMonthAsc", MonthlyRollup.class,
+                        eq("userId", USER).append("month", new Document("$gte", "2024-01").append("$lte", "2024-12")),
+                        new Document("month", 1)),
+                new QueryShape("NotificationRepository.findByUserIdOrderByCreatedAtDesc", Notification.class,
+                        eq("userId", USER), new Document("createdAt", -1)),
+                shape("NotificationRepository.countByUserIdAndReadFalse", Notification.class,
+                        eq("userId", USER).append("read", false)),
+                shape("DomainEventBus.pollOutbox", OutboxEvent.class,
+                        eq("status", OutboxEvent.PENDING).append("availableAt", new Document("$lte", DAY))),
+                new QueryShape("ReportJobRepository.findFirstByUserIdAndAgentTypeAndStatusOrderByCompletedAtDesc",
+                        ReportJob.class, eq("userId", USER).append("agentType", "RECOMMENDATIONS")
+                        .append("status", ReportJob.COMPLETED), new Document("completedAt", -1)),
+                shape("ReportJobService.sweep", ReportJob.class,
+                        new Document("status", new Document("$in", List.of(ReportJob.PENDING, ReportJob.RUNNING)))
+                                .append("createdAt", new Document("$lt", DAY))),
+                new QueryShape("SyncJournal.after", SyncChange.class,
+                        eq("userId", USER).append("_id", new Document("$gt", 0L)), new Document("_id", 1)),
+                shape("TransferService.claimStale", Transfer.class,
+                        new Document("status", new Document("$in", List.of(Transfer.PENDING, Transfer.DEBITED)))
+                                .append("updatedAt", new Document("$lt", DAY))),
+                new QueryShape("TransferService.recent", Transfer.class,
+                        eq("userId", USER), new Document("createdAt", -1)),
+                new QueryShape("SavingsLedger.statement", LedgerEntry.class,
+                        eq("accountId", ID).append("userId", USER).append("seq", new Document("$lt", 100L)),
+                        new Document("seq", -1)),
+                shape("SavingsLedger.balanceAt", LedgerEntry.class, eq("accountId", ID).append("userId", USER)
+                        .append("seq", new Document("$gt", 0L)).append("recordedAt", new Document("$lt", DAY))),
+                new QueryShape("SavingsLedger.balanceAt", BalanceSnapshot.class,
+                        eq("accountId", ID).append("userId", USER).append("takenAt", new Document("$lt", DAY)),
+                        new Document("takenAt", -1)),
+                shape("BalanceReconciler.sources", Expense.class,
+                        new Document("savingsAccountId", new Document("$in", List.of(ID)))),
+                shape("BalanceReconciler.sources", Income.class,
+                        new Document("savingsAccountId", new Document("$in", List.of(ID)))),
+                shape("BalanceReconciler.sources", Transfer.class, eq("type", Transfer.TRANSFER)
+                        .append("status", Transfer.COMPLETED).append("fromAccountId", new Document("$in", List.of(ID)))),
+                shape("BalanceReconciler.sources", Transfer.class, eq("type", Transfer.TRANSFER)
+                        .append("status", Transfer.COMPLETED).append("toAccountId", new Document("$in", List.of(ID)))),
+                shape("BalanceReconciler.totals", LedgerEntry.class,
+                        new Document("accountId", new Document("$in", List.of(ID))))
+        );
+    }
+
+    // -------------------- Helpers --------------------
+
+    private record Key(String field, Sort.Direction direction) {}
+
+    private static Key asc(String field) {
+        return new Key(field, Sort.Direction.ASC);
+    }
+
+    private static Key desc(String field) {
+        return new Key(field, Sort.Direction.DESC);
+    }
+
+    private static DeclaredIndex index(Class<?> entity, Key... keys) {
+        Index index = new Index();
+        StringBuilder name = new StringBuilder();
+        for (Key key : keys) {
+            index.on(key.field(), key.direction());
+            if (!name.isEmpty()) {
+                name.append('_');
+            }
+            name.append(key.field());
+            if (key.direction() == Sort.Direction.DESC) {
+                name.append("_desc");
+            }
+        }
+        return new DeclaredIndex(entity, named(index, name.toString()));
+    }
+
+    private static Index named(Index index, String name) {
+        return index.named(name);
+    }
+
+    private static Document eq(String field, Object value) {
+        return new Document(field, value);
+    }
+
+    private static QueryShape shape(String source, Class<?> entity, Document filter) {
+        return new QueryShape(source, entity, filter, null);
+    }
+}
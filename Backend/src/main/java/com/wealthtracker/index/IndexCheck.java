@@ -0,0 +1,95 @@
+package com.wealthtracker.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs every query shape in IndexCatalog through explain() once the indexes
+ * exist and reports the ones whose winning plan scans the whole collection or
+ * sorts in memory. Only active with the index-check profile, e.g. in CI
+ * against a scratch database:
+ *
+ *   mvn spring-boot:run -Dspring-boot.run.profiles=index-check
+ *
+ * With index-check.fail-on-error=true the application refuses to start when a
+ * query is not covered.
+ */
+@Component
+@Profile("index-check")
+@Slf4j
+public class IndexCheck {
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean failOnError;
+
+    public IndexCheck(MongoTemplate mongoTemplate,
+                      @Value("${index-check.fail-on-error:false}") boolean failOnError) {
+        this.mongoTemplate = mongoTemplate;
+        this.failOnError = failOnError;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void check() {
+        List<String> problems = new ArrayList<>();
+        for (IndexCatalog.QueryShape shape : IndexCatalog.queries()) {
+            String collection = mongoTemplate.getCollectionName(shape.entity());
+            var find = mongoTemplate.getCollection(collection).find(shape.filter());
+            if (shape.sort() != null) {
+                find = find.sort(shape.sort());
+            }
+            Document plan = find.explain().get("queryPlanner", Document.class).get("winningPlan", Document.class);
+
+            List<String> stages = new ArrayList<>();
+            collectStages(plan, stages);
+            if (stages.contains("COLLSCAN")) {
+                problems.add(shape.source() + " scans " + collection);
+            } else if (stages.contains("SORT")) {
+                problems.add(shape.source() + " sorts in memory on " + collection);
+            } else {
+                log.info("Index check ok: {} -> {}", shape.source(), stages);
+            }
+        }
+
+        if (problems.isEmpty()) {
+            log.info("Index check passed for {} queries", IndexCatalog.queries().size());
+            return;
+        }
+        problems.forEach(problem -> log.error("Index check failed: {}", problem));
+        if (failOnError) {
+            throw new IllegalStateException(problems.size() + " queries are not covered by an index");
+        }
+    }
+
+    private static void collectStages(Document plan, List<String> stages) {
+        if (plan == null) {
+            return;
+        }
+        // Newer servers wrap the classic plan in queryPlan
+        if (plan.containsKey("queryPlan")) {
+            collectStages(plan.get("queryPlan", Document.class), stages);
+            return;
+        }
+        if (plan.getString("stage") != null) {
+            stages.add(plan.getString("stage"));
+        }
+        collectStages(plan.get("inputStage", Document.class), stages);
+        List<?> inputStages = plan.get("inputStages", List.class);
+        if (inputStages != null) {
+            for (Object input : inputStages) {
+                collectStages((Document) input, stages);
+            }
+        }
+    }
+}
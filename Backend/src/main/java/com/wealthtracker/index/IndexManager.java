@@ -0,0 +1,77 @@
+package com.wealthtracker.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates the indexes declared in IndexCatalog when the application starts
+ * and reports how often each index is used ($indexStats).
+ *
+ * ensureIndex is a no-op for an index that already exists, so this is cheap
+ * on every start. An index that cannot be created (for example a unique
+ * index over existing duplicates, or an existing index with the same keys
+ * and different options) is logged and skipped rather than failing startup.
+ */
+@Component
+@Slf4j
+public class IndexManager {
+
+    public record IndexUsage(String collection, String index, long ops, Date since) {}
+
+    private final MongoTemplate mongoTemplate;
+
+    public IndexManager(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void ensureIndexes() {
+        long start = System.currentTimeMillis();
+        int failed = 0;
+        for (IndexCatalog.DeclaredIndex declared : IndexCatalog.indexes()) {
+            try {
+                mongoTemplate.indexOps(declared.entity()).ensureIndex(declared.index());
+            } catch (Exception e) {
+                failed++;
+                log.warn("Could not create index {} on {}: {}", declared.index().getIndexOptions().get("name"),
+                        mongoTemplate.getCollectionName(declared.entity()), e.getMessage());
+            }
+        }
+        log.info("Ensured {} indexes in {}ms ({} failed)", IndexCatalog.indexes().size() - failed,
+                System.currentTimeMillis() - start, failed);
+    }
+
+    /**
+     * Per-index access counts since the index was created or the server
+     * restarted, for every collection that has a declared index.
+     */
+    public List<IndexUsage> usage() {
+        Set<String> collections = new LinkedHashSet<>();
+        IndexCatalog.indexes().forEach(declared -> collections.add(mongoTemplate.getCollectionName(declared.entity())));
+
+        List<IndexUsage> usage = new ArrayList<>();
+        for (String collection : collections) {
+            for (Document stats : mongoTemplate.getCollection(collection)
+                    .aggregate(List.of(new Document("$indexStats", new Document())))) {
+                Document accesses = stats.get("accesses", Document.class);
+                usage.add(new IndexUsage(collection, stats.getString("name"),
+                        accesses != null ? ((Number) accesses.get("ops")).longValue() : 0,
+                        accesses != null ? accesses.getDate("since") : null));
+            }
+        }
+        return usage;
+    }
+}
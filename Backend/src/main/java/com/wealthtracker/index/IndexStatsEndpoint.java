@@ -0,0 +1,27 @@
+package com.wealthtracker.index;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * /actuator/indexstats: how often each index has been used. An index with no
+ * ops after a representative period of traffic is a candidate for removal.
+ */
+@Component
+@Endpoint(id = "indexstats")
+public class IndexStatsEndpoint {
+
+    private final IndexManager indexManager;
+
+    public IndexStatsEndpoint(IndexManager indexManager) {
+        this.indexManager = indexManager;
+    }
+
+    @ReadOperation
+    public List<IndexManager.IndexUsage> indexStats() {
+        return indexManager.usage();
+    }
+}
@@ -0,0 +1,419 @@
+package com.wealthtracker.ledger;
+
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
+import com.wealthtracker.model.BalanceDiscrepancy;
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.Income;
+import com.wealthtracker.model.LedgerEntry;
+import com.wealthtracker.model.SavingsAccount;
+import com.wealthtracker.model.Transfer;
+import com.wealthtracker.service.DataVersionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Checks every savings balance against the records that should add up to
+ * it: baseline (OPENING and ADJUSTMENT ledger entries, the money no record
+ * explains) + linked incomes - linked expenses (RD installments included)
+ * + completed transfers in - completed transfers out. It also checks the
+ * balance against the sum of the account's ledger entries and counts
+ * entries missing from the ledger.
+ *
+ * The accounts are split into reconciliation.partitions ranges of _id,
+ * checked in parallel on the reconciliationExecutor. Each partition
+ * streams its accounts and sums the records of reconciliation.chunk-size
+ * accounts at a time with one grouped aggregation per collection, so no
+ * collection is loaded whole.
+ *
+ * A balance can be read between a record being written and its posting, so
+ * mismatches are checked again at the end of the run and only those seen
+ * twice with an unchanged ledgerSeq count. They are stored as
+ * BalanceDiscrepancy documents and, with reconciliation.auto-correct, fixed
+ * with a RECONCILIATION entry posted on the condition that ledgerSeq has
+ * still not moved, and announced like any other balance change. Accounts
+ * with transfers in flight are skipped.
+ */
+@Component
+@Slf4j
+public class BalanceReconciler {
+
+    /**
+     * What an account's records add up to, next to what its ledger holds.
+     */
+    record Totals(double baseline, double sources, double ledgerTotal, long entries) {
+        double expected() {
+            return baseline + sources;
+        }
+    }
+
+    private static final List<String> BASELINE = List.of(LedgerEntry.OPENING, LedgerEntry.ADJUSTMENT);
+
+    private final MongoTemplate mongoTemplate;
+    private final SavingsLedger ledger;
+    private final MeterRegistry meterRegistry;
+    private final DomainEventBus eventBus;
+    private final DataVersionService dataVersions;
+    private final ThreadPoolTaskExecutor executor;
+    private final int partitions;
+    private final int chunkSize;
+    private final double tolerance;
+    private final boolean autoCorrect;
+    private final long retentionDays;
+
+    public BalanceReconciler(MongoTemplate mongoTemplate,
+                             SavingsLedger ledger,
+                             MeterRegistry meterRegistry,
+                             DomainEventBus eventBus,
+                             DataVersionService dataVersions,
+                             @Qualifier("reconciliationExecutor") ThreadPoolTaskExecutor executor,
+                             @Value("${reconciliation.partitions:4}") int partitions,
+                             @Value("${reconciliation.chunk-size:200}") int chunkSize,
+                             @Value("${reconciliation.tolerance:0.005}") double tolerance,
+                             @Value("${reconciliation.auto-correct:false}") boolean autoCorrect,
+                             @Value("${reconciliation.retention-days:90}") long retentionDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.ledger = ledger;
+        this.meterRegistry = meterRegistry;
+        this.eventBus = eventBus;
+        this.dataVersions = dataVersions;
+        this.executor = executor;
+        this.partitions = Math.max(1, partitions);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.tolerance = tolerance;
+        this.autoCorrect = autoCorrect;
+        this.retentionDays = retentionDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void openExistingLedgers() {
+        try {
+            executor.execute(() -> {
+                try {
+                    openLedgers();
+                } catch (Exception e) {
+                    log.error("Opening the ledger of existing savings accounts failed", e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.error("Could not queue opening the ledger of existing savings accounts", e);
+        }
+    }
+
+    /**
+     * Accounts from before the ledger get their first entries: the net of
+     * their existing records is brought forward, and the rest of the
+     * balance is their baseline. The entries are written before ledgerSeq
+     * is set, so an account is only opened once they exist; a run that
+     * stops part way leaves the rest unopened for the next start. The
+     * balance of an unopened account can still change (see SavingsLedger),
+     * so ledgerSeq is only set while the balance is the one the entries
+     * were computed from, and otherwise they are computed again.
+     */
+    private void openLedgers() {
+        int opened = 0;
+        Query unopened = Query.query(Criteria.where("ledgerSeq").exists(false));
+        try (CloseableIterator<SavingsAccount> accounts = mongoTemplate.stream(unopened, SavingsAccount.class)) {
+            while (accounts.hasNext()) {
+                if (open(accounts.next())) {
+                    opened++;
+                }
+            }
+        }
+        if (opened > 0) {
+            log.info("Opened the ledger of {} existing savings accounts", opened);
+        }
+    }
+
+    private boolean open(SavingsAccount account) {
+        while (account != null) {
+            ledger.openWithHistory(account, sources(List.of(account)).getOrDefault(account.getId(), 0.0));
+            if (mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(account.getId())
+                            .and("ledgerSeq").exists(false).and("balance").is(account.getBalance())),
+                    new Update().set("ledgerSeq", 2L), SavingsAccount.class).getModifiedCount() > 0) {
+                return true;
+            }
+            // Its balance moved, or it was opened elsewhere or deleted
+            account = mongoTemplate.findOne(Query.query(Criteria.where("_id").is(account.getId())
+                    .and("ledgerSeq").exists(false)), SavingsAccount.class);
+        }
+        return false;
+    }
+
+    @Scheduled(cron = "${reconciliation.cron:0 0 3 * * *}")
+    public void reconcile() {
+        String runId = new ObjectId().toHexString();
+        List<Query> ranges = partitions();
+        List<SavingsAccount> suspects = new ArrayList<>();
+        try {
+            List<Future<List<SavingsAccount>>> futures = new ArrayList<>();
+            for (Query range : ranges) {
+                futures.add(executor.submit(() -> checkPartition(range)));
+            }
+            for (Future<List<SavingsAccount>> future : futures) {
+                suspects.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            log.error("Reconciliation run {} failed", runId, e);
+            return;
+        }
+
+        int found = 0;
+        int corrected = 0;
+        for (int i = 0; i < suspects.size(); i += chunkSize) {
+            List<SavingsAccount> chunk = suspects.subList(i, Math.min(i + chunkSize, suspects.size()));
+            for (BalanceDiscrepancy discrepancy : confirm(runId, chunk)) {
+                found++;
+                if (autoCorrect && correct(runId, discrepancy)) {
+                    discrepancy.setCorrected(true);
+                    corrected++;
+                }
+                mongoTemplate.insert(discrepancy);
+                log.warn("Account {} of user {}: balance {} but records add up to {} (ledger {}, {} entries missing){}",
+                        discrepancy.getAccountId(), discrepancy.getUserId(), discrepancy.getBalance(),
+                        discrepancy.getExpected(), discrepancy.getLedgerTotal(), discrepancy.getMissingEntries(),
+                        discrepancy.isCorrected() ? ", corrected" : "");
+            }
+        }
+        meterRegistry.counter("reconciliation.discrepancies").increment(found);
+        meterRegistry.counter("reconciliation.corrected").increment(corrected);
+        log.info("Reconciliation run {}: {} discrepancies, {} corrected", runId, found, corrected);
+    }
+
+    // -------------------- Partitions --------------------
+
+    /**
+     * Equal slices of the creation time range of the account ids.
+     */
+    private List<Query> partitions() {
+        SavingsAccount first = edge(Sort.Direction.ASC);
+        SavingsAccount last = edge(Sort.Direction.DESC);
+        if (first == null) {
+            return List.of();
+        }
+        long from = new ObjectId(first.getId()).getTimestamp();
+        long to = new ObjectId(last.getId()).getTimestamp() + 1L;
+        long step = Math.max(1, (to - from + partitions - 1) / partitions);
+        List<Query> ranges = new ArrayList<>();
+        for (long start = from; start < to; start += step) {
+            ranges.add(Query.query(Criteria.where("_id").gte(boundary(start)).lt(boundary(Math.min(start + step, to)))));
+        }
+        return ranges;
+    }
+
+    private SavingsAccount edge(Sort.Direction direction) {
+        Query query = new Query().with(Sort.by(direction, "_id")).limit(1);
+        query.fields().include("_id");
+        return mongoTemplate.findOne(query, SavingsAccount.class);
+    }
+
+    private static ObjectId boundary(long seconds) {
+        return new ObjectId(String.format("%08x", seconds) + "0000000000000000");
+    }
+
+    /**
+     * The accounts of the range whose balance looks wrong, as read.
+     */
+    private List<SavingsAccount> checkPartition(Query range) {
+        range.fields().include("userId").include("balance").include("ledgerSeq").include("pendingTransfers");
+        List<SavingsAccount> suspects = new ArrayList<>();
+        List<SavingsAccount> chunk = new ArrayList<>(chunkSize);
+        try (CloseableIterator<SavingsAccount> accounts = mongoTemplate.stream(range, SavingsAccount.class)) {
+            while (accounts.hasNext()) {
+                chunk.add(accounts.next());
+                if (chunk.size() == chunkSize) {
+                    suspects.addAll(mismatched(chunk));
+                    chunk.clear();
+                }
+            }
+        }
+        suspects.addAll(mismatched(chunk));
+        return suspects;
+    }
+
+    private List<SavingsAccount> mismatched(List<SavingsAccount> accounts) {
+        List<SavingsAccount> checkable = checkable(accounts);
+        if (checkable.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Totals> totals = totals(checkable);
+        return checkable.stream().filter(account -> !matches(account, totals.get(account.getId()))).toList();
+    }
+
+    /**
+     * Check the suspects again from a fresh read, keeping those still wrong
+     * whose ledgerSeq did not move while their records were summed.
+     */
+    private List<BalanceDiscrepancy> confirm(String runId, List<SavingsAccount> suspects) {
+        List<SavingsAccount> fresh = checkable(read(suspects));
+        if (fresh.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Totals> totals = totals(fresh);
+        Map<String, Long> seqAfter = read(fresh).stream()
+                .collect(Collectors.toMap(SavingsAccount::getId, SavingsAccount::getLedgerSeq));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<BalanceDiscrepancy> discrepancies = new ArrayList<>();
+        for (SavingsAccount account : fresh) {
+            Totals t = totals.get(account.getId());
+            if (!account.getLedgerSeq().equals(seqAfter.get(account.getId())) || matches(account, t)) {
+                continue;
+            }
+            BalanceDiscrepancy discrepancy = new BalanceDiscrepancy();
+            discrepancy.setId(runId + ":" + account.getId());
+            discrepancy.setRunId(runId);
+            discrepancy.setUserId(account.getUserId());
+            discrepancy.setAccountId(account.getId());
+            discrepancy.setLedgerSeq(account.getLedgerSeq());
+            discrepancy.setBalance(account.getBalance());
+            discrepancy.setExpected(t.expected());
+            discrepancy.setLedgerTotal(t.ledgerTotal());
+            discrepancy.setMissingEntries(account.getLedgerSeq() - t.entries());
+            discrepancy.setDetectedAt(now);
+            discrepancy.setExpireAt(now.plusDays(retentionDays));
+            discrepancies.add(discrepancy);
+        }
+        return discrepancies;
+    }
+
+    private List<SavingsAccount> read(List<SavingsAccount> accounts) {
+        Query query = Query.query(Criteria.where("_id").in(accounts.stream().map(SavingsAccount::getId).toList()));
+        query.fields().include("userId").include("balance").include("ledgerSeq").include("pendingTransfers");
+        return mongoTemplate.find(query, SavingsAccount.class);
+    }
+
+    /**
+     * Accounts with a ledger and no transfer in flight.
+     */
+    private static List<SavingsAccount> checkable(List<SavingsAccount> accounts) {
+        return accounts.stream()
+                .filter(account -> account.getLedgerSeq() != null && account.getBalance() != null)
+                .filter(account -> account.getPendingTransfers() == null || account.getPendingTransfers().isEmpty())
+                .toList();
+    }
+
+    private boolean matches(SavingsAccount account, Totals totals) {
+        return Math.abs(account.getBalance() - totals.expected()) <= tolerance
+                && Math.abs(account.getBalance() - totals.ledgerTotal()) <= tolerance
+                && totals.entries() == account.getLedgerSeq();
+    }
+
+    /**
+     * Set the balance to what the records add up to, unless the account
+     * changed since it was checked.
+     */
+    private boolean correct(String runId, BalanceDiscrepancy discrepancy) {
+        double difference = discrepancy.getExpected() - discrepancy.getBalance();
+        if (Math.abs(difference) <= tolerance) {
+            return false; // Only the ledger is off; the balance is right
+        }
+        boolean posted = ledger.post(discrepancy.getUserId(), discrepancy.getAccountId(),
+                Criteria.where("ledgerSeq").is(discrepancy.getLedgerSeq()), null,
+                List.of(new SavingsLedger.Posting(LedgerEntry.RECONCILIATION, difference, runId, LocalDate.now(),
+                        "Reconciliation"))).isPresent();
+        if (posted) {
+            dataVersions.bump(discrepancy.getUserId(), DataVersionService.SAVINGS_ACCOUNTS);
+            eventBus.publish(new DomainEvent.AssetChanged(discrepancy.getUserId(), DataVersionService.SAVINGS_ACCOUNTS,
+                    discrepancy.getAccountId(), ChangeType.UPDATED));
+        }
+        return posted;
+    }
+
+    // -------------------- Totals --------------------
+
+    private Map<String, Totals> totals(Collection<SavingsAccount> accounts) {
+        List<String> ids = accounts.stream().map(SavingsAccount::getId).toList();
+        Map<String, Double> sources = sources(accounts);
+
+        Map<String, Totals> totals = new HashMap<>();
+        mongoTemplate.aggregate(Aggregation.newAggregation(
+                        Aggregation.match(Criteria.where("accountId").in(ids)),
+                        Aggregation.group("accountId")
+                                .sum(ConditionalOperators.when(ArrayOperators.In.arrayOf(BASELINE).containsValue("$type"))
+                                        .thenValueOf("amount").otherwise(0)).as("baseline")
+                                .sum("amount").as("total")
+                                .count().as("entries")),
+                LedgerEntry.class, Document.class).forEach(doc -> totals.put(doc.getString("_id"), new Totals(
+                ((Number) doc.get("baseline")).doubleValue(),
+                sources.getOrDefault(doc.getString("_id"), 0.0),
+                ((Number) doc.get("total")).doubleValue(),
+                ((Number) doc.get("entries")).longValue())));
+        for (String id : ids) {
+            totals.putIfAbsent(id, new Totals(0, sources.getOrDefault(id, 0.0), 0, 0));
+        }
+        return totals;
+    }
+
+    /**
+     * Per account: linked incomes - linked expenses + completed transfers in
+     * - completed transfers out. Incomes and expenses only count when they
+     * belong to the account's owner, as only those were ever posted.
+     */
+    private Map<String, Double> sources(Collection<SavingsAccount> accounts) {
+        List<String> ids = accounts.stream().map(SavingsAccount::getId).toList();
+        Map<String, String> owners = accounts.stream()
+                .collect(Collectors.toMap(SavingsAccount::getId, SavingsAccount::getUserId));
+        Map<String, Double> net = new HashMap<>();
+        add(net, owners, Income.class, "savingsAccountId", Criteria.where("savingsAccountId").in(ids), 1);
+        add(net, owners, Expense.class, "savingsAccountId", Criteria.where("savingsAccountId").in(ids), -1);
+        add(net, owners, Transfer.class, "toAccountId", completedTransfers().and("toAccountId").in(ids), 1);
+        add(net, owners, Transfer.class, "fromAccountId", completedTransfers().and("fromAccountId").in(ids), -1);
+        return net;
+    }
+
+    private static Criteria completedTransfers() {
+        return Criteria.where("type").is(Transfer.TRANSFER).and("status").is(Transfer.COMPLETED);
+    }
+
+    /**
+     * Add the amounts of the matching records, summed per account and owner
+     * by one aggregation, to the accounts they belong to.
+     */
+    private void add(Map<String, Double> net, Map<String, String> owners, Class<?> entity, String accountField,
+                     Criteria match, int sign) {
+        mongoTemplate.aggregate(Aggregation.newAggregation(
+                        Aggregation.match(match),
+                        Aggregation.group(accountField, "userId").sum("amount").as("total")),
+                entity, Document.class).forEach(sum -> {
+            Document key = sum.get("_id", Document.class);
+            String accountId = key.getString(accountField);
+            if (key.getString("userId") != null && key.getString("userId").equals(owners.get(accountId))) {
+                net.merge(accountId, sign * ((Number) sum.get("total")).doubleValue(), Double::sum);
+            }
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package com.wealthtracker.ledger;
+
+import com.wealthtracker.model.BalanceSnapshot;
+import com.wealthtracker.model.SavingsAccount;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps SavingsLedger.balanceAt cheap. On ledger.snapshot-cron every account
+ * gets a BalanceSnapshot of its balance and ledgerSeq, read from the same
+ * document so the two agree; an account that has not changed since its
+ * last snapshot gets none (same id).
+ */
+@Component
+@Slf4j
+public class BalanceSnapshots {
+
+    private final MongoTemplate mongoTemplate;
+    private final int batchSize;
+
+    public BalanceSnapshots(MongoTemplate mongoTemplate,
+                            @Value("${ledger.snapshot-batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${ledger.snapshot-cron:0 30 2 * * *}")
+    public void snapshot() {
+        Query query = new Query();
+        query.fields().include("userId").include("balance").include("ledgerSeq");
+        LocalDateTime now = LocalDateTime.now();
+        List<BalanceSnapshot> batch = new ArrayList<>(batchSize);
+        long taken = 0;
+        try (CloseableIterator<SavingsAccount> accounts = mongoTemplate.stream(query, SavingsAccount.class)) {
+            while (accounts.hasNext()) {
+                SavingsAccount account = accounts.next();
+                if (account.getLedgerSeq() == null || account.getBalance() == null) {
+                    continue;
+                }
+                BalanceSnapshot snapshot = new BalanceSnapshot();
+                snapshot.setId(account.getId() + ":" + account.getLedgerSeq());
+                snapshot.setUserId(account.getUserId());
+                snapshot.setAccountId(account.getId());
+                snapshot.setSeq(account.getLedgerSeq());
+                snapshot.setBalance(account.getBalance());
+                snapshot.setTakenAt(now);
+                batch.add(snapshot);
+                if (batch.size() == batchSize) {
+                    taken += write(batch);
+                    batch.clear();
+                }
+            }
+        }
+        taken += write(batch);
+        log.info("Took {} balance snapshots", taken);
+    }
+
+    private int write(List<BalanceSnapshot> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, BalanceSnapshot.class);
+        bulk.insert(batch);
+        try {
+            return bulk.execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            // Duplicate ids are accounts unchanged since their last snapshot
+            return batch.size() - e.getErrors().size();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.wealthtracker.ledger;
+
+import com.wealthtracker.model.BalanceSnapshot;
+import com.wealthtracker.model.LedgerEntry;
+import com.wealthtracker.model.SavingsAccount;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The only way savings account balances change. Every change is one
+ * findAndModify on the account that moves balance and ledgerSeq together,
+ * followed by inserting the savings_ledger entries it numbered. The
+ * entries of an account therefore have no gaps in seq unless an insert
+ * failed after its balance change, which BalanceReconciler reports. An
+ * account from before the ledger changes without entries until
+ * BalanceReconciler has opened its ledger.
+ *
+ * The balance on a date is the latest BalanceSnapshot taken by then plus
+ * the entries recorded after it (see BalanceSnapshots), so it never replays
+ * more than one snapshot interval. It is the balance as recorded at the end
+ * of that day: an expense entered later with an earlier date counts from
+ * the day it was entered.
+ */
+@Component
+@Slf4j
+public class SavingsLedger {
+
+    /**
+     * One entry to post: amount is signed, negative for debits.
+     */
+    public record Posting(String type, double amount, String sourceId, LocalDate date, String description) {}
+
+    public record Statement(List<LedgerEntry> entries, Long nextBefore) {}
+
+    public record BalanceAt(String accountId, LocalDate date, double balance, long snapshotSeq, long tailEntries) {}
+
+    private final MongoTemplate mongoTemplate;
+
+    public SavingsLedger(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public Optional<SavingsAccount> post(String userId, String accountId, Posting posting) {
+        return post(userId, accountId, null, null, List.of(posting));
+    }
+
+    /**
+     * Apply the postings to one of the user's accounts in a single update,
+     * with the extra condition and update operations given (both optional).
+     * Empty when no account matched: it is gone or the condition failed.
+     */
+    public Optional<SavingsAccount> post(String userId, String accountId, Criteria condition, Update update,
+                                         List<Posting> postings) {
+        double total = postings.stream().mapToDouble(Posting::amount).sum();
+        SavingsAccount account = mongoTemplate.findAndModify(query(userId, accountId, condition, true),
+                change(update, total, postings.size()), FindAndModifyOptions.options().returnNew(true),
+                SavingsAccount.class);
+        if (account == null && !constrainsSeq(condition)) {
+            // Not opened yet: BalanceReconciler opens accounts from before the ledger after startup. Until
+            // then their balance changes without entries, as it did before the ledger
+            SavingsAccount unopened = mongoTemplate.findAndModify(query(userId, accountId, condition, false),
+                    change(update, total, 0), FindAndModifyOptions.options().returnNew(true), SavingsAccount.class);
+            if (unopened != null) {
+                return Optional.of(unopened);
+            }
+            // Or it was opened in between
+            account = mongoTemplate.findAndModify(query(userId, accountId, condition, true),
+                    change(update, total, postings.size()), FindAndModifyOptions.options().returnNew(true),
+                    SavingsAccount.class);
+        }
+        if (account == null) {
+            return Optional.empty();
+        }
+
+        // Number the postings up to the account's new ledgerSeq, walking the balance back from its new value
+        List<LedgerEntry> entries = new ArrayList<>(postings.size());
+        long seq = account.getLedgerSeq();
+        double balance = account.getBalance();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = postings.size() - 1; i >= 0; i--) {
+            Posting posting = postings.get(i);
+            entries.add(0, entry(account, seq--, posting.type(), posting.amount(), balance, posting.sourceId(),
+                    posting.date(), posting.description(), now));
+            balance -= posting.amount();
+        }
+        insert(entries);
+        return Optional.of(account);
+    }
+
+    /**
+     * For an edited expense or income: reverse what the previous version
+     * posted and post the current one, in one update when both are on the
+     * same account. An account id is null or empty when that version was not
+     * linked; nothing is posted when the edit leaves the balance as it was.
+     */
+    public void repost(String userId, String previousAccountId, Posting reversal, String accountId, Posting posting) {
+        boolean wasLinked = previousAccountId != null && !previousAccountId.isEmpty();
+        boolean isLinked = accountId != null && !accountId.isEmpty();
+        if (wasLinked && isLinked && previousAccountId.equals(accountId)) {
+            if (reversal.amount() + posting.amount() != 0) {
+                post(userId, accountId, null, null, List.of(reversal, posting));
+            }
+            return;
+        }
+        if (wasLinked) {
+            post(userId, previousAccountId, reversal);
+        }
+        if (isLinked) {
+            post(userId, accountId, posting);
+        }
+    }
+
+    /**
+     * Set the balance to a value the user entered, recorded as an ADJUSTMENT
+     * by the difference. Nothing happens when the balance already has that
+     * value or the account does not exist.
+     */
+    public void setBalance(String userId, String accountId, double balance) {
+        Criteria differs = Criteria.where("balance").ne(balance);
+        SavingsAccount previous = adjust(userId, accountId, differs, balance);
+        if (previous == null) {
+            // Not opened yet (see post)
+            if (mongoTemplate.updateFirst(query(userId, accountId, differs, false), new Update()
+                            .set("balance", balance)
+                            .inc("version", 1)
+                            .set("updatedAt", LocalDate.now()),
+                    SavingsAccount.class).getMatchedCount() > 0) {
+                return;
+            }
+            previous = adjust(userId, accountId, differs, balance);
+        }
+        if (previous == null) {
+            return;
+        }
+        double before = previous.getBalance() != null ? previous.getBalance() : 0;
+        long seq = (previous.getLedgerSeq() != null ? previous.getLedgerSeq() : 0) + 1;
+        insert(List.of(entry(previous, seq, LedgerEntry.ADJUSTMENT, balance - before, balance, null,
+                LocalDate.now(), "Balance edited", LocalDateTime.now())));
+    }
+
+    /**
+     * The first entry of a new account, for its opening balance. The account
+     * must have been saved with ledgerSeq 1.
+     */
+    public void open(SavingsAccount account) {
+        double balance = account.getBalance() != null ? account.getBalance() : 0;
+        insert(List.of(entry(account, 1, LedgerEntry.OPENING, balance, balance, null, account.getCreatedAt(),
+                "Opening balance", LocalDateTime.now())));
+    }
+
+    /**
+     * The first entries of an account that has records from before the
+     * ledger: the part of its balance they do not explain as OPENING, and
+     * their net as BROUGHT_FORWARD. Written before the account's ledgerSeq
+     * is set to 2; writing them again replaces them.
+     */
+    public void openWithHistory(SavingsAccount account, double broughtForward) {
+        double balance = account.getBalance() != null ? account.getBalance() : 0;
+        LocalDateTime now = LocalDateTime.now();
+        List.of(
+                entry(account, 1, LedgerEntry.OPENING, balance - broughtForward, balance - broughtForward, null,
+                        account.getCreatedAt(), "Opening balance", now),
+                entry(account, 2, LedgerEntry.BROUGHT_FORWARD, broughtForward, balance, null, LocalDate.now(),
+                        "Incomes, expenses and transfers before the ledger", now))
+                .forEach(mongoTemplate::save);
+    }
+
+    /**
+     * A page of the account's entries, newest first. Pass nextBefore of a
+     * page as before to get the next one; it is null on the last page.
+     */
+    public Statement statement(String userId, String accountId, Long before, int limit) {
+        Criteria criteria = Criteria.where("accountId").is(accountId).and("userId").is(userId);
+        if (before != null) {
+            criteria = criteria.and("seq").lt(before);
+        }
+        List<LedgerEntry> entries = mongoTemplate.find(Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "seq"))
+                .limit(limit), LedgerEntry.class);
+        Long next = entries.size() == limit ? entries.get(entries.size() - 1).getSeq() : null;
+        return new Statement(entries, next);
+    }
+
+    /**
+     * The balance at the end of the day: the latest snapshot taken by then
+     * plus the entries recorded between it and the end of the day.
+     */
+    public BalanceAt balanceAt(String userId, String accountId, LocalDate date) {
+        LocalDateTime end = date.plusDays(1).atStartOfDay();
+        BalanceSnapshot snapshot = mongoTemplate.findOne(Query.query(Criteria.where("accountId").is(accountId)
+                        .and("userId").is(userId).and("takenAt").lt(end))
+                .with(Sort.by(Sort.Direction.DESC, "takenAt")), BalanceSnapshot.class);
+        long fromSeq = snapshot != null ? snapshot.getSeq() : 0;
+        double balance = snapshot != null ? snapshot.getBalance() : 0;
+
+        Document tail = mongoTemplate.aggregate(Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("accountId").is(accountId).and("userId").is(userId)
+                        .and("seq").gt(fromSeq).and("recordedAt").lt(end)),
+                Aggregation.group().sum("amount").as("total").count().as("count")),
+                LedgerEntry.class, Document.class).getUniqueMappedResult();
+        if (tail != null) {
+            balance += ((Number) tail.get("total")).doubleValue();
+        }
+        long count = tail != null ? ((Number) tail.get("count")).longValue() : 0;
+        return new BalanceAt(accountId, date, balance, fromSeq, count);
+    }
+
+    // -------------------- Helpers --------------------
+
+    /**
+     * The account, with the condition, if its ledger is opened (or not). A
+     * condition on ledgerSeq already implies an opened ledger.
+     */
+    private static Query query(String userId, String accountId, Criteria condition, boolean opened) {
+        Query query = Query.query(Criteria.where("_id").is(accountId).and("userId").is(userId));
+        if (condition != null) {
+            query.addCriteria(condition);
+        }
+        if (!constrainsSeq(condition)) {
+            query.addCriteria(Criteria.where("ledgerSeq").exists(opened));
+        }
+        return query;
+    }
+
+    private static boolean constrainsSeq(Criteria condition) {
+        return condition != null && condition.getCriteriaObject().containsKey("ledgerSeq");
+    }
+
+    /**
+     * The caller's update operations, copied so each attempt gets its own,
+     * plus the balance change and the entries it numbers.
+     */
+    private static Update change(Update update, double total, int entries) {
+        Document operations = new Document();
+        if (update != null) {
+            update.getUpdateObject().forEach((operator, fields) ->
+                    operations.put(operator, new Document((Document) fields)));
+        }
+        Update change = Update.fromDocument(operations)
+                .inc("balance", total)
+                .inc("version", 1)
+                .set("updatedAt", LocalDate.now());
+        if (entries > 0) {
+            change.inc("ledgerSeq", entries);
+        }
+        return change;
+    }
+
+    /**
+     * Set the balance of an opened account, numbering one entry. The account
+     * as it was, or null when nothing matched.
+     */
+    private SavingsAccount adjust(String userId, String accountId, Criteria differs, double balance) {
+        return mongoTemplate.findAndModify(query(userId, accountId, differs, true), new Update()
+                        .set("balance", balance)
+                        .inc("ledgerSeq", 1)
+                        .inc("version", 1)
+                        .set("updatedAt", LocalDate.now()),
+                FindAndModifyOptions.options().returnNew(false), SavingsAccount.class);
+    }
+
+    private void insert(List<LedgerEntry> entries) {
+        try {
+            mongoTemplate.insert(entries, LedgerEntry.class);
+        } catch (DataAccessException e) {
+            // The balance has changed; the missing seq shows up in reconciliation
+            log.error("Could not record ledger entries {}: {}",
+                    entries.stream().map(LedgerEntry::getId).toList(), e.getMessage());
+        }
+    }
+
+    private static LedgerEntry entry(SavingsAccount account, long seq, String type, double amount,
+                                     double balanceAfter, String sourceId, LocalDate date, String description,
+                                     LocalDateTime recordedAt) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setId(account.getId() + ":" + seq);
+        entry.setUserId(account.getUserId());
+        entry.setAccountId(account.getId());
+        entry.setSeq(seq);
+        entry.setType(type);
+        entry.setAmount(amount);
+        entry.setBalanceAfter(balanceAfter);
+        entry.setSourceId(sourceId);
+        entry.setDate(date);
+        entry.setDescription(description);
+        entry.setRecordedAt(recordedAt);
+        return entry;
+    }
+}
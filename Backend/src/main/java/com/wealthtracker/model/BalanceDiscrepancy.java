@@ -0,0 +1,32 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A savings account whose balance did not match what its records add up
+ * to in a reconciliation run (see BalanceReconciler).
+ */
+@Data
+@Document(collection = "balance_discrepancies")
+public class BalanceDiscrepancy {
+    @Id
+    private String id;
+
+    private String runId;
+    private String userId;
+    private String accountId;
+    private long ledgerSeq;
+
+    private double balance;
+    private double expected; // baseline + incomes - expenses + transfers in - transfers out
+    private double ledgerTotal; // sum of the account's ledger entries
+    private long missingEntries; // ledgerSeq minus the entries found
+
+    private boolean corrected;
+    private LocalDateTime detectedAt;
+    private LocalDateTime expireAt; // TTL index removes the document after this
+}
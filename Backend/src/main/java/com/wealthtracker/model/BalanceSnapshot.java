@@ -0,0 +1,26 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A savings account's balance after its ledger entry seq, read together
+ * from the account at takenAt. The id is "accountId:seq", so an account
+ * that has not changed since its last snapshot does not get another one.
+ */
+@Data
+@Document(collection = "balance_snapshots")
+public class BalanceSnapshot {
+    @Id
+    private String id;
+
+    private String userId;
+    private String accountId;
+    private long seq;
+    private double balance;
+
+    private LocalDateTime takenAt;
+}
@@ -0,0 +1,29 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Document(collection = "budgets")
+public class Budget {
+    @Id
+    private String id;
+
+    private String userId;
+    private String category;
+    private Double monthlyLimit;
+    private List<Integer> alertThresholds = new ArrayList<>(List.of(80, 100)); // percent of the limit
+
+    private LocalDate createdAt;
+    private LocalDate updatedAt;
+
+    public Budget() {
+        this.createdAt = LocalDate.now();
+        this.updatedAt = LocalDate.now();
+    }
+}
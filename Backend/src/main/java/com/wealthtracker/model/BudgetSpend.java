@@ -0,0 +1,26 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Month-to-date spend of one user in one category, kept current with $inc on
+ * every expense write. The id is "userId:category:yyyy-MM".
+ */
+@Data
+@Document(collection = "budget_spend")
+public class BudgetSpend {
+    @Id
+    private String id;
+
+    private String userId;
+    private String category;
+    private String month; // yyyy-MM
+    private double spent;
+    private int alertedPercent; // highest threshold already notified this month
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,30 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Document(collection = "chat_sessions")
+public class ChatSession {
+    @Id
+    private String id;
+
+    private String userId;
+    private boolean toolCalling; // model fetches data through FinanceTools instead of a snapshot
+    private String summary; // rolling summary of turns that left the window
+    private List<ChatTurn> messages = new ArrayList<>(); // bounded rolling window, oldest first
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime expireAt; // last activity + ai.chat.session-retention-days, set on spill; TTL-indexed
+
+    public ChatSession() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,28 @@
+package com.wealthtracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One message in a ChatSession window.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatTurn {
+
+    public static final String CONTEXT = "context"; // financial snapshot, injected once
+    public static final String USER = "user";
+    public static final String ASSISTANT = "assistant";
+
+    private String role;
+    private String content;
+    private LocalDateTime at;
+
+    public ChatTurn(String role, String content) {
+        this(role, content, LocalDateTime.now());
+    }
+}
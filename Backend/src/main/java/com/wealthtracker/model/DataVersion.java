@@ -0,0 +1,25 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Change counters of one user's lists. The id is the userId; versions maps a
+ * collection name to a counter that every write to that user's documents
+ * increments (see DataVersionService).
+ */
+@Data
+@Document(collection = "data_versions")
+public class DataVersion {
+    @Id
+    private String id;
+
+    private Map<String, Long> versions = new HashMap<>();
+
+    private LocalDateTime updatedAt;
+}
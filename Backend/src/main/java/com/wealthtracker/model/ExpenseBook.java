@@ -1,7 +1,9 @@
 package com.wealthtracker.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
@@ -21,6 +23,10 @@ public class ExpenseBook {
     private List<String> memberEmails = new ArrayList<>(); // denormalized for display
     private List<String> memberNames = new ArrayList<>(); // denormalized for display
 
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     private LocalDate createdAt;
     private LocalDate updatedAt;
 
@@ -1,7 +1,9 @@
 package com.wealthtracker.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
@@ -22,6 +24,10 @@ public class FixedDeposit {
     private String savingsAccountId; // Linked savings account for automatic deductions (for RDs)
     private LocalDate lastDeductionDate; // Track last processed deduction month
 
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     private LocalDate createdAt;
     private LocalDate updatedAt;
 
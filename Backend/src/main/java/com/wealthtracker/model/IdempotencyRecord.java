@@ -0,0 +1,33 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * The outcome of a POST sent with an Idempotency-Key, so a retry gets the
+ * same response instead of running the request again. The id is
+ * "userId:key"; fingerprint is a hash of the method, path and body the key
+ * was first used with.
+ */
+@Data
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    private String id;
+
+    private String fingerprint;
+    private String status;
+
+    private int responseStatus;
+    private String contentType;
+    private byte[] body;
+
+    private LocalDateTime lockedUntil; // an IN_PROGRESS claim older than this was abandoned
+    private LocalDateTime expireAt; // TTL index removes the record after this
+}
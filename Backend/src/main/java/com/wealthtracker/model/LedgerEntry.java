@@ -0,0 +1,49 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One change to a savings account balance. Entries are only ever inserted.
+ * seq counts the account's changes from 1 and is taken in the same update
+ * that changes the balance, so entries in seq order replay the balance and
+ * balanceAfter is the balance right after this change. The id is
+ * "accountId:seq" (see SavingsLedger).
+ */
+@Data
+@Document(collection = "savings_ledger")
+public class LedgerEntry {
+    public static final String OPENING = "OPENING";
+    // Net of the incomes, expenses and transfers an account had when its ledger was started
+    public static final String BROUGHT_FORWARD = "BROUGHT_FORWARD";
+    public static final String ADJUSTMENT = "ADJUSTMENT"; // balance edited by the user
+    public static final String EXPENSE = "EXPENSE";
+    public static final String EXPENSE_REVERSAL = "EXPENSE_REVERSAL";
+    public static final String INCOME = "INCOME";
+    public static final String INCOME_REVERSAL = "INCOME_REVERSAL";
+    public static final String TRANSFER_OUT = "TRANSFER_OUT";
+    public static final String TRANSFER_IN = "TRANSFER_IN";
+    public static final String TRANSFER_REFUND = "TRANSFER_REFUND";
+    public static final String RD_INSTALLMENT = "RD_INSTALLMENT";
+    public static final String RECONCILIATION = "RECONCILIATION"; // correction by BalanceReconciler
+
+    @Id
+    private String id;
+
+    private String userId;
+    private String accountId;
+    private long seq;
+
+    private String type;
+    private double amount; // signed: negative for debits
+    private double balanceAfter;
+    private String sourceId; // expense, income or transfer id
+    private LocalDate date; // date of the expense, income or transfer
+    private String description;
+
+    private LocalDateTime recordedAt;
+}
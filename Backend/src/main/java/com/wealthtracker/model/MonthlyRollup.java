@@ -0,0 +1,35 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pre-aggregated expense and income totals of one user for one month. The id
+ * is "userId:yyyy-MM"; documents are maintained with $inc by the write paths
+ * (see MonthlyRollupService).
+ */
+@Data
+@Document(collection = "monthly_rollups")
+public class MonthlyRollup {
+    @Id
+    private String id;
+
+    private String userId;
+    private String month; // yyyy-MM
+
+    private double expenseTotal;
+    private long expenseCount;
+    private double incomeTotal;
+    private long incomeCount;
+
+    private Map<String, Double> expensesByCategory = new HashMap<>();
+    private Map<String, Double> expensesByAccount = new HashMap<>(); // savings account id, or "unlinked"
+    private Map<String, Double> incomesByAccount = new HashMap<>();
+
+    private LocalDateTime updatedAt;
+}
@@ -1,7 +1,9 @@
 package com.wealthtracker.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
@@ -19,6 +21,10 @@ public class MutualFund {
     private Double units;
     private Double nav;
     private LocalDate purchaseDate;
+
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
     
     private LocalDate createdAt;
     private LocalDate updatedAt;
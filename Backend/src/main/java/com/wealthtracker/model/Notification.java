@@ -19,6 +19,7 @@ public class Notification {
     private boolean read; // default false
 
     private LocalDateTime createdAt;
+    private LocalDateTime expireAt; // set when read; TTL index removes the document after this
 
     public Notification() {
         this.read = false;
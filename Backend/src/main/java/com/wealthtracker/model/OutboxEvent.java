@@ -0,0 +1,34 @@
+package com.wealthtracker.model;
+
+import com.wealthtracker.events.DomainEvent;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Durable copy of a published domain event. Removed once every subscriber has
+ * handled it; until then the outbox poller redelivers it after availableAt.
+ */
+@Data
+@Document(collection = "event_outbox")
+public class OutboxEvent {
+    public static final String PENDING = "PENDING";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id;
+
+    private String eventType;
+    private DomainEvent payload;
+    private String status;
+    private int attempts;
+    private List<String> completedSubscribers = new ArrayList<>();
+    private String lastError;
+
+    private Instant createdAt;
+    private Instant availableAt; // not redelivered before this (delivery lease / retry backoff)
+}
@@ -0,0 +1,40 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Document(collection = "report_jobs")
+public class ReportJob {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id;
+
+    private String userId;
+    private String agentType; // AgentType name, e.g. "RECOMMENDATIONS"
+    private String status; // PENDING -> RUNNING -> COMPLETED / FAILED
+    private String report; // markdown report once COMPLETED
+    private String error;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime expireAt; // set once failed or superseded by a newer report; TTL-indexed
+
+    public ReportJob() {
+        this.status = PENDING;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public boolean isFinished() {
+        return COMPLETED.equals(status) || FAILED.equals(status);
+    }
+}
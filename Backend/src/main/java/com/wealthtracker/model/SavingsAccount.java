@@ -1,11 +1,15 @@
 package com.wealthtracker.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @Document(collection = "savings_accounts")
@@ -18,6 +22,18 @@ public class SavingsAccount {
     private String accountNumber;
     private Double balance;
     private Double interestRate;
+
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    // Number of the last savings_ledger entry of this account, advanced with every balance change
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long ledgerSeq;
+
+    // Transfers debited or credited here and not yet completed (see TransferService)
+    @JsonIgnore
+    private List<String> pendingTransfers;
     
     private LocalDate createdAt;
     private LocalDate updatedAt;
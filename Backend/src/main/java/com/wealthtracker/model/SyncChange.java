@@ -0,0 +1,27 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the sync journal: a document of a collection changed in a way
+ * the user can see. The entry does not say how; /api/sync looks the document
+ * up and returns it, or a tombstone when it is gone or no longer visible.
+ * seq is global and increasing (see SyncJournal).
+ */
+@Data
+@Document(collection = "sync_journal")
+public class SyncChange {
+    @Id
+    private Long seq;
+
+    private String userId;
+    private String collection;
+    private String documentId;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime expireAt; // TTL index removes the entry after this
+}
@@ -0,0 +1,50 @@
+package com.wealthtracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A movement of money out of a savings account: a transfer between two of
+ * the user's accounts or a recurring deposit installment.
+ *
+ * It is the record of the transfer, and without transactions it is also
+ * the log that makes it recoverable. Status goes PENDING (logged) ->
+ * DEBITED (source account charged) -> COMPLETED, or to COMPENSATED when
+ * the credit could not be made and the debit was reversed, or FAILED when
+ * nothing was debited. With transactions it is written COMPLETED in the
+ * same transaction as the balances.
+ */
+@Data
+@Document(collection = "transfers")
+public class Transfer {
+    public static final String TRANSFER = "TRANSFER";
+    public static final String RD_INSTALLMENT = "RD_INSTALLMENT";
+
+    public static final String PENDING = "PENDING";
+    public static final String DEBITED = "DEBITED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String COMPENSATED = "COMPENSATED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id; // "rd:<depositId>:<yyyy-MM>" for installments, so each month is paid once
+
+    private String userId;
+    private String type;
+    private String fromAccountId;
+    private String toAccountId; // TRANSFER
+    private String depositId; // RD_INSTALLMENT
+    private LocalDate date;
+    private Double amount;
+    private String description;
+
+    private String status;
+    private String failureReason;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
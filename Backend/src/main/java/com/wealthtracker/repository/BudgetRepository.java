@@ -0,0 +1,13 @@
+package com.wealthtracker.repository;
+
+import com.wealthtracker.model.Budget;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BudgetRepository extends UserScopedRepository<Budget, String> {
+    List<Budget> findByUserId(String userId);
+    Optional<Budget> findByUserIdAndCategory(String userId, String category);
+}
@@ -0,0 +1,12 @@
+package com.wealthtracker.repository;
+
+import com.wealthtracker.model.BudgetSpend;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BudgetSpendRepository extends MongoRepository<BudgetSpend, String> {
+    List<BudgetSpend> findByUserIdAndMonth(String userId, String month);
+}
@@ -0,0 +1,9 @@
+package com.wealthtracker.repository;
+
+import com.wealthtracker.model.ChatSession;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ChatSessionRepository extends MongoRepository<ChatSession, String> {
+}
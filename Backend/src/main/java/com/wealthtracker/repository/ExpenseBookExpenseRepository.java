@@ -1,12 +1,25 @@
 package com.wealthtracker.repository;
 
 import com.wealthtracker.model.ExpenseBookExpense;
-import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ExpenseBookExpenseRepository extends MongoRepository<ExpenseBookExpense, String> {
+public interface ExpenseBookExpenseRepository extends ParentScopedRepository<ExpenseBookExpense, String> {
     List<ExpenseBookExpense> findByExpenseBookIdOrderByExpenseDateDesc(String expenseBookId);
+    List<ExpenseBookExpense> findByExpenseBookIdIn(List<String> expenseBookIds);
+
+    /**
+     * Update the expense if it belongs to this expense book and return it as it was before.
+     */
+    default Optional<ExpenseBookExpense> updateByIdAndExpenseBookId(String id, String expenseBookId, Update update) {
+        return updateByIdAndParent(id, "expenseBookId", expenseBookId, update, false);
+    }
+
+    default Optional<ExpenseBookExpense> deleteByIdAndExpenseBookId(String id, String expenseBookId) {
+        return deleteByIdAndParent(id, "expenseBookId", expenseBookId);
+    }
 }
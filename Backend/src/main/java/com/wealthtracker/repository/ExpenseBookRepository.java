@@ -5,9 +5,11 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ExpenseBookRepository extends MongoRepository<ExpenseBook, String> {
     List<ExpenseBook> findByMemberUserIdsContaining(String userId);
     List<ExpenseBook> findByCreatedBy(String userId);
+    Optional<ExpenseBook> findByIdAndMemberUserIdsContaining(String id, String userId);
 }
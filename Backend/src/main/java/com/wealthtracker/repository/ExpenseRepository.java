@@ -1,14 +1,15 @@
 package com.wealthtracker.repository;
 
 import com.wealthtracker.model.Expense;
-import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.domain.Range;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
 
 @Repository
-public interface ExpenseRepository extends MongoRepository<Expense, String> {
+public interface ExpenseRepository extends UserScopedRepository<Expense, String> {
     List<Expense> findByUserId(String userId);
+    List<Expense> findByUserIdAndDateBetween(String userId, Range<LocalDate> date);
     boolean existsBySourceDepositIdAndDateBetween(String sourceDepositId, LocalDate start, LocalDate end);
 }
@@ -0,0 +1,14 @@
+package com.wealthtracker.repository;
+
+import com.wealthtracker.model.MonthlyRollup;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MonthlyRollupRepository extends MongoRepository<MonthlyRollup, String> {
+    List<MonthlyRollup> findByUserIdOrderByMonthAsc(String userId);
+    List<MonthlyRollup> findByUserIdAndMonthBetweenOrderByMonthAsc(String userId, Range<String> month);
+}
@@ -0,0 +1,30 @@
+package com.wealthtracker.repository;
+
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.Optional;
+
+/**
+ * Repository for child documents reached through a parent (a trip, an
+ * expense book) the caller has already been checked against. The parent id
+ * is part of the Mongo filter, so an id from another parent behaves exactly
+ * like a missing one and each write is a single round trip.
+ *
+ * Implemented by UserScopedRepositoryImpl, the repository base class.
+ */
+@NoRepositoryBean
+public interface ParentScopedRepository<T, ID> extends MongoRepository<T, ID> {
+
+    /**
+     * Apply a partial update to the document with this id under parentId and
+     * return it as it was before (returnNew false) or after the update.
+     */
+    Optional<T> updateByIdAndParent(ID id, String parentField, String parentId, Update update, boolean returnNew);
+
+    /**
+     * Delete the document with this id under parentId and return it.
+     */
+    Optional<T> deleteByIdAndParent(ID id, String parentField, String parentId);
+}
@@ -1,10 +1,9 @@
 package com.wealthtracker.repository;
 
 import com.wealthtracker.model.PhysicalAsset;
-import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
 
-public interface PhysicalAssetRepository extends MongoRepository<PhysicalAsset, String> {
+public interface PhysicalAssetRepository extends UserScopedRepository<PhysicalAsset, String> {
     List<PhysicalAsset> findByUserId(String userId);
 }
@@ -0,0 +1,13 @@
+package com.wealthtracker.repository;
+
+import com.wealthtracker.model.ReportJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ReportJobRepository extends MongoRepository<ReportJob, String> {
+    Optional<ReportJob> findFirstByUserIdAndAgentTypeAndStatusOrderByCompletedAtDesc(
+            String userId, String agentType, String status);
+}
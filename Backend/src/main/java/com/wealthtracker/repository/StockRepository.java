@@ -1,10 +1,10 @@
 package com.wealthtracker.repository;
 
 import com.wealthtracker.model.Stock;
-import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
 
-public interface StockRepository extends MongoRepository<Stock, String> {
+public interface StockRepository extends UserScopedRepository<Stock, String> {
     List<Stock> findByUserId(String userId);
+    List<Stock> findByUserIdAndSymbolIn(String userId, List<String> symbols);
 }
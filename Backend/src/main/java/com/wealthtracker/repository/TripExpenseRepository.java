@@ -1,12 +1,25 @@
 package com.wealthtracker.repository;
 
 import com.wealthtracker.model.TripExpense;
-import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface TripExpenseRepository extends MongoRepository<TripExpense, String> {
+public interface TripExpenseRepository extends ParentScopedRepository<TripExpense, String> {
     List<TripExpense> findByTripIdOrderByExpenseDateDesc(String tripId);
+    List<TripExpense> findByTripIdIn(List<String> tripIds);
+
+    /**
+     * Update the expense if it belongs to this trip and return it as it was before.
+     */
+    default Optional<TripExpense> updateByIdAndTripId(String id, String tripId, Update update) {
+        return updateByIdAndParent(id, "tripId", tripId, update, false);
+    }
+
+    default Optional<TripExpense> deleteByIdAndTripId(String id, String tripId) {
+        return deleteByIdAndParent(id, "tripId", tripId);
+    }
 }
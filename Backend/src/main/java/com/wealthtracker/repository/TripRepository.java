@@ -1,12 +1,11 @@
 package com.wealthtracker.repository;
 
 import com.wealthtracker.model.Trip;
-import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface TripRepository extends MongoRepository<Trip, String> {
+public interface TripRepository extends UserScopedRepository<Trip, String> {
     List<Trip> findByUserId(String userId);
 }
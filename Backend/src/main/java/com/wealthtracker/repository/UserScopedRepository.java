@@ -0,0 +1,41 @@
+package com.wealthtracker.repository;
+
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.Optional;
+
+/**
+ * Repository for documents owned by one user (a userId field). The owner is
+ * part of the Mongo filter, so each call is a single round trip and a
+ * document belonging to someone else behaves exactly like a missing one:
+ * callers answer 404 in both cases.
+ *
+ * Implemented by UserScopedRepositoryImpl, the repository base class.
+ */
+@NoRepositoryBean
+public interface UserScopedRepository<T, ID> extends MongoRepository<T, ID> {
+
+    Optional<T> findByIdAndUserId(ID id, String userId);
+
+    /**
+     * Apply a partial update (typically $set of the changed fields) and return
+     * the document as it is after the update.
+     */
+    default Optional<T> updateByIdAndUserId(ID id, String userId, Update update) {
+        return updateByIdAndUserId(id, userId, update, true);
+    }
+
+    /**
+     * Same, returning the document as it was before the update when returnNew
+     * is false (for callers that need the previous values, e.g. to reverse a
+     * balance change).
+     */
+    Optional<T> updateByIdAndUserId(ID id, String userId, Update update, boolean returnNew);
+
+    /**
+     * Delete the document and return it, so callers can undo its side effects.
+     */
+    Optional<T> deleteByIdAndUserId(ID id, String userId);
+}
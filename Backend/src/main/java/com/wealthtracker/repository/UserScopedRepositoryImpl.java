@@ -0,0 +1,75 @@
+package com.wealthtracker.repository;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.repository.query.MongoEntityInformation;
+import org.springframework.data.mongodb.repository.support.SimpleMongoRepository;
+
+import java.util.Optional;
+
+/**
+ * Repository base class (see WealthTrackerApplication) providing the
+ * UserScopedRepository and ParentScopedRepository operations. Repositories
+ * that extend neither simply do not expose them.
+ *
+ * Partial updates of a document with a @Version field also increment the
+ * version, so a concurrent read-modify-write based on the old version fails
+ * instead of overwriting the update.
+ */
+public class UserScopedRepositoryImpl<T, ID> extends SimpleMongoRepository<T, ID>
+        implements UserScopedRepository<T, ID>, ParentScopedRepository<T, ID> {
+
+    private final MongoEntityInformation<T, ID> entityInformation;
+    private final MongoOperations mongoOperations;
+    // Field name of the @Version property, or null
+    private final String versionField;
+
+    public UserScopedRepositoryImpl(MongoEntityInformation<T, ID> entityInformation, MongoOperations mongoOperations) {
+        super(entityInformation, mongoOperations);
+        this.entityInformation = entityInformation;
+        this.mongoOperations = mongoOperations;
+        MongoPersistentProperty version = mongoOperations.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(entityInformation.getJavaType()).getVersionProperty();
+        this.versionField = version != null ? version.getFieldName() : null;
+    }
+
+    @Override
+    public Optional<T> findByIdAndUserId(ID id, String userId) {
+        return Optional.ofNullable(mongoOperations.findOne(scoped(id, "userId", userId),
+                entityInformation.getJavaType(), entityInformation.getCollectionName()));
+    }
+
+    @Override
+    public Optional<T> updateByIdAndUserId(ID id, String userId, Update update, boolean returnNew) {
+        return updateByIdAndParent(id, "userId", userId, update, returnNew);
+    }
+
+    @Override
+    public Optional<T> deleteByIdAndUserId(ID id, String userId) {
+        return deleteByIdAndParent(id, "userId", userId);
+    }
+
+    @Override
+    public Optional<T> updateByIdAndParent(ID id, String parentField, String parentId, Update update, boolean returnNew) {
+        if (versionField != null) {
+            update.inc(versionField, 1);
+        }
+        return Optional.ofNullable(mongoOperations.findAndModify(scoped(id, parentField, parentId), update,
+                FindAndModifyOptions.options().returnNew(returnNew),
+                entityInformation.getJavaType(), entityInformation.getCollectionName()));
+    }
+
+    @Override
+    public Optional<T> deleteByIdAndParent(ID id, String parentField, String parentId) {
+        return Optional.ofNullable(mongoOperations.findAndRemove(scoped(id, parentField, parentId),
+                entityInformation.getJavaType(), entityInformation.getCollectionName()));
+    }
+
+    private Query scoped(ID id, String parentField, String parentId) {
+        return Query.query(Criteria.where(entityInformation.getIdAttribute()).is(id).and(parentField).is(parentId));
+    }
+}
@@ -0,0 +1,49 @@
+package com.wealthtracker.repository;
+
+import com.wealthtracker.model.ExpenseBook;
+import com.wealthtracker.model.FixedDeposit;
+import com.wealthtracker.model.MutualFund;
+import com.wealthtracker.model.SavingsAccount;
+import com.wealthtracker.model.Stock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Gives documents stored before the @Version field existed a version of 0.
+ *
+ * Spring Data treats an entity with a null version as new, so saving one of
+ * them would try an insert and fail on the duplicate _id. This runs while
+ * the context starts, before the web server takes requests, and matches
+ * nothing once every document has a version.
+ */
+@Component
+@Slf4j
+public class VersionBackfill implements InitializingBean {
+
+    private static final List<Class<?>> VERSIONED = List.of(
+            SavingsAccount.class, Stock.class, MutualFund.class, FixedDeposit.class, ExpenseBook.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public VersionBackfill(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        for (Class<?> entity : VERSIONED) {
+            long updated = mongoTemplate.updateMulti(Query.query(Criteria.where("version").exists(false)),
+                    new Update().set("version", 0L), entity).getModifiedCount();
+            if (updated > 0) {
+                log.info("Set version 0 on {} {} documents", updated, mongoTemplate.getCollectionName(entity));
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.wealthtracker.search;
+
+import java.util.List;
+
+/**
+ * Turns free-text descriptions into unit-length vectors for the semantic index.
+ */
+public interface DescriptionEmbedder {
+
+    List<float[]> embedAll(List<String> texts);
+
+    default float[] embed(String text) {
+        return embedAll(List.of(text)).get(0);
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm > 0) {
+            float inv = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= inv;
+            }
+        }
+        return vector;
+    }
+}
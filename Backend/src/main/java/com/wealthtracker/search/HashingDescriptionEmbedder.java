@@ -0,0 +1,55 @@
+package com.wealthtracker.search;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Deterministic stand-in for the Ollama embedder (search.embedding.provider=stub).
+ * Hashes word tokens and character trigrams into a fixed-size vector, so texts
+ * sharing words or word fragments land close together. No model needed, which
+ * makes it suitable for tests and machines without Ollama.
+ */
+@Component
+@ConditionalOnProperty(name = "search.embedding.provider", havingValue = "stub")
+public class HashingDescriptionEmbedder implements DescriptionEmbedder {
+
+    private static final int DIMENSIONS = 256;
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embedOne(text));
+        }
+        return vectors;
+    }
+
+    private float[] embedOne(String text) {
+        float[] vector = new float[DIMENSIONS];
+        if (text == null) {
+            return vector;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT);
+        for (String token : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            add(vector, token.hashCode(), 1.0f);
+            String padded = " " + token + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                add(vector, padded.substring(i, i + 3).hashCode(), 0.5f);
+            }
+        }
+        return DescriptionEmbedder.normalize(vector);
+    }
+
+    private static void add(float[] vector, int hash, float weight) {
+        int h = hash * 0x9E3779B1;
+        // Sign bit from the high half spreads collisions around zero
+        vector[Math.floorMod(h, DIMENSIONS)] += (h >>> 31) == 0 ? weight : -weight;
+    }
+}
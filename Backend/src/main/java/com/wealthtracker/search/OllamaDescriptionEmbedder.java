@@ -0,0 +1,30 @@
+package com.wealthtracker.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Embeds descriptions with the local Ollama embedding model
+ * (spring.ai.ollama.embedding.options.model).
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "search.embedding.provider", havingValue = "ollama", matchIfMissing = true)
+public class OllamaDescriptionEmbedder implements DescriptionEmbedder {
+
+    private final EmbeddingModel embeddingModel;
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (float[] vector : embeddingModel.embed(texts)) {
+            vectors.add(DescriptionEmbedder.normalize(vector));
+        }
+        return vectors;
+    }
+}
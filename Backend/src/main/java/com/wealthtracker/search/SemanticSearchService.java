@@ -0,0 +1,344 @@
+package com.wealthtracker.search;
+
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.ExpenseBook;
+import com.wealthtracker.model.ExpenseBookExpense;
+import com.wealthtracker.model.Trip;
+import com.wealthtracker.model.TripExpense;
+import com.wealthtracker.repository.ExpenseBookExpenseRepository;
+import com.wealthtracker.repository.ExpenseBookRepository;
+import com.wealthtracker.repository.ExpenseRepository;
+import com.wealthtracker.repository.TripExpenseRepository;
+import com.wealthtracker.repository.TripRepository;
+import com.wealthtracker.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Semantic search over the free-text descriptions of expenses, trip expenses
+ * and expense-book expenses.
+ *
+ * Each user gets an in-process VectorIndex, built lazily on their first search
+ * and kept in a bounded LRU (evicted indexes are simply rebuilt on demand).
+ * Builds run on the search-build executor; concurrent first searches by the
+ * same user wait for one build (SingleFlight) instead of starting their own.
+ * Writes update already-loaded indexes incrementally on a background thread, so
+ * embedding latency never lands on the request; removals go through the same
+ * thread, so a removal never overtakes an earlier put of the same document. Writes that arrive while a
+ * user's index is being built are queued and replayed onto it before it is
+ * installed, so none is lost.
+ */
+@Service
+@Slf4j
+public class SemanticSearchService {
+
+    public static final String EXPENSE = "expense";
+    public static final String TRIP_EXPENSE = "trip-expense";
+    public static final String BOOK_EXPENSE = "expense-book-expense";
+
+    private static final int EMBED_BATCH = 64;
+
+    /**
+     * What the index stores next to each vector.
+     */
+    public record SearchDocument(String source, String id, String parentId, String description,
+                                 String category, Double amount, LocalDate date) {}
+
+    public record SearchResult(String source, String id, String parentId, String description,
+                               String category, Double amount, LocalDate date, float score) {}
+
+    /**
+     * A write seen while the index was being built; doc is null for a removal.
+     */
+    private record PendingWrite(String key, SearchDocument doc) {}
+
+    private final DescriptionEmbedder embedder;
+    private final ExpenseRepository expenseRepository;
+    private final TripRepository tripRepository;
+    private final TripExpenseRepository tripExpenseRepository;
+    private final ExpenseBookRepository expenseBookRepository;
+    private final ExpenseBookExpenseRepository expenseBookExpenseRepository;
+    private final ThreadPoolTaskExecutor indexExecutor;
+    private final ThreadPoolTaskExecutor buildExecutor;
+    private final SingleFlight<VectorIndex<SearchDocument>> builds;
+    private final int trainThreshold;
+    private final int nprobe;
+
+    private final Map<String, VectorIndex<SearchDocument>> indexes; // guarded by itself
+    // userId -> writes seen during that user's build; guarded by indexes
+    private final Map<String, Queue<PendingWrite>> building = new HashMap<>();
+
+    public SemanticSearchService(DescriptionEmbedder embedder,
+                                 ExpenseRepository expenseRepository,
+                                 TripRepository tripRepository,
+                                 TripExpenseRepository tripExpenseRepository,
+                                 ExpenseBookRepository expenseBookRepository,
+                                 ExpenseBookExpenseRepository expenseBookExpenseRepository,
+                                 @Qualifier("searchIndexExecutor") ThreadPoolTaskExecutor indexExecutor,
+                                 @Qualifier("searchBuildExecutor") ThreadPoolTaskExecutor buildExecutor,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${search.index.max-users:500}") int maxUsers,
+                                 @Value("${search.index.ivf-train-threshold:2048}") int trainThreshold,
+                                 @Value("${search.index.nprobe:4}") int nprobe) {
+        this.embedder = embedder;
+        this.expenseRepository = expenseRepository;
+        this.tripRepository = tripRepository;
+        this.tripExpenseRepository = tripExpenseRepository;
+        this.expenseBookRepository = expenseBookRepository;
+        this.expenseBookExpenseRepository = expenseBookExpenseRepository;
+        this.indexExecutor = indexExecutor;
+        this.buildExecutor = buildExecutor;
+        this.builds = new SingleFlight<>(meterRegistry, "search.index.singleflight");
+        this.trainThreshold = trainThreshold;
+        this.nprobe = nprobe;
+        this.indexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VectorIndex<SearchDocument>> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    public List<SearchResult> search(String userId, String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        VectorIndex<SearchDocument> index = indexFor(userId);
+        float[] vector = embedder.embed(query.trim());
+        return index.search(vector, limit).stream()
+                .map(hit -> {
+                    SearchDocument d = hit.payload();
+                    return new SearchResult(d.source(), d.id(), d.parentId(), d.description(),
+                            d.category(), d.amount(), d.date(), hit.score());
+                })
+                .toList();
+    }
+
+    // -------------------- Incremental updates --------------------
+
+    public void indexExpense(Expense expense) {
+        SearchDocument doc = new SearchDocument(EXPENSE, expense.getId(), null, expense.getDescription(),
+                expense.getCategory(), expense.getAmount(), expense.getDate());
+        update(List.of(expense.getUserId()), doc);
+    }
+
+    public void indexTripExpense(String userId, TripExpense expense) {
+        SearchDocument doc = new SearchDocument(TRIP_EXPENSE, expense.getId(), expense.getTripId(),
+                expense.getDescription(), null, expense.getAmount(), expense.getExpenseDate());
+        update(List.of(userId), doc);
+    }
+
+    public void indexBookExpense(Collection<String> memberUserIds, ExpenseBookExpense expense) {
+        SearchDocument doc = new SearchDocument(BOOK_EXPENSE, expense.getId(), expense.getExpenseBookId(),
+                expense.getDescription(), null, expense.getAmount(), expense.getExpenseDate());
+        update(memberUserIds, doc);
+    }
+
+    public void remove(Collection<String> userIds, String source, String id) {
+        String key = source + ":" + id;
+        List<String> loaded = loadedOrQueue(userIds, new PendingWrite(key, null));
+        // On the index thread too, behind any put of the same document still queued there
+        apply(loaded, () -> {
+            for (String userId : loaded) {
+                VectorIndex<SearchDocument> index = loadedIndex(userId);
+                if (index != null) {
+                    index.remove(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop a user's index, e.g. after a bulk delete; it is rebuilt on the next
+     * search. A build in progress is not installed.
+     */
+    public void invalidate(String userId) {
+        synchronized (indexes) {
+            indexes.remove(userId);
+            building.remove(userId);
+        }
+    }
+
+    private void update(Collection<String> userIds, SearchDocument doc) {
+        if (doc.description() == null || doc.description().isBlank()) {
+            remove(userIds, doc.source(), doc.id());
+            return;
+        }
+        List<String> loaded = loadedOrQueue(userIds, new PendingWrite(doc.source() + ":" + doc.id(), doc));
+        apply(loaded, () -> {
+            float[] vector = embedder.embed(doc.description());
+            for (String userId : loaded) {
+                VectorIndex<SearchDocument> index = loadedIndex(userId);
+                if (index != null) {
+                    index.put(doc.source() + ":" + doc.id(), vector, doc);
+                }
+            }
+        });
+    }
+
+    /**
+     * Run a write on the single index thread, which keeps the writes to a
+     * document in the order they were made.
+     */
+    private void apply(List<String> loaded, Runnable write) {
+        if (loaded.isEmpty()) {
+            return; // nobody has an index yet; it will be built from Mongo when needed
+        }
+        try {
+            indexExecutor.execute(write);
+        } catch (TaskRejectedException e) {
+            // Falling behind: forget the indexes so they are rebuilt from Mongo
+            log.warn("Search index queue full, dropping indexes for {} users", loaded.size());
+            loaded.forEach(this::invalidate);
+        }
+    }
+
+    // -------------------- Index construction --------------------
+
+    private VectorIndex<SearchDocument> loadedIndex(String userId) {
+        synchronized (indexes) {
+            return indexes.get(userId);
+        }
+    }
+
+    /**
+     * The users whose index is loaded; the write is queued for those whose
+     * index is being built.
+     */
+    private List<String> loadedOrQueue(Collection<String> userIds, PendingWrite write) {
+        List<String> loaded = new ArrayList<>();
+        synchronized (indexes) {
+            for (String userId : userIds) {
+                if (indexes.containsKey(userId)) {
+                    loaded.add(userId);
+                } else {
+                    Queue<PendingWrite> pending = building.get(userId);
+                    if (pending != null) {
+                        pending.add(write);
+                    }
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @throws TaskRejectedException when the build queue is full
+     */
+    private VectorIndex<SearchDocument> indexFor(String userId) {
+        VectorIndex<SearchDocument> index = loadedIndex(userId);
+        if (index != null) {
+            return index;
+        }
+        return builds.execute(SingleFlight.Key.of(userId, "search-index"), () -> {
+            VectorIndex<SearchDocument> loaded = loadedIndex(userId);
+            if (loaded != null) {
+                return loaded;
+            }
+            try {
+                return buildExecutor.submitCompletable(() -> buildAndInstall(userId)).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        });
+    }
+
+    private VectorIndex<SearchDocument> buildAndInstall(String userId) {
+        Queue<PendingWrite> pending = new ArrayDeque<>();
+        synchronized (indexes) {
+            building.put(userId, pending);
+        }
+        try {
+            long start = System.currentTimeMillis();
+            VectorIndex<SearchDocument> built = build(userId);
+            log.info("Built search index for user {} with {} documents in {}ms",
+                    userId, built.size(), System.currentTimeMillis() - start);
+
+            // Replay outside the lock (puts embed), until nothing new came in
+            while (true) {
+                List<PendingWrite> replay;
+                synchronized (indexes) {
+                    if (building.get(userId) != pending) {
+                        return built; // invalidated meanwhile: serve this caller, install nothing
+                    }
+                    if (pending.isEmpty()) {
+                        building.remove(userId);
+                        indexes.put(userId, built);
+                        return built;
+                    }
+                    replay = new ArrayList<>(pending);
+                    pending.clear();
+                }
+                for (PendingWrite write : replay) {
+                    if (write.doc() == null) {
+                        built.remove(write.key());
+                    } else {
+                        built.put(write.key(), embedder.embed(write.doc().description()), write.doc());
+                    }
+                }
+            }
+        } finally {
+            synchronized (indexes) {
+                building.remove(userId, pending);
+            }
+        }
+    }
+
+    private VectorIndex<SearchDocument> build(String userId) {
+        List<SearchDocument> docs = new ArrayList<>();
+
+        for (Expense e : expenseRepository.findByUserId(userId)) {
+            docs.add(new SearchDocument(EXPENSE, e.getId(), null, e.getDescription(),
+                    e.getCategory(), e.getAmount(), e.getDate()));
+        }
+
+        List<String> tripIds = tripRepository.findByUserId(userId).stream().map(Trip::getId).toList();
+        if (!tripIds.isEmpty()) {
+            for (TripExpense e : tripExpenseRepository.findByTripIdIn(tripIds)) {
+                docs.add(new SearchDocument(TRIP_EXPENSE, e.getId(), e.getTripId(), e.getDescription(),
+                        null, e.getAmount(), e.getExpenseDate()));
+            }
+        }
+
+        List<String> bookIds = expenseBookRepository.findByMemberUserIdsContaining(userId).stream()
+                .map(ExpenseBook::getId).toList();
+        if (!bookIds.isEmpty()) {
+            for (ExpenseBookExpense e : expenseBookExpenseRepository.findByExpenseBookIdIn(bookIds)) {
+                docs.add(new SearchDocument(BOOK_EXPENSE, e.getId(), e.getExpenseBookId(), e.getDescription(),
+                        null, e.getAmount(), e.getExpenseDate()));
+            }
+        }
+
+        docs.removeIf(d -> d.description() == null || d.description().isBlank());
+
+        VectorIndex<SearchDocument> index = new VectorIndex<>(trainThreshold, nprobe);
+        for (int from = 0; from < docs.size(); from += EMBED_BATCH) {
+            List<SearchDocument> batch = docs.subList(from, Math.min(docs.size(), from + EMBED_BATCH));
+            List<float[]> vectors = embedder.embedAll(batch.stream().map(SearchDocument::description).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                SearchDocument d = batch.get(i);
+                index.put(d.source() + ":" + d.id(), vectors.get(i), d);
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,275 @@
+package com.wealthtracker.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process IVF-flat index over unit-length float vectors (cosine similarity =
+ * dot product).
+ *
+ * Small indexes are scanned exactly. Once an index holds trainThreshold vectors
+ * it is partitioned with a few rounds of k-means into ~sqrt(n) inverted lists,
+ * and queries only scan the nprobe lists whose centroids are closest. The lists
+ * are retrained when the index has doubled since the last training. Adds and
+ * removes are incremental: a new vector goes to its nearest list, a removed one
+ * is swapped out of its list.
+ */
+public class VectorIndex<P> {
+
+    public record Hit<P>(String key, P payload, float score) {}
+
+    private static final int KMEANS_ITERATIONS = 6;
+
+    private final int trainThreshold;
+    private final int nprobe;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> slotByKey = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final List<float[]> vectors = new ArrayList<>();
+    private final List<P> payloads = new ArrayList<>();
+
+    // IVF state; centroids == null means the index is still flat
+    private float[][] centroids;
+    private int[][] lists;
+    private int[] listSizes;
+    private int[] listOfSlot;
+    private int trainedSize;
+
+    public VectorIndex(int trainThreshold, int nprobe) {
+        this.trainThreshold = trainThreshold;
+        this.nprobe = nprobe;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return keys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(String key, float[] vector, P payload) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotByKey.get(key);
+            if (slot != null) {
+                removeSlot(slot);
+            }
+            slot = keys.size();
+            slotByKey.put(key, slot);
+            keys.add(key);
+            vectors.add(vector);
+            payloads.add(payload);
+
+            if (centroids == null) {
+                if (keys.size() >= trainThreshold) {
+                    train();
+                }
+            } else if (keys.size() >= trainedSize * 2) {
+                train();
+            } else {
+                ensureSlotCapacity();
+                addToList(nearest(centroids, vector), slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotByKey.get(key);
+            if (slot != null) {
+                removeSlot(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Hit<P>> search(float[] query, int k) {
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Hit<P>> best = new PriorityQueue<>(k + 1, (a, b) -> Float.compare(a.score(), b.score()));
+            if (centroids == null) {
+                for (int slot = 0; slot < keys.size(); slot++) {
+                    offer(best, slot, query, k);
+                }
+            } else {
+                for (int list : nearestCentroids(query, nprobe)) {
+                    int[] members = lists[list];
+                    for (int i = 0; i < listSizes[list]; i++) {
+                        offer(best, members[i], query, k);
+                    }
+                }
+            }
+            List<Hit<P>> result = new ArrayList<>(best);
+            result.sort((a, b) -> Float.compare(b.score(), a.score()));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -------------------- internals (lock held by caller) --------------------
+
+    private void offer(PriorityQueue<Hit<P>> best, int slot, float[] query, int k) {
+        float score = dot(query, vectors.get(slot));
+        if (best.size() < k) {
+            best.add(new Hit<>(keys.get(slot), payloads.get(slot), score));
+        } else if (score > best.peek().score()) {
+            best.poll();
+            best.add(new Hit<>(keys.get(slot), payloads.get(slot), score));
+        }
+    }
+
+    /**
+     * Swap-remove: the last slot moves into the freed one so storage stays dense.
+     */
+    private void removeSlot(int slot) {
+        int last = keys.size() - 1;
+        slotByKey.remove(keys.get(slot));
+        if (centroids != null) {
+            removeFromList(listOfSlot[slot], slot);
+        }
+        if (slot != last) {
+            keys.set(slot, keys.get(last));
+            vectors.set(slot, vectors.get(last));
+            payloads.set(slot, payloads.get(last));
+            slotByKey.put(keys.get(slot), slot);
+            if (centroids != null) {
+                int list = listOfSlot[last];
+                replaceInList(list, last, slot);
+                listOfSlot[slot] = list;
+            }
+        }
+        keys.remove(last);
+        vectors.remove(last);
+        payloads.remove(last);
+    }
+
+    private void train() {
+        int n = keys.size();
+        int nlist = Math.max(1, (int) Math.sqrt(n));
+        int dims = vectors.get(0).length;
+        Random random = new Random(n);
+
+        // Seed centroids with distinct random vectors, then refine with k-means
+        float[][] cents = new float[nlist][];
+        int[] seeds = random.ints(0, n).distinct().limit(nlist).toArray();
+        for (int c = 0; c < nlist; c++) {
+            cents[c] = Arrays.copyOf(vectors.get(seeds[c]), dims);
+        }
+        for (int iter = 0; iter < KMEANS_ITERATIONS; iter++) {
+            float[][] sums = new float[nlist][dims];
+            int[] counts = new int[nlist];
+            for (int slot = 0; slot < n; slot++) {
+                float[] v = vectors.get(slot);
+                int c = nearest(cents, v);
+                counts[c]++;
+                for (int d = 0; d < dims; d++) {
+                    sums[c][d] += v[d];
+                }
+            }
+            for (int c = 0; c < nlist; c++) {
+                if (counts[c] > 0) {
+                    cents[c] = DescriptionEmbedder.normalize(sums[c]);
+                }
+            }
+        }
+
+        centroids = cents;
+        lists = new int[nlist][];
+        listSizes = new int[nlist];
+        listOfSlot = new int[Math.max(16, n * 2)];
+        for (int c = 0; c < nlist; c++) {
+            lists[c] = new int[8];
+        }
+        for (int slot = 0; slot < n; slot++) {
+            addToList(nearest(cents, vectors.get(slot)), slot);
+        }
+        trainedSize = n;
+    }
+
+    private void ensureSlotCapacity() {
+        if (keys.size() > listOfSlot.length) {
+            listOfSlot = Arrays.copyOf(listOfSlot, listOfSlot.length * 2);
+        }
+    }
+
+    private void addToList(int list, int slot) {
+        if (listSizes[list] == lists[list].length) {
+            lists[list] = Arrays.copyOf(lists[list], lists[list].length * 2);
+        }
+        lists[list][listSizes[list]++] = slot;
+        listOfSlot[slot] = list;
+    }
+
+    private void removeFromList(int list, int slot) {
+        int[] members = lists[list];
+        for (int i = 0; i < listSizes[list]; i++) {
+            if (members[i] == slot) {
+                members[i] = members[--listSizes[list]];
+                return;
+            }
+        }
+    }
+
+    private void replaceInList(int list, int oldSlot, int newSlot) {
+        int[] members = lists[list];
+        for (int i = 0; i < listSizes[list]; i++) {
+            if (members[i] == oldSlot) {
+                members[i] = newSlot;
+                return;
+            }
+        }
+    }
+
+    private int[] nearestCentroids(float[] query, int count) {
+        int n = Math.min(count, centroids.length);
+        Integer[] ids = new Integer[centroids.length];
+        float[] scores = new float[centroids.length];
+        for (int c = 0; c < centroids.length; c++) {
+            ids[c] = c;
+            scores[c] = dot(query, centroids[c]);
+        }
+        Arrays.sort(ids, (a, b) -> Float.compare(scores[b], scores[a]));
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = ids[i];
+        }
+        return result;
+    }
+
+    private static int nearest(float[][] cents, float[] v) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < cents.length; c++) {
+            float score = dot(v, cents[c]);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        int n = Math.min(a.length, b.length);
+        float sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -1,6 +1,7 @@
 package com.wealthtracker.service;
 
 import com.wealthtracker.agent.AIOrchestrator;
+import com.wealthtracker.dto.ChatResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -16,7 +17,11 @@ public class AIAssistantService {
 
     private final AIOrchestrator aiOrchestrator;
 
-    public String chat(String userMessage, String userId) {
-        return aiOrchestrator.chat(userMessage, userId);
+    public ChatResponse chat(String userMessage, String userId, String sessionId, String mode) {
+        return aiOrchestrator.chat(userMessage, userId, sessionId, mode);
+    }
+
+    public void endChat(String userId, String sessionId) {
+        aiOrchestrator.endChat(userId, sessionId);
     }
 }
@@ -0,0 +1,884 @@
+package com.wealthtracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wealthtracker.categorization.ExpenseCategorizer;
+import com.wealthtracker.dto.BatchRequest;
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
+import com.wealthtracker.ledger.SavingsLedger;
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.Income;
+import com.wealthtracker.model.LedgerEntry;
+import com.wealthtracker.model.MutualFund;
+import com.wealthtracker.model.MutualFundTransaction;
+import com.wealthtracker.model.PhysicalAsset;
+import com.wealthtracker.model.SavingsAccount;
+import com.wealthtracker.model.Stock;
+import com.wealthtracker.model.StockTransaction;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.stereotype.Service;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs the operations of a /api/batch request: creates, updates and deletes
+ * of expenses, incomes, stocks, mutual funds and physical assets, plus
+ * add-units on stocks and funds.
+ *
+ * Operations are checked in order against the state the earlier ones leave
+ * behind (an update after a delete of the same id is a 404), then written
+ * collection by collection, in the order each collection first appears:
+ * creates as one ordered bulk insert, updates and deletes one at a time.
+ * Updates and deletes of expenses and incomes only match the document as it
+ * was loaded (amount, date, category or source, linked account), since the
+ * balance reversal and the events are computed from that version; one that
+ * matches nothing reports 409 and posts nothing. Savings balance changes
+ * from linked expenses and incomes are posted to the ledger with one update
+ * per account and one entry per operation. Events and data versions follow
+ * the single-resource endpoints, with one version bump for the whole batch.
+ *
+ * A batch is not atomic. An operation that fails its checks or its write is
+ * reported and the others still run; a bulk insert error fails the creates
+ * from that point on with 500.
+ */
+@Service
+@Slf4j
+public class BatchService {
+
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+    public static final String ADD_UNITS = "add-units";
+
+    private static final String EXPENSES = "expenses";
+    private static final String INCOMES = "incomes";
+    private static final String STOCKS = "stocks";
+    private static final String MUTUAL_FUNDS = "mutual-funds";
+    private static final String PHYSICAL_ASSETS = "physical-assets";
+
+    private static final Map<String, Class<?>> ENTITIES = Map.of(
+            EXPENSES, Expense.class,
+            INCOMES, Income.class,
+            STOCKS, Stock.class,
+            MUTUAL_FUNDS, MutualFund.class,
+            PHYSICAL_ASSETS, PhysicalAsset.class);
+
+    private static final Map<String, String> COLLECTIONS = Map.of(
+            EXPENSES, DataVersionService.EXPENSES,
+            INCOMES, DataVersionService.INCOMES,
+            STOCKS, DataVersionService.STOCKS,
+            MUTUAL_FUNDS, DataVersionService.MUTUAL_FUNDS,
+            PHYSICAL_ASSETS, DataVersionService.PHYSICAL_ASSETS);
+
+    private static final Map<String, String> LABELS = Map.of(
+            EXPENSES, "Expense",
+            INCOMES, "Income",
+            STOCKS, "Stock",
+            MUTUAL_FUNDS, "Mutual fund",
+            PHYSICAL_ASSETS, "Physical asset");
+
+    /**
+     * One entry per operation, in request order. data is the stored document
+     * for creates, updates and add-units; message explains a failure.
+     */
+    public record Result(int index, int status, String id, Object data, String message) {}
+
+    public record BatchResult(int succeeded, int failed, List<Result> results) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final ExpenseCategorizer categorizer;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final DomainEventBus eventBus;
+    private final DataVersionService dataVersions;
+    private final SavingsLedger ledger;
+    private final int maxOperations;
+
+    public BatchService(MongoTemplate mongoTemplate,
+                        ObjectMapper objectMapper,
+                        ExpenseCategorizer categorizer,
+                        CascadeDeleteService cascadeDeleteService,
+                        DomainEventBus eventBus,
+                        DataVersionService dataVersions,
+                        SavingsLedger ledger,
+                        @Value("${batch.max-operations:200}") int maxOperations) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.categorizer = categorizer;
+        this.cascadeDeleteService = cascadeDeleteService;
+        this.eventBus = eventBus;
+        this.dataVersions = dataVersions;
+        this.ledger = ledger;
+        this.maxOperations = maxOperations;
+    }
+
+    public int getMaxOperations() {
+        return maxOperations;
+    }
+
+    public BatchResult run(String userId, List<BatchRequest.Operation> operations) {
+        Context context = load(userId, operations);
+
+        List<Planned> planned = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            planned.add(plan(context, i, operations.get(i)));
+        }
+
+        Map<String, List<Planned>> byResource = new LinkedHashMap<>();
+        planned.stream()
+                .filter(Planned::pending)
+                .forEach(op -> byResource.computeIfAbsent(op.resource, r -> new ArrayList<>()).add(op));
+        byResource.forEach(this::write);
+        byResource.forEach((resource, ops) -> afterWrite(userId, resource, ops));
+
+        Set<String> touched = new LinkedHashSet<>();
+        Map<String, List<SavingsLedger.Posting>> postings = new LinkedHashMap<>();
+        for (Planned op : planned) {
+            if (!op.pending()) {
+                continue;
+            }
+            op.result = new Result(op.index, 200, op.id, op.data, null);
+            touched.add(COLLECTIONS.get(op.resource));
+            op.postings.forEach((accountId, accountPostings) ->
+                    postings.computeIfAbsent(accountId, a -> new ArrayList<>()).addAll(accountPostings));
+            eventBus.publish(op.event);
+        }
+        if (applyBalances(userId, postings)) {
+            touched.add(DataVersionService.SAVINGS_ACCOUNTS);
+        }
+        if (!touched.isEmpty()) {
+            dataVersions.bump(userId, touched.toArray(String[]::new));
+        }
+
+        List<Result> results = planned.stream().map(op -> op.result).toList();
+        int succeeded = (int) results.stream().filter(r -> r.status() == 200).count();
+        return new BatchResult(succeeded, results.size() - succeeded, results);
+    }
+
+    // -------------------- Loading --------------------
+
+    /**
+     * The user's existing documents named by the operations (one query per
+     * collection), then the savings accounts they link to (one query).
+     */
+    private Context load(String userId, List<BatchRequest.Operation> operations) {
+        Map<String, Set<String>> ids = new HashMap<>();
+        for (BatchRequest.Operation op : operations) {
+            if (ENTITIES.containsKey(op.getResource()) && !CREATE.equals(op.getAction()) && op.getId() != null) {
+                ids.computeIfAbsent(op.getResource(), r -> new LinkedHashSet<>()).add(op.getId());
+            }
+        }
+
+        Context context = new Context(userId);
+        ids.forEach((resource, resourceIds) -> {
+            Query query = Query.query(Criteria.where("_id").in(resourceIds).and("userId").is(userId));
+            Map<String, Object> existing = new HashMap<>();
+            mongoTemplate.find(query, ENTITIES.get(resource)).forEach(doc -> existing.put(idOf(doc), doc));
+            context.documents.put(resource, existing);
+        });
+
+        Set<String> accountIds = new LinkedHashSet<>();
+        for (BatchRequest.Operation op : operations) {
+            if ((EXPENSES.equals(op.getResource()) || INCOMES.equals(op.getResource()))
+                    && op.getData() != null && op.getData().get("savingsAccountId") instanceof String accountId
+                    && !accountId.isEmpty()) {
+                accountIds.add(accountId);
+            }
+        }
+        context.documents.getOrDefault(EXPENSES, Map.of()).values().forEach(doc -> {
+            String accountId = ((Expense) doc).getSavingsAccountId();
+            if (accountId != null && !accountId.isEmpty()) {
+                accountIds.add(accountId);
+            }
+        });
+        context.documents.getOrDefault(INCOMES, Map.of()).values().forEach(doc -> {
+            String accountId = ((Income) doc).getSavingsAccountId();
+            if (accountId != null && !accountId.isEmpty()) {
+                accountIds.add(accountId);
+            }
+        });
+        if (!accountIds.isEmpty()) {
+            Query query = Query.query(Criteria.where("_id").in(accountIds).and("userId").is(userId));
+            query.fields().include("_id");
+            mongoTemplate.find(query, SavingsAccount.class).forEach(account -> context.accounts.add(account.getId()));
+        }
+        return context;
+    }
+
+    // -------------------- Planning --------------------
+
+    private Planned plan(Context context, int index, BatchRequest.Operation operation) {
+        Planned op = new Planned(index, operation.getResource(), operation.getId());
+        if (!ENTITIES.containsKey(op.resource)) {
+            return op.fail(400, "Unknown resource: " + op.resource);
+        }
+        String action = operation.getAction();
+        if (action == null) {
+            return op.fail(400, "action is required");
+        }
+        if (!CREATE.equals(action) && op.id == null) {
+            return op.fail(400, "id is required");
+        }
+        if ((CREATE.equals(action) || UPDATE.equals(action) || ADD_UNITS.equals(action)) && operation.getData() == null) {
+            return op.fail(400, "data is required");
+        }
+
+        Map<String, Object> existing = context.documents.computeIfAbsent(op.resource, r -> new HashMap<>());
+        Object previous = CREATE.equals(action) ? null : existing.get(op.id);
+        if (!CREATE.equals(action) && previous == null) {
+            return op.fail(404, LABELS.get(op.resource) + " not found");
+        }
+
+        try {
+            switch (op.resource + ":" + action) {
+                case EXPENSES + ":" + CREATE -> createExpense(context, op, operation.getData());
+                case EXPENSES + ":" + UPDATE -> updateExpense(context, op, (Expense) previous, operation.getData());
+                case EXPENSES + ":" + DELETE -> deleteExpense(context, op, (Expense) previous);
+                case INCOMES + ":" + CREATE -> createIncome(context, op, operation.getData());
+                case INCOMES + ":" + UPDATE -> updateIncome(context, op, (Income) previous, operation.getData());
+                case INCOMES + ":" + DELETE -> deleteIncome(context, op, (Income) previous);
+                case STOCKS + ":" + CREATE -> createStock(context, op, operation.getData());
+                case STOCKS + ":" + UPDATE -> updateStock(context, op, (Stock) previous, operation.getData());
+                case STOCKS + ":" + ADD_UNITS -> addStockUnits(context, op, (Stock) previous, operation.getData());
+                case STOCKS + ":" + DELETE -> deleteAsset(context, op, DataVersionService.STOCKS);
+                case MUTUAL_FUNDS + ":" + CREATE -> createFund(context, op, operation.getData());
+                case MUTUAL_FUNDS + ":" + UPDATE -> updateFund(context, op, (MutualFund) previous, operation.getData());
+                case MUTUAL_FUNDS + ":" + ADD_UNITS -> addFundUnits(context, op, (MutualFund) previous, operation.getData());
+                case MUTUAL_FUNDS + ":" + DELETE -> deleteAsset(context, op, DataVersionService.MUTUAL_FUNDS);
+                case PHYSICAL_ASSETS + ":" + CREATE -> createPhysicalAsset(context, op, operation.getData());
+                case PHYSICAL_ASSETS + ":" + UPDATE ->
+                        updatePhysicalAsset(context, op, (PhysicalAsset) previous, operation.getData());
+                case PHYSICAL_ASSETS + ":" + DELETE -> deleteAsset(context, op, DataVersionService.PHYSICAL_ASSETS);
+                default -> op.fail(400, "Unsupported action for " + op.resource + ": " + action);
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            op.fail(400, e.getMessage());
+        }
+        return op;
+    }
+
+    private void createExpense(Context context, Planned op, Map<String, Object> data) {
+        Expense expense = convert(data, Expense.class, op.resource);
+        expense.setId(new ObjectId().toHexString());
+        expense.setUserId(context.userId);
+        expense.setUpdatedAt(LocalDate.now());
+        categorizer.categorize(expense);
+
+        String accountId = expense.getSavingsAccountId();
+        if (accountId != null && !accountId.isEmpty()) {
+            if (!context.accounts.contains(accountId)) {
+                op.fail(404, "Savings account not found");
+                return;
+            }
+            op.adjust(accountId, new SavingsLedger.Posting(LedgerEntry.EXPENSE, -amount(expense.getAmount()),
+                    expense.getId(), expense.getDate(), expense.getCategory()));
+        }
+        op.created(expense.getId(), expense,
+                new DomainEvent.ExpenseChanged(context.userId, ChangeType.CREATED, null, expense));
+    }
+
+    private void updateExpense(Context context, Planned op, Expense previous, Map<String, Object> data) {
+        Expense details = convert(data, Expense.class, op.resource);
+        details.setUserId(context.userId);
+        categorizer.categorize(details);
+
+        Update update = new Update()
+                .set("category", details.getCategory())
+                .set("amount", details.getAmount())
+                .set("date", details.getDate())
+                .set("description", details.getDescription())
+                .set("savingsAccountId", details.getSavingsAccountId())
+                .set("updatedAt", LocalDate.now());
+        Expense current = new Expense();
+        BeanUtils.copyProperties(previous, current);
+        current.setCategory(details.getCategory());
+        current.setAmount(details.getAmount());
+        current.setDate(details.getDate());
+        current.setDescription(details.getDescription());
+        current.setSavingsAccountId(details.getSavingsAccountId());
+        current.setUpdatedAt(LocalDate.now());
+
+        repost(context, op, previous.getSavingsAccountId(), new SavingsLedger.Posting(LedgerEntry.EXPENSE_REVERSAL,
+                        amount(previous.getAmount()), op.id, LocalDate.now(), "Edited: " + previous.getCategory()),
+                current.getSavingsAccountId(), new SavingsLedger.Posting(LedgerEntry.EXPENSE,
+                        -amount(current.getAmount()), op.id, current.getDate(), current.getCategory()));
+        context.documents.get(op.resource).put(op.id, current);
+        op.updated(current, asLoaded(op.id, context.userId, previous), update,
+                new DomainEvent.ExpenseChanged(context.userId, ChangeType.UPDATED, previous, current));
+    }
+
+    private void deleteExpense(Context context, Planned op, Expense previous) {
+        String accountId = previous.getSavingsAccountId();
+        if (accountId != null && context.accounts.contains(accountId)) {
+            op.adjust(accountId, new SavingsLedger.Posting(LedgerEntry.EXPENSE_REVERSAL, amount(previous.getAmount()),
+                    previous.getId(), LocalDate.now(), "Deleted: " + previous.getCategory()));
+        }
+        context.documents.get(op.resource).remove(op.id);
+        op.deleted(asLoaded(op.id, context.userId, previous),
+                new DomainEvent.ExpenseChanged(context.userId, ChangeType.DELETED, previous, null));
+    }
+
+    private void createIncome(Context context, Planned op, Map<String, Object> data) {
+        Income income = convert(data, Income.class, op.resource);
+        income.setId(new ObjectId().toHexString());
+        income.setUserId(context.userId);
+
+        // As on /api/incomes, a link to an account the user does not own is ignored
+        String accountId = income.getSavingsAccountId();
+        if (accountId != null && context.accounts.contains(accountId)) {
+            op.adjust(accountId, new SavingsLedger.Posting(LedgerEntry.INCOME, amount(income.getAmount()),
+                    income.getId(), income.getDate(), income.getSource()));
+        }
+        op.created(income.getId(), income,
+                new DomainEvent.IncomeChanged(context.userId, ChangeType.CREATED, null, income));
+    }
+
+    private void updateIncome(Context context, Planned op, Income previous, Map<String, Object> data) {
+        Income current = convert(data, Income.class, op.resource);
+        current.setId(op.id);
+        current.setUserId(context.userId);
+
+        Update update = new Update()
+                .set("amount", current.getAmount())
+                .set("date", current.getDate())
+                .set("source", current.getSource())
+                .set("description", current.getDescription())
+                .set("savingsAccountId", current.getSavingsAccountId());
+        repost(context, op, previous.getSavingsAccountId(), incomeReversal(previous),
+                current.getSavingsAccountId(), new SavingsLedger.Posting(LedgerEntry.INCOME,
+                        amount(current.getAmount()), op.id, current.getDate(), current.getSource()));
+        context.documents.get(op.resource).put(op.id, current);
+        op.updated(current, asLoaded(op.id, context.userId, previous), update,
+                new DomainEvent.IncomeChanged(context.userId, ChangeType.UPDATED, previous, current));
+    }
+
+    private void deleteIncome(Context context, Planned op, Income previous) {
+        String accountId = previous.getSavingsAccountId();
+        if (accountId != null && context.accounts.contains(accountId)) {
+            op.adjust(accountId, incomeReversal(previous));
+        }
+        context.documents.get(op.resource).remove(op.id);
+        op.deleted(asLoaded(op.id, context.userId, previous),
+                new DomainEvent.IncomeChanged(context.userId, ChangeType.DELETED, previous, null));
+    }
+
+    private static SavingsLedger.Posting incomeReversal(Income income) {
+        return new SavingsLedger.Posting(LedgerEntry.INCOME_REVERSAL, -amount(income.getAmount()), income.getId(),
+                LocalDate.now(), "Reversed: " + income.getSource());
+    }
+
+    /**
+     * As SavingsLedger.repost, for accounts of the user only: reverse the
+     * previous version's posting and add the current one, or nothing when the
+     * edit leaves the balance as it was.
+     */
+    private static void repost(Context context, Planned op, String previousAccountId, SavingsLedger.Posting reversal,
+                               String accountId, SavingsLedger.Posting posting) {
+        boolean wasLinked = previousAccountId != null && context.accounts.contains(previousAccountId);
+        boolean isLinked = accountId != null && context.accounts.contains(accountId);
+        if (wasLinked && isLinked && previousAccountId.equals(accountId)
+                && reversal.amount() + posting.amount() == 0) {
+            return;
+        }
+        if (wasLinked) {
+            op.adjust(previousAccountId, reversal);
+        }
+        if (isLinked) {
+            op.adjust(accountId, posting);
+        }
+    }
+
+    private void createStock(Context context, Planned op, Map<String, Object> data) {
+        Stock stock = convert(data, Stock.class, op.resource);
+        stock.setId(new ObjectId().toHexString());
+        stock.setUserId(context.userId);
+        stock.setUpdatedAt(LocalDate.now());
+        // Bulk inserts skip the version initialisation save() does
+        stock.setVersion(0L);
+
+        StockTransaction transaction = new StockTransaction();
+        transaction.setStockId(stock.getId());
+        transaction.setUserId(context.userId);
+        transaction.setQuantity(stock.getQuantity());
+        transaction.setPurchasePrice(stock.getPurchasePrice());
+        transaction.setPurchaseDate(stock.getPurchaseDate());
+        op.child = transaction;
+        op.created(stock.getId(), stock, new DomainEvent.AssetChanged(
+                context.userId, DataVersionService.STOCKS, stock.getId(), ChangeType.CREATED));
+    }
+
+    private void updateStock(Context context, Planned op, Stock previous, Map<String, Object> data) {
+        Stock details = convert(data, Stock.class, op.resource);
+        Update update = new Update()
+                .set("stockName", details.getStockName())
+                .set("symbol", details.getSymbol())
+                .set("quantity", details.getQuantity())
+                .set("purchasePrice", details.getPurchasePrice())
+                .set("purchaseDate", details.getPurchaseDate())
+                .set("updatedAt", LocalDate.now())
+                .inc("version", 1);
+        Stock current = new Stock();
+        BeanUtils.copyProperties(previous, current);
+        current.setStockName(details.getStockName());
+        current.setSymbol(details.getSymbol());
+        current.setQuantity(details.getQuantity());
+        current.setPurchasePrice(details.getPurchasePrice());
+        current.setPurchaseDate(details.getPurchaseDate());
+        current.setUpdatedAt(LocalDate.now());
+        current.setVersion(nextVersion(previous.getVersion()));
+
+        context.documents.get(op.resource).put(op.id, current);
+        op.updated(current, byIdAndUser(op.id, context.userId), update,
+                new DomainEvent.AssetChanged(context.userId, DataVersionService.STOCKS, op.id, ChangeType.UPDATED));
+    }
+
+    private void addStockUnits(Context context, Planned op, Stock previous, Map<String, Object> data) {
+        double quantity = number(data, "quantity");
+        double price = number(data, "purchasePrice");
+        LocalDate purchaseDate = date(data, "purchaseDate");
+
+        // Weighted average purchase price, as on /api/stocks/{id}/add-units
+        double oldQuantity = amount(previous.getQuantity());
+        double totalQuantity = oldQuantity + quantity;
+        double averagePrice = (oldQuantity * amount(previous.getPurchasePrice()) + quantity * price) / totalQuantity;
+
+        Stock current = new Stock();
+        BeanUtils.copyProperties(previous, current);
+        current.setQuantity(totalQuantity);
+        current.setPurchasePrice(Math.round(averagePrice * 100.0) / 100.0);
+        current.setUpdatedAt(LocalDate.now());
+        current.setVersion(nextVersion(previous.getVersion()));
+        // Recomputed by the database from the stored values, so an add-units that lands
+        // in between (from /api/stocks) is included rather than overwritten
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("purchasePrice").toValue(weightedAverage("quantity", "purchasePrice", quantity, price))
+                .set("quantity").toValue(ArithmeticOperators.Add.valueOf("quantity").add(quantity))
+                .set("updatedAt").toValue(current.getUpdatedAt())
+                .set("version").toValue(ArithmeticOperators.Add.valueOf("version").add(1));
+
+        StockTransaction transaction = new StockTransaction();
+        transaction.setStockId(op.id);
+        transaction.setUserId(context.userId);
+        transaction.setQuantity(quantity);
+        transaction.setPurchasePrice(price);
+        transaction.setPurchaseDate(purchaseDate);
+        op.child = transaction;
+
+        context.documents.get(op.resource).put(op.id, current);
+        op.updated(current, byIdAndUser(op.id, context.userId), update,
+                new DomainEvent.AssetChanged(context.userId, DataVersionService.STOCKS, op.id, ChangeType.UPDATED));
+    }
+
+    private void createFund(Context context, Planned op, Map<String, Object> data) {
+        MutualFund fund = convert(data, MutualFund.class, op.resource);
+        fund.setId(new ObjectId().toHexString());
+        fund.setUserId(context.userId);
+        fund.setUpdatedAt(LocalDate.now());
+        fund.setVersion(0L);
+
+        MutualFundTransaction transaction = new MutualFundTransaction();
+        transaction.setMutualFundId(fund.getId());
+        transaction.setUserId(context.userId);
+        transaction.setUnits(fund.getUnits());
+        transaction.setNav(fund.getNav());
+        transaction.setPurchaseDate(fund.getPurchaseDate());
+        op.child = transaction;
+        op.created(fund.getId(), fund, new DomainEvent.AssetChanged(
+                context.userId, DataVersionService.MUTUAL_FUNDS, fund.getId(), ChangeType.CREATED));
+    }
+
+    private void updateFund(Context context, Planned op, MutualFund previous, Map<String, Object> data) {
+        MutualFund details = convert(data, MutualFund.class, op.resource);
+        Update update = new Update()
+                .set("fundName", details.getFundName())
+                .set("schemeName", details.getSchemeName())
+                .set("units", details.getUnits())
+                .set("nav", details.getNav())
+                .set("purchaseDate", details.getPurchaseDate())
+                .set("updatedAt", LocalDate.now())
+                .inc("version", 1);
+        MutualFund current = new MutualFund();
+        BeanUtils.copyProperties(previous, current);
+        current.setFundName(details.getFundName());
+        current.setSchemeName(details.getSchemeName());
+        current.setUnits(details.getUnits());
+        current.setNav(details.getNav());
+        current.setPurchaseDate(details.getPurchaseDate());
+        current.setUpdatedAt(LocalDate.now());
+        current.setVersion(nextVersion(previous.getVersion()));
+
+        context.documents.get(op.resource).put(op.id, current);
+        op.updated(current, byIdAndUser(op.id, context.userId), update,
+                new DomainEvent.AssetChanged(context.userId, DataVersionService.MUTUAL_FUNDS, op.id, ChangeType.UPDATED));
+    }
+
+    private void addFundUnits(Context context, Planned op, MutualFund previous, Map<String, Object> data) {
+        double units = number(data, "units");
+        double nav = number(data, "nav");
+        LocalDate purchaseDate = date(data, "purchaseDate");
+
+        // Weighted average NAV, as on /api/mutual-funds/{id}/add-units
+        double oldUnits = amount(previous.getUnits());
+        double totalUnits = oldUnits + units;
+        double averageNav = (oldUnits * amount(previous.getNav()) + units * nav) / totalUnits;
+
+        MutualFund current = new MutualFund();
+        BeanUtils.copyProperties(previous, current);
+        current.setUnits(totalUnits);
+        current.setNav(Math.round(averageNav * 100.0) / 100.0);
+        current.setUpdatedAt(LocalDate.now());
+        current.setVersion(nextVersion(previous.getVersion()));
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("nav").toValue(weightedAverage("units", "nav", units, nav))
+                .set("units").toValue(ArithmeticOperators.Add.valueOf("units").add(units))
+                .set("updatedAt").toValue(current.getUpdatedAt())
+                .set("version").toValue(ArithmeticOperators.Add.valueOf("version").add(1));
+
+        MutualFundTransaction transaction = new MutualFundTransaction();
+        transaction.setMutualFundId(op.id);
+        transaction.setUserId(context.userId);
+        transaction.setUnits(units);
+        transaction.setNav(nav);
+        transaction.setPurchaseDate(purchaseDate);
+        op.child = transaction;
+
+        context.documents.get(op.resource).put(op.id, current);
+        op.updated(current, byIdAndUser(op.id, context.userId), update,
+                new DomainEvent.AssetChanged(context.userId, DataVersionService.MUTUAL_FUNDS, op.id, ChangeType.UPDATED));
+    }
+
+    private void createPhysicalAsset(Context context, Planned op, Map<String, Object> data) {
+        PhysicalAsset asset = convert(data, PhysicalAsset.class, op.resource);
+        asset.setId(new ObjectId().toHexString());
+        asset.setUserId(context.userId);
+        asset.setUpdatedAt(LocalDate.now());
+        op.created(asset.getId(), asset, new DomainEvent.AssetChanged(
+                context.userId, DataVersionService.PHYSICAL_ASSETS, asset.getId(), ChangeType.CREATED));
+    }
+
+    private void updatePhysicalAsset(Context context, Planned op, PhysicalAsset previous, Map<String, Object> data) {
+        PhysicalAsset details = convert(data, PhysicalAsset.class, op.resource);
+        Update update = new Update()
+                .set("assetName", details.getAssetName())
+                .set("assetType", details.getAssetType())
+                .set("purchasePrice", details.getPurchasePrice())
+                .set("currentValue", details.getCurrentValue())
+                .set("purchaseDate", details.getPurchaseDate())
+                .set("description", details.getDescription())
+                .set("updatedAt", LocalDate.now());
+        PhysicalAsset current = new PhysicalAsset();
+        BeanUtils.copyProperties(previous, current);
+        current.setAssetName(details.getAssetName());
+        current.setAssetType(details.getAssetType());
+        current.setPurchasePrice(details.getPurchasePrice());
+        current.setCurrentValue(details.getCurrentValue());
+        current.setPurchaseDate(details.getPurchaseDate());
+        current.setDescription(details.getDescription());
+        current.setUpdatedAt(LocalDate.now());
+
+        context.documents.get(op.resource).put(op.id, current);
+        op.updated(current, byIdAndUser(op.id, context.userId), update,
+                new DomainEvent.AssetChanged(context.userId, DataVersionService.PHYSICAL_ASSETS, op.id, ChangeType.UPDATED));
+    }
+
+    private void deleteAsset(Context context, Planned op, String assetType) {
+        context.documents.get(op.resource).remove(op.id);
+        op.deleted(byIdAndUser(op.id, context.userId),
+                new DomainEvent.AssetChanged(context.userId, assetType, op.id, ChangeType.DELETED));
+    }
+
+    // -------------------- Writing --------------------
+
+    /**
+     * Creates in one ordered bulk insert, then updates and deletes in request
+     * order, each checked for a match: the bulk result only has totals, and
+     * an update or delete that matched nothing must not post or publish.
+     */
+    private void write(String resource, List<Planned> ops) {
+        Class<?> entity = ENTITIES.get(resource);
+        List<Planned> inserts = ops.stream().filter(op -> op.insert != null).toList();
+        if (!inserts.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, entity);
+            inserts.forEach(op -> bulk.insert(op.insert));
+            int written;
+            try {
+                bulk.execute();
+                written = inserts.size();
+            } catch (BulkOperationException e) {
+                // Ordered: everything before the first error was applied, nothing after it
+                written = e.getErrors().isEmpty() ? 0 : e.getErrors().get(0).getIndex();
+                log.error("Batch insert into {} stopped at operation {}: {}", resource, written, e.getMessage());
+            } catch (DataAccessException e) {
+                written = 0;
+                log.error("Batch insert into {} failed: {}", resource, e.getMessage());
+            }
+            for (int i = written; i < inserts.size(); i++) {
+                inserts.get(i).fail(500, "Write failed");
+            }
+        }
+
+        for (Planned op : ops) {
+            if (op.insert != null) {
+                continue;
+            }
+            try {
+                boolean matched = op.update != null
+                        ? mongoTemplate.updateFirst(op.filter, op.update, entity).getMatchedCount() > 0
+                        : mongoTemplate.remove(op.filter, entity).getDeletedCount() > 0;
+                if (!matched) {
+                    // Later operations on the same id expect this one's result, so they fail the same way
+                    op.fail(409, LABELS.get(resource) + " was changed or deleted by another request");
+                }
+            } catch (DataAccessException e) {
+                log.error("Batch write to {} {} failed: {}", resource, op.id, e.getMessage());
+                op.fail(500, "Write failed");
+            }
+        }
+    }
+
+    /**
+     * Transaction history for new holdings and added units, and the children
+     * of deleted stocks, funds and assets, for the operations that were written.
+     */
+    private void afterWrite(String userId, String resource, List<Planned> ops) {
+        List<Object> children = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        for (Planned op : ops) {
+            if (!op.pending()) {
+                continue;
+            }
+            if (op.child != null) {
+                children.add(op.child);
+            }
+            if (op.data == null) {
+                deleted.add(op.id);
+            }
+        }
+        if (!children.isEmpty()) {
+            try {
+                mongoTemplate.insert(children, children.get(0).getClass());
+            } catch (DataAccessException e) {
+                log.error("Could not store {} {} transactions of a batch: {}", children.size(), resource, e.getMessage());
+            }
+        }
+        if (deleted.isEmpty()) {
+            return;
+        }
+        switch (resource) {
+            case STOCKS -> cascadeDeleteService.deleteStockTransactions(deleted);
+            case MUTUAL_FUNDS -> cascadeDeleteService.deleteMutualFundTransactions(deleted);
+            case PHYSICAL_ASSETS -> deleted.forEach(id -> cascadeDeleteService.deleteAssetDocuments(id, userId));
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * One ledger post per account for the batch's changes to it, in operation
+     * order. Returns true when any balance changed.
+     */
+    private boolean applyBalances(String userId, Map<String, List<SavingsLedger.Posting>> postings) {
+        if (postings.isEmpty()) {
+            return false;
+        }
+        postings.forEach((accountId, accountPostings) -> {
+            try {
+                ledger.post(userId, accountId, null, null, accountPostings);
+            } catch (DataAccessException e) {
+                // The expenses and incomes are stored; only the balance is behind
+                log.error("Could not apply batch balance changes to account {}: {}", accountId, e.getMessage());
+            }
+            eventBus.publish(new DomainEvent.AssetChanged(
+                    userId, DataVersionService.SAVINGS_ACCOUNTS, accountId, ChangeType.UPDATED));
+        });
+        return true;
+    }
+
+    // -------------------- Helpers --------------------
+
+    private <T> T convert(Map<String, Object> data, Class<T> type, String resource) {
+        try {
+            return objectMapper.convertValue(data, type);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + LABELS.get(resource).toLowerCase() + " data");
+        }
+    }
+
+    private static double number(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        if (value == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " must be a number");
+        }
+    }
+
+    private static LocalDate date(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        if (value == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return LocalDate.parse(value.toString());
+    }
+
+    /**
+     * round(sum(field * price) / sum(field), 2) with one more purchase, over
+     * the stored values.
+     */
+    private static AggregationExpression weightedAverage(String amountField, String priceField,
+                                                         double amount, double price) {
+        return ArithmeticOperators.Round.roundValueOf(ArithmeticOperators.Divide.valueOf(
+                        ArithmeticOperators.Add.valueOf(ArithmeticOperators.Multiply.valueOf(amountField)
+                                .multiplyBy(priceField)).add(amount * price))
+                .divideBy(ArithmeticOperators.Add.valueOf(amountField).add(amount))).place(2);
+    }
+
+    private static Long nextVersion(Long version) {
+        return version != null ? version + 1 : null;
+    }
+
+    private static double amount(Double value) {
+        return value != null ? value : 0;
+    }
+
+    private static Query byIdAndUser(String id, String userId) {
+        return Query.query(Criteria.where("_id").is(id).and("userId").is(userId));
+    }
+
+    /**
+     * The expense only while it still has the fields its balance reversal
+     * and events were computed from.
+     */
+    private static Query asLoaded(String id, String userId, Expense loaded) {
+        return byIdAndUser(id, userId).addCriteria(Criteria.where("amount").is(loaded.getAmount())
+                .and("date").is(loaded.getDate())
+                .and("category").is(loaded.getCategory())
+                .and("savingsAccountId").is(loaded.getSavingsAccountId()));
+    }
+
+    private static Query asLoaded(String id, String userId, Income loaded) {
+        return byIdAndUser(id, userId).addCriteria(Criteria.where("amount").is(loaded.getAmount())
+                .and("date").is(loaded.getDate())
+                .and("source").is(loaded.getSource())
+                .and("savingsAccountId").is(loaded.getSavingsAccountId()));
+    }
+
+    private static String idOf(Object document) {
+        if (document instanceof Expense e) {
+            return e.getId();
+        } else if (document instanceof Income i) {
+            return i.getId();
+        } else if (document instanceof Stock s) {
+            return s.getId();
+        } else if (document instanceof MutualFund f) {
+            return f.getId();
+        } else if (document instanceof PhysicalAsset a) {
+            return a.getId();
+        }
+        throw new IllegalStateException("Unexpected document " + document.getClass());
+    }
+
+    /**
+     * documents: the user's documents named by the batch, by resource and id,
+     * as the operations planned so far leave them. accounts: ids of the
+     * user's savings accounts that operations link to.
+     */
+    private static final class Context {
+        final String userId;
+        final Map<String, Map<String, Object>> documents = new HashMap<>();
+        final Set<String> accounts = new LinkedHashSet<>();
+
+        Context(String userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class Planned {
+        final int index;
+        final String resource;
+        String id;
+        // The stored document, or null for a delete
+        Object data;
+        DomainEvent event;
+        // What to write: a document to insert, or a filter with an update (null for a delete)
+        Object insert;
+        Query filter;
+        UpdateDefinition update;
+        // A transaction row stored with a holding
+        Object child;
+        // Balance changes by savings account
+        final Map<String, List<SavingsLedger.Posting>> postings = new LinkedHashMap<>();
+        // Set once the operation has failed, or at the end
+        Result result;
+
+        Planned(int index, String resource, String id) {
+            this.index = index;
+            this.resource = resource;
+            this.id = id;
+        }
+
+        boolean pending() {
+            return result == null && (insert != null || filter != null);
+        }
+
+        Planned fail(int status, String message) {
+            result = new Result(index, status, id, null, message);
+            return this;
+        }
+
+        void adjust(String accountId, SavingsLedger.Posting posting) {
+            postings.computeIfAbsent(accountId, a -> new ArrayList<>()).add(posting);
+        }
+
+        void created(String id, Object document, DomainEvent event) {
+            if (result != null) {
+                return;
+            }
+            this.id = id;
+            this.data = document;
+            this.insert = document;
+            this.event = event;
+        }
+
+        void updated(Object document, Query filter, UpdateDefinition update, DomainEvent event) {
+            if (result != null) {
+                return;
+            }
+            this.data = document;
+            this.filter = filter;
+            this.update = update;
+            this.event = event;
+        }
+
+        void deleted(Query filter, DomainEvent event) {
+            this.filter = filter;
+            this.event = event;
+        }
+    }
+}
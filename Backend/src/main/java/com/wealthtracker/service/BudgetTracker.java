@@ -0,0 +1,240 @@
+package com.wealthtracker.service;
+
+import com.wealthtracker.events.AppliedEvents;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.model.Budget;
+import com.wealthtracker.model.BudgetSpend;
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.repository.BudgetRepository;
+import com.wealthtracker.repository.BudgetSpendRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps month-to-date spend per (user, category, month) in budget_spend and
+ * raises a notification when a budget threshold is crossed.
+ *
+ * Every expense write turns into a single atomic $inc on the affected
+ * bucket(s), applied at most once per event (AppliedEvents) so redelivered
+ * events do not count twice; reading a budget's status only reads those
+ * buckets and never rescans the expenses collection. Each threshold is notified at most once a
+ * month: the "alertedPercent" marker is raised with a conditional update, so
+ * concurrent writes cannot send the same alert twice, and lowered again when
+ * spend drops back (an edited or deleted expense).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BudgetTracker {
+
+    public static final String NOTIFICATION_TYPE = "BUDGET_THRESHOLD";
+
+    private static final List<String> EXPENSE_EVENTS = List.of(DomainEvent.ExpenseChanged.class.getSimpleName());
+    private static final int SEED_ATTEMPTS = 3;
+
+    public record BudgetStatus(String budgetId, String category, String month, double monthlyLimit,
+                               double spent, double remaining, double percentUsed) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final BudgetRepository budgetRepository;
+    private final BudgetSpendRepository budgetSpendRepository;
+    private final NotificationDispatcher notificationDispatcher;
+
+    // -------------------- Expense write hooks --------------------
+
+    public void onExpenseCreated(String eventId, Expense expense) {
+        record(eventId, expense.getUserId(), expense.getCategory(), expense.getDate(), amountOf(expense.getAmount()));
+    }
+
+    public void onExpenseDeleted(String eventId, Expense expense) {
+        record(eventId, expense.getUserId(), expense.getCategory(), expense.getDate(), -amountOf(expense.getAmount()));
+    }
+
+    /**
+     * previous holds the expense as it was before the update was applied.
+     */
+    public void onExpenseUpdated(String eventId, Expense previous, Expense updated) {
+        String userId = updated.getUserId();
+        if (Objects.equals(previous.getCategory(), updated.getCategory())
+                && Objects.equals(monthOf(previous.getDate()), monthOf(updated.getDate()))) {
+            double delta = amountOf(updated.getAmount()) - amountOf(previous.getAmount());
+            if (delta != 0) {
+                record(eventId, userId, updated.getCategory(), updated.getDate(), delta);
+            }
+            return;
+        }
+        record(eventId, userId, previous.getCategory(), previous.getDate(), -amountOf(previous.getAmount()));
+        record(eventId, userId, updated.getCategory(), updated.getDate(), amountOf(updated.getAmount()));
+    }
+
+    private void record(String eventId, String userId, String category, LocalDate date, double delta) {
+        if (userId == null || category == null || delta == 0) {
+            return;
+        }
+        String month = monthOf(date);
+        Update update = new Update()
+                .inc("spent", delta)
+                .set("updatedAt", LocalDateTime.now())
+                .setOnInsert("userId", userId)
+                .setOnInsert("category", category)
+                .setOnInsert("month", month);
+        BudgetSpend spend = AppliedEvents.upsertOnce(mongoTemplate, spendId(userId, category, month),
+                List.of(eventId), update, BudgetSpend.class);
+        if (spend != null) {
+            budgetRepository.findByUserIdAndCategory(userId, category)
+                    .ifPresent(budget -> checkThresholds(budget, spend));
+        }
+    }
+
+    // -------------------- Thresholds --------------------
+
+    private void checkThresholds(Budget budget, BudgetSpend spend) {
+        if (budget.getMonthlyLimit() == null || budget.getMonthlyLimit() <= 0) {
+            return;
+        }
+        double percentUsed = spend.getSpent() * 100 / budget.getMonthlyLimit();
+        int crossed = 0;
+        for (Integer threshold : budget.getAlertThresholds()) {
+            if (threshold != null && percentUsed >= threshold && threshold > crossed) {
+                crossed = threshold;
+            }
+        }
+
+        if (crossed > spend.getAlertedPercent()) {
+            long modified = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(spend.getId()).and("alertedPercent").lt(crossed)),
+                    new Update().set("alertedPercent", crossed),
+                    BudgetSpend.class).getModifiedCount();
+            if (modified == 1) {
+                notifyThreshold(budget, spend, crossed);
+            }
+        } else if (crossed < spend.getAlertedPercent()) {
+            // Spend went back below a threshold: allow it to alert again
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(spend.getId()).and("alertedPercent").gt(crossed)),
+                    new Update().set("alertedPercent", crossed),
+                    BudgetSpend.class);
+        }
+    }
+
+    private void notifyThreshold(Budget budget, BudgetSpend spend, int threshold) {
+        String message = threshold >= 100
+                ? String.format("You have exceeded your %s budget for %s: ₹%.0f of ₹%.0f spent",
+                        budget.getCategory(), spend.getMonth(), spend.getSpent(), budget.getMonthlyLimit())
+                : String.format("You have used %d%% of your %s budget for %s (₹%.0f of ₹%.0f)",
+                        threshold, budget.getCategory(), spend.getMonth(), spend.getSpent(), budget.getMonthlyLimit());
+        notificationDispatcher.notify(budget.getUserId(), NOTIFICATION_TYPE, message, budget.getId());
+        log.info("Budget threshold {}% reached for user {} in {}", threshold, budget.getUserId(), budget.getCategory());
+    }
+
+    // -------------------- Budgets --------------------
+
+    /**
+     * Called after a budget is created. Seeds the current month's bucket from
+     * the expenses when it does not exist yet (spend written before tracking
+     * was deployed); an existing bucket is kept, since its $inc updates are
+     * already current. Then evaluates the thresholds.
+     *
+     * The user's expense events still in the outbox are already in the sum,
+     * so the seeded bucket records them as applied and their delivery does
+     * not add them again. The sum is taken again while events were published
+     * during it, as those may or may not be in it.
+     */
+    public void onBudgetCreated(Budget budget) {
+        YearMonth month = YearMonth.now();
+        List<String> pending = AppliedEvents.pending(mongoTemplate, budget.getUserId(), EXPENSE_EVENTS);
+        double spent = 0;
+        for (int attempt = 1; attempt <= SEED_ATTEMPTS; attempt++) {
+            spent = spent(budget, month);
+            List<String> after = AppliedEvents.pending(mongoTemplate, budget.getUserId(), EXPENSE_EVENTS);
+            boolean settled = pending.containsAll(after);
+            pending = after;
+            if (settled) {
+                break;
+            }
+        }
+
+        BudgetSpend spend = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(spendId(budget.getUserId(), budget.getCategory(), month.toString()))),
+                new Update()
+                        .setOnInsert("spent", spent)
+                        .setOnInsert(AppliedEvents.FIELD, pending)
+                        .setOnInsert("updatedAt", LocalDateTime.now())
+                        .setOnInsert("userId", budget.getUserId())
+                        .setOnInsert("category", budget.getCategory())
+                        .setOnInsert("month", month.toString()),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                BudgetSpend.class);
+        if (spend != null) {
+            checkThresholds(budget, spend);
+        }
+    }
+
+    private double spent(Budget budget, YearMonth month) {
+        TypedAggregation<Expense> aggregation = Aggregation.newAggregation(Expense.class,
+                Aggregation.match(Criteria.where("userId").is(budget.getUserId())
+                        .and("category").is(budget.getCategory())
+                        .and("date").gte(month.atDay(1)).lte(month.atEndOfMonth())),
+                Aggregation.group().sum("amount").as("total"));
+        Document result = mongoTemplate.aggregate(aggregation, Document.class).getUniqueMappedResult();
+        return result != null ? ((Number) result.get("total")).doubleValue() : 0;
+    }
+
+    /**
+     * Called after a budget's limit or thresholds changed: re-evaluates the
+     * thresholds against the current month's bucket without touching spend.
+     */
+    public void onBudgetUpdated(Budget budget) {
+        budgetSpendRepository.findById(spendId(budget.getUserId(), budget.getCategory(), YearMonth.now().toString()))
+                .ifPresent(spend -> checkThresholds(budget, spend));
+    }
+
+    public List<BudgetStatus> status(String userId, YearMonth month) {
+        List<Budget> budgets = budgetRepository.findByUserId(userId);
+        if (budgets.isEmpty()) {
+            return List.of();
+        }
+        Map<String, BudgetSpend> spendByCategory = budgetSpendRepository.findByUserIdAndMonth(userId, month.toString())
+                .stream()
+                .collect(Collectors.toMap(BudgetSpend::getCategory, Function.identity(), (a, b) -> a));
+        return budgets.stream()
+                .map(budget -> {
+                    BudgetSpend spend = spendByCategory.get(budget.getCategory());
+                    double spent = spend != null ? spend.getSpent() : 0;
+                    double limit = budget.getMonthlyLimit() != null ? budget.getMonthlyLimit() : 0;
+                    return new BudgetStatus(budget.getId(), budget.getCategory(), month.toString(), limit, spent,
+                            limit - spent, limit > 0 ? spent * 100 / limit : 0);
+                })
+                .toList();
+    }
+
+    private static String spendId(String userId, String category, String month) {
+        return userId + ":" + category + ":" + month;
+    }
+
+    private static String monthOf(LocalDate date) {
+        return YearMonth.from(date != null ? date : LocalDate.now()).toString();
+    }
+
+    private static double amountOf(Double amount) {
+        return amount != null ? amount : 0;
+    }
+}
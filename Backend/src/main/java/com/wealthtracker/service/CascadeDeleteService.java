@@ -0,0 +1,140 @@
+package com.wealthtracker.service;
+
+import com.wealthtracker.model.AssetDocument;
+import com.wealthtracker.model.ExpenseBookExpense;
+import com.wealthtracker.model.MutualFundTransaction;
+import com.wealthtracker.model.StockTransaction;
+import com.wealthtracker.model.TripExpense;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Removes the children of a deleted parent (trip expenses, expense book
+ * entries, stock and fund transactions, asset documents with their GridFS
+ * files).
+ *
+ * Children go with one deleteMany by parent id instead of being loaded and
+ * deleted one by one. Callers delete the parent first so the data disappears
+ * for the user at once; when a parent has more than cascade.async-threshold
+ * children the cascade runs on the cascade executor and the request returns
+ * straight away.
+ */
+@Service
+@Slf4j
+public class CascadeDeleteService {
+
+    private final MongoTemplate mongoTemplate;
+    private final GridFsOperations gridFsOperations;
+    private final ThreadPoolTaskExecutor executor;
+    private final int asyncThreshold;
+
+    public CascadeDeleteService(MongoTemplate mongoTemplate,
+                                GridFsOperations gridFsOperations,
+                                @Qualifier("cascadeDeleteExecutor") ThreadPoolTaskExecutor executor,
+                                @Value("${cascade.async-threshold:500}") int asyncThreshold) {
+        this.mongoTemplate = mongoTemplate;
+        this.gridFsOperations = gridFsOperations;
+        this.executor = executor;
+        this.asyncThreshold = asyncThreshold;
+    }
+
+    public void deleteTripExpenses(String tripId) {
+        cascade("trip " + tripId, Query.query(Criteria.where("tripId").is(tripId)), TripExpense.class);
+    }
+
+    public void deleteExpenseBookExpenses(String expenseBookId) {
+        cascade("expense book " + expenseBookId,
+                Query.query(Criteria.where("expenseBookId").is(expenseBookId)), ExpenseBookExpense.class);
+    }
+
+    public void deleteStockTransactions(String stockId) {
+        cascade("stock " + stockId, Query.query(Criteria.where("stockId").is(stockId)), StockTransaction.class);
+    }
+
+    public void deleteMutualFundTransactions(String mutualFundId) {
+        cascade("mutual fund " + mutualFundId,
+                Query.query(Criteria.where("mutualFundId").is(mutualFundId)), MutualFundTransaction.class);
+    }
+
+    /**
+     * Transactions of several deleted stocks in one deleteMany (/api/batch).
+     */
+    public void deleteStockTransactions(Collection<String> stockIds) {
+        cascade(stockIds.size() + " stocks", Query.query(Criteria.where("stockId").in(stockIds)), StockTransaction.class);
+    }
+
+    public void deleteMutualFundTransactions(Collection<String> mutualFundIds) {
+        cascade(mutualFundIds.size() + " mutual funds",
+                Query.query(Criteria.where("mutualFundId").in(mutualFundIds)), MutualFundTransaction.class);
+    }
+
+    /**
+     * Asset documents and the GridFS files they point to. Documents are small
+     * in number but their files are not, so this always runs in the background.
+     */
+    public void deleteAssetDocuments(String physicalAssetId, String userId) {
+        submit("physical asset " + physicalAssetId, () -> {
+            Query byAsset = Query.query(Criteria.where("physicalAssetId").is(physicalAssetId).and("userId").is(userId));
+            byAsset.fields().include("gridFsFileId");
+            List<ObjectId> fileIds = mongoTemplate.find(byAsset, AssetDocument.class).stream()
+                    .map(AssetDocument::getGridFsFileId)
+                    .filter(ObjectId::isValid)
+                    .map(ObjectId::new)
+                    .toList();
+            if (!fileIds.isEmpty()) {
+                gridFsOperations.delete(Query.query(Criteria.where("_id").in(fileIds)));
+            }
+            // Files first: a document row left behind by a failure can be retried, an orphaned blob cannot be found
+            long removed = mongoTemplate.remove(
+                    Query.query(Criteria.where("physicalAssetId").is(physicalAssetId).and("userId").is(userId)),
+                    AssetDocument.class).getDeletedCount();
+            log.info("Deleted {} documents ({} files) of physical asset {}", removed, fileIds.size(), physicalAssetId);
+        });
+    }
+
+    // -------------------- Helpers --------------------
+
+    private void cascade(String parent, Query byParent, Class<?> childType) {
+        // Count at most threshold + 1 rows: enough to decide, cheap for big parents
+        long children = mongoTemplate.count(Query.of(byParent).limit(asyncThreshold + 1), childType);
+        if (children == 0) {
+            return;
+        }
+        Runnable delete = () -> {
+            long removed = mongoTemplate.remove(byParent, childType).getDeletedCount();
+            log.debug("Deleted {} {} rows of {}", removed, childType.getSimpleName(), parent);
+        };
+        if (children > asyncThreshold) {
+            submit(parent, delete);
+        } else {
+            delete.run();
+        }
+    }
+
+    private void submit(String parent, Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Cascade delete of {} failed", parent, e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("Cascade queue full, deleting children of {} inline", parent);
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.wealthtracker.service;
+
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.FixedDeposit;
+import com.wealthtracker.model.Income;
+import com.wealthtracker.model.MonthlyRollup;
+import com.wealthtracker.model.MutualFund;
+import com.wealthtracker.model.PhysicalAsset;
+import com.wealthtracker.model.SavingsAccount;
+import com.wealthtracker.model.Stock;
+import com.wealthtracker.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Everything the dashboard shows in one payload: per-class totals, their
+ * share of the total, this month's income and expenses, and the latest
+ * expenses and incomes.
+ *
+ * Each collection is summed by the database ($group) rather than loaded, and
+ * the queries run in parallel on the dashboard executor. The result is cached
+ * per user until one of their writes invalidates it: the write path does
+ * so when it bumps the user's data versions, before the response returns,
+ * and CacheInvalidationEventSubscriber again once the events are delivered.
+ * dashboard.cache-ttl-seconds bounds how long an entry can outlive a missed
+ * invalidation.
+ */
+@Service
+public class DashboardService {
+
+    public record Dashboard(Map<String, Double> totals,
+                            double total,
+                            Map<String, Double> allocation,
+                            Month month,
+                            List<Activity> recentActivity,
+                            LocalDateTime generatedAt) {}
+
+    public record Month(String month, double income, double expenses) {}
+
+    /**
+     * A recent expense or income. label is the expense category or the income source.
+     */
+    public record Activity(String type, String id, String label, double amount, LocalDate date) {}
+
+    private record Entry(Dashboard dashboard, long expiresAt) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final MonthlyRollupService rollupService;
+    private final ThreadPoolTaskExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final SingleFlight<Dashboard> singleFlight;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    // Bumped on every invalidation, so a load that raced a write is not cached
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final int recentLimit;
+
+    public DashboardService(MongoTemplate mongoTemplate,
+                            MonthlyRollupService rollupService,
+                            @Qualifier("dashboardExecutor") ThreadPoolTaskExecutor executor,
+                            MeterRegistry meterRegistry,
+                            @Value("${dashboard.cache-ttl-seconds:300}") long ttlSeconds,
+                            @Value("${dashboard.cache-max-entries:10000}") int maxEntries,
+                            @Value("${dashboard.recent-activity:10}") int recentLimit) {
+        this.mongoTemplate = mongoTemplate;
+        this.rollupService = rollupService;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.singleFlight = new SingleFlight<>(meterRegistry, "dashboard.singleflight");
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.recentLimit = recentLimit;
+    }
+
+    public Dashboard get(String userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(userId);
+        if (entry != null && entry.expiresAt() > now) {
+            meterRegistry.counter("dashboard.cache", "result", "hit").increment();
+            return entry.dashboard();
+        }
+
+        meterRegistry.counter("dashboard.cache", "result", "miss").increment();
+        return singleFlight.execute(SingleFlight.Key.of(userId, "dashboard"), () -> {
+            long generation = generations.getOrDefault(userId, 0L);
+            Dashboard dashboard = load(userId);
+            if (cache.size() >= maxEntries) {
+                cache.values().removeIf(e -> e.expiresAt() <= now);
+            }
+            if (cache.size() < maxEntries && generations.getOrDefault(userId, 0L) == generation) {
+                cache.put(userId, new Entry(dashboard, System.currentTimeMillis() + ttlMillis));
+            }
+            return dashboard;
+        });
+    }
+
+    public void invalidateUser(String userId) {
+        generations.merge(userId, 1L, Long::sum);
+        cache.remove(userId);
+    }
+
+    // -------------------- Loading --------------------
+
+    private Dashboard load(String userId) {
+        YearMonth currentMonth = YearMonth.now();
+
+        CompletableFuture<Double> savings = async(() -> sum(SavingsAccount.class, userId,
+                Aggregation.group().sum("balance")));
+        CompletableFuture<Double> mutualFunds = async(() -> sum(MutualFund.class, userId,
+                Aggregation.group().sum(ArithmeticOperators.Multiply.valueOf("units").multiplyBy("nav"))));
+        // Holdings carry no market price; stocks count at cost, as in the stock details and the AI portfolio analysis
+        CompletableFuture<Double> stocks = async(() -> sum(Stock.class, userId,
+                Aggregation.group().sum(ArithmeticOperators.Multiply.valueOf("quantity").multiplyBy("purchasePrice"))));
+        CompletableFuture<Double> physicalAssets = async(() -> sum(PhysicalAsset.class, userId,
+                Aggregation.group().sum("currentValue")));
+        CompletableFuture<Double> fixedDeposits = async(() -> depositValue(userId, currentMonth));
+        CompletableFuture<List<MonthlyRollup>> month = async(() ->
+                rollupService.range(userId, currentMonth, currentMonth));
+        CompletableFuture<List<Activity>> recentExpenses = async(() -> recentExpenses(userId));
+        CompletableFuture<List<Activity>> recentIncomes = async(() -> recentIncomes(userId));
+
+        // Same order as the dashboard cards
+        Map<String, Double> totals = new LinkedHashMap<>();
+        totals.put("savingsAccounts", join(savings));
+        totals.put("mutualFunds", join(mutualFunds));
+        totals.put("fixedDeposits", join(fixedDeposits));
+        totals.put("stocks", join(stocks));
+        totals.put("physicalAssets", join(physicalAssets));
+        double total = totals.values().stream().mapToDouble(Double::doubleValue).sum();
+
+        Map<String, Double> allocation = new LinkedHashMap<>();
+        totals.forEach((assetClass, value) ->
+                allocation.put(assetClass, total > 0 ? Math.round(value / total * 1000) / 10.0 : 0));
+
+        List<MonthlyRollup> rollups = join(month);
+        Month thisMonth = rollups.isEmpty()
+                ? new Month(currentMonth.toString(), 0, 0)
+                : new Month(currentMonth.toString(), rollups.get(0).getIncomeTotal(), rollups.get(0).getExpenseTotal());
+
+        List<Activity> recent = new ArrayList<>(join(recentExpenses));
+        recent.addAll(join(recentIncomes));
+        recent.sort(Comparator.comparing(Activity::date, Comparator.nullsLast(Comparator.reverseOrder())));
+
+        return new Dashboard(totals, total, allocation, thisMonth,
+                List.copyOf(recent.subList(0, Math.min(recentLimit, recent.size()))), LocalDateTime.now());
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, executor);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private double sum(Class<?> entity, String userId, GroupOperation.GroupOperationBuilder total) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("userId").is(userId)),
+                total.as("total"));
+        Document result = mongoTemplate.aggregate(aggregation, entity, Document.class).getUniqueMappedResult();
+        return result != null && result.get("total") instanceof Number number ? number.doubleValue() : 0;
+    }
+
+    /**
+     * FDs count at their principal; RDs at the installments paid so far, one
+     * per month from the start month up to maturity (as the dashboard cards
+     * always showed them).
+     */
+    private double depositValue(String userId, YearMonth currentMonth) {
+        Query query = Query.query(Criteria.where("userId").is(userId));
+        query.fields().include("amount", "depositType", "startDate", "createdAt", "maturityDate");
+        double total = 0;
+        for (FixedDeposit deposit : mongoTemplate.find(query, FixedDeposit.class)) {
+            double amount = deposit.getAmount() != null ? deposit.getAmount() : 0;
+            if (!"RD".equals(deposit.getDepositType())) {
+                total += amount;
+                continue;
+            }
+            LocalDate startDate = deposit.getStartDate() != null ? deposit.getStartDate()
+                    : deposit.getCreatedAt() != null ? deposit.getCreatedAt() : LocalDate.now();
+            YearMonth start = YearMonth.from(startDate);
+            long monthsElapsed = Math.max(1, ChronoUnit.MONTHS.between(start, currentMonth) + 1);
+            long totalMonths = deposit.getMaturityDate() != null
+                    ? Math.max(1, ChronoUnit.MONTHS.between(start, YearMonth.from(deposit.getMaturityDate())))
+                    : monthsElapsed;
+            total += amount * Math.min(monthsElapsed, totalMonths);
+        }
+        return total;
+    }
+
+    private List<Activity> recentExpenses(String userId) {
+        Query query = Query.query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "date"))
+                .limit(recentLimit);
+        query.fields().include("category", "amount", "date");
+        return mongoTemplate.find(query, Expense.class).stream()
+                .map(e -> new Activity("expense", e.getId(), e.getCategory(),
+                        e.getAmount() != null ? e.getAmount() : 0, e.getDate()))
+                .toList();
+    }
+
+    private List<Activity> recentIncomes(String userId) {
+        Query query = Query.query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "date"))
+                .limit(recentLimit);
+        query.fields().include("source", "amount", "date");
+        return mongoTemplate.find(query, Income.class).stream()
+                .map(i -> new Activity("income", i.getId(), i.getSource(),
+                        i.getAmount() != null ? i.getAmount() : 0, i.getDate()))
+                .toList();
+    }
+}
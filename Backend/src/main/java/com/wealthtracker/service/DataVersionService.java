@@ -0,0 +1,88 @@
+package com.wealthtracker.service;
+
+import com.wealthtracker.model.DataVersion;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+/**
+ * Per-user, per-collection version counters behind the ETags of the list
+ * endpoints (see DataVersionInterceptor).
+ *
+ * Controllers bump the collections a request wrote after the write and before
+ * returning. A list read that overlaps a write therefore carries the version
+ * from before the bump and is re-sent on the next request, never cached
+ * under the new version. One $inc per user covers all the collections a
+ * request touched. A bump also drops the user's cached dashboard, so the
+ * client's refetch after its own write sees it.
+ */
+@Service
+public class DataVersionService {
+
+    public static final String STOCKS = "stocks";
+    public static final String MUTUAL_FUNDS = "mutual_funds";
+    public static final String FIXED_DEPOSITS = "fixed_deposits";
+    public static final String SAVINGS_ACCOUNTS = "savings_accounts";
+    public static final String EXPENSES = "expenses";
+    public static final String INCOMES = "incomes";
+    public static final String TRIPS = "trips";
+    public static final String EXPENSE_BOOKS = "expense_books";
+    public static final String PHYSICAL_ASSETS = "physical_assets";
+
+    private final MongoTemplate mongoTemplate;
+    private final DashboardService dashboardService;
+
+    public DataVersionService(MongoTemplate mongoTemplate, DashboardService dashboardService) {
+        this.mongoTemplate = mongoTemplate;
+        this.dashboardService = dashboardService;
+    }
+
+    public void bump(String userId, String... collections) {
+        mongoTemplate.upsert(byUser(userId), increments(collections), DataVersion.class);
+        dashboardService.invalidateUser(userId);
+    }
+
+    /**
+     * Bump the same collections for several users (members of a shared book).
+     */
+    public void bump(Collection<String> userIds, String... collections) {
+        Collection<String> distinct = new LinkedHashSet<>(userIds);
+        distinct.remove(null);
+        if (distinct.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DataVersion.class);
+        distinct.forEach(userId -> bulk.upsert(byUser(userId), increments(collections)));
+        bulk.execute();
+        distinct.forEach(dashboardService::invalidateUser);
+    }
+
+    public long version(String userId, String collection) {
+        Query query = byUser(userId);
+        query.fields().include("versions." + collection);
+        DataVersion version = mongoTemplate.findOne(query, DataVersion.class);
+        if (version == null || version.getVersions() == null) {
+            return 0;
+        }
+        return version.getVersions().getOrDefault(collection, 0L);
+    }
+
+    private static Query byUser(String userId) {
+        return Query.query(Criteria.where("_id").is(userId));
+    }
+
+    private static Update increments(String... collections) {
+        Update update = new Update().set("updatedAt", LocalDateTime.now());
+        for (String collection : collections) {
+            update.inc("versions." + collection, 1);
+        }
+        return update;
+    }
+}
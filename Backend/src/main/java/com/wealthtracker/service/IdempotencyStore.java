@@ -0,0 +1,110 @@
+package com.wealthtracker.service;
+
+import com.wealthtracker.model.IdempotencyRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Idempotency keys and the responses stored under them (see
+ * IdempotencyFilter).
+ *
+ * A request claims its key by inserting an IN_PROGRESS record; the unique id
+ * makes exactly one of several concurrent requests win, on any node. The
+ * winner stores its response, or releases the claim if it failed so the
+ * client can try again. A claim whose owner died is taken over once its
+ * lock expires. Completed records are also kept in memory for
+ * idempotency.cache-seconds, so the usual retry a few seconds later does not
+ * reach Mongo. Records expire after idempotency.ttl-hours.
+ */
+@Service
+public class IdempotencyStore {
+
+    private record Entry(IdempotencyRecord record, long expiresAt) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final long ttlHours;
+    private final long lockSeconds;
+    private final long cacheMillis;
+    private final int cacheMaxEntries;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(MongoTemplate mongoTemplate,
+                            @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                            @Value("${idempotency.lock-seconds:60}") long lockSeconds,
+                            @Value("${idempotency.cache-seconds:300}") long cacheSeconds,
+                            @Value("${idempotency.cache-max-entries:10000}") int cacheMaxEntries) {
+        this.mongoTemplate = mongoTemplate;
+        this.ttlHours = ttlHours;
+        this.lockSeconds = lockSeconds;
+        this.cacheMillis = cacheSeconds * 1000;
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    public IdempotencyRecord find(String id) {
+        Entry entry = cache.get(id);
+        if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+            return entry.record();
+        }
+        return mongoTemplate.findById(id, IdempotencyRecord.class);
+    }
+
+    /**
+     * True if this request now owns the key and should run.
+     */
+    public boolean claim(String id, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setId(id);
+        record.setFingerprint(fingerprint);
+        record.setStatus(IdempotencyRecord.IN_PROGRESS);
+        record.setLockedUntil(now.plusSeconds(lockSeconds));
+        record.setExpireAt(now.plusHours(ttlHours));
+        try {
+            mongoTemplate.insert(record);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Taken over only if the previous owner's lock ran out
+            return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)
+                            .and("status").is(IdempotencyRecord.IN_PROGRESS)
+                            .and("lockedUntil").lt(now)),
+                    new Update().set("fingerprint", fingerprint)
+                            .set("lockedUntil", now.plusSeconds(lockSeconds))
+                            .set("expireAt", now.plusHours(ttlHours)),
+                    IdempotencyRecord.class).getModifiedCount() == 1;
+        }
+    }
+
+    public void complete(String id, String fingerprint, int status, String contentType, byte[] body) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setId(id);
+        record.setFingerprint(fingerprint);
+        record.setStatus(IdempotencyRecord.COMPLETED);
+        record.setResponseStatus(status);
+        record.setContentType(contentType);
+        record.setBody(body);
+        record.setExpireAt(LocalDateTime.now().plusHours(ttlHours));
+        mongoTemplate.save(record);
+
+        long now = System.currentTimeMillis();
+        if (cache.size() >= cacheMaxEntries) {
+            cache.values().removeIf(e -> e.expiresAt() <= now);
+        }
+        if (cache.size() < cacheMaxEntries) {
+            cache.put(id, new Entry(record, now + cacheMillis));
+        }
+    }
+
+    public void release(String id) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)
+                .and("status").is(IdempotencyRecord.IN_PROGRESS)), IdempotencyRecord.class);
+    }
+}
@@ -0,0 +1,402 @@
+package com.wealthtracker.service;
+
+import com.wealthtracker.events.AppliedEvents;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.Income;
+import com.wealthtracker.model.MonthlyRollup;
+import com.wealthtracker.repository.MonthlyRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Maintains monthly_rollups: one document per (user, yyyy-MM) with expense and
+ * income totals, expenses by category and both by savings account.
+ *
+ * Expense and income changes (including RD installments) arrive as domain
+ * events and translate into one upserting $inc per affected month, so readers
+ * get monthly figures without touching the raw collections. Each month
+ * applies an event at most once (AppliedEvents), so redelivered events and
+ * retried batches do not count twice. rebuild() recomputes a user's rollups
+ * from scratch for backfills, marking the events still in the outbox as
+ * applied; an empty collection is backfilled at startup on the rollup
+ * executor.
+ *
+ * Category and account names are used as map keys; '.' and '$' are not
+ * allowed in Mongo field names and are stored as their full-width forms.
+ */
+@Service
+@Slf4j
+public class MonthlyRollupService {
+
+    public static final String UNLINKED = "unlinked";
+    public static final String UNCATEGORIZED = "Uncategorized";
+
+    private static final Set<String> COUNTS = Set.of("expenseCount", "incomeCount");
+    private static final List<String> EVENT_TYPES = List.of(
+            DomainEvent.ExpenseChanged.class.getSimpleName(), DomainEvent.IncomeChanged.class.getSimpleName());
+    private static final int REBUILD_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+    private final MonthlyRollupRepository rollupRepository;
+    private final ThreadPoolTaskExecutor executor;
+    private final boolean backfillOnStartup;
+
+    public MonthlyRollupService(MongoTemplate mongoTemplate,
+                                MonthlyRollupRepository rollupRepository,
+                                @Qualifier("rollupExecutor") ThreadPoolTaskExecutor executor,
+                                @Value("${rollups.backfill-on-startup:true}") boolean backfillOnStartup) {
+        this.mongoTemplate = mongoTemplate;
+        this.rollupRepository = rollupRepository;
+        this.executor = executor;
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    // -------------------- Writes --------------------
+
+    /**
+     * Collects expense and income changes and applies them with one $inc per
+     * (user, month) on apply(). previous is null for a create, current is null
+     * for a delete; eventId identifies the change across redeliveries.
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    public final class Batch {
+        // userId -> month -> eventId -> field -> increment
+        private final Map<String, Map<String, Map<String, Map<String, Double>>>> deltas = new HashMap<>();
+
+        public Batch expense(String eventId, Expense previous, Expense current) {
+            if (previous != null) {
+                addExpense(eventId, previous, -1);
+            }
+            if (current != null) {
+                addExpense(eventId, current, 1);
+            }
+            return this;
+        }
+
+        public Batch income(String eventId, Income previous, Income current) {
+            if (previous != null) {
+                addIncome(eventId, previous, -1);
+            }
+            if (current != null) {
+                addIncome(eventId, current, 1);
+            }
+            return this;
+        }
+
+        /**
+         * A month the batch has already been applied to (an earlier attempt
+         * failed on a later month) is skipped, so the batch can be retried.
+         */
+        public void apply() {
+            deltas.forEach((userId, months) -> months.forEach((month, events) -> applyMonth(userId, month, events)));
+            deltas.clear();
+        }
+
+        private void addExpense(String eventId, Expense e, int sign) {
+            double amount = sign * amountOf(e.getAmount());
+            Map<String, Double> d = fields(eventId, e.getUserId(), e.getDate());
+            d.merge("expenseTotal", amount, Double::sum);
+            d.merge("expenseCount", (double) sign, Double::sum);
+            d.merge("expensesByCategory." + key(e.getCategory(), UNCATEGORIZED), amount, Double::sum);
+            d.merge("expensesByAccount." + key(e.getSavingsAccountId(), UNLINKED), amount, Double::sum);
+        }
+
+        private void addIncome(String eventId, Income i, int sign) {
+            double amount = sign * amountOf(i.getAmount());
+            Map<String, Double> d = fields(eventId, i.getUserId(), i.getDate());
+            d.merge("incomeTotal", amount, Double::sum);
+            d.merge("incomeCount", (double) sign, Double::sum);
+            d.merge("incomesByAccount." + key(i.getSavingsAccountId(), UNLINKED), amount, Double::sum);
+        }
+
+        private Map<String, Double> fields(String eventId, String userId, LocalDate date) {
+            return deltas.computeIfAbsent(userId, u -> new TreeMap<>())
+                    .computeIfAbsent(monthOf(date), m -> new LinkedHashMap<>())
+                    .computeIfAbsent(eventId, id -> new HashMap<>());
+        }
+    }
+
+    /**
+     * One $inc for all of the month's events; when the month has seen some of
+     * them already (a redelivery), one $inc per event so the others still land.
+     */
+    private void applyMonth(String userId, String month, Map<String, Map<String, Double>> events) {
+        if (userId == null) {
+            return;
+        }
+        Map<String, Double> combined = new HashMap<>();
+        events.values().forEach(fields -> fields.forEach((field, delta) -> combined.merge(field, delta, Double::sum)));
+        if (applyOnce(userId, month, List.copyOf(events.keySet()), combined) || events.size() == 1) {
+            return;
+        }
+        events.forEach((eventId, fields) -> applyOnce(userId, month, List.of(eventId), fields));
+    }
+
+    /**
+     * False when the month has already seen one of the events.
+     */
+    private boolean applyOnce(String userId, String month, List<String> eventIds, Map<String, Double> fields) {
+        Update update = new Update();
+        boolean changed = false;
+        for (Map.Entry<String, Double> field : fields.entrySet()) {
+            if (field.getValue() != 0) {
+                if (COUNTS.contains(field.getKey())) {
+                    update.inc(field.getKey(), field.getValue().longValue());
+                } else {
+                    update.inc(field.getKey(), field.getValue());
+                }
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return true;
+        }
+        update.set("updatedAt", LocalDateTime.now())
+                .setOnInsert("userId", userId)
+                .setOnInsert("month", month);
+        return AppliedEvents.upsertOnce(mongoTemplate, rollupId(userId, month), eventIds, update,
+                MonthlyRollup.class) != null;
+    }
+
+    // -------------------- Reads --------------------
+
+    public List<MonthlyRollup> all(String userId) {
+        return decode(rollupRepository.findByUserIdOrderByMonthAsc(userId));
+    }
+
+    /**
+     * Rollups from one month to another, both inclusive.
+     */
+    public List<MonthlyRollup> range(String userId, YearMonth from, YearMonth to) {
+        return decode(rollupRepository.findByUserIdAndMonthBetweenOrderByMonthAsc(userId,
+                Range.closed(from.toString(), to.toString())));
+    }
+
+    private static List<MonthlyRollup> decode(List<MonthlyRollup> rollups) {
+        for (MonthlyRollup rollup : rollups) {
+            rollup.setExpensesByCategory(decodeKeys(rollup.getExpensesByCategory()));
+            rollup.setExpensesByAccount(decodeKeys(rollup.getExpensesByAccount()));
+            rollup.setIncomesByAccount(decodeKeys(rollup.getIncomesByAccount()));
+        }
+        return rollups;
+    }
+
+    // -------------------- Rebuild --------------------
+
+    /**
+     * Recompute a user's rollups from their expenses and incomes. Each month
+     * is written with one upserting $set, so the documents the write path
+     * $incs are never missing.
+     *
+     * Events are published after their change is stored, so the user's
+     * expense and income events still in the outbox when a pass starts are
+     * already in the records it reads; every month written records them as
+     * applied, so their delivery does not count them again. Months with no
+     * records left are removed, or zeroed while such events may still land
+     * on them. A change made while a pass runs may or may not be in what it
+     * read, so a pass that finds an event it did not know about (in the
+     * outbox or applied to a month) or a month that was not there is
+     * repeated; after REBUILD_ATTEMPTS passes the last one stands and a
+     * warning is logged.
+     */
+    public int rebuild(String userId) {
+        for (int attempt = 1; ; attempt++) {
+            Set<String> monthsBefore = new HashSet<>();
+            Set<String> known = new HashSet<>();
+            applied(userId, monthsBefore, known);
+            List<String> pending = pendingEvents(userId);
+            known.addAll(pending);
+
+            Map<String, MonthlyRollup> rollups = compute(userId);
+            Set<String> stale = new HashSet<>(monthsBefore);
+            stale.removeAll(rollups.keySet());
+            if (!pending.isEmpty()) {
+                stale.forEach(month -> rollups.put(month, newRollup(userId, month)));
+            }
+            write(userId, rollups.values(), pending);
+            if (pending.isEmpty() && !stale.isEmpty()) {
+                mongoTemplate.remove(Query.query(Criteria.where("userId").is(userId).and("month").in(stale)),
+                        MonthlyRollup.class);
+            }
+
+            Set<String> monthsAfter = new HashSet<>();
+            Set<String> appliedAfter = new HashSet<>();
+            applied(userId, monthsAfter, appliedAfter);
+            monthsAfter.removeAll(monthsBefore);
+            monthsAfter.removeAll(rollups.keySet());
+            if (monthsAfter.isEmpty() && known.containsAll(appliedAfter) && known.containsAll(pendingEvents(userId))) {
+                return rollups.size();
+            }
+            if (attempt == REBUILD_ATTEMPTS) {
+                log.warn("Expenses or incomes of user {} kept changing during {} rollup rebuilds", userId, attempt);
+                return rollups.size();
+            }
+        }
+    }
+
+    private Map<String, MonthlyRollup> compute(String userId) {
+        Map<String, MonthlyRollup> rollups = new TreeMap<>();
+        Query byUser = Query.query(Criteria.where("userId").is(userId));
+        try (Stream<Expense> expenses = mongoTemplate.stream(byUser, Expense.class)) {
+            expenses.forEach(e -> {
+                MonthlyRollup r = rollups.computeIfAbsent(monthOf(e.getDate()), m -> newRollup(userId, m));
+                double amount = amountOf(e.getAmount());
+                r.setExpenseTotal(r.getExpenseTotal() + amount);
+                r.setExpenseCount(r.getExpenseCount() + 1);
+                r.getExpensesByCategory().merge(key(e.getCategory(), UNCATEGORIZED), amount, Double::sum);
+                r.getExpensesByAccount().merge(key(e.getSavingsAccountId(), UNLINKED), amount, Double::sum);
+            });
+        }
+        try (Stream<Income> incomes = mongoTemplate.stream(byUser, Income.class)) {
+            incomes.forEach(i -> {
+                MonthlyRollup r = rollups.computeIfAbsent(monthOf(i.getDate()), m -> newRollup(userId, m));
+                double amount = amountOf(i.getAmount());
+                r.setIncomeTotal(r.getIncomeTotal() + amount);
+                r.setIncomeCount(r.getIncomeCount() + 1);
+                r.getIncomesByAccount().merge(key(i.getSavingsAccountId(), UNLINKED), amount, Double::sum);
+            });
+        }
+        return rollups;
+    }
+
+    private void write(String userId, Collection<MonthlyRollup> rollups, List<String> applied) {
+        if (rollups.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MonthlyRollup.class);
+        for (MonthlyRollup r : rollups) {
+            Update update = new Update()
+                    .set("expenseTotal", r.getExpenseTotal())
+                    .set("expenseCount", r.getExpenseCount())
+                    .set("incomeTotal", r.getIncomeTotal())
+                    .set("incomeCount", r.getIncomeCount())
+                    .set("expensesByCategory", r.getExpensesByCategory())
+                    .set("expensesByAccount", r.getExpensesByAccount())
+                    .set("incomesByAccount", r.getIncomesByAccount())
+                    .set("updatedAt", r.getUpdatedAt())
+                    .setOnInsert("userId", userId)
+                    .setOnInsert("month", r.getMonth());
+            if (!applied.isEmpty()) {
+                update.push(AppliedEvents.FIELD).slice(-AppliedEvents.KEEP).each(applied.toArray());
+            }
+            bulk.upsert(Query.query(Criteria.where("_id").is(r.getId())), update);
+        }
+        bulk.execute();
+    }
+
+    /**
+     * The user's months, and the events recorded as applied to them.
+     */
+    private void applied(String userId, Set<String> months, Set<String> eventIds) {
+        Query query = Query.query(Criteria.where("userId").is(userId));
+        query.fields().include("month").include(AppliedEvents.FIELD);
+        for (Document rollup : mongoTemplate.find(query, Document.class,
+                mongoTemplate.getCollectionName(MonthlyRollup.class))) {
+            months.add(rollup.getString("month"));
+            List<String> ids = rollup.getList(AppliedEvents.FIELD, String.class);
+            if (ids != null) {
+                eventIds.addAll(ids);
+            }
+        }
+    }
+
+    private List<String> pendingEvents(String userId) {
+        return AppliedEvents.pending(mongoTemplate, userId, EVENT_TYPES);
+    }
+
+    public void rebuildAll() {
+        long start = System.currentTimeMillis();
+        Set<String> userIds = new LinkedHashSet<>();
+        userIds.addAll(mongoTemplate.findDistinct(new Query(), "userId", Expense.class, String.class));
+        userIds.addAll(mongoTemplate.findDistinct(new Query(), "userId", Income.class, String.class));
+        int months = 0;
+        for (String userId : userIds) {
+            months += rebuild(userId);
+        }
+        log.info("Rebuilt monthly rollups for {} users ({} months) in {}ms",
+                userIds.size(), months, System.currentTimeMillis() - start);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillOnStartup || mongoTemplate.estimatedCount(MonthlyRollup.class) > 0) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                rebuildAll();
+            } catch (Exception e) {
+                log.error("Monthly rollup backfill failed", e);
+            }
+        });
+    }
+
+    // -------------------- Helpers --------------------
+
+    private static MonthlyRollup newRollup(String userId, String month) {
+        MonthlyRollup rollup = new MonthlyRollup();
+        rollup.setId(rollupId(userId, month));
+        rollup.setUserId(userId);
+        rollup.setMonth(month);
+        rollup.setUpdatedAt(LocalDateTime.now());
+        return rollup;
+    }
+
+    private static String rollupId(String userId, String month) {
+        return userId + ":" + month;
+    }
+
+    private static String monthOf(LocalDate date) {
+        return YearMonth.from(date != null ? date : LocalDate.now()).toString();
+    }
+
+    private static double amountOf(Double amount) {
+        return amount != null ? amount : 0;
+    }
+
+    private static String key(String value, String fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        return value.replace('.', '．').replace('$', '＄');
+    }
+
+    private static Map<String, Double> decodeKeys(Map<String, Double> map) {
+        if (map == null) {
+            return new HashMap<>();
+        }
+        Map<String, Double> decoded = new HashMap<>(map.size() * 2);
+        map.forEach((k, v) -> decoded.put(k.replace('．', '.').replace('＄', '$'), v));
+        return decoded;
+    }
+}
@@ -0,0 +1,179 @@
+package com.wealthtracker.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.wealthtracker.model.Notification;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single entry point for creating notifications.
+ *
+ * A recipient set becomes one insertMany instead of a save per member.
+ * notifyAsync() hands the documents to a background writer that drains the
+ * queue in batches, so callers on a request thread return immediately; when
+ * the queue is full the write happens inline instead of being dropped.
+ * Stored notifications are pushed to the recipients' open streams.
+ */
+@Service
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationStreamRegistry streamRegistry;
+    private final BlockingQueue<Notification> queue;
+    private final int batchSize;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public NotificationDispatcher(MongoTemplate mongoTemplate,
+                                  NotificationStreamRegistry streamRegistry,
+                                  @Value("${notifications.queue-capacity:5000}") int queueCapacity,
+                                  @Value("${notifications.batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.streamRegistry = streamRegistry;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.writer = new Thread(this::writeLoop, "notification-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Notify every user in userIds (duplicates and nulls ignored) with one write.
+     */
+    public void notify(Collection<String> userIds, String type, String message, String referenceId) {
+        send(prepare(userIds, type, message, referenceId));
+    }
+
+    public void notify(String userId, String type, String message, String referenceId) {
+        notify(List.of(userId), type, message, referenceId);
+    }
+
+    /**
+     * Same as notify() but the write happens on the background writer.
+     */
+    public void notifyAsync(Collection<String> userIds, String type, String message, String referenceId) {
+        sendAsync(prepare(userIds, type, message, referenceId));
+    }
+
+    /**
+     * One notification per distinct recipient, not yet stored. Lets callers
+     * collect notifications with different messages and send them together.
+     */
+    public List<Notification> prepare(Collection<String> userIds, String type, String message, String referenceId) {
+        List<Notification> notifications = new ArrayList<>();
+        for (String userId : new LinkedHashSet<>(userIds)) {
+            if (userId == null) {
+                continue;
+            }
+            Notification notification = new Notification();
+            notification.setUserId(userId);
+            notification.setType(type);
+            notification.setMessage(message);
+            notification.setReferenceId(referenceId);
+            notifications.add(notification);
+        }
+        return notifications;
+    }
+
+    public void send(List<Notification> notifications) {
+        if (!notifications.isEmpty()) {
+            // insert() fills in the ids, which the pushed copies need
+            streamRegistry.publishCreated(new ArrayList<>(mongoTemplate.insert(notifications, Notification.class)));
+        }
+    }
+
+    /**
+     * Like send() for notifications whose ids were set by the caller: the ones
+     * already stored are skipped and only the newly stored ones are pushed.
+     * Lets a redelivered event notify its recipients once.
+     */
+    public void sendOnce(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        Set<Integer> skipped = new HashSet<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class)
+                    .insert(notifications)
+                    .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+                skipped.add(error.getIndex());
+            }
+        }
+        List<Notification> stored = new ArrayList<>();
+        for (int i = 0; i < notifications.size(); i++) {
+            if (!skipped.contains(i)) {
+                stored.add(notifications.get(i));
+            }
+        }
+        if (!stored.isEmpty()) {
+            streamRegistry.publishCreated(stored);
+        }
+    }
+
+    public void sendAsync(List<Notification> notifications) {
+        List<Notification> overflow = new ArrayList<>();
+        for (Notification notification : notifications) {
+            if (!queue.offer(notification)) {
+                overflow.add(notification);
+            }
+        }
+        if (!overflow.isEmpty()) {
+            log.warn("Notification queue full, writing {} notifications inline", overflow.size());
+            send(overflow);
+        }
+    }
+
+    private void writeLoop() {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Notification first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Failed to write {} notifications", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(5000);
+        List<Notification> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        send(remaining);
+    }
+}
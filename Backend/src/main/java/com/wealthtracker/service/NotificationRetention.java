@@ -0,0 +1,80 @@
+package com.wealthtracker.service;
+
+import com.wealthtracker.model.Notification;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Read state and retention for notifications.
+ *
+ * Marking notifications read is a single updateMany that also stamps
+ * expireAt = now + notifications.read-retention-days; a TTL index on expireAt
+ * lets Mongo delete read notifications once they are past retention. Unread
+ * notifications never expire. A retention of 0 keeps read notifications.
+ */
+@Service
+@Slf4j
+public class NotificationRetention {
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration readRetention;
+
+    public NotificationRetention(MongoTemplate mongoTemplate,
+                                 @Value("${notifications.read-retention-days:30}") long readRetentionDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.readRetention = Duration.ofDays(readRetentionDays);
+    }
+
+    /**
+     * Mark a loaded notification read; the caller saves it.
+     */
+    public void markRead(Notification notification) {
+        notification.setRead(true);
+        notification.setExpireAt(expiry());
+    }
+
+    /**
+     * Mark all of the user's unread notifications read in one round trip.
+     */
+    public long markAllRead(String userId) {
+        return mongoTemplate.updateMulti(
+                Query.query(Criteria.where("userId").is(userId).and("read").is(false)),
+                readUpdate(), Notification.class).getModifiedCount();
+    }
+
+    private Update readUpdate() {
+        return new Update().set("read", true).set("expireAt", expiry());
+    }
+
+    private LocalDateTime expiry() {
+        return readRetention.isZero() ? null : LocalDateTime.now().plus(readRetention);
+    }
+
+    /**
+     * Notifications read before retention existed get an expiry too. The TTL
+     * index itself is declared in IndexCatalog.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void stampReadWithoutExpiry() {
+        if (readRetention.isZero()) {
+            return;
+        }
+        long stamped = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("read").is(true).and("expireAt").exists(false)),
+                new Update().set("expireAt", expiry()),
+                Notification.class).getModifiedCount();
+        if (stamped > 0) {
+            log.info("Scheduled {} read notifications for expiry", stamped);
+        }
+    }
+}
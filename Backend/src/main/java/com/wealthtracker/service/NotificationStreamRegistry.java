@@ -0,0 +1,199 @@
+package com.wealthtracker.service;
+
+import com.wealthtracker.model.Notification;
+import com.wealthtracker.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Open notification streams (SSE) on this node, keyed by user.
+ *
+ * An idle stream is just a parked async request: no thread and no Mongo
+ * query. The unread count is read once when a user's first stream opens and
+ * then kept up to date from the notifications this node writes (via
+ * NotificationDispatcher) and from read/unread changes, so pushes never run
+ * a count per tab. Writes to the sockets happen on one push thread so a slow
+ * client never holds up the code that created the notification.
+ *
+ * Only notifications created on this node are pushed; with several nodes a
+ * client re-syncs on reconnect.
+ */
+@Service
+@Slf4j
+public class NotificationStreamRegistry {
+
+    private static final class UserStreams {
+        final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        final AtomicLong unread = new AtomicLong(-1);
+    }
+
+    private final NotificationRepository notificationRepository;
+    private final long timeoutMs;
+    private final int maxPerUser;
+    private final Map<String, UserStreams> streams = new ConcurrentHashMap<>();
+    private final ExecutorService pushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "notification-push");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public NotificationStreamRegistry(NotificationRepository notificationRepository,
+                                      @Value("${notifications.stream.timeout-ms:1800000}") long timeoutMs,
+                                      @Value("${notifications.stream.max-per-user:10}") int maxPerUser) {
+        this.notificationRepository = notificationRepository;
+        this.timeoutMs = timeoutMs;
+        this.maxPerUser = maxPerUser;
+    }
+
+    /**
+     * Open a stream for the user. The current unread count is sent straight
+     * away; "notification" and "unread-count" events follow as things change.
+     * The client reconnects when the stream times out.
+     */
+    public SseEmitter connect(String userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        UserStreams user = streams.compute(userId, (id, existing) -> {
+            UserStreams streamsForUser = existing != null ? existing : new UserStreams();
+            streamsForUser.emitters.add(emitter);
+            return streamsForUser;
+        });
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(() -> remove(userId, emitter));
+        emitter.onError(e -> remove(userId, emitter));
+
+        // Oldest tabs give way once a user has too many streams open
+        while (user.emitters.size() > maxPerUser) {
+            SseEmitter oldest = user.emitters.remove(0);
+            oldest.complete();
+        }
+
+        if (user.unread.get() < 0) {
+            user.unread.set(notificationRepository.countByUserIdAndReadFalse(userId));
+        }
+        long count = user.unread.get();
+        pushExecutor.execute(() -> send(userId, emitter, unreadEvent(count)));
+        return emitter;
+    }
+
+    /**
+     * Push newly created notifications to their recipients' open streams.
+     */
+    public void publishCreated(List<Notification> notifications) {
+        Map<String, List<Notification>> byUser = notifications.stream()
+                .filter(n -> streams.containsKey(n.getUserId()))
+                .collect(Collectors.groupingBy(Notification::getUserId));
+        byUser.forEach((userId, created) -> {
+            UserStreams user = streams.get(userId);
+            if (user == null) {
+                return;
+            }
+            long unread = user.unread.get() >= 0 ? user.unread.addAndGet(created.size()) : -1;
+            pushExecutor.execute(() -> {
+                for (Notification notification : created) {
+                    broadcast(userId, () -> SseEmitter.event().name("notification").data(notification));
+                }
+                if (unread >= 0) {
+                    broadcast(userId, () -> unreadEvent(unread));
+                }
+            });
+        });
+    }
+
+    /**
+     * The user's unread count changed other than by new notifications
+     * (marked read, deleted). Recounts once if the user has a stream open.
+     */
+    public void publishUnreadChanged(String userId) {
+        UserStreams user = streams.get(userId);
+        if (user == null) {
+            return;
+        }
+        long unread = notificationRepository.countByUserIdAndReadFalse(userId);
+        user.unread.set(unread);
+        pushExecutor.execute(() -> broadcast(userId, () -> unreadEvent(unread)));
+    }
+
+    /**
+     * Same as publishUnreadChanged() when the caller already knows the count.
+     */
+    public void publishUnreadCount(String userId, long unread) {
+        UserStreams user = streams.get(userId);
+        if (user == null) {
+            return;
+        }
+        user.unread.set(unread);
+        pushExecutor.execute(() -> broadcast(userId, () -> unreadEvent(unread)));
+    }
+
+    public int connectionCount() {
+        return streams.values().stream().mapToInt(user -> user.emitters.size()).sum();
+    }
+
+    /**
+     * Comment line on every stream so proxies keep idle connections open and
+     * streams whose client has gone away are noticed and dropped.
+     */
+    @Scheduled(fixedDelayString = "${notifications.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        if (streams.isEmpty()) {
+            return;
+        }
+        pushExecutor.execute(() -> streams.keySet()
+                .forEach(userId -> broadcast(userId, () -> SseEmitter.event().comment("ping"))));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pushExecutor.shutdownNow();
+        List<SseEmitter> open = new ArrayList<>();
+        streams.values().forEach(user -> open.addAll(user.emitters));
+        streams.clear();
+        open.forEach(SseEmitter::complete);
+    }
+
+    // -------------------- Helpers --------------------
+
+    private static SseEmitter.SseEventBuilder unreadEvent(long count) {
+        return SseEmitter.event().name("unread-count").data(Map.of("count", count));
+    }
+
+    // A built event can only be sent once, hence one per emitter
+    private void broadcast(String userId, Supplier<SseEmitter.SseEventBuilder> event) {
+        UserStreams user = streams.get(userId);
+        if (user != null) {
+            user.emitters.forEach(emitter -> send(userId, emitter, event.get()));
+        }
+    }
+
+    private void send(String userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Notification stream for user {} went away: {}", userId, e.getMessage());
+            remove(userId, emitter);
+        }
+    }
+
+    private void remove(String userId, SseEmitter emitter) {
+        streams.computeIfPresent(userId, (id, user) -> {
+            user.emitters.remove(emitter);
+            return user.emitters.isEmpty() ? null : user;
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package com.wealthtracker.service;
+
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.FixedDeposit;
+import com.wealthtracker.repository.ExpenseRepository;
+import com.wealthtracker.repository.SavingsAccountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deducts recurring deposit installments from the linked savings account,
+ * one TransferService installment per month from the month after
+ * lastDeductionDate up to the current month or maturity.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecurringDepositService {
+
+    private final TransferService transferService;
+    private final SavingsAccountRepository savingsAccountRepository;
+    private final ExpenseRepository expenseRepository;
+    private final DomainEventBus eventBus;
+    private final DataVersionService dataVersions;
+
+    public void processDue(FixedDeposit deposit, String userId) {
+        LocalDate startDate = deposit.getStartDate() != null ? deposit.getStartDate() : deposit.getCreatedAt();
+        LocalDate lastDeduction = deposit.getLastDeductionDate();
+        LocalDate now = LocalDate.now();
+        LocalDate maturityDate = deposit.getMaturityDate();
+
+        // Start from the first month of RD or the month after last deduction
+        LocalDate processFrom = lastDeduction != null ? lastDeduction.plusMonths(1).withDayOfMonth(1)
+                : startDate.withDayOfMonth(1);
+
+        // Process all pending months up to current month or maturity (whichever is earlier)
+        LocalDate processUntil = now.isBefore(maturityDate) ? now : maturityDate;
+
+        if (processFrom.isAfter(processUntil)) {
+            return; // No deductions to process
+        }
+        if (savingsAccountRepository.findByIdAndUserId(deposit.getSavingsAccountId(), userId).isEmpty()) {
+            return; // Account not found or doesn't belong to user
+        }
+
+        List<Expense> created = new ArrayList<>();
+        for (LocalDate month = processFrom; !month.isAfter(processUntil); month = month.plusMonths(1)) {
+            // Installments from before transfers were recorded have only their expense
+            LocalDate monthEnd = month.withDayOfMonth(month.lengthOfMonth());
+            if (expenseRepository.existsBySourceDepositIdAndDateBetween(deposit.getId(), month, monthEnd)) {
+                continue;
+            }
+            Expense expense = transferService.payInstallment(deposit, userId, month);
+            if (expense != null) {
+                created.add(expense);
+            }
+        }
+        publish(deposit, userId, created, ChangeType.UPDATED);
+    }
+
+    /**
+     * Deduct the installment for the month the deposit starts in; the
+     * deposit must already be saved.
+     */
+    public void payFirstInstallment(FixedDeposit deposit, String userId) {
+        LocalDate startDate = deposit.getStartDate() != null ? deposit.getStartDate() : LocalDate.now();
+        Expense expense = transferService.payInstallment(deposit, userId, startDate);
+        publish(deposit, userId, expense != null ? List.of(expense) : List.of(), ChangeType.CREATED);
+    }
+
+    private void publish(FixedDeposit deposit, String userId, List<Expense> created, ChangeType depositChange) {
+        for (Expense expense : created) {
+            eventBus.publish(new DomainEvent.ExpenseChanged(userId, ChangeType.CREATED, null, expense));
+        }
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "fixed_deposits", deposit.getId(), depositChange));
+        if (created.isEmpty()) {
+            dataVersions.bump(userId, DataVersionService.FIXED_DEPOSITS);
+            return;
+        }
+        log.debug("Deducted {} installments of RD {}", created.size(), deposit.getId());
+        eventBus.publish(new DomainEvent.AssetChanged(userId, "savings_accounts", deposit.getSavingsAccountId(),
+                ChangeType.UPDATED));
+        dataVersions.bump(userId, DataVersionService.FIXED_DEPOSITS, DataVersionService.SAVINGS_ACCOUNTS,
+                DataVersionService.EXPENSES);
+    }
+}
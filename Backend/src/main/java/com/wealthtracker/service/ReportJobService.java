@@ -0,0 +1,229 @@
+package com.wealthtracker.service;
+
+import com.wealthtracker.agent.AIOrchestrator;
+import com.wealthtracker.agent.AgentType;
+import com.wealthtracker.model.ReportJob;
+import com.wealthtracker.repository.ReportJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs AI reports as background jobs so the HTTP request does not have to stay
+ * open for the whole LLM generation.
+ *
+ * Jobs are persisted in the report_jobs collection; the latest COMPLETED job per
+ * (user, agent type) is the stored report. While a job for a given user/agent
+ * pair is in flight, further submissions return that same job.
+ *
+ * Failed jobs and reports superseded by a newer one expire after
+ * ai.jobs.retention-days. A job still PENDING or RUNNING after
+ * ai.jobs.stale-after-minutes was lost with the node that ran it and is
+ * marked FAILED by a periodic sweep, so clients polling it see it end.
+ */
+@Service
+@Slf4j
+public class ReportJobService {
+
+    private final ReportJobRepository reportJobRepository;
+    private final MongoTemplate mongoTemplate;
+    private final AIOrchestrator aiOrchestrator;
+    private final ThreadPoolTaskExecutor executor;
+    private final long sseTimeoutMs;
+    private final Duration retention;
+    private final Duration staleAfter;
+
+    // userId:agentType -> job currently pending or running on this node
+    private final Map<String, ReportJob> inFlight = new ConcurrentHashMap<>();
+    // jobId -> SSE subscribers waiting for the job to finish
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public ReportJobService(ReportJobRepository reportJobRepository,
+                            MongoTemplate mongoTemplate,
+                            AIOrchestrator aiOrchestrator,
+                            @Qualifier("reportJobExecutor") ThreadPoolTaskExecutor executor,
+                            @Value("${ai.jobs.sse-timeout-ms:600000}") long sseTimeoutMs,
+                            @Value("${ai.jobs.retention-days:30}") long retentionDays,
+                            @Value("${ai.jobs.stale-after-minutes:30}") long staleAfterMinutes) {
+        this.reportJobRepository = reportJobRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.aiOrchestrator = aiOrchestrator;
+        this.executor = executor;
+        this.sseTimeoutMs = sseTimeoutMs;
+        this.retention = Duration.ofDays(retentionDays);
+        this.staleAfter = Duration.ofMinutes(staleAfterMinutes);
+    }
+
+    /**
+     * Start a report job, or return the in-flight one for the same user and agent.
+     *
+     * @throws TaskRejectedException when the worker queue is full
+     */
+    public ReportJob submit(String userId, AgentType agentType) {
+        String key = userId + ":" + agentType.name();
+        // Reserve the slot with the id assigned up front, then persist outside the map
+        ReportJob job = new ReportJob();
+        job.setId(new ObjectId().toHexString());
+        job.setUserId(userId);
+        job.setAgentType(agentType.name());
+        ReportJob existing = inFlight.putIfAbsent(key, job);
+        if (existing != null) {
+            log.info("Coalescing {} request for user {} onto job {}", agentType, userId, existing.getId());
+            return existing;
+        }
+
+        try {
+            reportJobRepository.save(job);
+        } catch (RuntimeException e) {
+            inFlight.remove(key, job);
+            throw e;
+        }
+
+        try {
+            executor.execute(() -> run(key, job, agentType));
+        } catch (TaskRejectedException e) {
+            inFlight.remove(key, job);
+            job.setStatus(ReportJob.FAILED);
+            job.setError("Report queue is full");
+            job.setCompletedAt(LocalDateTime.now());
+            job.setExpireAt(job.getCompletedAt().plus(retention));
+            reportJobRepository.save(job);
+            throw e;
+        }
+        log.info("Queued {} job {} for user {}", agentType, job.getId(), userId);
+        return job;
+    }
+
+    public Optional<ReportJob> getJob(String userId, String jobId) {
+        return reportJobRepository.findById(jobId)
+                .filter(job -> job.getUserId().equals(userId));
+    }
+
+    public Optional<ReportJob> getLatestReport(String userId, AgentType agentType) {
+        return reportJobRepository.findFirstByUserIdAndAgentTypeAndStatusOrderByCompletedAtDesc(
+                userId, agentType.name(), ReportJob.COMPLETED);
+    }
+
+    /**
+     * Subscribe to a job over SSE. A single "status" event is sent once the job
+     * finishes (immediately if it already has), then the stream is closed.
+     */
+    public SseEmitter subscribe(ReportJob job) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        String jobId = job.getId();
+
+        subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>()).add(emitter);
+        emitter.onCompletion(() -> removeSubscriber(jobId, emitter));
+        emitter.onTimeout(() -> removeSubscriber(jobId, emitter));
+
+        // The job may have finished before we registered; the runner persists the
+        // final state before draining subscribers, so re-reading closes that gap.
+        ReportJob current = reportJobRepository.findById(jobId).orElse(job);
+        if (current.isFinished() && removeSubscriber(jobId, emitter)) {
+            send(emitter, current);
+        }
+        return emitter;
+    }
+
+    private void run(String key, ReportJob job, AgentType agentType) {
+        try {
+            job.setStatus(ReportJob.RUNNING);
+            job.setStartedAt(LocalDateTime.now());
+            reportJobRepository.save(job);
+
+            job.setReport(aiOrchestrator.run(agentType, job.getUserId()));
+            job.setStatus(ReportJob.COMPLETED);
+        } catch (Exception e) {
+            log.error("Report job {} failed: ", job.getId(), e);
+            job.setStatus(ReportJob.FAILED);
+            job.setError("Unable to generate report. Please try again.");
+        } finally {
+            job.setCompletedAt(LocalDateTime.now());
+            if (ReportJob.FAILED.equals(job.getStatus())) {
+                job.setExpireAt(job.getCompletedAt().plus(retention));
+            }
+            reportJobRepository.save(job);
+            if (ReportJob.COMPLETED.equals(job.getStatus())) {
+                expireOlderReports(job);
+            }
+            inFlight.remove(key, job);
+
+            List<SseEmitter> waiting = subscribers.remove(job.getId());
+            if (waiting != null) {
+                waiting.forEach(emitter -> send(emitter, job));
+            }
+        }
+    }
+
+    /**
+     * Fail the jobs left PENDING or RUNNING by a node that stopped, and give
+     * failed jobs from before retention an expiry.
+     */
+    @Scheduled(fixedDelayString = "${ai.jobs.sweep-interval-ms:300000}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        long failed = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("status").in(ReportJob.PENDING, ReportJob.RUNNING)
+                        .and("createdAt").lt(now.minus(staleAfter))),
+                new Update()
+                        .set("status", ReportJob.FAILED)
+                        .set("error", "Report generation was interrupted. Please try again.")
+                        .set("completedAt", now)
+                        .set("expireAt", now.plus(retention)),
+                ReportJob.class).getModifiedCount();
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("status").is(ReportJob.FAILED).and("expireAt").exists(false)),
+                new Update().set("expireAt", now.plus(retention)),
+                ReportJob.class);
+        if (failed > 0) {
+            log.warn("Marked {} interrupted report jobs failed", failed);
+        }
+    }
+
+    /**
+     * The reports this one replaces expire; the latest is kept.
+     */
+    private void expireOlderReports(ReportJob job) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("userId").is(job.getUserId())
+                        .and("agentType").is(job.getAgentType())
+                        .and("status").is(ReportJob.COMPLETED)
+                        .and("_id").ne(job.getId())
+                        .and("expireAt").exists(false)),
+                new Update().set("expireAt", job.getCompletedAt().plus(retention)),
+                ReportJob.class);
+    }
+
+    private boolean removeSubscriber(String jobId, SseEmitter emitter) {
+        List<SseEmitter> list = subscribers.get(jobId);
+        return list != null && list.remove(emitter);
+    }
+
+    private void send(SseEmitter emitter, ReportJob job) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(job));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("SSE subscriber for job {} went away: {}", job.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.wealthtracker.service;
+
+import com.mongodb.MongoException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs a unit of work in a Mongo transaction when the replica-set profile
+ * provides a transaction manager (TransactionConfig).
+ *
+ * Every MongoTemplate and repository call made inside the work joins the
+ * transaction. Keep the work to the few writes that must commit together
+ * and do events and other side effects after it returns: the work may run
+ * more than once, because transactions aborted with a transient error (a
+ * write conflict, a primary stepdown) are retried up to
+ * transactions.max-attempts times.
+ */
+@Component
+@Slf4j
+public class TransactionRunner {
+
+    private final TransactionTemplate template;
+    private final int maxAttempts;
+
+    public TransactionRunner(ObjectProvider<MongoTransactionManager> transactionManager,
+                             @Value("${transactions.max-attempts:3}") int maxAttempts) {
+        MongoTransactionManager manager = transactionManager.getIfAvailable();
+        this.template = manager != null ? new TransactionTemplate(manager) : null;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public boolean isAvailable() {
+        return template != null;
+    }
+
+    public <T> T inTransaction(Supplier<T> work) {
+        if (template == null) {
+            throw new IllegalStateException("Transactions need the replica-set profile");
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return template.execute(status -> work.get());
+            } catch (DataAccessException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                log.debug("Retrying transaction after transient error (attempt {}): {}", attempt, e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongo
+                    && mongo.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
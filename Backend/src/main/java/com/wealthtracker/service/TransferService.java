@@ -0,0 +1,382 @@
+package com.wealthtracker.service;
+
+import com.wealthtracker.events.ChangeType;
+import com.wealthtracker.events.DomainEvent;
+import com.wealthtracker.events.DomainEventBus;
+import com.wealthtracker.ledger.SavingsLedger;
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.FixedDeposit;
+import com.wealthtracker.model.LedgerEntry;
+import com.wealthtracker.model.SavingsAccount;
+import com.wealthtracker.model.Transfer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves money out of savings accounts: transfers between two of the user's
+ * accounts and recurring deposit installments (debit the account, record
+ * the installment as an expense). Each one is recorded as a Transfer, and
+ * each balance change as a SavingsLedger entry pointing at it.
+ *
+ * With the replica-set profile the balances, the Transfer and the expense
+ * are written in one small transaction. Without it the Transfer is written
+ * first and walked through its states, and each balance change pushes the
+ * transfer id onto the account (pendingTransfers) in the same update, so a
+ * step can be told apart from one that never happened and is applied at
+ * most once. A transfer whose credit fails has its debit reversed
+ * (COMPENSATED). A transfer left half-way by a crash is finished, or
+ * failed when nothing was debited, by recover() once it is
+ * transfers.recover-after-seconds old.
+ */
+@Service
+@Slf4j
+public class TransferService {
+
+    private final MongoTemplate mongoTemplate;
+    private final TransactionRunner transactions;
+    private final SavingsLedger ledger;
+    private final DomainEventBus eventBus;
+    private final DataVersionService dataVersions;
+    private final MeterRegistry meterRegistry;
+    private final long recoverAfterSeconds;
+
+    public TransferService(MongoTemplate mongoTemplate,
+                           TransactionRunner transactions,
+                           SavingsLedger ledger,
+                           DomainEventBus eventBus,
+                           DataVersionService dataVersions,
+                           MeterRegistry meterRegistry,
+                           @Value("${transfers.recover-after-seconds:300}") long recoverAfterSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.transactions = transactions;
+        this.ledger = ledger;
+        this.eventBus = eventBus;
+        this.dataVersions = dataVersions;
+        this.meterRegistry = meterRegistry;
+        this.recoverAfterSeconds = recoverAfterSeconds;
+    }
+
+    // -------------------- Transfers --------------------
+
+    public Transfer transfer(String userId, String fromAccountId, String toAccountId, double amount) {
+        if (amount <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Amount must be positive");
+        }
+        if (fromAccountId.equals(toAccountId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot transfer to the same account");
+        }
+        Query owned = Query.query(Criteria.where("_id").in(fromAccountId, toAccountId).and("userId").is(userId));
+        if (mongoTemplate.count(owned, SavingsAccount.class) < 2) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+        }
+
+        Transfer transfer = newTransfer(new ObjectId().toHexString(), userId, Transfer.TRANSFER, fromAccountId, amount);
+        transfer.setToAccountId(toAccountId);
+        transfer.setDate(LocalDate.now());
+
+        if (transactions.isAvailable()) {
+            return transactions.inTransaction(() -> {
+                if (!debit(transfer, true, false)) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient balance");
+                }
+                if (!credit(transfer, false)) {
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+                }
+                transfer.setStatus(Transfer.COMPLETED);
+                return mongoTemplate.insert(transfer);
+            });
+        }
+
+        transfer.setStatus(Transfer.PENDING);
+        mongoTemplate.insert(transfer);
+        if (!debit(transfer, true, true)) {
+            advance(transfer, Transfer.PENDING, Transfer.FAILED, "Insufficient balance");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient balance");
+        }
+        advance(transfer, Transfer.PENDING, Transfer.DEBITED, null);
+        if (!credit(transfer, true)) {
+            compensate(transfer, "Destination account not found");
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+        }
+        complete(transfer);
+        return transfer;
+    }
+
+    public List<Transfer> recent(String userId, int limit) {
+        Query query = Query.query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"))
+                .limit(limit);
+        return mongoTemplate.find(query, Transfer.class);
+    }
+
+    // -------------------- RD installments --------------------
+
+    /**
+     * Pay the deposit's installment for the month of date: debit the linked
+     * account and record the installment as an expense dated date. Returns
+     * the expense, or null when the month was already paid (or is being
+     * paid) or the account is gone. Publishes nothing; the caller does.
+     */
+    public Expense payInstallment(FixedDeposit deposit, String userId, LocalDate date) {
+        String id = "rd:" + deposit.getId() + ":" + YearMonth.from(date);
+        Transfer transfer = newTransfer(id, userId, Transfer.RD_INSTALLMENT, deposit.getSavingsAccountId(),
+                deposit.getAmount());
+        transfer.setDepositId(deposit.getId());
+        transfer.setDate(date);
+        transfer.setDescription("RD installment of " + deposit.getAmount() + " from " + deposit.getBankName());
+
+        try {
+            if (transactions.isAvailable()) {
+                return transactions.inTransaction(() -> {
+                    transfer.setStatus(Transfer.COMPLETED);
+                    mongoTemplate.insert(transfer);
+                    if (!debit(transfer, false, false)) {
+                        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Savings account not found");
+                    }
+                    Expense expense = mongoTemplate.insert(installmentExpense(transfer));
+                    markDeducted(transfer);
+                    return expense;
+                });
+            }
+            transfer.setStatus(Transfer.PENDING);
+            mongoTemplate.insert(transfer);
+        } catch (DuplicateKeyException e) {
+            // This month has a Transfer already: paid, or being paid and finished by recover()
+            Transfer existing = mongoTemplate.findById(id, Transfer.class);
+            if (existing != null && Transfer.COMPLETED.equals(existing.getStatus())) {
+                markDeducted(existing);
+            }
+            return null;
+        } catch (ResponseStatusException e) {
+            log.warn("Skipped installment {}: {}", id, e.getReason());
+            return null;
+        }
+
+        if (!debit(transfer, false, true)) {
+            advance(transfer, Transfer.PENDING, Transfer.FAILED, "Savings account not found");
+            return null;
+        }
+        advance(transfer, Transfer.PENDING, Transfer.DEBITED, null);
+        return finishInstallment(transfer);
+    }
+
+    private Expense finishInstallment(Transfer transfer) {
+        Expense expense = mongoTemplate.exists(installmentOf(transfer), Expense.class) ? null
+                : mongoTemplate.insert(installmentExpense(transfer));
+        complete(transfer);
+        markDeducted(transfer);
+        return expense;
+    }
+
+    // The installment expense of the transfer's month
+    private static Query installmentOf(Transfer transfer) {
+        LocalDate month = transfer.getDate().withDayOfMonth(1);
+        return Query.query(Criteria.where("sourceDepositId").is(transfer.getDepositId())
+                .and("date").gte(month).lte(month.withDayOfMonth(month.lengthOfMonth())));
+    }
+
+    private static Expense installmentExpense(Transfer transfer) {
+        Expense expense = new Expense();
+        expense.setUserId(transfer.getUserId());
+        expense.setCategory("RD Installment");
+        expense.setAmount(transfer.getAmount());
+        expense.setDate(transfer.getDate());
+        expense.setDescription(transfer.getDescription());
+        expense.setSavingsAccountId(transfer.getFromAccountId());
+        expense.setSourceDepositId(transfer.getDepositId());
+        return expense;
+    }
+
+    private void markDeducted(Transfer transfer) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(transfer.getDepositId())),
+                new Update().max("lastDeductionDate", transfer.getDate().withDayOfMonth(1))
+                        .set("updatedAt", LocalDate.now())
+                        .inc("version", 1),
+                FixedDeposit.class);
+    }
+
+    // -------------------- Recovery --------------------
+
+    /**
+     * Finish transfers left PENDING or DEBITED by a crash. Each is claimed by
+     * moving its updatedAt forward, so instances do not recover the same one.
+     */
+    @Scheduled(fixedDelayString = "${transfers.recovery-interval-ms:60000}")
+    public void recover() {
+        if (transactions.isAvailable()) {
+            return;
+        }
+        List<String> users = new ArrayList<>();
+        Transfer transfer;
+        while ((transfer = claimStale()) != null) {
+            meterRegistry.counter("transfers.recovered", "status", transfer.getStatus()).increment();
+            log.warn("Recovering {} transfer {} ({})", transfer.getType(), transfer.getId(), transfer.getStatus());
+            try {
+                recover(transfer);
+                users.add(transfer.getUserId());
+            } catch (RuntimeException e) {
+                log.error("Could not recover transfer {}", transfer.getId(), e);
+            }
+        }
+        if (!users.isEmpty()) {
+            dataVersions.bump(users, DataVersionService.SAVINGS_ACCOUNTS, DataVersionService.EXPENSES,
+                    DataVersionService.FIXED_DEPOSITS);
+        }
+    }
+
+    private Transfer claimStale() {
+        LocalDateTime now = LocalDateTime.now();
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("status").in(Transfer.PENDING, Transfer.DEBITED)
+                        .and("updatedAt").lt(now.minusSeconds(recoverAfterSeconds))),
+                new Update().set("updatedAt", now),
+                FindAndModifyOptions.options().returnNew(true),
+                Transfer.class);
+    }
+
+    private void recover(Transfer transfer) {
+        boolean installment = Transfer.RD_INSTALLMENT.equals(transfer.getType());
+        if (Transfer.PENDING.equals(transfer.getStatus())) {
+            boolean debited = holds(transfer.getFromAccountId(), transfer.getId());
+            if (!debited && !installment) {
+                // The client was told it failed (or timed out); nothing to undo
+                advance(transfer, Transfer.PENDING, Transfer.FAILED, "Interrupted before debit");
+                return;
+            }
+            // An installment is due either way, so it is paid rather than dropped
+            if (!debited && !debit(transfer, false, true)) {
+                advance(transfer, Transfer.PENDING, Transfer.FAILED, "Savings account not found");
+                return;
+            }
+            advance(transfer, Transfer.PENDING, Transfer.DEBITED, null);
+        }
+
+        if (installment) {
+            Expense expense = finishInstallment(transfer);
+            if (expense == null) {
+                // Inserted before the crash but never published; AppliedEvents makes a repeat harmless
+                expense = mongoTemplate.findOne(installmentOf(transfer), Expense.class);
+            }
+            if (expense != null) {
+                eventBus.publish(new DomainEvent.ExpenseChanged(transfer.getUserId(), ChangeType.CREATED, null, expense));
+            }
+            // As RecurringDepositService publishes for an installment paid on time
+            eventBus.publish(new DomainEvent.AssetChanged(transfer.getUserId(), DataVersionService.FIXED_DEPOSITS,
+                    transfer.getDepositId(), ChangeType.UPDATED));
+        } else if (holds(transfer.getToAccountId(), transfer.getId()) || credit(transfer, true)) {
+            complete(transfer);
+        } else {
+            compensate(transfer, "Destination account not found");
+        }
+        // Both sides, as SavingsAccountController.transfer publishes them
+        eventBus.publish(new DomainEvent.AssetChanged(transfer.getUserId(), DataVersionService.SAVINGS_ACCOUNTS,
+                transfer.getFromAccountId(), ChangeType.UPDATED));
+        if (transfer.getToAccountId() != null) {
+            eventBus.publish(new DomainEvent.AssetChanged(transfer.getUserId(), DataVersionService.SAVINGS_ACCOUNTS,
+                    transfer.getToAccountId(), ChangeType.UPDATED));
+        }
+    }
+
+    // -------------------- Steps --------------------
+
+    private boolean debit(Transfer transfer, boolean requireBalance, boolean mark) {
+        String type = Transfer.RD_INSTALLMENT.equals(transfer.getType())
+                ? LedgerEntry.RD_INSTALLMENT : LedgerEntry.TRANSFER_OUT;
+        return adjust(transfer, transfer.getFromAccountId(), type, -transfer.getAmount(), requireBalance, mark);
+    }
+
+    private boolean credit(Transfer transfer, boolean mark) {
+        return adjust(transfer, transfer.getToAccountId(), LedgerEntry.TRANSFER_IN, transfer.getAmount(), false, mark);
+    }
+
+    /**
+     * Post to one of the user's accounts. With mark, only if the transfer id
+     * is not already on the account, and the id is pushed in the same update.
+     * Returns false when nothing matched.
+     */
+    private boolean adjust(Transfer transfer, String accountId, String type, double amount,
+                           boolean requireBalance, boolean mark) {
+        Criteria condition = requireBalance ? Criteria.where("balance").gte(-amount) : null;
+        Update update = null;
+        if (mark) {
+            condition = condition != null ? condition.and("pendingTransfers").ne(transfer.getId())
+                    : Criteria.where("pendingTransfers").ne(transfer.getId());
+            update = new Update().push("pendingTransfers", transfer.getId());
+        }
+        return ledger.post(transfer.getUserId(), accountId, condition, update,
+                List.of(posting(transfer, type, amount))).isPresent();
+    }
+
+    private static SavingsLedger.Posting posting(Transfer transfer, String type, double amount) {
+        return new SavingsLedger.Posting(type, amount, transfer.getId(), transfer.getDate(), transfer.getDescription());
+    }
+
+    private boolean holds(String accountId, String transferId) {
+        return mongoTemplate.exists(Query.query(Criteria.where("_id").is(accountId)
+                .and("pendingTransfers").is(transferId)), SavingsAccount.class);
+    }
+
+    private void compensate(Transfer transfer, String reason) {
+        // Conditional on the id, so a repeated compensation refunds once
+        ledger.post(transfer.getUserId(), transfer.getFromAccountId(),
+                Criteria.where("pendingTransfers").is(transfer.getId()),
+                new Update().pull("pendingTransfers", transfer.getId()),
+                List.of(posting(transfer, LedgerEntry.TRANSFER_REFUND, transfer.getAmount())));
+        advance(transfer, Transfer.DEBITED, Transfer.COMPENSATED, reason);
+        meterRegistry.counter("transfers.compensated").increment();
+    }
+
+    private void complete(Transfer transfer) {
+        advance(transfer, Transfer.DEBITED, Transfer.COMPLETED, null);
+        List<String> accounts = new ArrayList<>();
+        accounts.add(transfer.getFromAccountId());
+        if (transfer.getToAccountId() != null) {
+            accounts.add(transfer.getToAccountId());
+        }
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(accounts)),
+                new Update().pull("pendingTransfers", transfer.getId()), SavingsAccount.class);
+    }
+
+    private void advance(Transfer transfer, String from, String to, String reason) {
+        Update update = new Update().set("status", to).set("updatedAt", LocalDateTime.now());
+        if (reason != null) {
+            update.set("failureReason", reason);
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(transfer.getId()).and("status").is(from)),
+                update, Transfer.class);
+        transfer.setStatus(to);
+        transfer.setFailureReason(reason);
+    }
+
+    private static Transfer newTransfer(String id, String userId, String type, String fromAccountId, double amount) {
+        LocalDateTime now = LocalDateTime.now();
+        Transfer transfer = new Transfer();
+        transfer.setId(id);
+        transfer.setUserId(userId);
+        transfer.setType(type);
+        transfer.setFromAccountId(fromAccountId);
+        transfer.setAmount(amount);
+        transfer.setCreatedAt(now);
+        transfer.setUpdatedAt(now);
+        return transfer;
+    }
+}
@@ -0,0 +1,195 @@
+package com.wealthtracker.sync;
+
+import com.wealthtracker.model.SyncChange;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Append-only journal of which user-visible documents changed, read by
+ * /api/sync. Entries are numbered from one global counter; the number of the
+ * last entry a client has seen is its sync token.
+ *
+ * A batch reserves its range of numbers on the counter document and records
+ * the reservation there (inflight) until its entries are inserted. Readers
+ * only go up to the entry before the oldest open reservation, on any node,
+ * so a reader never sees entry n + 1 before entry n and can move its token
+ * past everything it has read. A reservation whose node died before the
+ * insert stops holding readers back after sync.reservation-timeout-seconds;
+ * its numbers are simply never used.
+ *
+ * Entries expire after sync.retention-days. A token older than the oldest
+ * remaining entry can no longer be served and the client has to reload.
+ */
+@Component
+public class SyncJournal {
+
+    public record Touch(String userId, String collection, String documentId) {}
+
+    private static final String COUNTERS = "counters";
+    private static final String COUNTER_ID = "sync_journal";
+    private static final String INFLIGHT = "inflight";
+
+    private final MongoTemplate mongoTemplate;
+    private final long retentionDays;
+    private final Duration reservationTimeout;
+    // Appends on this node queue here rather than retrying against each other on the counter
+    private final Object appendLock = new Object();
+
+    public SyncJournal(MongoTemplate mongoTemplate,
+                       @Value("${sync.retention-days:30}") long retentionDays,
+                       @Value("${sync.reservation-timeout-seconds:60}") long reservationTimeoutSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.retentionDays = retentionDays;
+        this.reservationTimeout = Duration.ofSeconds(reservationTimeoutSeconds);
+    }
+
+    public void append(Collection<Touch> touches) {
+        Set<Touch> distinct = new LinkedHashSet<>(touches);
+        distinct.removeIf(touch -> touch.userId() == null || touch.documentId() == null);
+        if (distinct.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (appendLock) {
+            long first = reserve(distinct.size());
+            try {
+                long seq = first;
+                List<SyncChange> entries = new ArrayList<>(distinct.size());
+                for (Touch touch : distinct) {
+                    SyncChange entry = new SyncChange();
+                    entry.setSeq(seq++);
+                    entry.setUserId(touch.userId());
+                    entry.setCollection(touch.collection());
+                    entry.setDocumentId(touch.documentId());
+                    entry.setCreatedAt(now);
+                    entry.setExpireAt(now.plusDays(retentionDays));
+                    entries.add(entry);
+                }
+                mongoTemplate.insert(entries, SyncChange.class);
+            } finally {
+                release(first);
+            }
+        }
+    }
+
+    /**
+     * The user's entries after the given token, oldest first, up to the
+     * last entry every append before it has finished.
+     */
+    public List<SyncChange> after(String userId, long token, int limit) {
+        Query query = Query.query(Criteria.where("userId").is(userId).and("_id").gt(token).lte(readable()))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit);
+        return mongoTemplate.find(query, SyncChange.class);
+    }
+
+    /**
+     * A token for a client that is about to load everything: the last entry
+     * that no earlier, unfinished append can still land before.
+     */
+    public long currentToken() {
+        return readable();
+    }
+
+    /**
+     * False when entries after the token may already have expired, or the
+     * token was never handed out by this journal.
+     */
+    public boolean canServe(long token) {
+        long counter = counter();
+        if (token < 0 || token > counter) {
+            return false;
+        }
+        SyncChange oldest = edge(Sort.Direction.ASC);
+        long firstRetained = oldest != null ? oldest.getSeq() : counter + 1;
+        return token >= firstRetained - 1;
+    }
+
+    // -------------------- Helpers --------------------
+
+    /**
+     * Take the next count numbers and record the reservation, returning the
+     * first. Compare-and-set on seq, since the reservation has to name its
+     * first number in the same write.
+     */
+    private long reserve(int count) {
+        while (true) {
+            Document counter = mongoTemplate.findById(COUNTER_ID, Document.class, COUNTERS);
+            long seq = counter != null ? ((Number) counter.get("seq")).longValue() : 0;
+            Update update = new Update().set("seq", seq + count)
+                    .push(INFLIGHT, new Document("from", seq + 1).append("at", new Date()));
+            try {
+                UpdateResult result = counter != null
+                        ? mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(COUNTER_ID).and("seq").is(seq)),
+                                update, COUNTERS)
+                        : mongoTemplate.upsert(Query.query(Criteria.where("_id").is(COUNTER_ID).and("seq").exists(false)),
+                                update, COUNTERS);
+                if (result.getModifiedCount() == 1 || result.getUpsertedId() != null) {
+                    return seq + 1;
+                }
+            } catch (DuplicateKeyException e) {
+                // Another node created the counter first
+            }
+        }
+    }
+
+    /**
+     * Drop the reservation, and any that timed out, from the counter.
+     */
+    private void release(long first) {
+        Date expired = Date.from(Instant.now().minus(reservationTimeout));
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(COUNTER_ID)),
+                new Update().pull(INFLIGHT, new Document("$or", List.of(
+                        new Document("from", first),
+                        new Document("at", new Document("$lt", expired))))),
+                COUNTERS);
+    }
+
+    /**
+     * The highest number below every live reservation: entries up to it are
+     * either in the journal or never will be.
+     */
+    private long readable() {
+        Document counter = mongoTemplate.findById(COUNTER_ID, Document.class, COUNTERS);
+        if (counter == null) {
+            return 0;
+        }
+        long readable = ((Number) counter.get("seq")).longValue();
+        Date expired = Date.from(Instant.now().minus(reservationTimeout));
+        for (Document reservation : counter.getList(INFLIGHT, Document.class, List.of())) {
+            if (!reservation.getDate("at").before(expired)) {
+                readable = Math.min(readable, ((Number) reservation.get("from")).longValue() - 1);
+            }
+        }
+        return readable;
+    }
+
+    private long counter() {
+        Document counter = mongoTemplate.findById(COUNTER_ID, Document.class, COUNTERS);
+        return counter != null ? ((Number) counter.get("seq")).longValue() : 0;
+    }
+
+    private SyncChange edge(Sort.Direction direction) {
+        Query query = new Query().with(Sort.by(direction, "_id")).limit(1);
+        query.fields().include("_id");
+        return mongoTemplate.findOne(query, SyncChange.class);
+    }
+}
@@ -0,0 +1,158 @@
+package com.wealthtracker.sync;
+
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.model.ExpenseBook;
+import com.wealthtracker.model.ExpenseBookExpense;
+import com.wealthtracker.model.FixedDeposit;
+import com.wealthtracker.model.Income;
+import com.wealthtracker.model.MutualFund;
+import com.wealthtracker.model.PhysicalAsset;
+import com.wealthtracker.model.SavingsAccount;
+import com.wealthtracker.model.Stock;
+import com.wealthtracker.model.SyncChange;
+import com.wealthtracker.model.Trip;
+import com.wealthtracker.model.TripExpense;
+import com.wealthtracker.service.DataVersionService;
+import com.wealthtracker.util.EncryptionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Changes since a sync token, for clients that keep a local copy of the
+ * user's data.
+ *
+ * The journal only records which documents were touched; each one is read in
+ * its current state. A document that is gone, or that the user can no longer
+ * see (left an expense book), comes back as a tombstone. Deleting a trip or a
+ * book tombstones the parent only: clients drop its children with it. When a
+ * book appears that the client did not have (the user was added to it), the
+ * client loads its expenses from /api/expense-books/{id}/expenses.
+ */
+@Service
+public class SyncService {
+
+    public static final String TRIP_EXPENSES = "trip_expenses";
+    public static final String EXPENSE_BOOK_EXPENSES = "expense_book_expenses";
+
+    /**
+     * upserts: current documents; deletes: ids of documents to drop.
+     */
+    public record Changes(List<Object> upserts, List<String> deletes) {}
+
+    /**
+     * token: pass as since on the next call. hasMore: call again straight away.
+     */
+    public record SyncResult(long token, boolean hasMore, Map<String, Changes> changes) {}
+
+    private final SyncJournal journal;
+    private final MongoTemplate mongoTemplate;
+    private final int pageSize;
+
+    public SyncService(SyncJournal journal,
+                       MongoTemplate mongoTemplate,
+                       @Value("${sync.page-size:500}") int pageSize) {
+        this.journal = journal;
+        this.mongoTemplate = mongoTemplate;
+        this.pageSize = pageSize;
+    }
+
+    public long currentToken() {
+        return journal.currentToken();
+    }
+
+    public boolean canServe(long since) {
+        return journal.canServe(since);
+    }
+
+    public SyncResult changesSince(String userId, long since) {
+        List<SyncChange> entries = journal.after(userId, since, pageSize);
+        if (entries.isEmpty()) {
+            return new SyncResult(since, false, Map.of());
+        }
+
+        Map<String, Set<String>> touched = new LinkedHashMap<>();
+        for (SyncChange entry : entries) {
+            touched.computeIfAbsent(entry.getCollection(), c -> new LinkedHashSet<>()).add(entry.getDocumentId());
+        }
+        Map<String, Changes> changes = new LinkedHashMap<>();
+        touched.forEach((collection, ids) -> changes.put(collection, resolve(userId, collection, ids)));
+
+        return new SyncResult(entries.get(entries.size() - 1).getSeq(), entries.size() == pageSize, changes);
+    }
+
+    // -------------------- Resolving --------------------
+
+    private Changes resolve(String userId, String collection, Set<String> ids) {
+        Map<String, ?> visible = switch (collection) {
+            case DataVersionService.STOCKS -> owned(Stock.class, Stock::getId, ids, userId);
+            case DataVersionService.MUTUAL_FUNDS -> owned(MutualFund.class, MutualFund::getId, ids, userId);
+            case DataVersionService.FIXED_DEPOSITS -> owned(FixedDeposit.class, FixedDeposit::getId, ids, userId);
+            case DataVersionService.SAVINGS_ACCOUNTS -> savingsAccounts(ids, userId);
+            case DataVersionService.EXPENSES -> owned(Expense.class, Expense::getId, ids, userId);
+            case DataVersionService.INCOMES -> owned(Income.class, Income::getId, ids, userId);
+            case DataVersionService.TRIPS -> owned(Trip.class, Trip::getId, ids, userId);
+            case DataVersionService.PHYSICAL_ASSETS -> owned(PhysicalAsset.class, PhysicalAsset::getId, ids, userId);
+            case DataVersionService.EXPENSE_BOOKS -> byId(mongoTemplate.find(Query.query(
+                    Criteria.where("_id").in(ids).and("memberUserIds").is(userId)), ExpenseBook.class), ExpenseBook::getId);
+            case TRIP_EXPENSES -> tripExpenses(ids, userId);
+            case EXPENSE_BOOK_EXPENSES -> bookExpenses(ids, userId);
+            default -> Map.of();
+        };
+
+        List<String> deletes = ids.stream().filter(id -> !visible.containsKey(id)).toList();
+        return new Changes(new ArrayList<>(visible.values()), deletes);
+    }
+
+    private <T> Map<String, T> owned(Class<T> entity, Function<T, String> id, Collection<String> ids, String userId) {
+        return byId(mongoTemplate.find(Query.query(Criteria.where("_id").in(ids).and("userId").is(userId)), entity), id);
+    }
+
+    private Map<String, SavingsAccount> savingsAccounts(Collection<String> ids, String userId) {
+        Map<String, SavingsAccount> accounts = owned(SavingsAccount.class, SavingsAccount::getId, ids, userId);
+        accounts.values().forEach(account -> {
+            if (account.getAccountNumber() != null && !account.getAccountNumber().isEmpty()) {
+                account.setAccountNumber(EncryptionUtil.decrypt(account.getAccountNumber()));
+            }
+        });
+        return accounts;
+    }
+
+    private Map<String, TripExpense> tripExpenses(Collection<String> ids, String userId) {
+        List<TripExpense> expenses = mongoTemplate.find(Query.query(Criteria.where("_id").in(ids)), TripExpense.class);
+        Set<String> tripIds = expenses.stream().map(TripExpense::getTripId).collect(Collectors.toSet());
+        Set<String> ownTrips = owned(Trip.class, Trip::getId, tripIds, userId).keySet();
+        return byId(expenses.stream().filter(e -> ownTrips.contains(e.getTripId())).toList(), TripExpense::getId);
+    }
+
+    private Map<String, ExpenseBookExpense> bookExpenses(Collection<String> ids, String userId) {
+        List<ExpenseBookExpense> expenses = mongoTemplate.find(Query.query(Criteria.where("_id").in(ids)),
+                ExpenseBookExpense.class);
+        Set<String> bookIds = expenses.stream().map(ExpenseBookExpense::getExpenseBookId).collect(Collectors.toSet());
+        Query memberOf = Query.query(Criteria.where("_id").in(bookIds).and("memberUserIds").is(userId));
+        memberOf.fields().include("_id");
+        Set<String> books = mongoTemplate.find(memberOf, ExpenseBook.class).stream()
+                .map(ExpenseBook::getId)
+                .collect(Collectors.toSet());
+        return byId(expenses.stream().filter(e -> books.contains(e.getExpenseBookId())).toList(),
+                ExpenseBookExpense::getId);
+    }
+
+    private static <T> Map<String, T> byId(List<T> documents, Function<T, String> id) {
+        Map<String, T> byId = new LinkedHashMap<>();
+        documents.forEach(document -> byId.put(id.apply(document), document));
+        return byId;
+    }
+}
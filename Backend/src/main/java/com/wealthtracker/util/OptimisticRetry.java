@@ -0,0 +1,75 @@
+package com.wealthtracker.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs a read-modify-write on a versioned document when a concurrent
+ * write got there first (save() throws OptimisticLockingFailureException).
+ *
+ * The attempt must re-read the document each time and keep side effects
+ * that must not repeat (transaction rows, events) after its save. After
+ * optimistic.max-attempts conflicts the request fails with 409. Conflicts
+ * are counted per operation (optimistic.conflicts) so contention shows up
+ * in metrics without any locking.
+ */
+@Component
+@Slf4j
+public class OptimisticRetry {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public OptimisticRetry(MeterRegistry meterRegistry,
+                           @Value("${optimistic.max-attempts:3}") int maxAttempts,
+                           @Value("${optimistic.backoff-millis:20}") long backoffMillis) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public <T> T run(String operation, Supplier<T> attempt) {
+        for (int i = 1; ; i++) {
+            try {
+                return attempt.get();
+            } catch (OptimisticLockingFailureException e) {
+                conflict(operation);
+                if (i >= maxAttempts) {
+                    meterRegistry.counter("optimistic.exhausted", "operation", operation).increment();
+                    log.warn("Gave up on {} after {} conflicting attempts", operation, i);
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "The record was changed by another request, please retry", e);
+                }
+                backoff(i);
+            }
+        }
+    }
+
+    /**
+     * Count a conflict the caller resolved itself (e.g. by leaving the work to
+     * the request that won).
+     */
+    public void conflict(String operation) {
+        meterRegistry.counter("optimistic.conflicts", "operation", operation).increment();
+    }
+
+    private void backoff(int attempt) {
+        // Jittered, so two requests that collided do not collide again
+        long millis = backoffMillis * attempt + ThreadLocalRandom.current().nextLong(backoffMillis + 1);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying", e);
+        }
+    }
+}
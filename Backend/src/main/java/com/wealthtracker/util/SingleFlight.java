@@ -0,0 +1,86 @@
+package com.wealthtracker.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight request coalescing: while a call for a key is running, other
+ * callers with the same key wait for that call's result instead of starting
+ * their own. Nothing is cached once the call completes.
+ *
+ * Metrics: {@code <name>.calls} counts every call, {@code <name>.deduplicated}
+ * counts the calls that were served from another caller's in-flight result.
+ */
+public class SingleFlight<V> {
+
+    /**
+     * Key for a coalesced call. inputHash distinguishes calls by the same user to
+     * the same agent with different inputs.
+     */
+    public record Key(String userId, String agent, int inputHash) {
+        public static Key of(String userId, String agent, Object... inputs) {
+            return new Key(userId, agent, Objects.hash(inputs));
+        }
+    }
+
+    private final Map<Key, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final String metricName;
+
+    public SingleFlight(MeterRegistry meterRegistry, String metricName) {
+        this.meterRegistry = meterRegistry;
+        this.metricName = metricName;
+    }
+
+    public V execute(Key key, Supplier<V> call) {
+        counter("calls", key).increment();
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            counter("deduplicated", key).increment();
+            return await(existing);
+        }
+
+        try {
+            V result = call.get();
+            mine.complete(result);
+            return result;
+        } catch (Throwable t) {
+            // Errors too, or the waiters would block in join() forever
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private Counter counter(String suffix, Key key) {
+        return meterRegistry.counter(metricName + "." + suffix, "agent", key.agent());
+    }
+}
@@ -0,0 +1,102 @@
+package com.wealthtracker.categorization;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class NaiveBayesModelTest {
+
+    private final int[] tokens = new int[64];
+
+    @Test
+    void tokenizeIsCaseInsensitiveAndSkipsNumbersAndSingleLetters() {
+        int n = NaiveBayesModel.tokenize("Dinner at 8 with A friend, 1200", tokens);
+        int[] upper = new int[64];
+        int m = NaiveBayesModel.tokenize("DINNER at 8 WITH a FRIEND", upper);
+
+        assertThat(n).isEqualTo(4); // dinner, at, with, friend
+        assertThat(m).isEqualTo(n);
+        for (int i = 0; i < n; i++) {
+            assertThat(upper[i]).isEqualTo(tokens[i]);
+        }
+        assertThat(NaiveBayesModel.tokenize(null, tokens)).isZero();
+        assertThat(NaiveBayesModel.tokenize("12 34.50", tokens)).isZero();
+    }
+
+    @Test
+    void classifiesByTokenLikelihoodAndNormalisesPosteriors() {
+        NaiveBayesModel model = new NaiveBayesModel();
+        learn(model, "weekly vegetables market", "Groceries");
+        learn(model, "vegetables and fruit", "Groceries");
+        learn(model, "cab to office", "Public Transport");
+
+        double[] scores = new double[model.labelCount()];
+        int best = model.classify(tokens, NaiveBayesModel.tokenize("fresh vegetables", tokens), scores);
+
+        assertThat(model.label(best)).isEqualTo("Groceries");
+        assertThat(scores[0] + scores[1]).isCloseTo(1.0, offset(1e-9));
+        assertThat(scores[best]).isGreaterThan(0.5);
+        assertThat(model.size()).isEqualTo(3);
+    }
+
+    @Test
+    void unlearningRestoresThePreviousCounts() {
+        NaiveBayesModel model = new NaiveBayesModel();
+        learn(model, "cab to office", "Public Transport");
+        learn(model, "pizza dinner", "Dining Out");
+        double[] before = new double[2];
+        model.classify(tokens, NaiveBayesModel.tokenize("dinner cab", tokens), before);
+
+        learn(model, "late dinner cab", "Dining Out");
+        int n = NaiveBayesModel.tokenize("late dinner cab", tokens);
+        model.learn(tokens, n, "Dining Out", -1);
+
+        double[] after = new double[2];
+        model.classify(tokens, NaiveBayesModel.tokenize("dinner cab", tokens), after);
+        assertThat(model.size()).isEqualTo(2);
+        assertThat(after[0]).isCloseTo(before[0], offset(1e-9));
+        assertThat(after[1]).isCloseTo(before[1], offset(1e-9));
+    }
+
+    @Test
+    void emptyModelClassifiesNothing() {
+        NaiveBayesModel model = new NaiveBayesModel();
+        assertThat(model.classify(tokens, NaiveBayesModel.tokenize("anything", tokens), new double[1])).isEqualTo(-1);
+
+        learn(model, "rent", "Housing");
+        model.learn(tokens, NaiveBayesModel.tokenize("rent", tokens), "Housing", -1);
+        assertThat(model.size()).isZero();
+        assertThat(model.classify(tokens, NaiveBayesModel.tokenize("rent", tokens), new double[1])).isEqualTo(-1);
+    }
+
+    @Test
+    void knownLabelIsCaseInsensitiveAndOnlyForLabelsInUse() {
+        NaiveBayesModel model = new NaiveBayesModel();
+        learn(model, "pet food", "Pet Care");
+
+        assertThat(model.knownLabel("pet care")).isEqualTo("Pet Care");
+        assertThat(model.knownLabel("Pets")).isNull();
+
+        model.learn(tokens, NaiveBayesModel.tokenize("pet food", tokens), "Pet Care", -1);
+        assertThat(model.knownLabel("pet care")).isNull();
+    }
+
+    @Test
+    void keepsCountsWhenTheTokenTableAndLabelsGrow() {
+        NaiveBayesModel model = new NaiveBayesModel();
+        for (int i = 0; i < 1000; i++) {
+            learn(model, "word" + i + " shared", "Label" + (i % 20));
+        }
+
+        assertThat(model.size()).isEqualTo(1000);
+        assertThat(model.labelCount()).isEqualTo(20);
+        double[] scores = new double[model.labelCount()];
+        int best = model.classify(tokens, NaiveBayesModel.tokenize("word537", tokens), scores);
+        assertThat(model.label(best)).isEqualTo("Label17");
+    }
+
+    private void learn(NaiveBayesModel model, String description, String label) {
+        model.learn(tokens, NaiveBayesModel.tokenize(description, tokens), label, 1);
+    }
+}
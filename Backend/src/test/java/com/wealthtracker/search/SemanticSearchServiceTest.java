@@ -0,0 +1,104 @@
+package com.wealthtracker.search;
+
+import com.wealthtracker.model.Expense;
+import com.wealthtracker.repository.ExpenseBookExpenseRepository;
+import com.wealthtracker.repository.ExpenseBookRepository;
+import com.wealthtracker.repository.ExpenseRepository;
+import com.wealthtracker.repository.TripExpenseRepository;
+import com.wealthtracker.repository.TripRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SemanticSearchServiceTest {
+
+    private static final String USER = "user-1";
+
+    private final ThreadPoolTaskExecutor indexExecutor = executor("search-index-", 1);
+    private final ThreadPoolTaskExecutor buildExecutor = executor("search-build-", 1);
+    private final SemanticSearchService service = new SemanticSearchService(this::embed,
+            mock(ExpenseRepository.class), mock(TripRepository.class), mock(TripExpenseRepository.class),
+            mock(ExpenseBookRepository.class), mock(ExpenseBookExpenseRepository.class),
+            indexExecutor, buildExecutor, new SimpleMeterRegistry(), 10, 1000, 4);
+
+    @AfterEach
+    void shutdown() {
+        indexExecutor.shutdown();
+        buildExecutor.shutdown();
+    }
+
+    @Test
+    void removalIsNotOvertakenByAnEarlierPut() throws Exception {
+        assertThat(service.search(USER, "coffee", 5)).isEmpty(); // builds the (empty) index
+        // Hold the index thread, so the put is still queued when the removal comes in
+        CountDownLatch held = new CountDownLatch(1);
+        indexExecutor.execute(() -> await(held));
+
+        service.indexExpense(expense("e1", "coffee"));
+        service.remove(List.of(USER), SemanticSearchService.EXPENSE, "e1");
+        held.countDown();
+        drain();
+
+        assertThat(service.search(USER, "coffee", 5)).isEmpty();
+    }
+
+    @Test
+    void blankedDescriptionRemovesTheDocument() throws Exception {
+        service.search(USER, "coffee", 5);
+        service.indexExpense(expense("e1", "coffee"));
+        drain();
+        assertThat(service.search(USER, "coffee", 5)).extracting(SemanticSearchService.SearchResult::id)
+                .containsExactly("e1");
+
+        service.indexExpense(expense("e1", "coffee"));
+        service.indexExpense(expense("e1", " "));
+        drain();
+
+        assertThat(service.search(USER, "coffee", 5)).isEmpty();
+    }
+
+    private List<float[]> embed(List<String> texts) {
+        return texts.stream().map(text -> DescriptionEmbedder.normalize(new float[]{text.length(), 1})).toList();
+    }
+
+    private void drain() throws Exception {
+        indexExecutor.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    private static Expense expense(String id, String description) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setUserId(USER);
+        expense.setCategory("Food");
+        expense.setAmount(3.5);
+        expense.setDate(LocalDate.of(2024, 5, 1));
+        expense.setDescription(description);
+        return expense;
+    }
+
+    private static ThreadPoolTaskExecutor executor(String prefix, int size) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setThreadNamePrefix(prefix);
+        executor.initialize();
+        return executor;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
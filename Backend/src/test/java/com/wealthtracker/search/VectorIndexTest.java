@@ -0,0 +1,116 @@
+package com.wealthtracker.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class VectorIndexTest {
+
+    private static final int DIMS = 16;
+
+    @Test
+    void flatSearchRanksByCosineSimilarity() {
+        VectorIndex<String> index = new VectorIndex<>(1000, 4);
+        index.put("x", unit(1, 0), "x");
+        index.put("y", unit(0, 1), "y");
+        index.put("xy", unit(1, 1), "xy");
+
+        List<VectorIndex.Hit<String>> hits = index.search(unit(1, 0.1f), 3);
+
+        assertThat(hits).extracting(VectorIndex.Hit::key).containsExactly("x", "xy", "y");
+        assertThat(hits.get(0).score()).isCloseTo(0.995f, offset(0.001f));
+        assertThat(hits.get(2).score()).isLessThan(hits.get(1).score());
+    }
+
+    @Test
+    void searchReturnsAtMostK() {
+        VectorIndex<String> index = new VectorIndex<>(1000, 4);
+        Random random = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            index.put("k" + i, random(random), "p" + i);
+        }
+
+        assertThat(index.search(random(random), 5)).hasSize(5);
+        assertThat(index.search(random(random), 50)).hasSize(20);
+    }
+
+    @Test
+    void putReplacesAndRemoveForgetsKey() {
+        VectorIndex<String> index = new VectorIndex<>(1000, 4);
+        index.put("a", unit(1, 0), "old");
+        index.put("b", unit(0, 1), "b");
+        index.put("a", unit(0, 1), "new");
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search(unit(0, 1), 2)).extracting(VectorIndex.Hit::payload)
+                .containsExactlyInAnyOrder("new", "b");
+
+        index.remove("a");
+        index.remove("missing");
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search(unit(0, 1), 5)).extracting(VectorIndex.Hit::key).containsExactly("b");
+    }
+
+    @Test
+    void trainedIndexFindsExactVectorsAfterSwapRemoves() {
+        VectorIndex<Integer> index = new VectorIndex<>(64, 64);
+        Random random = new Random(7);
+        float[][] vectors = new float[300][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = random(random);
+            index.put("k" + i, vectors[i], i);
+        }
+        // Removing from the middle moves the last slot into the hole
+        for (int i = 0; i < vectors.length; i += 3) {
+            index.remove("k" + i);
+        }
+
+        assertThat(index.size()).isEqualTo(200);
+        for (int i = 1; i < vectors.length; i += 3) {
+            // nprobe covers every list, so IVF search must be exact
+            List<VectorIndex.Hit<Integer>> hits = index.search(vectors[i], 1);
+            assertThat(hits).hasSize(1);
+            assertThat(hits.get(0).payload()).isEqualTo(i);
+        }
+        assertThat(index.search(vectors[0], 300)).extracting(VectorIndex.Hit::key).doesNotContain("k0");
+    }
+
+    @Test
+    void trainedIndexWithFewProbesStillFindsNearDuplicates() {
+        VectorIndex<Integer> index = new VectorIndex<>(64, 2);
+        Random random = new Random(11);
+        float[][] vectors = new float[500][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = random(random);
+            index.put("k" + i, vectors[i], i);
+        }
+
+        int found = 0;
+        for (int i = 0; i < vectors.length; i++) {
+            if (index.search(vectors[i], 1).get(0).payload() == i) {
+                found++;
+            }
+        }
+        // A vector's own list is always the one with its nearest centroid
+        assertThat(found).isEqualTo(vectors.length);
+    }
+
+    private static float[] unit(float x, float y) {
+        float[] v = new float[DIMS];
+        v[0] = x;
+        v[1] = y;
+        return DescriptionEmbedder.normalize(v);
+    }
+
+    private static float[] random(Random random) {
+        float[] v = new float[DIMS];
+        for (int i = 0; i < DIMS; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return DescriptionEmbedder.normalize(v);
+    }
+}
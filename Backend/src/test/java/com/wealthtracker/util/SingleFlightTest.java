@@ -0,0 +1,123 @@
+package com.wealthtracker.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final SingleFlight.Key KEY = SingleFlight.Key.of("user-1", "agent");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<String> singleFlight = new SingleFlight<>(registry, "test");
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> slow = () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "result";
+        };
+
+        Future<String> leader = executor.submit(() -> singleFlight.execute(KEY, slow));
+        waitUntil(() -> singleFlight.inFlightCount() == 1);
+        Future<String> follower = executor.submit(() -> singleFlight.execute(KEY, slow));
+        waitUntil(() -> deduplicated() == 1);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(calls).hasValue(1);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void differentKeysDoNotCoalesce() {
+        assertThat(singleFlight.execute(KEY, () -> "a")).isEqualTo("a");
+        assertThat(singleFlight.execute(SingleFlight.Key.of("user-2", "agent"), () -> "b")).isEqualTo("b");
+        assertThat(deduplicated()).isZero();
+    }
+
+    @Test
+    void completedCallsAreNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        singleFlight.execute(KEY, () -> "first" + calls.incrementAndGet());
+
+        assertThat(singleFlight.execute(KEY, () -> "second" + calls.incrementAndGet())).isEqualTo("second2");
+    }
+
+    @Test
+    void runtimeExceptionReachesEveryCaller() throws Exception {
+        assertFailureReachesFollower(new IllegalStateException("boom"));
+    }
+
+    @Test
+    void errorReachesEveryCallerInsteadOfHangingThem() throws Exception {
+        assertFailureReachesFollower(new AssertionError("boom"));
+    }
+
+    private void assertFailureReachesFollower(Throwable failure) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> failing = () -> {
+            await(release);
+            throwUnchecked(failure);
+            return null;
+        };
+
+        Future<String> leader = executor.submit(() -> singleFlight.execute(KEY, failing));
+        waitUntil(() -> singleFlight.inFlightCount() == 1);
+        Future<String> follower = executor.submit(() -> singleFlight.execute(KEY, failing));
+        waitUntil(() -> deduplicated() == 1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCause(failure);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCause(failure);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    private double deduplicated() {
+        return registry.counter("test.deduplicated", "agent", "agent").count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void throwUnchecked(Throwable t) {
+        if (t instanceof RuntimeException e) {
+            throw e;
+        }
+        throw (Error) t;
+    }
+
+    private static void waitUntil(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.get()) {
+            assertThat(System.nanoTime()).as("timed out waiting").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
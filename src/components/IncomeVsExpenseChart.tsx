@@ -13,8 +13,7 @@ import {
 import { Button } from "@/components/ui/button";
 import { Dialog, DialogContent, DialogHeader, DialogTitle } from "@/components/ui/dialog";
 import { Receipt, TrendingUp, TrendingDown, Wallet } from "lucide-react";
-import { useExpenses } from "@/hooks/useExpenses";
-import { useIncome } from "@/hooks/useIncome";
+import { useMonthlyRollups } from "@/hooks/useMonthlyRollups";
 import { IncomeList } from "@/components/IncomeList";
 
 // ── Helpers ───────────────────────────────────────────────────────────────────
@@ -136,25 +135,11 @@ const CustomLegend = () => (
 
 // ── Main Component ─────────────────────────────────────────────────────────────
 export const IncomeVsExpenseChart = () => {
-  const { expenses } = useExpenses();
-  const { incomes } = useIncome();
+  const { rollups } = useMonthlyRollups(6);
   const [showIncomeList, setShowIncomeList] = useState(false);
 
   const chartData = useMemo(() => {
-    const monthlyExpenses: { [key: string]: number } = {};
-    const monthlyIncomes: { [key: string]: number } = {};
-
-    expenses.forEach((expense) => {
-      const date = new Date(expense.date);
-      const monthKey = `${date.getFullYear()}-${String(date.getMonth() + 1).padStart(2, "0")}`;
-      monthlyExpenses[monthKey] = (monthlyExpenses[monthKey] || 0) + expense.amount;
-    });
-
-    incomes.forEach((income) => {
-      const date = new Date(income.date);
-      const monthKey = `${date.getFullYear()}-${String(date.getMonth() + 1).padStart(2, "0")}`;
-      monthlyIncomes[monthKey] = (monthlyIncomes[monthKey] || 0) + income.amount;
-    });
+    const byMonth = new Map(rollups.map((r) => [r.month, r]));
 
     const months = [];
     const now = new Date();
@@ -163,8 +148,8 @@ export const IncomeVsExpenseChart = () => {
       const monthKey = `${date.getFullYear()}-${String(date.getMonth() + 1).padStart(2, "0")}`;
       const monthName = date.toLocaleDateString("en-US", { month: "short", year: "2-digit" });
 
-      const income = monthlyIncomes[monthKey] || 0;
-      const expense = monthlyExpenses[monthKey] || 0;
+      const income = byMonth.get(monthKey)?.incomeTotal || 0;
+      const expense = byMonth.get(monthKey)?.expenseTotal || 0;
 
       months.push({
         month: monthName,
@@ -175,7 +160,7 @@ export const IncomeVsExpenseChart = () => {
     }
 
     return months;
-  }, [expenses, incomes]);
+  }, [rollups]);
 
   // ── Summary stats ────────────────────────────────────────────────────────
   const totalIncome = useMemo(() => chartData.reduce((s, r) => s + r.income, 0), [chartData]);
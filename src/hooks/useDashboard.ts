@@ -0,0 +1,58 @@
+import { useState, useEffect } from 'react';
+import { useAuth } from '@/contexts/AuthContext';
+import { dashboardAPI } from '@/services/api';
+
+export interface DashboardTotals {
+  savingsAccounts: number;
+  mutualFunds: number;
+  fixedDeposits: number;
+  stocks: number;
+  physicalAssets: number;
+}
+
+export interface DashboardActivity {
+  type: 'expense' | 'income';
+  id: string;
+  label: string;
+  amount: number;
+  date: string;
+}
+
+export interface Dashboard {
+  totals: DashboardTotals;
+  total: number;
+  allocation: Record<keyof DashboardTotals, number>;
+  month: { month: string; income: number; expenses: number };
+  recentActivity: DashboardActivity[];
+  generatedAt: string;
+}
+
+/**
+ * Per-class totals computed by the server (/api/dashboard), so the cards do
+ * not have to sum every holding in the browser.
+ */
+export const useDashboard = () => {
+  const { user } = useAuth();
+  const [dashboard, setDashboard] = useState<Dashboard | null>(null);
+  const [loading, setLoading] = useState(false);
+
+  const fetchDashboard = async () => {
+    if (!user) return;
+
+    setLoading(true);
+    try {
+      const data = await dashboardAPI.get();
+      setDashboard(data);
+    } catch (error) {
+      console.error('Error fetching dashboard:', error);
+    } finally {
+      setLoading(false);
+    }
+  };
+
+  useEffect(() => {
+    fetchDashboard();
+  }, [user]);
+
+  return { dashboard, loading, refetch: fetchDashboard };
+};
@@ -0,0 +1,49 @@
+import { useState, useEffect } from 'react';
+import { useAuth } from '@/contexts/AuthContext';
+import { rollupAPI } from '@/services/api';
+
+export interface MonthlyRollup {
+  month: string; // yyyy-MM
+  expenseTotal: number;
+  expenseCount: number;
+  incomeTotal: number;
+  incomeCount: number;
+  expensesByCategory: Record<string, number>;
+  expensesByAccount: Record<string, number>;
+  incomesByAccount: Record<string, number>;
+}
+
+const monthKey = (date: Date) =>
+  `${date.getFullYear()}-${String(date.getMonth() + 1).padStart(2, '0')}`;
+
+/**
+ * Server-side monthly totals for the last `months` months (including the
+ * current one), instead of downloading every expense and income.
+ */
+export const useMonthlyRollups = (months: number) => {
+  const { user } = useAuth();
+  const [rollups, setRollups] = useState<MonthlyRollup[]>([]);
+  const [loading, setLoading] = useState(false);
+
+  const fetchRollups = async () => {
+    if (!user) return;
+
+    setLoading(true);
+    try {
+      const now = new Date();
+      const from = monthKey(new Date(now.getFullYear(), now.getMonth() - (months - 1), 1));
+      const data = await rollupAPI.getRange(from, monthKey(now));
+      setRollups(data);
+    } catch (error) {
+      console.error('Error fetching monthly rollups:', error);
+    } finally {
+      setLoading(false);
+    }
+  };
+
+  useEffect(() => {
+    fetchRollups();
+  }, [user, months]);
+
+  return { rollups, loading, refetch: fetchRollups };
+};
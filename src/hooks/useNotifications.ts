@@ -45,12 +45,45 @@ export const useNotifications = () => {
 
   useEffect(() => {
     fetchNotifications();
-    fetchUnreadCount();
+    if (!user) return;
+
+    // Pushed over SSE; reconnect with backoff and re-sync when the stream drops
+    const controller = new AbortController();
+    let retryDelay = 1000;
+    let retryTimer: ReturnType<typeof setTimeout>;
+
+    const connect = async () => {
+      try {
+        await notificationAPI.stream((event, data) => {
+          retryDelay = 1000;
+          if (event === 'unread-count') {
+            setUnreadCount(JSON.parse(data).count);
+          } else if (event === 'notification') {
+            const notification: AppNotification = JSON.parse(data);
+            setNotifications(prev =>
+              prev.some(n => n.id === notification.id) ? prev : [notification, ...prev]
+            );
+          }
+        }, controller.signal);
+      } catch (error) {
+        if (controller.signal.aborted) return;
+        console.error('Notification stream error:', error);
+        fetchUnreadCount();
+      }
+      if (controller.signal.aborted) return;
+      retryTimer = setTimeout(() => {
+        fetchNotifications();
+        connect();
+      }, retryDelay);
+      retryDelay = Math.min(retryDelay * 2, 60000);
+    };
+    connect();
 
-    // Poll for unread count every 30 seconds
-    const interval = setInterval(fetchUnreadCount, 30000);
-    return () => clearInterval(interval);
-  }, [fetchNotifications, fetchUnreadCount]);
+    return () => {
+      controller.abort();
+      clearTimeout(retryTimer);
+    };
+  }, [user, fetchNotifications, fetchUnreadCount]);
 
   const markAsRead = async (id: string) => {
     try {
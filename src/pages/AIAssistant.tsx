@@ -209,6 +209,8 @@ const AIAssistant = () => {
   ]);
   const [chatInput, setChatInput] = useState("");
   const [chatLoading, setChatLoading] = useState(false);
+  // Server-side conversation session; the backend keeps the message window
+  const chatSessionId = useRef<string | undefined>(undefined);
   const scrollRef = useRef<HTMLDivElement>(null);
 
   useEffect(() => {
@@ -302,7 +304,8 @@ const AIAssistant = () => {
     setChatLoading(true);
 
     try {
-      const data = await aiAPI.chat(msgText);
+      const data = await aiAPI.chat(msgText, chatSessionId.current);
+      chatSessionId.current = data.sessionId;
       setMessages((prev) => [
         ...prev,
         { role: "assistant", content: data.response, timestamp: new Date() },
@@ -8,6 +8,7 @@ import { SavingsChart } from "@/components/SavingsChart";
 import { TopExpenses } from "@/components/TopExpenses";
 import { useIncome } from "@/hooks/useIncome";
 import { useExpenses } from "@/hooks/useExpenses";
+import { useDashboard } from "@/hooks/useDashboard";
 import { IncomeVsExpenseChart } from "@/components/IncomeVsExpenseChart";
 import { AddIncomeDialog } from "@/components/AddIncomeDialog";
 import { Dialog, DialogContent, DialogHeader, DialogTitle } from "@/components/ui/dialog";
@@ -50,29 +51,19 @@ const Index = () => {
   const [selectedAsset, setSelectedAsset] = useState<AssetType>(null);
   const [addAssetType, setAddAssetType] = useState<'savings' | 'mutual-fund' | 'fixed-deposit' | 'stock' | null>(null);
   const [showAddExpense, setShowAddExpense] = useState(false);
+  const { dashboard, refetch: refetchDashboard } = useDashboard();
+
+  // Card totals come from the server; reload them whenever a holding changes
+  useEffect(() => {
+    refetchDashboard();
+  }, [savingsAccounts, mutualFunds, fixedDeposits, stocks]);
 
   if (loading) return null;
 
-  const totalSavings = savingsAccounts.reduce((sum, acc) => sum + acc.balance, 0);
-  const totalMutualFunds = mutualFunds.reduce((sum, fund) => sum + (fund.units * fund.nav), 0);
-  const totalFixedDeposits = fixedDeposits.reduce((sum, fd) => {
-    if (fd.depositType === 'RD') {
-      const startDate = new Date(fd.startDate || fd.createdAt || new Date());
-      const now = new Date();
-      const monthsElapsed = Math.max(1,
-        (now.getFullYear() - startDate.getFullYear()) * 12 +
-        (now.getMonth() - startDate.getMonth()) + 1
-      );
-      const maturityDate = new Date(fd.maturityDate);
-      const totalMonths = Math.max(1,
-        (maturityDate.getFullYear() - startDate.getFullYear()) * 12 +
-        (maturityDate.getMonth() - startDate.getMonth())
-      );
-      return sum + (fd.amount * Math.min(monthsElapsed, totalMonths));
-    }
-    return sum + fd.amount;
-  }, 0);
-  const totalStocks = stocks.reduce((sum, stock) => sum + (stock.quantity * stock.purchasePrice), 0);
+  const totalSavings = dashboard?.totals.savingsAccounts ?? 0;
+  const totalMutualFunds = dashboard?.totals.mutualFunds ?? 0;
+  const totalFixedDeposits = dashboard?.totals.fixedDeposits ?? 0;
+  const totalStocks = dashboard?.totals.stocks ?? 0;
   const totalAssets = totalSavings + totalMutualFunds + totalFixedDeposits + totalStocks;
 
   // Calculate monthly additions (current month and previous month)
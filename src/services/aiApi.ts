@@ -7,11 +7,11 @@ export interface AgentReport {
 }
 
 export const aiAPI = {
-  chat: async (message: string) => {
+  chat: async (message: string, sessionId?: string): Promise<{ response: string; sessionId?: string }> => {
     const response = await fetch(`${API_BASE_URL}/ai/chat`, {
       method: 'POST',
       headers: getAuthHeaders(),
-      body: JSON.stringify({ message }),
+      body: JSON.stringify({ message, sessionId }),
     });
     if (!response.ok) throw new Error('Failed to send message');
     return response.json();
@@ -1,5 +1,20 @@
 import { API_BASE_URL, getAuthHeaders } from '@/config/api';
 
+// POST with an Idempotency-Key. A network failure is retried once with the same
+// key, so the server applies the request (and any balance change) only once.
+const idempotentPost = async (url: string, data: unknown) => {
+  const init = {
+    method: 'POST',
+    headers: { ...getAuthHeaders(), 'Idempotency-Key': crypto.randomUUID() },
+    body: JSON.stringify(data)
+  };
+  try {
+    return await fetch(url, init);
+  } catch {
+    return fetch(url, init);
+  }
+};
+
 // -------------------- Auth API --------------------
 export const authAPI = {
   signup: async (email: string, password: string, name: string) => {
@@ -115,6 +130,27 @@ export const savingsAccountAPI = {
       body: JSON.stringify({ fromAccountId, toAccountId, amount })
     });
     if (!response.ok) throw new Error('Failed to transfer funds');
+  },
+
+  // Ledger entries newest first; pass nextBefore from a page to get the next one
+  statement: async (id: string, before?: number, limit = 50) => {
+    const params = new URLSearchParams({ limit: String(limit) });
+    if (before !== undefined) params.set('before', String(before));
+    const response = await fetch(`${API_BASE_URL}/savings-accounts/${id}/statement?${params}`, {
+      method: 'GET',
+      headers: getAuthHeaders()
+    });
+    if (!response.ok) throw new Error('Failed to fetch account statement');
+    return response.json();
+  },
+
+  balanceAt: async (id: string, date: string) => {
+    const response = await fetch(`${API_BASE_URL}/savings-accounts/${id}/balance?date=${date}`, {
+      method: 'GET',
+      headers: getAuthHeaders()
+    });
+    if (!response.ok) throw new Error('Failed to fetch balance');
+    return response.json();
   }
 };
 
@@ -140,11 +176,8 @@ export const mutualFundAPI = {
   },
 
   addUnits: async (id: string, units: number, nav: number, purchaseDate: string) => {
-    const response = await fetch(`${API_BASE_URL}/mutual-funds/${id}/add-units`, {
-      method: 'POST',
-      headers: getAuthHeaders(),
-      body: JSON.stringify({ units, nav, purchaseDate })
-    });
+    const response = await idempotentPost(`${API_BASE_URL}/mutual-funds/${id}/add-units`,
+      { units, nav, purchaseDate });
     if (!response.ok) throw new Error('Failed to add units');
     return response.json();
   },
@@ -261,11 +294,8 @@ export const stockAPI = {
   },
 
   addUnits: async (id: string, quantity: number, purchasePrice: number, purchaseDate: string) => {
-    const response = await fetch(`${API_BASE_URL}/stocks/${id}/add-units`, {
-      method: 'POST',
-      headers: getAuthHeaders(),
-      body: JSON.stringify({ quantity, purchasePrice, purchaseDate })
-    });
+    const response = await idempotentPost(`${API_BASE_URL}/stocks/${id}/add-units`,
+      { quantity, purchasePrice, purchaseDate });
     if (!response.ok) throw new Error('Failed to add units');
     return response.json();
   },
@@ -323,11 +353,7 @@ export const expenseAPI = {
   },
 
   create: async (data: any) => {
-    const response = await fetch(`${API_BASE_URL}/expenses`, {
-      method: 'POST',
-      headers: getAuthHeaders(),
-      body: JSON.stringify(data)
-    });
+    const response = await idempotentPost(`${API_BASE_URL}/expenses`, data);
     if (!response.ok) throw new Error('Failed to create expense');
     return response.json();
   },
@@ -362,11 +388,7 @@ export const incomeAPI = {
   },
 
   create: async (data: any) => {
-    const response = await fetch(`${API_BASE_URL}/incomes`, {
-      method: 'POST',
-      headers: getAuthHeaders(),
-      body: JSON.stringify(data)
-    });
+    const response = await idempotentPost(`${API_BASE_URL}/incomes`, data);
     if (!response.ok) throw new Error('Failed to create income');
     return response.json();
   },
@@ -390,6 +412,51 @@ export const incomeAPI = {
   }
 };
 
+// -------------------- Monthly Rollup API --------------------
+export const rollupAPI = {
+  // from / to are inclusive yyyy-MM months
+  getRange: async (from: string, to: string) => {
+    const response = await fetch(`${API_BASE_URL}/rollups?from=${from}&to=${to}`, {
+      headers: getAuthHeaders()
+    });
+    if (!response.ok) throw new Error('Failed to fetch monthly rollups');
+    return response.json();
+  }
+};
+
+export const dashboardAPI = {
+  // Totals, allocation, this month's income/expenses and recent activity in one call
+  get: async () => {
+    const response = await fetch(`${API_BASE_URL}/dashboard`, {
+      headers: getAuthHeaders()
+    });
+    if (!response.ok) throw new Error('Failed to fetch dashboard');
+    return response.json();
+  }
+};
+
+export const syncAPI = {
+  // Without `since` only a starting token is returned; a 410 means reload everything
+  changes: async (since?: number) => {
+    const query = since !== undefined ? `?since=${since}` : '';
+    const response = await fetch(`${API_BASE_URL}/sync${query}`, {
+      headers: getAuthHeaders()
+    });
+    if (response.status === 410) throw new Error('Sync token expired');
+    if (!response.ok) throw new Error('Failed to sync');
+    return response.json();
+  }
+};
+
+export const batchAPI = {
+  // operations: [{ resource, action, id?, data? }]; one result per operation, in order
+  run: async (operations: unknown[]) => {
+    const response = await idempotentPost(`${API_BASE_URL}/batch`, { operations });
+    if (!response.ok) throw new Error('Failed to run batch');
+    return response.json();
+  }
+};
+
 // -------------------- Trip API --------------------
 export const tripAPI = {
   getAll: async () => {
@@ -598,6 +665,38 @@ export const notificationAPI = {
       headers: getAuthHeaders()
     });
     if (!response.ok) throw new Error('Failed to mark all as read');
+  },
+
+  // Server-sent events; fetch instead of EventSource so the auth header can be sent
+  stream: async (
+    onEvent: (event: string, data: string) => void,
+    signal: AbortSignal
+  ) => {
+    const response = await fetch(`${API_BASE_URL}/notifications/stream`, {
+      headers: { ...getAuthHeaders(), Accept: 'text/event-stream' },
+      signal
+    });
+    if (!response.ok || !response.body) throw new Error('Failed to open notification stream');
+
+    const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+    let buffer = '';
+    while (true) {
+      const { value, done } = await reader.read();
+      if (done) return;
+      buffer += value;
+      let boundary;
+      while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+        const block = buffer.slice(0, boundary);
+        buffer = buffer.slice(boundary + 2);
+        let event = 'message';
+        const data: string[] = [];
+        for (const line of block.split('\n')) {
+          if (line.startsWith('event:')) event = line.slice(6).trim();
+          else if (line.startsWith('data:')) data.push(line.slice(5).trimStart());
+        }
+        if (data.length > 0) onEvent(event, data.join('\n'));
+      }
+    }
   }
 };
 